@@ -0,0 +1,147 @@
+package com.n26;
+
+import com.n26.standalone.StandaloneServer;
+import com.n26.stats.TransactionStatisticsRecorderImpl;
+import org.junit.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Startup benchmark of the Spring application against the standalone server, run with
+ * <tt>mvn test -Pbench -Dtest=StartupBenchmark</tt>.
+ *
+ * <p>Every run starts a fresh JVM of the test class path that brings up one of the servers on a free port and reports
+ * the time from JVM start until the server accepts requests, then heap used after a full GC and resident set size
+ * (Linux only, -1 elsewhere). Medians over runs are reported.
+ *
+ * <p>Results are printed and written to <tt>target/bench/startup.csv</tt>. System properties: <tt>bench.runs</tt>
+ * per server (default 5) and <tt>bench.jvmArgs</tt> (comma separated, default none), e.g. <tt>-Xmx64m</tt>.
+ */
+public class StartupBenchmark {
+    private static final List<String> SERVERS = Arrays.asList("spring", "standalone");
+    private static final String RESULT = "startup";
+
+    private final int runs = Integer.getInteger("bench.runs", 5);
+    private final String jvmArgs = System.getProperty("bench.jvmArgs", "");
+
+    @Test
+    public void run() throws IOException, InterruptedException {
+        Path directory = Files.createDirectories(Paths.get("target", "bench"));
+        try (PrintWriter startup = new PrintWriter(Files.newBufferedWriter(directory.resolve("startup.csv")))) {
+            startup.println("server,run,startupMillis,heapUsedBytes,rssKilobytes");
+            System.out.printf("%-10s %14s %14s %14s%n", "server", "startup ms", "heap used KB", "RSS KB");
+            for (String server : SERVERS) {
+                long[][] results = new long[3][runs];
+                for (int run = 0; run < runs; run++) {
+                    long[] result = launch(server);
+                    startup.printf("%s,%d,%d,%d,%d%n", server, run, result[0], result[1], result[2]);
+                    for (int m = 0; m < result.length; m++) {
+                        results[m][run] = result[m];
+                    }
+                }
+                System.out.printf("%-10s %14d %14d %14d%n",
+                        server, median(results[0]), median(results[1]) / 1024, median(results[2]));
+            }
+        }
+    }
+
+    /**
+     * Returns startup time, heap used and resident set size reported by a child JVM starting a given server.
+     */
+    private long[] launch(String server) throws IOException, InterruptedException {
+        // surefire may hide the class path behind a manifest-only jar
+        String classPath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String arg : jvmArgs.split(",")) {
+            if (!arg.trim().isEmpty()) {
+                command.add(arg.trim());
+            }
+        }
+        command.addAll(Arrays.asList("-cp", classPath, StartupBenchmark.class.getName(), server));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long[] result = null;
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = out.readLine(); line != null; line = out.readLine()) {
+                if (line.startsWith(RESULT + " ")) {
+                    result = Arrays.stream(line.substring(RESULT.length() + 1).split(" "))
+                            .mapToLong(Long::parseLong).toArray();
+                }
+            }
+        }
+        int status = process.waitFor();
+        if (status != 0 || result == null) {
+            throw new IllegalStateException(server + " exited with status " + status + " without result");
+        }
+        return result;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Child JVM: starts the server given as the only argument, prints {@value #RESULT} line and exits.
+     */
+    public static void main(String... args) throws Exception {
+        AutoCloseable server;
+        if ("spring".equals(args[0])) {
+            ConfigurableApplicationContext context = SpringApplication.run(Application.class,
+                    "--server.port=0", "--spring.main.banner-mode=off", "--logging.level.root=WARN");
+            server = context::close;
+        } else if ("standalone".equals(args[0])) {
+            Clock clock = Clock.systemUTC();
+            StandaloneServer standalone = new StandaloneServer(new InetSocketAddress("localhost", 0),
+                    Runtime.getRuntime().availableProcessors(),
+                    new TransactionStatisticsRecorderImpl(Duration.ofSeconds(60), 1000, clock),
+                    Duration.ZERO, 2, clock);
+            standalone.start();
+            server = standalone;
+        } else {
+            throw new IllegalArgumentException("Unknown server: " + args[0]);
+        }
+        long startupMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.gc();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        System.out.println(RESULT + " " + startupMillis + " " + heap.getUsed() + " " + residentSetKilobytes());
+        server.close();
+        System.exit(0);
+    }
+
+    /**
+     * Returns VmRSS of <tt>/proc/self/status</tt>, or -1 if there is none.
+     */
+    private static long residentSetKilobytes() throws IOException {
+        File status = new File("/proc/self/status");
+        if (!status.canRead()) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status.toPath(), StandardCharsets.UTF_8)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim());
+            }
+        }
+        return -1;
+    }
+}
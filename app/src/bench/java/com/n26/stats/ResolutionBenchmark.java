@@ -0,0 +1,256 @@
+package com.n26.stats;
+
+import com.n26.replay.SimulatedClock;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Differential benchmark of the bucket engine against the exact engine, run with <tt>mvn test -Pbench</tt>.
+ *
+ * <p>For every resolution and stream both engines record the same transactions on a simulated clock, the bucket
+ * engine ticked whenever a tick is due, and summaries are compared at random points, a simulated second apart on
+ * average, once the window got filled. Relative errors of count, sum, max and min are reported as mean, median,
+ * 99th percentile and maximum. Throughput (ns/op of recording, ticks included, and of summary) is measured
+ * separately on the uniform stream.
+ *
+ * <p>Results are printed and written to <tt>target/bench/accuracy.csv</tt> and <tt>target/bench/throughput.csv</tt>.
+ * System properties: <tt>bench.resolutions</tt> (comma separated, default 10,60,100,600,1000,6000),
+ * <tt>bench.transactions</tt> per stream (default 300000), <tt>bench.rate</tt> per simulated second
+ * (default 1000) and <tt>bench.parallelThreshold</tt> of throughput runs (default 0, sequential summary).
+ */
+public class ResolutionBenchmark {
+    private static final Duration MAX_AGE = Duration.ofSeconds(60);
+    private static final long MAX_AGE_NANOS = MAX_AGE.toNanos();
+    private static final long TIME_ZERO_NANOS = 1543140098L * 1_000_000_000L;
+    private static final String[] METRICS = {"count", "sum", "max", "min"};
+
+    private final int[] resolutions = Arrays.stream(System.getProperty("bench.resolutions", "10,60,100,600,1000,6000")
+            .split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+    private final int transactions = Integer.getInteger("bench.transactions", 300_000);
+    private final int rate = Integer.getInteger("bench.rate", 1000);
+    private final int parallelThreshold = Integer.getInteger("bench.parallelThreshold", 0);
+
+    /**
+     * Generated stream of transactions, each arriving at <tt>now</tt>.
+     */
+    enum Stream {
+        /**
+         * In order with up to 100ms of jitter, amounts uniform in [0, 1000).
+         */
+        UNIFORM {
+            @Override
+            long timestamp(Random random, long now, long bucketWidth) {
+                return now - (long) (random.nextDouble() * 100_000_000L);
+            }
+        },
+        /**
+         * Bursts within 1ns of bucket boundaries, where quantization moves a transaction to the neighbouring bucket.
+         */
+        BUCKET_EDGES {
+            @Override
+            long timestamp(Random random, long now, long bucketWidth) {
+                long gridOffset = Math.floorMod(now - TIME_ZERO_NANOS, bucketWidth);
+                long edge = now - gridOffset - bucketWidth * random.nextInt(3);
+                return Math.min(now, edge + random.nextInt(3) - 1);
+            }
+        },
+        /**
+         * In order, Pareto distributed amounts (alpha 1.1) so that rare extremes dominate max and sum.
+         */
+        SKEWED {
+            @Override
+            long timestamp(Random random, long now, long bucketWidth) {
+                return now;
+            }
+
+            @Override
+            BigDecimal amount(Random random) {
+                double pareto = 1 / Math.pow(1 - random.nextDouble(), 1 / 1.1);
+                return BigDecimal.valueOf(Math.min(Math.round(pareto * 100), Long.MAX_VALUE / 2), 2);
+            }
+        },
+        /**
+         * Arbitrarily late, timestamps uniform over the whole window.
+         */
+        LATE {
+            @Override
+            long timestamp(Random random, long now, long bucketWidth) {
+                return now - (long) (random.nextDouble() * (MAX_AGE_NANOS - 1));
+            }
+        };
+
+        abstract long timestamp(Random random, long now, long bucketWidth);
+
+        BigDecimal amount(Random random) {
+            return BigDecimal.valueOf(random.nextInt(100_000), 2);
+        }
+    }
+
+    @Test
+    public void run() throws IOException {
+        Path directory = Files.createDirectories(Paths.get("target", "bench"));
+        try (PrintWriter accuracy = new PrintWriter(Files.newBufferedWriter(directory.resolve("accuracy.csv")));
+             PrintWriter throughput = new PrintWriter(Files.newBufferedWriter(directory.resolve("throughput.csv")))) {
+            accuracy.println("stream,resolution,metric,mean,p50,p99,max");
+            throughput.println("engine,resolution,recordNsPerOp,summaryNsPerOp");
+            System.out.printf("%-12s %10s %-6s %12s %12s %12s %12s%n",
+                    "stream", "resolution", "metric", "mean", "p50", "p99", "max");
+            for (Stream stream : Stream.values()) {
+                for (int resolution : resolutions) {
+                    double[][] errors = compare(stream, resolution);
+                    for (int m = 0; m < METRICS.length; m++) {
+                        double[] e = errors[m];
+                        Arrays.sort(e);
+                        double mean = Arrays.stream(e).average().orElse(0);
+                        double p50 = percentile(e, 0.5);
+                        double p99 = percentile(e, 0.99);
+                        double max = e.length > 0 ? e[e.length - 1] : 0;
+                        accuracy.printf("%s,%d,%s,%g,%g,%g,%g%n", stream, resolution, METRICS[m], mean, p50, p99, max);
+                        System.out.printf("%-12s %10d %-6s %12.3e %12.3e %12.3e %12.3e%n",
+                                stream, resolution, METRICS[m], mean, p50, p99, max);
+                    }
+                }
+            }
+            System.out.printf("%n%-8s %10s %14s %14s%n", "engine", "resolution", "record ns/op", "summary ns/op");
+            for (int resolution : resolutions) {
+                double[] ns = measure(resolution);
+                throughput.printf("buckets,%d,%.1f,%.1f%n", resolution, ns[0], ns[1]);
+                System.out.printf("%-8s %10d %14.1f %14.1f%n", "buckets", resolution, ns[0], ns[1]);
+            }
+            double[] ns = measure(0);
+            throughput.printf("exact,,%.1f,%.1f%n", ns[0], ns[1]);
+            System.out.printf("%-8s %10s %14.1f %14.1f%n", "exact", "", ns[0], ns[1]);
+        }
+    }
+
+    /**
+     * Returns relative errors of count, sum, max and min of the bucket engine, one per comparison.
+     */
+    private double[][] compare(Stream stream, int resolution) {
+        SimulatedClock clock = new SimulatedClock(instant(TIME_ZERO_NANOS));
+        TransactionStatisticsRecorderImpl buckets = new TransactionStatisticsRecorderImpl(MAX_AGE, resolution, clock);
+        ExactTransactionStatisticsRecorder exact = new ExactTransactionStatisticsRecorder(
+                MAX_AGE, Duration.ZERO, Integer.MAX_VALUE - 8, clock);
+        long bucketWidth = MAX_AGE_NANOS / resolution;
+        long interval = 1_000_000_000L / rate;
+        // compared at random points (a second apart on average) so that queries do not line up with the grid
+        double[][] errors = new double[METRICS.length][transactions / (rate / 2) + 1];
+        Random random = new Random(resolution * 31L + stream.ordinal());
+        long nextTick = nanos(buckets.getNextTick());
+        long nextComparison = TIME_ZERO_NANOS + MAX_AGE_NANOS;
+        int c = 0;
+        for (int i = 0; i < transactions; i++) {
+            long now = TIME_ZERO_NANOS + i * interval + random.nextInt((int) interval);
+            clock.setInstant(instant(now));
+            if (now >= nextTick) {
+                buckets.tick();
+                nextTick = nanos(buckets.getNextTick());
+            }
+            BigDecimal amount = stream.amount(random);
+            Instant timestamp = instant(stream.timestamp(random, now, bucketWidth));
+            buckets.recordTransaction(amount, timestamp);
+            exact.recordTransaction(amount, timestamp);
+            if (now >= nextComparison) {
+                StatisticsSummary<BigDecimal> actual = buckets.getSummary();
+                StatisticsSummary<BigDecimal> expected = exact.getSummary();
+                errors[0][c] = relativeError(BigDecimal.valueOf(actual.getCount()),
+                        BigDecimal.valueOf(expected.getCount()));
+                errors[1][c] = relativeError(actual.getSum(), expected.getSum());
+                errors[2][c] = relativeError(actual.getMax(), expected.getMax());
+                errors[3][c] = relativeError(actual.getMin(), expected.getMin());
+                c++;
+                nextComparison = now + 500_000_000L + (long) (random.nextDouble() * 1_000_000_000L);
+            }
+        }
+        for (int m = 0; m < METRICS.length; m++) {
+            errors[m] = Arrays.copyOf(errors[m], c);
+        }
+        return errors;
+    }
+
+    /**
+     * Returns ns/op of recording and of summary on the uniform stream, of the bucket engine of a given resolution or
+     * of the exact engine if resolution is 0. The first of two runs warms up.
+     */
+    private double[] measure(int resolution) {
+        long interval = 1_000_000_000L / rate;
+        Random random = new Random(resolution);
+        long[] nows = new long[transactions];
+        BigDecimal[] amounts = new BigDecimal[transactions];
+        Instant[] timestamps = new Instant[transactions];
+        for (int i = 0; i < transactions; i++) {
+            nows[i] = TIME_ZERO_NANOS + i * interval;
+            amounts[i] = Stream.UNIFORM.amount(random);
+            timestamps[i] = instant(Stream.UNIFORM.timestamp(random, nows[i], 0));
+        }
+        double[] ns = null;
+        for (int run = 0; run < 2; run++) {
+            SimulatedClock clock = new SimulatedClock(instant(TIME_ZERO_NANOS));
+            TransactionStatisticsRecorderImpl buckets = null;
+            if (resolution > 0) {
+                TransactionStatisticsRecorderImpl.Builder builder = TransactionStatisticsRecorderImpl
+                        .builder(MAX_AGE, resolution)
+                        .clock(clock);
+                if (parallelThreshold > 0) {
+                    builder.parallelSummary(ForkJoinPool.commonPool(), parallelThreshold);
+                }
+                buckets = builder.build();
+            }
+            TransactionStatisticsRecorder recorder = buckets != null ? buckets
+                    : new ExactTransactionStatisticsRecorder(MAX_AGE, Duration.ZERO, Integer.MAX_VALUE - 8, clock);
+            long nextTick = buckets != null ? nanos(buckets.getNextTick()) : Long.MAX_VALUE;
+            long start = System.nanoTime();
+            for (int i = 0; i < transactions; i++) {
+                clock.setInstant(instant(nows[i]));
+                if (nows[i] >= nextTick) {
+                    buckets.tick();
+                    nextTick = nanos(buckets.getNextTick());
+                }
+                recorder.recordTransaction(amounts[i], timestamps[i]);
+            }
+            long recordNanos = System.nanoTime() - start;
+            int summaries = Math.max(1, transactions / 10);
+            long count = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < summaries; i++) {
+                count += recorder.getSummary().getCount();
+            }
+            long summaryNanos = System.nanoTime() - start;
+            if (count < 0) {
+                throw new AssertionError(); // keeps summaries from being optimized away
+            }
+            ns = new double[]{(double) recordNanos / transactions, (double) summaryNanos / summaries};
+        }
+        return ns;
+    }
+
+    private static double relativeError(BigDecimal actual, BigDecimal expected) {
+        double e = expected.doubleValue();
+        double diff = Math.abs(actual.doubleValue() - e);
+        return e != 0 ? diff / Math.abs(e) : diff;
+    }
+
+    private static double percentile(double[] sorted, double p) {
+        return sorted.length > 0 ? sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] : 0;
+    }
+
+    private static Instant instant(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+
+    private static long nanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+}
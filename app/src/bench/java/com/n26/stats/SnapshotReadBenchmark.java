@@ -0,0 +1,99 @@
+package com.n26.stats;
+
+import com.n26.replay.SimulatedClock;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Benchmark of summary read modes, run with <tt>mvn test -Pbench</tt>.
+ *
+ * <p>Writer threads record transactions into random buckets of the window while a single reader keeps computing
+ * summaries, with snapshot reads disabled and enabled. Reported are ns/op of recording (per writer thread) and of
+ * summary. With snapshot reads the summary cost includes retries and the blocking fallback.
+ *
+ * <p>Results are printed and written to <tt>target/bench/snapshot.csv</tt>.
+ * System properties: <tt>bench.writers</tt> (comma separated thread counts, default 1,2,4),
+ * <tt>bench.resolution</tt> (default 1000) and <tt>bench.duration</tt> of every measurement (default PT2S).
+ */
+public class SnapshotReadBenchmark {
+    private static final Duration MAX_AGE = Duration.ofSeconds(60);
+    private static final Instant NOW = Instant.ofEpochSecond(1543140098L);
+
+    private final String[] writers = System.getProperty("bench.writers", "1,2,4").split(",");
+    private final int resolution = Integer.getInteger("bench.resolution", 1000);
+    private final Duration duration = Duration.parse(System.getProperty("bench.duration", "PT2S"));
+
+    @Test
+    public void run() throws Exception {
+        Path directory = Files.createDirectories(Paths.get("target", "bench"));
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(directory.resolve("snapshot.csv")))) {
+            out.println("snapshotReads,writers,recordNsPerOp,summaryNsPerOp");
+            System.out.printf("%-14s %8s %14s %14s%n", "snapshot reads", "writers", "record ns/op", "summary ns/op");
+            for (String w : writers) {
+                int threads = Integer.parseInt(w.trim());
+                for (boolean snapshotReads : new boolean[]{false, true}) {
+                    measure(threads, snapshotReads); // warm-up
+                    double[] ns = measure(threads, snapshotReads);
+                    out.printf("%b,%d,%.1f,%.1f%n", snapshotReads, threads, ns[0], ns[1]);
+                    System.out.printf("%-14b %8d %14.1f %14.1f%n", snapshotReads, threads, ns[0], ns[1]);
+                }
+            }
+        }
+    }
+
+    private double[] measure(int threads, boolean snapshotReads) throws Exception {
+        TransactionStatisticsRecorderImpl recorder = TransactionStatisticsRecorderImpl.builder(MAX_AGE, resolution)
+                .snapshotReads(snapshotReads)
+                .clock(new SimulatedClock(NOW))
+                .build();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                BigDecimal amount = BigDecimal.valueOf(12345, 2);
+                long ops = 0;
+                long start = System.nanoTime();
+                while (running.get()) {
+                    recorder.recordTransaction(amount, NOW.minusMillis(random.nextInt(59_000)));
+                    ops++;
+                }
+                return new long[]{ops, System.nanoTime() - start};
+            }));
+        }
+        long summaries = 0;
+        long deadline = System.nanoTime() + duration.toNanos();
+        long start = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            summaries += recorder.getSummary().getCount() >= 0 ? 1 : 0;
+        }
+        long summaryNanos = System.nanoTime() - start;
+        running.set(false);
+        long ops = 0;
+        long recordNanos = 0;
+        for (Future<long[]> future : futures) {
+            long[] result = future.get();
+            ops += result[0];
+            recordNanos += result[1];
+        }
+        executor.shutdown();
+        return new double[]{(double) recordNanos / ops, (double) summaryNanos / summaries};
+    }
+}
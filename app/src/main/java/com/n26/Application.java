@@ -1,11 +1,18 @@
 package com.n26;
 
+import com.n26.replay.ReplayCommand;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.Arrays;
+
 @SpringBootApplication
 public class Application {
     public static void main(String... args) {
+        if (args.length > 0 && "replay".equals(args[0])) {
+            ReplayCommand.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         SpringApplication.run(Application.class, args);
     }
 }
@@ -0,0 +1,152 @@
+package com.n26.config;
+
+import com.n26.rest.GzipRequestFilter;
+import com.n26.stats.DecayedTransactionStatisticsRecorder;
+import com.n26.stats.ExactTransactionStatisticsRecorder;
+import com.n26.stats.ExpiredBucketListener;
+import com.n26.stats.FinalizedIntervals;
+import com.n26.stats.HistogramBins;
+import com.n26.stats.ReconfigurableTransactionStatisticsRecorder;
+import com.n26.stats.StatisticsHistory;
+import com.n26.stats.TeeTransactionStatisticsRecorder;
+import com.n26.stats.TickDriver;
+import com.n26.stats.TransactionStatisticsRecorder;
+import com.n26.stats.TransactionStatisticsRecorderImpl;
+import com.n26.stats.store.SegmentStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Clock;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+@Configuration
+@EnableConfigurationProperties({RecorderProperties.class, SerializationProperties.class, IngestProperties.class})
+public class ApplicationConfig {
+
+    @Bean
+    Clock clock() {
+        return Clock.systemUTC();
+    }
+
+    @Bean
+    FilterRegistrationBean<GzipRequestFilter> gzipRequestFilter(IngestProperties properties) {
+        FilterRegistrationBean<GzipRequestFilter> registration = new FilterRegistrationBean<>(
+                new GzipRequestFilter(properties.getGzip().getMaxInflatedSize().toBytes()));
+        registration.addUrlPatterns("/transactions", "/transactions/batch");
+        return registration;
+    }
+
+    @Bean
+    StatisticsHistory statisticsHistory(RecorderProperties properties) {
+        return new StatisticsHistory(properties.getHistoryRetention());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "recorder.watermark", name = "enabled")
+    FinalizedIntervals finalizedIntervals(RecorderProperties properties) {
+        return new FinalizedIntervals(properties.getWatermark().getRetention());
+    }
+
+    /**
+     * Pool merging bucket ranges of large windows on summary, shut down with the context.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnExpression("${recorder.parallel-summary-threshold:0} > 0")
+    ForkJoinPool summaryPool() {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("summary-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    @Bean
+    ReconfigurableTransactionStatisticsRecorder transactionStatistics(RecorderProperties properties,
+                                                                      IngestProperties ingestProperties,
+                                                                      StatisticsHistory statisticsHistory,
+                                                                      ObjectProvider<SegmentStore> segmentStore,
+                                                                      ObjectProvider<ForkJoinPool> summaryPool,
+                                                                      ObjectProvider<FinalizedIntervals> intervals,
+                                                                      Clock clock) {
+        SegmentStore store = segmentStore.getIfAvailable();
+        ForkJoinPool pool = summaryPool.getIfAvailable();
+        FinalizedIntervals finalizedIntervals = intervals.getIfAvailable();
+        ExpiredBucketListener listener = store != null ? statisticsHistory.andThen(store) : statisticsHistory;
+        RecorderProperties.Histogram histogram = properties.getHistogram();
+        HistogramBins bins = histogram.isEnabled() ?
+                new HistogramBins(histogram.getLowest(), histogram.getGrowth(), histogram.getBins()) : null;
+        return new ReconfigurableTransactionStatisticsRecorder(properties.getDuration(), properties.getResolution(),
+                (duration, resolution) -> {
+                    TransactionStatisticsRecorderImpl.Builder builder = TransactionStatisticsRecorderImpl
+                            .builder(duration, resolution)
+                            .futureSkew(properties.getFutureSkew())
+                            .allowedLateness(properties.getAllowedLateness())
+                            .shards(properties.getShards())
+                            .snapshotReads(properties.isSnapshotReads())
+                            .histogram(bins)
+                            .watermark(finalizedIntervals != null)
+                            // asynchronous ingestion is the only writer, batches included, unless other listeners
+                            // write as well
+                            .singleWriter(ingestProperties.getAsync().isEnabled()
+                                    && !ingestProperties.getTcp().isEnabled()
+                                    && !ingestProperties.getSharedMemory().isEnabled())
+                            .clock(clock);
+                    if (pool != null) {
+                        builder.parallelSummary(pool, properties.getParallelSummaryThreshold());
+                    }
+                    TransactionStatisticsRecorderImpl recorder = builder.build();
+                    recorder.setExpiredBucketListener(listener);
+                    recorder.setFinalizedIntervalListener(finalizedIntervals);
+                    return recorder;
+                });
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${recorder.engine:buckets}'.toLowerCase() matches 'decayed|both'")
+    DecayedTransactionStatisticsRecorder decayedTransactionStatistics(RecorderProperties properties, Clock clock) {
+        return new DecayedTransactionStatisticsRecorder(properties.getDuration(), properties.getFutureSkew(), clock);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "recorder", name = "engine", havingValue = "exact")
+    ExactTransactionStatisticsRecorder exactTransactionStatistics(RecorderProperties properties, Clock clock) {
+        return new ExactTransactionStatisticsRecorder(properties.getDuration(), properties.getFutureSkew(),
+                properties.getMaxTransactions(), clock);
+    }
+
+    /**
+     * Recorder of the configured engine, receiving all ingested transactions and serving <tt>/statistics</tt>.
+     */
+    @Bean
+    @Primary
+    TransactionStatisticsRecorder transactionStatisticsRecorder(
+            RecorderProperties properties,
+            ReconfigurableTransactionStatisticsRecorder transactionStatistics,
+            ObjectProvider<DecayedTransactionStatisticsRecorder> decayedTransactionStatistics,
+            ObjectProvider<ExactTransactionStatisticsRecorder> exactTransactionStatistics) {
+        switch (properties.getEngine()) {
+            case DECAYED:
+                return decayedTransactionStatistics.getObject();
+            case BOTH:
+                return new TeeTransactionStatisticsRecorder(transactionStatistics,
+                        decayedTransactionStatistics.getObject());
+            case EXACT:
+                return exactTransactionStatistics.getObject();
+            default:
+                return transactionStatistics;
+        }
+    }
+
+    @Bean(initMethod = "start")
+    TickDriver tickDriver(ReconfigurableTransactionStatisticsRecorder transactionStatistics, Clock clock) {
+        return new TickDriver(transactionStatistics, clock);
+    }
+}
@@ -0,0 +1,24 @@
+package com.n26.config;
+
+import com.n26.stats.store.SegmentStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+@ConditionalOnProperty(prefix = "archive", name = "enabled")
+@EnableConfigurationProperties(ArchiveProperties.class)
+public class ArchiveConfig {
+
+    @Bean
+    SegmentStore segmentStore(ArchiveProperties properties, Clock clock) {
+        SegmentStore store = new SegmentStore(properties.getDirectory(),
+                properties.getFineSlotWidth(), properties.getCoarseSlotWidth(), properties.getCompactAfter(),
+                properties.getScale(), clock);
+        store.start(properties.getCompactionInterval());
+        return store;
+    }
+}
@@ -0,0 +1,74 @@
+package com.n26.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "archive", ignoreUnknownFields = false)
+public class ArchiveProperties {
+    private boolean enabled = false;
+    private Path directory = Paths.get("archive");
+    private Duration fineSlotWidth = Duration.ofSeconds(1);
+    private Duration coarseSlotWidth = Duration.ofMinutes(1);
+    private Duration compactAfter = Duration.ofDays(1);
+    private Duration compactionInterval = Duration.ofMinutes(10);
+    private int scale = 4;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    public Duration getFineSlotWidth() {
+        return fineSlotWidth;
+    }
+
+    public void setFineSlotWidth(Duration fineSlotWidth) {
+        this.fineSlotWidth = fineSlotWidth;
+    }
+
+    public Duration getCoarseSlotWidth() {
+        return coarseSlotWidth;
+    }
+
+    public void setCoarseSlotWidth(Duration coarseSlotWidth) {
+        this.coarseSlotWidth = coarseSlotWidth;
+    }
+
+    public Duration getCompactAfter() {
+        return compactAfter;
+    }
+
+    public void setCompactAfter(Duration compactAfter) {
+        this.compactAfter = compactAfter;
+    }
+
+    public Duration getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    public void setCompactionInterval(Duration compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public void setScale(int scale) {
+        this.scale = scale;
+    }
+}
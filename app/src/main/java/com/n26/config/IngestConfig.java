@@ -0,0 +1,106 @@
+package com.n26.config;
+
+import com.n26.ingest.DuplicateFilter;
+import com.n26.ingest.LoadShedder;
+import com.n26.ingest.SharedMemoryRingBuffer;
+import com.n26.ingest.TcpIngestionServer;
+import com.n26.ingest.TransactionRingBuffer;
+import com.n26.replication.ReplicationStandby;
+import com.n26.rest.LatencyFilter;
+import com.n26.stats.TickDriver;
+import com.n26.stats.TransactionStatisticsRecorder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.Clock;
+
+@Configuration
+public class IngestConfig {
+
+    @Bean(initMethod = "start")
+    @ConditionalOnProperty(prefix = "ingest.async", name = "enabled")
+    TransactionRingBuffer transactionRingBuffer(IngestProperties properties,
+                                                TransactionStatisticsRecorder transactionStatistics) {
+        return new TransactionRingBuffer(transactionStatistics,
+                properties.getAsync().getCapacity(), properties.getAsync().getBatchSize());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "ingest.shedding", name = "enabled")
+    LoadShedder loadShedder(IngestProperties properties, ObjectProvider<TransactionRingBuffer> transactionRingBuffer) {
+        IngestProperties.Shedding shedding = properties.getShedding();
+        TransactionRingBuffer ringBuffer = transactionRingBuffer.getIfAvailable();
+        return new LoadShedder(shedding.getLatencyThreshold(), shedding.getDepthThreshold(),
+                ringBuffer != null ? ringBuffer::getDepth : () -> 0,
+                shedding.getMaxWeight(), shedding.getAdjustInterval());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "ingest.shedding", name = "enabled")
+    FilterRegistrationBean<LatencyFilter> latencyFilter(LoadShedder loadShedder) {
+        FilterRegistrationBean<LatencyFilter> registration = new FilterRegistrationBean<>(new LatencyFilter(loadShedder));
+        registration.addUrlPatterns("/transactions");
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "ingest.dedup", name = "enabled")
+    DuplicateFilter duplicateFilter(IngestProperties properties, Clock clock) {
+        IngestProperties.Dedup dedup = properties.getDedup();
+        return new DuplicateFilter(dedup.getWindow(), dedup.getGenerations(), dedup.getExpectedRate(),
+                dedup.getFalsePositiveRate(), clock);
+    }
+
+    @Bean(initMethod = "start")
+    @ConditionalOnProperty(prefix = "ingest.dedup", name = "enabled")
+    TickDriver duplicateFilterTickDriver(DuplicateFilter duplicateFilter, Clock clock) {
+        return new TickDriver(duplicateFilter, clock);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "ingest.tcp", name = "enabled")
+    TcpIngestionServer tcpIngestionServer(IngestProperties properties,
+                                          TransactionStatisticsRecorder transactionStatistics,
+                                          ObjectProvider<ReplicationStandby> replicationStandby) throws IOException {
+        IngestProperties.Tcp tcp = properties.getTcp();
+        TcpIngestionServer server = new TcpIngestionServer(transactionStatistics,
+                new InetSocketAddress(tcp.getHost(), tcp.getPort()), tcp.getBufferSize());
+        ReplicationStandby standby = replicationStandby.getIfAvailable();
+        if (standby != null) {
+            standby.addPromotionListener(() -> {
+                try {
+                    server.start();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } else {
+            server.start();
+        }
+        return server;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "ingest.shared-memory", name = "enabled")
+    SharedMemoryRingBuffer sharedMemoryRingBuffer(IngestProperties properties,
+                                                  TransactionStatisticsRecorder transactionStatistics,
+                                                  ObjectProvider<ReplicationStandby> replicationStandby)
+            throws IOException {
+        IngestProperties.SharedMemory sharedMemory = properties.getSharedMemory();
+        SharedMemoryRingBuffer ringBuffer = new SharedMemoryRingBuffer(transactionStatistics, sharedMemory.getPath(),
+                sharedMemory.getCapacity(), sharedMemory.getBatchSize());
+        ReplicationStandby standby = replicationStandby.getIfAvailable();
+        if (standby != null) {
+            standby.addPromotionListener(ringBuffer::start);
+        } else {
+            ringBuffer.start();
+        }
+        return ringBuffer;
+    }
+}
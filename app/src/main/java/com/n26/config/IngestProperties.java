@@ -0,0 +1,258 @@
+package com.n26.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ingest", ignoreUnknownFields = false)
+public class IngestProperties {
+    private final Async async = new Async();
+    private final Shedding shedding = new Shedding();
+    private final Tcp tcp = new Tcp();
+    private final SharedMemory sharedMemory = new SharedMemory();
+    private final Dedup dedup = new Dedup();
+    private final Gzip gzip = new Gzip();
+
+    public Async getAsync() {
+        return async;
+    }
+
+    public Shedding getShedding() {
+        return shedding;
+    }
+
+    public Tcp getTcp() {
+        return tcp;
+    }
+
+    public SharedMemory getSharedMemory() {
+        return sharedMemory;
+    }
+
+    public Dedup getDedup() {
+        return dedup;
+    }
+
+    public Gzip getGzip() {
+        return gzip;
+    }
+
+    public static class Async {
+        private boolean enabled = false;
+        private int capacity = 65536;
+        private int batchSize = 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    public static class Shedding {
+        private boolean enabled = false;
+        private Duration latencyThreshold = Duration.ofMillis(50);
+        private long depthThreshold = 32768;
+        private int maxWeight = 64;
+        private Duration adjustInterval = Duration.ofMillis(100);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getLatencyThreshold() {
+            return latencyThreshold;
+        }
+
+        public void setLatencyThreshold(Duration latencyThreshold) {
+            this.latencyThreshold = latencyThreshold;
+        }
+
+        public long getDepthThreshold() {
+            return depthThreshold;
+        }
+
+        public void setDepthThreshold(long depthThreshold) {
+            this.depthThreshold = depthThreshold;
+        }
+
+        public int getMaxWeight() {
+            return maxWeight;
+        }
+
+        public void setMaxWeight(int maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        public Duration getAdjustInterval() {
+            return adjustInterval;
+        }
+
+        public void setAdjustInterval(Duration adjustInterval) {
+            this.adjustInterval = adjustInterval;
+        }
+    }
+
+    public static class Tcp {
+        private boolean enabled = false;
+        private String host = "0.0.0.0";
+        private int port = 7070;
+        private int bufferSize = 65536;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+    }
+
+    public static class SharedMemory {
+        private boolean enabled = false;
+        private Path path = Paths.get("ingest.ring");
+        private int capacity = 65536;
+        private int batchSize = 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public void setPath(Path path) {
+            this.path = path;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    public static class Dedup {
+        private boolean enabled = false;
+        private Duration window = Duration.ofSeconds(60);
+        private int generations = 4;
+        private long expectedRate = 10_000;
+        private double falsePositiveRate = 0.001;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public int getGenerations() {
+            return generations;
+        }
+
+        public void setGenerations(int generations) {
+            this.generations = generations;
+        }
+
+        public long getExpectedRate() {
+            return expectedRate;
+        }
+
+        public void setExpectedRate(long expectedRate) {
+            this.expectedRate = expectedRate;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+    }
+
+    public static class Gzip {
+        private DataSize maxInflatedSize = DataSize.ofMegabytes(4);
+
+        public DataSize getMaxInflatedSize() {
+            return maxInflatedSize;
+        }
+
+        public void setMaxInflatedSize(DataSize maxInflatedSize) {
+            this.maxInflatedSize = maxInflatedSize;
+        }
+    }
+}
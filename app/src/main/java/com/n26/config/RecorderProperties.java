@@ -0,0 +1,198 @@
+package com.n26.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "recorder", ignoreUnknownFields = false)
+public class RecorderProperties {
+    private int resolution = 1000;
+    private int maxResolution = 100_000;
+    private Duration duration = Duration.ofSeconds(60);
+    private Duration futureSkew = Duration.ZERO;
+    private Duration allowedLateness = Duration.ZERO;
+    private Duration historyRetention = Duration.ofHours(24);
+    private int shards = 1;
+    private Engine engine = Engine.BUCKETS;
+    private int maxTransactions = 1_000_000;
+    private boolean snapshotReads = false;
+    private int parallelSummaryThreshold = 0;
+    private final Histogram histogram = new Histogram();
+    private final Watermark watermark = new Watermark();
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(int resolution) {
+        this.resolution = resolution;
+    }
+
+    public int getMaxResolution() {
+        return maxResolution;
+    }
+
+    public void setMaxResolution(int maxResolution) {
+        this.maxResolution = maxResolution;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    public Duration getFutureSkew() {
+        return futureSkew;
+    }
+
+    public void setFutureSkew(Duration futureSkew) {
+        this.futureSkew = futureSkew;
+    }
+
+    public Duration getAllowedLateness() {
+        return allowedLateness;
+    }
+
+    public void setAllowedLateness(Duration allowedLateness) {
+        this.allowedLateness = allowedLateness;
+    }
+
+    public Duration getHistoryRetention() {
+        return historyRetention;
+    }
+
+    public void setHistoryRetention(Duration historyRetention) {
+        this.historyRetention = historyRetention;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    public int getMaxTransactions() {
+        return maxTransactions;
+    }
+
+    public void setMaxTransactions(int maxTransactions) {
+        this.maxTransactions = maxTransactions;
+    }
+
+    public boolean isSnapshotReads() {
+        return snapshotReads;
+    }
+
+    public void setSnapshotReads(boolean snapshotReads) {
+        this.snapshotReads = snapshotReads;
+    }
+
+    public int getParallelSummaryThreshold() {
+        return parallelSummaryThreshold;
+    }
+
+    public void setParallelSummaryThreshold(int parallelSummaryThreshold) {
+        this.parallelSummaryThreshold = parallelSummaryThreshold;
+    }
+
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    public Watermark getWatermark() {
+        return watermark;
+    }
+
+    public static class Watermark {
+        private boolean enabled = false;
+        private Duration retention = Duration.ofHours(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+    }
+
+    public static class Histogram {
+        private boolean enabled = false;
+        private BigDecimal lowest = BigDecimal.ONE;
+        private BigDecimal growth = BigDecimal.valueOf(2);
+        private int bins = 32;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public BigDecimal getLowest() {
+            return lowest;
+        }
+
+        public void setLowest(BigDecimal lowest) {
+            this.lowest = lowest;
+        }
+
+        public BigDecimal getGrowth() {
+            return growth;
+        }
+
+        public void setGrowth(BigDecimal growth) {
+            this.growth = growth;
+        }
+
+        public int getBins() {
+            return bins;
+        }
+
+        public void setBins(int bins) {
+            this.bins = bins;
+        }
+    }
+
+    public enum Engine {
+        /**
+         * Sliding window of buckets.
+         */
+        BUCKETS,
+        /**
+         * Exponentially decayed statistics, with mean lifetime equal to the duration.
+         */
+        DECAYED,
+        /**
+         * Both engines record all transactions, buckets serve <tt>/statistics</tt>.
+         */
+        BOTH,
+        /**
+         * Every transaction of the window, up to max-transactions, for exact statistics.
+         */
+        EXACT
+    }
+}
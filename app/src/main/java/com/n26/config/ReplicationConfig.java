@@ -0,0 +1,42 @@
+package com.n26.config;
+
+import com.n26.replication.ReplicationPrimary;
+import com.n26.replication.ReplicationStandby;
+import com.n26.stats.ReconfigurableTransactionStatisticsRecorder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetSocketAddress;
+import java.time.Clock;
+
+@Configuration
+@EnableConfigurationProperties(ReplicationProperties.class)
+public class ReplicationConfig {
+    private static final String BUCKET_ENGINES = "'${recorder.engine:buckets}'.toLowerCase() matches 'buckets|both'";
+
+    /**
+     * Buckets are replicated only if they record transactions, i.e. not with the <tt>decayed</tt> and <tt>exact</tt>
+     * engines.
+     */
+    @Bean(initMethod = "start")
+    @ConditionalOnExpression("'${replication.role:}' == 'primary' && " + BUCKET_ENGINES)
+    ReplicationPrimary replicationPrimary(ReplicationProperties properties,
+                                         ReconfigurableTransactionStatisticsRecorder transactionStatistics,
+                                         Clock clock) {
+        return new ReplicationPrimary(transactionStatistics,
+                new InetSocketAddress(properties.getHost(), properties.getPort()), properties.getInterval(),
+                properties.getWriteTimeout(), clock);
+    }
+
+    @Bean(initMethod = "start")
+    @ConditionalOnExpression("'${replication.role:}' == 'standby' && " + BUCKET_ENGINES)
+    ReplicationStandby replicationStandby(ReplicationProperties properties,
+                                         ReconfigurableTransactionStatisticsRecorder transactionStatistics,
+                                         Clock clock) {
+        return new ReplicationStandby(transactionStatistics,
+                new InetSocketAddress(properties.getHost(), properties.getPort()),
+                properties.getReconnectDelay(), properties.getReadTimeout(), clock);
+    }
+}
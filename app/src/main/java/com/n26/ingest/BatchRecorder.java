@@ -0,0 +1,50 @@
+package com.n26.ingest;
+
+import com.n26.stats.BatchRecordingException;
+import com.n26.stats.TransactionStatisticsRecorder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records batches drained by the consumer of a ring buffer, dropping only the transactions that fail to be recorded.
+ */
+final class BatchRecorder {
+    private BatchRecorder() {
+    }
+
+    /**
+     * Records a batch, continuing after every transaction that fails to be recorded.
+     *
+     * @param recorder   recorder of the batch
+     * @param amounts    amounts of transactions
+     * @param timestamps timestamps of transactions
+     * @param weights    weights of transactions
+     * @param offset     index of the first transaction of the batch
+     * @param length     number of transactions of the batch
+     * @param dropped    counter of transactions that failed to be recorded
+     * @return number of recorded transactions that happened outside of the time window
+     */
+    static long record(TransactionStatisticsRecorder recorder, BigDecimal[] amounts, Instant[] timestamps,
+                       long[] weights, int offset, int length, LongAdder dropped) {
+        long outsideWindow = 0;
+        int recorded = 0;
+        while (recorded < length) {
+            int remaining = length - recorded;
+            try {
+                outsideWindow += remaining
+                        - recorder.recordTransactions(amounts, timestamps, weights, offset + recorded, remaining);
+                recorded = length;
+            } catch (BatchRecordingException e) { // drop the failing transaction only
+                outsideWindow += e.getRecorded() - e.getAccepted();
+                dropped.increment();
+                recorded += e.getRecorded() + 1;
+            } catch (RuntimeException e) {
+                dropped.add(remaining);
+                recorded = length;
+            }
+        }
+        return outsideWindow;
+    }
+}
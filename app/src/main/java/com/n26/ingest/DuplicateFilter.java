@@ -0,0 +1,294 @@
+package com.n26.ingest;
+
+import com.n26.stats.Tickable;
+import org.springframework.lang.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Approximate set of transaction ids seen within a time window, used to suppress retried transactions.
+ *
+ * <p>Ids are kept in a ring of Bloom filters ("generations"), each covering <tt>window / (generations - 1)</tt>.
+ * New ids are added to the current generation, lookups check all of them, and every period the oldest generation is
+ * cleared and becomes the current one, so an id is remembered for at least the window and at most one period
+ * longer. Memory is fixed: filters are sized for the expected rate of ids, and lookups and insertions run in
+ * constant time. Rotation is driven as a {@link Tickable}, off the request path.
+ *
+ * <p>Every word of a filter holds 32 bits of it together with the epoch of the generation they were set in, so
+ * clearing a generation only moves it to a new epoch, in constant time: words of other epochs read as empty and are
+ * reset by the next insertion. A write racing a clear is stamped with the old epoch and never resurrects cleared ids.
+ *
+ * <p>False positives suppress a transaction that is not a duplicate, at (about) the configured rate as long as the
+ * actual rate of ids does not exceed the expected one. Callers {@link #reserve(String)} an id before handling the
+ * transaction, so that a retry racing its original is suppressed, and release the reservation if the transaction
+ * failed, so that it can be retried.
+ */
+public class DuplicateFilter implements DuplicateFilterMXBean, Tickable {
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray[] generations;
+    private final AtomicIntegerArray epochs; // current epoch of every generation
+    private final AtomicInteger lastEpoch = new AtomicInteger();
+    private final long bits;
+    private final int hashes;
+    private final double falsePositiveRate;
+    private final Duration period;
+    private final long periodNanos;
+    private final Clock clock;
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private volatile int current;
+    private volatile Instant nextRotation;
+    private volatile long rotations;
+
+    /**
+     * Constructs DuplicateFilter.
+     *
+     * @param window            how long ids are remembered at least
+     * @param generations       number of filters the window is split into, at least 2
+     * @param expectedRate      expected number of ids per second
+     * @param falsePositiveRate target probability of a false positive, between 0 and 1 (exclusive)
+     * @param clock             {@code Clock} instance the rotation times are based on
+     * @throws IllegalArgumentException on non-positive window or expectedRate, generations below 2, or
+     *                                  falsePositiveRate out of range
+     */
+    public DuplicateFilter(Duration window, int generations, long expectedRate, double falsePositiveRate,
+                           Clock clock) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Illegal window: non-positive value");
+        }
+        if (generations < 2) {
+            throw new IllegalArgumentException("Illegal generations: " + generations);
+        }
+        if (expectedRate < 1) {
+            throw new IllegalArgumentException("Illegal expectedRate: " + expectedRate);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("Illegal falsePositiveRate: " + falsePositiveRate);
+        }
+        this.period = window.dividedBy(generations - 1);
+        this.periodNanos = period.toNanos();
+        if (periodNanos == 0) {
+            throw new IllegalArgumentException("Illegal generations: period below 1ns");
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        this.clock = Objects.requireNonNull(clock, "clock");
+        // lookups check every generation, so each of them gets a share of the false positive rate
+        double generationRate = 1 - Math.pow(1 - falsePositiveRate, 1.0 / generations);
+        double expectedIds = Math.max(1, expectedRate * (periodNanos / 1e9));
+        long m = (long) Math.ceil(-expectedIds * Math.log(generationRate) / (LN2 * LN2));
+        bits = Math.max(64, (m + 63) & ~63L);
+        hashes = Math.max(1, (int) Math.round(-Math.log(generationRate) / LN2));
+        this.generations = new AtomicLongArray[generations];
+        for (int g = 0; g < generations; g++) {
+            this.generations[g] = new AtomicLongArray(Math.toIntExact(bits >>> 5));
+        }
+        epochs = new AtomicIntegerArray(generations); // all words start empty in epoch 0
+        nextRotation = clock.instant().plus(period);
+    }
+
+    /**
+     * Forgets all ids, e.g. when recorded transactions are deleted.
+     * Runs in constant time O(1) (linear to the number of generations).
+     */
+    public void clear() {
+        for (int g = 0; g < generations.length; g++) {
+            epochs.set(g, lastEpoch.incrementAndGet());
+        }
+    }
+
+    /**
+     * Adds a transaction id unless it has been seen within the window.
+     * Runs in constant time O(1).
+     *
+     * @param id transaction id
+     * @return true if the id has not been seen (or a false positive occurred), false if it is a duplicate
+     */
+    public boolean firstSeen(String id) {
+        return reserve(id) != null;
+    }
+
+    /**
+     * Adds a transaction id unless it has been seen within the window, atomically, so that of concurrent callers
+     * with the same id only one gets a reservation.
+     * Runs in constant time O(1).
+     *
+     * @param id transaction id
+     * @return reservation to release if the transaction fails, null if the id is a duplicate (or a false positive
+     * occurred)
+     */
+    @Nullable
+    public Reservation reserve(String id) {
+        checked.increment();
+        long h1 = hash(id, 0x9E3779B97F4A7C15L);
+        long h2 = hash(id, 0xC2B2AE3D27D4EB4FL) | 1;
+        int c = current;
+        for (int g = 0; g < generations.length; g++) {
+            if (g != c && contains(g, h1, h2)) {
+                suppressed.increment();
+                return null;
+            }
+        }
+        Reservation reservation = add(c, h1, h2);
+        if (reservation == null) {
+            suppressed.increment();
+        }
+        return reservation;
+    }
+
+    private boolean contains(int generation, long h1, long h2) {
+        AtomicLongArray filter = generations[generation];
+        int epoch = epochs.get(generation);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            long w = filter.get((int) (bit >>> 5));
+            if ((int) (w >>> 32) != epoch || (w & (1L << (bit & 31))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets bits of an id in the current epoch of a generation.
+     *
+     * @return reservation of the bits that were not set before, null if all of them were
+     */
+    @Nullable
+    private Reservation add(int generation, long h1, long h2) {
+        AtomicLongArray filter = generations[generation];
+        int epoch = epochs.get(generation);
+        int[] words = new int[hashes];
+        long[] masks = new long[hashes];
+        int n = 0;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            int word = (int) (bit >>> 5);
+            long mask = 1L << (bit & 31);
+            while (true) {
+                long w = filter.get(word);
+                long set = (int) (w >>> 32) == epoch ? w : (long) epoch << 32; // reset a word of an old epoch
+                if ((set & mask) != 0 && set == w) {
+                    break;
+                }
+                if (filter.compareAndSet(word, w, set | mask)) {
+                    words[n] = word;
+                    masks[n++] = mask;
+                    break;
+                }
+            }
+        }
+        return n > 0 ? new Reservation(filter, epoch, words, masks, n) : null;
+    }
+
+    /**
+     * Bits set when reserving an id.
+     */
+    public static final class Reservation {
+        private final AtomicLongArray filter;
+        private final int epoch;
+        private final int[] words;
+        private final long[] masks;
+        private final int length;
+
+        private Reservation(AtomicLongArray filter, int epoch, int[] words, long[] masks, int length) {
+            this.filter = filter;
+            this.epoch = epoch;
+            this.words = words;
+            this.masks = masks;
+            this.length = length;
+        }
+
+        /**
+         * Forgets the reserved id, e.g. when the transaction failed and may be retried, by unsetting the bits it set
+         * unless their generation was cleared since. An id added in the meantime that shares some of these bits may
+         * be forgotten as well.
+         */
+        public void release() {
+            for (int i = 0; i < length; i++) {
+                long w;
+                do {
+                    w = filter.get(words[i]);
+                } while ((int) (w >>> 32) == epoch && !filter.compareAndSet(words[i], w, w & ~masks[i]));
+            }
+        }
+    }
+
+    /**
+     * 64-bit hash of UTF-8 bytes of an id: FNV-1a followed by a MurmurHash3 finalizer.
+     */
+    private static long hash(String id, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    @Override
+    public Instant getNextTick() {
+        return nextRotation;
+    }
+
+    /**
+     * Clears the oldest generation and makes it the current one, once per elapsed period.
+     *
+     * @return number of elapsed periods
+     */
+    @Override
+    public int tick() {
+        Instant next = nextRotation;
+        long lag = Duration.between(next, clock.instant()).toNanos();
+        if (lag < 0) {
+            return 0;
+        }
+        long periods = lag / periodNanos + 1;
+        int c = current;
+        for (long p = Math.min(periods, generations.length); p > 0; p--) {
+            c = (c + 1) % generations.length;
+            epochs.set(c, lastEpoch.incrementAndGet()); // clears the oldest generation
+            current = c;
+        }
+        rotations += periods;
+        nextRotation = next.plusNanos(periods * periodNanos);
+        return (int) Math.min(periods, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long getChecked() {
+        return checked.sum();
+    }
+
+    @Override
+    public long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    @Override
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    @Override
+    public long getBitsPerGeneration() {
+        return bits;
+    }
+
+    @Override
+    public long getRotations() {
+        return rotations;
+    }
+}
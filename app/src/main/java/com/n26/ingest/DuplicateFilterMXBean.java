@@ -0,0 +1,41 @@
+package com.n26.ingest;
+
+/**
+ * Management interface of {@link DuplicateFilter}.
+ */
+public interface DuplicateFilterMXBean {
+    /**
+     * Returns the number of checked transaction ids.
+     *
+     * @return number of checked ids
+     */
+    long getChecked();
+
+    /**
+     * Returns the number of transactions suppressed as duplicates (including false positives).
+     *
+     * @return number of suppressed duplicates
+     */
+    long getSuppressed();
+
+    /**
+     * Returns the configured false positive rate, for the expected number of ids.
+     *
+     * @return probability of suppressing a transaction that is not a duplicate
+     */
+    double getFalsePositiveRate();
+
+    /**
+     * Returns the size of every filter generation.
+     *
+     * @return number of bits of a generation
+     */
+    long getBitsPerGeneration();
+
+    /**
+     * Returns the number of filter rotations so far.
+     *
+     * @return number of rotations
+     */
+    long getRotations();
+}
@@ -0,0 +1,136 @@
+package com.n26.ingest;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which transactions to record while the service is overloaded.
+ *
+ * <p>The shedder keeps an exponentially weighted moving average of request latency and watches the depth of the
+ * ingestion queue. Every adjustment interval it halves the sampling rate if either crosses its threshold and
+ * doubles it back once both fall below half of their thresholds. Rates are powers of two, i.e. one transaction out
+ * of <tt>weight</tt> is recorded, chosen at random, with that weight. Sum and count computed from weighted
+ * transactions are therefore unbiased estimates, while min and max stay exact for the recorded subset.
+ */
+public class LoadShedder implements LoadShedderMXBean {
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    private final long latencyThresholdNanos;
+    private final long depthThreshold;
+    private final LongSupplier depth;
+    private final int maxWeight;
+    private final long adjustIntervalNanos;
+    private final LongSupplier nanoTime;
+
+    private final AtomicLong nextAdjustment;
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private volatile double latencyNanos; // racy updates may lose samples, which is fine for a moving average
+    private volatile int weight = 1;
+
+    /**
+     * Constructs LoadShedder.
+     *
+     * @param latencyThreshold request latency above which transactions are sampled
+     * @param depthThreshold   queue depth above which transactions are sampled
+     * @param depth            supplier of the current queue depth
+     * @param maxWeight        maximal number of transactions represented by a recorded one, power of two
+     * @param adjustInterval   minimal time between sampling rate changes
+     * @throws IllegalArgumentException if maxWeight is not a power of two or thresholds are non-positive
+     */
+    public LoadShedder(Duration latencyThreshold, long depthThreshold, LongSupplier depth, int maxWeight,
+                       Duration adjustInterval) {
+        this(latencyThreshold, depthThreshold, depth, maxWeight, adjustInterval, System::nanoTime);
+    }
+
+    LoadShedder(Duration latencyThreshold, long depthThreshold, LongSupplier depth, int maxWeight,
+                Duration adjustInterval, LongSupplier nanoTime) {
+        if (latencyThreshold.isZero() || latencyThreshold.isNegative()) {
+            throw new IllegalArgumentException("Illegal latencyThreshold: " + latencyThreshold);
+        }
+        if (depthThreshold < 1) {
+            throw new IllegalArgumentException("Illegal depthThreshold: " + depthThreshold);
+        }
+        if (maxWeight < 1 || Integer.bitCount(maxWeight) != 1) {
+            throw new IllegalArgumentException("Illegal maxWeight: " + maxWeight);
+        }
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.depthThreshold = depthThreshold;
+        this.depth = depth;
+        this.maxWeight = maxWeight;
+        this.adjustIntervalNanos = adjustInterval.toNanos();
+        this.nanoTime = nanoTime;
+        nextAdjustment = new AtomicLong(nanoTime.getAsLong() + adjustIntervalNanos);
+    }
+
+    /**
+     * Decides whether to record the next transaction.
+     *
+     * @return weight to record transaction with, 0 if transaction should be skipped
+     */
+    public long nextWeight() {
+        maybeAdjust();
+        int w = weight;
+        if (w == 1 || ThreadLocalRandom.current().nextInt(w) == 0) {
+            sampled.increment();
+            return w;
+        }
+        shed.increment();
+        return 0;
+    }
+
+    /**
+     * Records latency of a served request.
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void recordLatency(long nanos) {
+        double average = latencyNanos;
+        latencyNanos = average + LATENCY_SMOOTHING * (nanos - average);
+        maybeAdjust();
+    }
+
+    private void maybeAdjust() {
+        long now = nanoTime.getAsLong();
+        long next = nextAdjustment.get();
+        if (now - next < 0 || !nextAdjustment.compareAndSet(next, now + adjustIntervalNanos)) {
+            return;
+        }
+        double latency = latencyNanos;
+        long currentDepth = depth.getAsLong();
+        int w = weight;
+        if (latency > latencyThresholdNanos || currentDepth > depthThreshold) {
+            weight = Math.min(w << 1, maxWeight);
+        } else if (latency < latencyThresholdNanos / 2 && currentDepth < depthThreshold / 2) {
+            weight = Math.max(w >> 1, 1);
+        }
+    }
+
+    @Override
+    public double getSamplingRate() {
+        return 1.0 / weight;
+    }
+
+    @Override
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override
+    public double getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    @Override
+    public long getSampled() {
+        return sampled.sum();
+    }
+
+    @Override
+    public long getShed() {
+        return shed.sum();
+    }
+}
@@ -0,0 +1,41 @@
+package com.n26.ingest;
+
+/**
+ * Management interface of {@link LoadShedder}.
+ */
+public interface LoadShedderMXBean {
+    /**
+     * Returns the fraction of transactions currently recorded.
+     *
+     * @return sampling rate, 1 if no transactions are skipped
+     */
+    double getSamplingRate();
+
+    /**
+     * Returns the number of transactions currently represented by a recorded one.
+     *
+     * @return weight, inverse of the sampling rate
+     */
+    int getWeight();
+
+    /**
+     * Returns the moving average of request latency.
+     *
+     * @return average latency in nanoseconds
+     */
+    double getLatencyNanos();
+
+    /**
+     * Returns the number of transactions let through to be recorded.
+     *
+     * @return number of sampled transactions
+     */
+    long getSampled();
+
+    /**
+     * Returns the number of transactions skipped due to overload.
+     *
+     * @return number of shed transactions
+     */
+    long getShed();
+}
@@ -0,0 +1,183 @@
+package com.n26.ingest;
+
+import com.n26.stats.TransactionStatisticsRecorder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.n26.ingest.SharedRingLayout.*;
+
+/**
+ * Consumer side of a ring buffer in a memory-mapped file, written by {@link SharedMemoryRingBufferProducer}s of
+ * other processes on the same host and drained into a <tt>TransactionStatisticsRecorder</tt> by its own consumer
+ * thread.
+ *
+ * <p>The protocol is the one of {@link TransactionRingBuffer}, with sequences and slots living in the shared file:
+ * producers claim sequences on the shared producer sequence, fill the slot and publish it by storing its sequence;
+ * the consumer records contiguous runs of published slots in batches and releases them by advancing the shared
+ * consumer sequence. Neither side makes a system call on the hot path.
+ *
+ * <p>A transaction that fails to be recorded is dropped alone, the rest of its batch is still recorded.
+ *
+ * <p>A producer that dies between claiming and publishing a sequence stalls the ring, which has to be recreated
+ * (by restarting the consumer) then.
+ */
+public class SharedMemoryRingBuffer implements SharedMemoryRingBufferMXBean, AutoCloseable {
+    private static final int SPIN_TRIES = 100;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final TransactionStatisticsRecorder recorder;
+    private final Path path;
+    private final int capacity;
+    private final int batchSize;
+    private final MappedByteBuffer buffer;
+    private final BigDecimal[] amounts;
+    private final Instant[] timestamps;
+    private final long[] weights;
+    private final Thread consumer;
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running;
+
+    // written by consumer thread only
+    private volatile long consumed;
+    private volatile long outsideWindow;
+    private volatile long batches;
+
+    /**
+     * Creates ring file at a given path, replacing an existing one, and constructs its consumer.
+     *
+     * @param recorder  recorder of consumed transactions
+     * @param path      path of the ring file
+     * @param capacity  number of slots, power of two
+     * @param batchSize maximum number of transactions recorded at once
+     * @throws IllegalArgumentException if capacity is not a power of two or batchSize is non-positive
+     * @throws IOException              if the file cannot be created
+     */
+    public SharedMemoryRingBuffer(TransactionStatisticsRecorder recorder, Path path, int capacity, int batchSize)
+            throws IOException {
+        this.recorder = Objects.requireNonNull(recorder, "recorder");
+        this.path = Objects.requireNonNull(path, "path");
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Illegal batchSize: " + batchSize);
+        }
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        buffer = SharedRingLayout.create(path, capacity);
+        amounts = new BigDecimal[batchSize];
+        timestamps = new Instant[batchSize];
+        weights = new long[batchSize];
+        Arrays.fill(weights, 1);
+        consumer = new Thread(this::run, "shm-ingestion-consumer");
+        consumer.setDaemon(true);
+    }
+
+    /**
+     * Starts consumer thread.
+     */
+    public void start() {
+        running = true;
+        consumer.start();
+    }
+
+    /**
+     * Stops consumer thread once transactions published so far are recorded.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(consumer);
+        consumer.join();
+    }
+
+    private void run() {
+        int idle = 0;
+        while (true) {
+            long next = (long) LONGS.getAcquire(buffer, CONSUMER_SEQUENCE);
+            int n = 0;
+            while (n < batchSize && (long) LONGS.getAcquire(buffer, slot(next + n, capacity)) == next + n) {
+                n++;
+            }
+            if (n == 0) {
+                if (!running) {
+                    return;
+                }
+                if (++idle < SPIN_TRIES) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                continue;
+            }
+            idle = 0;
+            record(next, n);
+            LONGS.setRelease(buffer, CONSUMER_SEQUENCE, next + n); // release slots to producers
+        }
+    }
+
+    private void record(long next, int n) {
+        for (int k = 0; k < n; k++) {
+            int slot = slot(next + k, capacity);
+            long epochNanos = buffer.getLong(slot + EPOCH_NANOS);
+            amounts[k] = BigDecimal.valueOf(buffer.getLong(slot + UNSCALED), buffer.getInt(slot + SCALE));
+            timestamps[k] = Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                    Math.floorMod(epochNanos, 1_000_000_000L));
+        }
+        outsideWindow += BatchRecorder.record(recorder, amounts, timestamps, weights, 0, n, dropped);
+        Arrays.fill(amounts, 0, n, null);
+        Arrays.fill(timestamps, 0, n, null);
+        consumed += n;
+        batches++;
+    }
+
+    /**
+     * Returns path of the ring file.
+     *
+     * @return path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getDepth() {
+        return Math.max(0, (long) LONGS.getAcquire(buffer, PRODUCER_SEQUENCE)
+                - (long) LONGS.getAcquire(buffer, CONSUMER_SEQUENCE));
+    }
+
+    @Override
+    public long getConsumed() {
+        return consumed;
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getOutsideWindow() {
+        return outsideWindow;
+    }
+
+    @Override
+    public long getBatches() {
+        return batches;
+    }
+}
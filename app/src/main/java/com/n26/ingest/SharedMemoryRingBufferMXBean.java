@@ -0,0 +1,48 @@
+package com.n26.ingest;
+
+/**
+ * Management interface of {@link SharedMemoryRingBuffer}.
+ */
+public interface SharedMemoryRingBufferMXBean {
+    /**
+     * Returns the number of slots of the ring buffer.
+     *
+     * @return capacity
+     */
+    int getCapacity();
+
+    /**
+     * Returns the number of transactions claimed by producers but not yet recorded.
+     *
+     * @return current depth
+     */
+    long getDepth();
+
+    /**
+     * Returns the number of recorded transactions.
+     *
+     * @return number of consumed transactions
+     */
+    long getConsumed();
+
+    /**
+     * Returns the number of consumed transactions dropped because recording failed.
+     *
+     * @return number of dropped transactions
+     */
+    long getDropped();
+
+    /**
+     * Returns the number of recorded transactions that happened outside of the time window.
+     *
+     * @return number of transactions outside of the time window
+     */
+    long getOutsideWindow();
+
+    /**
+     * Returns the number of recorded batches.
+     *
+     * @return number of batches
+     */
+    long getBatches();
+}
@@ -0,0 +1,84 @@
+package com.n26.ingest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static com.n26.ingest.SharedRingLayout.*;
+
+/**
+ * Producer side of {@link SharedMemoryRingBuffer}, to be used by processes co-located with the service.
+ *
+ * <p>In multi producer mode sequences are claimed with a compare-and-set on the shared producer sequence, so any
+ * number of threads and processes can publish concurrently. In single producer mode the claim is a plain ordered
+ * store, which is only correct if no other thread or process publishes to the same file.
+ */
+public class SharedMemoryRingBufferProducer {
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final boolean singleProducer;
+
+    private SharedMemoryRingBufferProducer(MappedByteBuffer buffer, boolean singleProducer) {
+        this.buffer = buffer;
+        this.capacity = buffer.getInt(8);
+        this.singleProducer = singleProducer;
+    }
+
+    /**
+     * Opens ring file created by {@link SharedMemoryRingBuffer}.
+     *
+     * @param path           path of the ring file
+     * @param singleProducer whether this is the only producer of the ring
+     * @return producer
+     * @throws IOException if the file cannot be mapped or is not a ring file
+     */
+    public static SharedMemoryRingBufferProducer open(Path path, boolean singleProducer) throws IOException {
+        return new SharedMemoryRingBufferProducer(SharedRingLayout.open(path), singleProducer);
+    }
+
+    /**
+     * Publishes transaction to be recorded. Never blocks.
+     *
+     * @param amount    the value of transaction, its unscaled value must fit in a long
+     * @param timestamp the time of transaction
+     * @return true if transaction was published, false if the ring is full
+     * @throws ArithmeticException if the unscaled value or the timestamp overflows a long
+     */
+    public boolean publish(BigDecimal amount, Instant timestamp) {
+        long epochNanos = Math.addExact(Math.multiplyExact(timestamp.getEpochSecond(), 1_000_000_000L),
+                timestamp.getNano());
+        long unscaled = amount.unscaledValue().longValueExact();
+        long sequence;
+        if (singleProducer) {
+            sequence = (long) LONGS.getOpaque(buffer, PRODUCER_SEQUENCE);
+            if (sequence - (long) LONGS.getAcquire(buffer, CONSUMER_SEQUENCE) >= capacity) {
+                return false;
+            }
+            LONGS.setRelease(buffer, PRODUCER_SEQUENCE, sequence + 1);
+        } else {
+            do {
+                sequence = (long) LONGS.getVolatile(buffer, PRODUCER_SEQUENCE);
+                if (sequence - (long) LONGS.getAcquire(buffer, CONSUMER_SEQUENCE) >= capacity) {
+                    return false;
+                }
+            } while (!LONGS.compareAndSet(buffer, PRODUCER_SEQUENCE, sequence, sequence + 1));
+        }
+        int slot = slot(sequence, capacity);
+        buffer.putLong(slot + EPOCH_NANOS, epochNanos);
+        buffer.putLong(slot + UNSCALED, unscaled);
+        buffer.putInt(slot + SCALE, amount.scale());
+        LONGS.setRelease(buffer, slot, sequence); // release slot contents to consumer
+        return true;
+    }
+
+    /**
+     * Returns the number of slots of the ring.
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,88 @@
+package com.n26.ingest;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Layout of the memory-mapped file shared by {@link SharedMemoryRingBuffer} and its producers.
+ *
+ * <p>Layout (all values in native byte order, sequences on their own cache lines):
+ * <pre>
+ * header   magic:int version:int capacity:int slotSize:int (padded to 64 bytes)
+ *          producerSequence:long (padded to 64 bytes)
+ *          consumerSequence:long (padded to 64 bytes)
+ * slots    sequence:long epochNanos:long unscaled:long scale:int (padded to 32 bytes) [capacity]
+ * </pre>
+ * Slot sequence equals the sequence of the transaction stored in the slot once it is published, slots are
+ * initialized with -1.
+ */
+final class SharedRingLayout {
+    static final int MAGIC = 0x4e323652; // "N26R"
+    static final int VERSION = 1;
+    static final int PRODUCER_SEQUENCE = 64;
+    static final int CONSUMER_SEQUENCE = 128;
+    static final int SLOTS = 192;
+    static final int SLOT_SIZE = 32;
+    static final int EPOCH_NANOS = 8;
+    static final int UNSCALED = 16;
+    static final int SCALE = 24;
+
+    /**
+     * Atomic access to longs of direct buffers, indices must be 8 byte aligned.
+     */
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private SharedRingLayout() {
+    }
+
+    static long size(int capacity) {
+        return SLOTS + (long) capacity * SLOT_SIZE;
+    }
+
+    static int slot(long sequence, int capacity) {
+        return SLOTS + (int) (sequence & (capacity - 1)) * SLOT_SIZE;
+    }
+
+    /**
+     * Creates (or truncates) ring file with all slots empty.
+     */
+    static MappedByteBuffer create(Path path, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size(capacity));
+            buffer.order(ByteOrder.nativeOrder());
+            for (long sequence = 0; sequence < capacity; sequence++) {
+                buffer.putLong(slot(sequence, capacity), -1);
+            }
+            buffer.putInt(8, capacity);
+            buffer.putInt(12, SLOT_SIZE);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(0, MAGIC);
+            return buffer;
+        }
+    }
+
+    /**
+     * Maps existing ring file.
+     *
+     * @throws IOException if the file is not a ring file of a supported version
+     */
+    static MappedByteBuffer open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, SLOTS);
+            header.order(ByteOrder.nativeOrder());
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(12) != SLOT_SIZE) {
+                throw new IOException("Not a ring file: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size(header.getInt(8)));
+            buffer.order(ByteOrder.nativeOrder());
+            return buffer;
+        }
+    }
+}
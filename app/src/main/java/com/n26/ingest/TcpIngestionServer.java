@@ -0,0 +1,282 @@
+package com.n26.ingest;
+
+import com.n26.stats.CapacityExceededException;
+import com.n26.stats.TransactionStatisticsRecorder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Binary TCP listener recording transactions sent as fixed-size frames, served by a single selector thread.
+ *
+ * <p>A frame is {@value #FRAME_SIZE} bytes in network byte order: timestamp as nanoseconds since the epoch (long),
+ * unscaled value of the amount (long) and scale of the amount (int). Frames are pipelined, there is no response per
+ * frame. Instead, after each read the server acknowledges the connection's cumulative counters in an
+ * {@value #ACK_SIZE} bytes frame: number of received frames (long) and number of transactions that happened in the
+ * time window (long). Acks are never queued, an ack that cannot be written right away is superseded by the next one.
+ * Frames with a scale beyond &plusmn;{@value #MAX_SCALE} are rejected, as summing such amounts would take unbounded
+ * memory.
+ *
+ * <p>Frames are decoded from a direct buffer per connection and passed straight to the recorder, which is called from
+ * the selector thread only.
+ */
+public class TcpIngestionServer implements TcpIngestionServerMXBean, AutoCloseable {
+    public static final int FRAME_SIZE = 20;
+    public static final int ACK_SIZE = 16;
+    public static final int MAX_SCALE = 64;
+
+    private final TransactionStatisticsRecorder recorder;
+    private final InetSocketAddress address;
+    private final int bufferSize;
+    private final Thread thread;
+
+    private Selector selector;
+    private volatile ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    // written by selector thread only
+    private volatile int connections;
+    private volatile long frames;
+    private volatile long accepted;
+    private volatile long rejected;
+    private volatile long acks;
+
+    /**
+     * Constructs TcpIngestionServer.
+     *
+     * @param recorder   recorder of received transactions
+     * @param address    address to listen on, port 0 for an ephemeral one
+     * @param bufferSize size of the receive buffer of each connection
+     * @throws IllegalArgumentException if bufferSize is smaller than a frame
+     */
+    public TcpIngestionServer(TransactionStatisticsRecorder recorder, InetSocketAddress address, int bufferSize) {
+        this.recorder = Objects.requireNonNull(recorder, "recorder");
+        this.address = Objects.requireNonNull(address, "address");
+        if (bufferSize < FRAME_SIZE) {
+            throw new IllegalArgumentException("Illegal bufferSize: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        thread = new Thread(this::run, "tcp-ingestion");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Encodes transaction as a frame.
+     *
+     * @param buffer    buffer to put the frame to
+     * @param amount    the value of transaction, its unscaled value must fit in a long
+     * @param timestamp the time of transaction
+     * @throws ArithmeticException if the unscaled value or the timestamp overflows a long
+     */
+    public static void encode(ByteBuffer buffer, BigDecimal amount, Instant timestamp) {
+        buffer.putLong(Math.addExact(Math.multiplyExact(timestamp.getEpochSecond(), 1_000_000_000L),
+                timestamp.getNano()));
+        buffer.putLong(amount.unscaledValue().longValueExact());
+        buffer.putInt(amount.scale());
+    }
+
+    /**
+     * Binds the listening socket and starts selector thread.
+     *
+     * @throws IOException if the socket cannot be bound
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stops selector thread and closes all connections.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+            thread.join();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isReadable()) {
+                                read(key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                flushAck(key);
+                            }
+                        }
+                    } catch (IOException e) {
+                        disconnect(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                disconnect(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel, bufferSize));
+        connections++;
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        ByteBuffer in = connection.in;
+        if (connection.channel.read(in) < 0) {
+            disconnect(key);
+            return;
+        }
+        in.flip();
+        long n = 0;
+        long inWindow = 0;
+        long invalid = 0;
+        while (in.remaining() >= FRAME_SIZE) {
+            long epochNanos = in.getLong();
+            long unscaled = in.getLong();
+            int scale = in.getInt();
+            Instant timestamp = Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                    Math.floorMod(epochNanos, 1_000_000_000L));
+            if (Math.abs((long) scale) > MAX_SCALE) {
+                invalid++;
+            } else {
+                try {
+                    if (recorder.recordTransaction(BigDecimal.valueOf(unscaled, scale), timestamp)) {
+                        inWindow++;
+                    }
+                } catch (ArithmeticException | CapacityExceededException e) {
+                    // overflow or recorder full, counted as received but not in the time window
+                    invalid++;
+                }
+            }
+            n++;
+        }
+        in.compact();
+        if (n > 0) {
+            connection.frames += n;
+            connection.accepted += inWindow;
+            frames += n;
+            accepted += inWindow;
+            rejected += invalid;
+            flushAck(key);
+        }
+    }
+
+    private void flushAck(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        ByteBuffer ack = connection.ack;
+        while (true) {
+            if (!ack.hasRemaining()) {
+                if (connection.ackedFrames == connection.frames) {
+                    break;
+                }
+                // counters may have moved on while a partially written ack was pending
+                ack.clear();
+                ack.putLong(connection.frames).putLong(connection.accepted).flip();
+                connection.ackedFrames = connection.frames;
+                acks++;
+            }
+            connection.channel.write(ack);
+            if (ack.hasRemaining()) {
+                break;
+            }
+        }
+        // finish a partially written ack once the socket is writable again
+        key.interestOps(ack.hasRemaining() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void disconnect(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+        }
+        if (key.attachment() instanceof Connection) {
+            connections--;
+        }
+    }
+
+    @Override
+    public int getPort() {
+        ServerSocketChannel channel = serverChannel;
+        return channel != null ? channel.socket().getLocalPort() : -1;
+    }
+
+    @Override
+    public int getConnections() {
+        return connections;
+    }
+
+    @Override
+    public long getFrames() {
+        return frames;
+    }
+
+    @Override
+    public long getAccepted() {
+        return accepted;
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected;
+    }
+
+    @Override
+    public long getAcks() {
+        return acks;
+    }
+
+    private static class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in;
+        final ByteBuffer ack = ByteBuffer.allocateDirect(ACK_SIZE);
+        long frames;
+        long accepted;
+        long ackedFrames;
+
+        Connection(SocketChannel channel, int bufferSize) {
+            this.channel = channel;
+            in = ByteBuffer.allocateDirect(bufferSize);
+            ack.limit(0);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.n26.ingest;
+
+/**
+ * Management interface of {@link TcpIngestionServer}.
+ */
+public interface TcpIngestionServerMXBean {
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return local port, or -1 until started
+     */
+    int getPort();
+
+    /**
+     * Returns the number of open connections.
+     *
+     * @return number of connections
+     */
+    int getConnections();
+
+    /**
+     * Returns the number of received frames.
+     *
+     * @return number of frames
+     */
+    long getFrames();
+
+    /**
+     * Returns the number of received transactions that happened in the time window.
+     *
+     * @return number of accepted transactions
+     */
+    long getAccepted();
+
+    /**
+     * Returns the number of received frames that could not be recorded, because the amount scale was out of bounds,
+     * the amount overflowed or the recorder was full.
+     *
+     * @return number of rejected frames
+     */
+    long getRejected();
+
+    /**
+     * Returns the number of acks sent.
+     *
+     * @return number of acks
+     */
+    long getAcks();
+}
@@ -0,0 +1,275 @@
+package com.n26.ingest;
+
+import com.n26.stats.Stats;
+import com.n26.stats.TransactionStatisticsRecorder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, preallocated multi-producer single-consumer queue of transactions, drained into a
+ * <tt>TransactionStatisticsRecorder</tt> by its own consumer thread.
+ *
+ * <p>Producers claim consecutive sequence numbers with a compare-and-set on the producer sequence (failing fast
+ * when the buffer is full), store the transaction in the slot of the claimed sequence and mark the slot as
+ * published. The consumer records contiguous runs of published slots in batches of up to a given size, then
+ * releases them by advancing the consumer sequence. A transaction that fails to be recorded is dropped alone, the rest
+ * of its batch is still recorded. A slot may also hold a group of transactions, given by its aggregates, so that
+ * batches of groups are recorded by the consumer as well.
+ *
+ * <p>If the consumer is the only thread recording transactions, the recorder can run in single writer mode.
+ */
+public class TransactionRingBuffer implements TransactionRingBufferMXBean, AutoCloseable {
+    private static final int SPIN_TRIES = 100;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final TransactionStatisticsRecorder recorder;
+    private final int batchSize;
+    private final int mask;
+    private final BigDecimal[] amounts;
+    private final Instant[] timestamps;
+    private final long[] weights;
+    private final Stats[] groups; // aggregates of a group of transactions, null for a single (weighted) transaction
+    private final AtomicLongArray published; // sequence stored in the slot
+    private final AtomicLong producerSequence = new AtomicLong(); // next sequence to claim
+    private final AtomicLong consumerSequence = new AtomicLong(); // next sequence to record
+    private final Thread consumer;
+
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean running;
+
+    // written by consumer thread only
+    private volatile long outsideWindow;
+    private volatile long batches;
+    private volatile long batchedTransactions;
+    private volatile int lastBatchSize;
+
+    /**
+     * Constructs TransactionRingBuffer of a given capacity.
+     *
+     * @param recorder  recorder of consumed transactions
+     * @param capacity  number of slots, power of two
+     * @param batchSize maximum number of transactions recorded at once
+     * @throws IllegalArgumentException if capacity is not a power of two or batchSize is non-positive
+     */
+    public TransactionRingBuffer(TransactionStatisticsRecorder recorder, int capacity, int batchSize) {
+        this.recorder = Objects.requireNonNull(recorder, "recorder");
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Illegal batchSize: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        mask = capacity - 1;
+        amounts = new BigDecimal[capacity];
+        timestamps = new Instant[capacity];
+        weights = new long[capacity];
+        groups = new Stats[capacity];
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        consumer = new Thread(this::run, "ingestion-consumer");
+        consumer.setDaemon(true);
+    }
+
+    /**
+     * Starts consumer thread.
+     */
+    public void start() {
+        running = true;
+        consumer.start();
+    }
+
+    /**
+     * Stops consumer thread once all published transactions are recorded.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(consumer);
+        consumer.join();
+    }
+
+    /**
+     * Publishes transaction to be recorded asynchronously. Never blocks.
+     *
+     * @param amount    the value of transaction
+     * @param timestamp the time of transaction
+     * @return true if transaction was published, false if the buffer is full
+     */
+    public boolean publish(BigDecimal amount, Instant timestamp) {
+        return publish(amount, timestamp, 1);
+    }
+
+    /**
+     * Publishes transaction that stands for <tt>weight</tt> transactions to be recorded asynchronously.
+     * Never blocks.
+     *
+     * @param amount    the value of transaction
+     * @param timestamp the time of transaction
+     * @param weight    the number of transactions represented, positive
+     * @return true if transaction was published, false if the buffer is full
+     * @throws IllegalArgumentException if weight is non-positive
+     */
+    public boolean publish(BigDecimal amount, Instant timestamp, long weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Illegal weight: " + weight);
+        }
+        long sequence;
+        do {
+            sequence = producerSequence.get();
+            if (sequence - consumerSequence.get() > mask) {
+                dropped.increment();
+                return false;
+            }
+        } while (!producerSequence.compareAndSet(sequence, sequence + 1));
+        int i = (int) sequence & mask;
+        amounts[i] = amount;
+        timestamps[i] = timestamp;
+        weights[i] = weight;
+        published.lazySet(i, sequence); // release slot contents to consumer
+        return true;
+    }
+
+    /**
+     * Publishes groups of transactions to be recorded asynchronously, all of them or none, one slot per group.
+     * Never blocks.
+     *
+     * @param stats      aggregates of every group
+     * @param timestamps the time of every group
+     * @param length     number of groups
+     * @return true if the groups were published, false if they do not fit in the buffer
+     */
+    public boolean publish(Stats[] stats, Instant[] timestamps, int length) {
+        long sequence;
+        do {
+            sequence = producerSequence.get();
+            if (sequence + length - 1 - consumerSequence.get() > mask) {
+                dropped.add(length);
+                return false;
+            }
+        } while (!producerSequence.compareAndSet(sequence, sequence + length));
+        for (int k = 0; k < length; k++) {
+            int i = (int) (sequence + k) & mask;
+            groups[i] = stats[k];
+            this.timestamps[i] = timestamps[k];
+            published.lazySet(i, sequence + k);
+        }
+        return true;
+    }
+
+    private void run() {
+        int idle = 0;
+        while (true) {
+            long next = consumerSequence.get();
+            int n = 0;
+            while (n < batchSize && published.get((int) (next + n) & mask) == next + n) {
+                n++;
+            }
+            if (n == 0) {
+                if (!running && producerSequence.get() == next) {
+                    return;
+                }
+                if (++idle < SPIN_TRIES) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                continue;
+            }
+            idle = 0;
+            record(next, n);
+            consumerSequence.lazySet(next + n); // release slots to producers
+        }
+    }
+
+    private void record(long next, int n) {
+        for (int k = 0; k < n; ) {
+            int i = (int) (next + k) & mask;
+            if (groups[i] != null) {
+                recordGroup(i);
+                k++;
+                continue;
+            }
+            int length = 1; // run of single transactions, up to the end of the buffer
+            while (k + length < n && i + length < amounts.length && groups[i + length] == null) {
+                length++;
+            }
+            outsideWindow += BatchRecorder.record(recorder, amounts, timestamps, weights, i, length, dropped);
+            k += length;
+        }
+        for (int k = 0; k < n; k++) {
+            int i = (int) (next + k) & mask;
+            amounts[i] = null;
+            timestamps[i] = null;
+            groups[i] = null;
+        }
+        batches++;
+        batchedTransactions += n;
+        lastBatchSize = n;
+    }
+
+    private void recordGroup(int i) {
+        try {
+            if (!recorder.recordStats(groups[i], timestamps[i])) {
+                outsideWindow++;
+            }
+        } catch (RuntimeException e) {
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    @Override
+    public long getDepth() {
+        return Math.max(0, producerSequence.get() - consumerSequence.get());
+    }
+
+    @Override
+    public long getPublished() {
+        return producerSequence.get();
+    }
+
+    @Override
+    public long getConsumed() {
+        return consumerSequence.get();
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getOutsideWindow() {
+        return outsideWindow;
+    }
+
+    @Override
+    public long getBatches() {
+        return batches;
+    }
+
+    @Override
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    @Override
+    public double getMeanBatchSize() {
+        long n = batches;
+        return n > 0 ? (double) batchedTransactions / n : 0;
+    }
+}
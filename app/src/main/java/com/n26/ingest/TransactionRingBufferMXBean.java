@@ -0,0 +1,69 @@
+package com.n26.ingest;
+
+/**
+ * Management interface of {@link TransactionRingBuffer}.
+ */
+public interface TransactionRingBufferMXBean {
+    /**
+     * Returns the number of slots of the ring buffer.
+     *
+     * @return capacity
+     */
+    int getCapacity();
+
+    /**
+     * Returns the number of transactions published but not yet recorded.
+     *
+     * @return current depth
+     */
+    long getDepth();
+
+    /**
+     * Returns the number of published transactions.
+     *
+     * @return number of published transactions
+     */
+    long getPublished();
+
+    /**
+     * Returns the number of published transactions the consumer is done with, i.e. recorded or dropped.
+     *
+     * @return number of consumed transactions
+     */
+    long getConsumed();
+
+    /**
+     * Returns the number of transactions dropped because the ring buffer was full or recording failed.
+     *
+     * @return number of dropped transactions
+     */
+    long getDropped();
+
+    /**
+     * Returns the number of recorded transactions that happened outside of the time window.
+     *
+     * @return number of transactions outside of the time window
+     */
+    long getOutsideWindow();
+
+    /**
+     * Returns the number of recorded batches.
+     *
+     * @return number of batches
+     */
+    long getBatches();
+
+    /**
+     * Returns the size of the last recorded batch.
+     *
+     * @return last batch size
+     */
+    int getLastBatchSize();
+
+    /**
+     * Returns the average size of recorded batches.
+     *
+     * @return mean batch size
+     */
+    double getMeanBatchSize();
+}
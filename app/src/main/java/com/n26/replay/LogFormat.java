@@ -0,0 +1,30 @@
+package com.n26.replay;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Format of a transaction log, one transaction per line.
+ */
+public enum LogFormat {
+    /**
+     * JSON objects as posted to <tt>/transactions</tt>, e.g. <tt>{"amount":"12.3343","timestamp":"2018-07-17T09:59:51.312Z"}</tt>.
+     */
+    NDJSON,
+
+    /**
+     * Comma separated timestamp and amount, e.g. <tt>2018-07-17T09:59:51.312Z,12.3343</tt>. Timestamps can also be
+     * given in milliseconds since the epoch. Lines that do not parse, like a header, are skipped.
+     */
+    CSV;
+
+    /**
+     * Guesses format of a log from its file name.
+     *
+     * @param path path of the log
+     * @return CSV for <tt>.csv</tt> files, NDJSON otherwise
+     */
+    public static LogFormat of(Path path) {
+        return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : NDJSON;
+    }
+}
@@ -0,0 +1,83 @@
+package com.n26.replay;
+
+import java.util.Arrays;
+
+/**
+ * Growable columns of parsed transactions: timestamps as epoch nanos and amounts as unscaled values with scales.
+ *
+ * <p>Not thread safe, each chunk of a log is parsed into its own instance.
+ */
+final class Records {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    long[] epochNanos = new long[INITIAL_CAPACITY];
+    long[] unscaled = new long[INITIAL_CAPACITY];
+    int[] scales = new int[INITIAL_CAPACITY];
+    int size;
+    long skipped; // lines that could not be parsed
+
+    void add(long epochNanos, long unscaled, int scale) {
+        if (size == this.epochNanos.length) {
+            int capacity = size + (size >> 1);
+            this.epochNanos = Arrays.copyOf(this.epochNanos, capacity);
+            this.unscaled = Arrays.copyOf(this.unscaled, capacity);
+            this.scales = Arrays.copyOf(scales, capacity);
+        }
+        this.epochNanos[size] = epochNanos;
+        this.unscaled[size] = unscaled;
+        scales[size] = scale;
+        size++;
+    }
+
+    /**
+     * Sorts records by timestamp, stable. Runs in linear time if records are already sorted, which is the common
+     * case for logs.
+     */
+    void sort() {
+        int i = 1;
+        while (i < size && epochNanos[i - 1] <= epochNanos[i]) {
+            i++;
+        }
+        if (i >= size) {
+            return;
+        }
+        int[] order = new int[size];
+        for (int k = 0; k < size; k++) {
+            order[k] = k;
+        }
+        mergeSort(order, new int[size], 0, size);
+        long[] sortedNanos = new long[size];
+        long[] sortedUnscaled = new long[size];
+        int[] sortedScales = new int[size];
+        for (int k = 0; k < size; k++) {
+            sortedNanos[k] = epochNanos[order[k]];
+            sortedUnscaled[k] = unscaled[order[k]];
+            sortedScales[k] = scales[order[k]];
+        }
+        epochNanos = sortedNanos;
+        unscaled = sortedUnscaled;
+        scales = sortedScales;
+    }
+
+    private void mergeSort(int[] order, int[] tmp, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(order, tmp, from, mid);
+        mergeSort(order, tmp, mid, to);
+        if (epochNanos[order[mid - 1]] <= epochNanos[order[mid]]) {
+            return;
+        }
+        System.arraycopy(order, from, tmp, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int k = from; k < to; k++) {
+            if (right >= to || left < mid && epochNanos[tmp[left]] <= epochNanos[tmp[right]]) {
+                order[k] = tmp[left++];
+            } else {
+                order[k] = tmp[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.n26.replay;
+
+import com.n26.stats.StatisticsSummary;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command line entry point of {@link ReplayEngine}, writing the statistics time series as CSV.
+ */
+public final class ReplayCommand {
+    static final String USAGE = "usage: replay [--duration=PT60S] [--resolution=1000] [--future-skew=PT0S] "
+            + "[--allowed-lateness=PT0S] [--step=PT1S] [--parallelism=<cpus>] [--format=ndjson|csv] [--scale=2] "
+            + "<log> [<output>]";
+
+    private ReplayCommand() {
+    }
+
+    public static void main(String... args) {
+        int status = run(args, System.out, System.err);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Runs replay.
+     *
+     * @param args   command line arguments, see {@link #USAGE}
+     * @param stdout output of the time series unless an output file is given
+     * @param stderr output of usage and replay counters
+     * @return exit status
+     */
+    static int run(String[] args, PrintStream stdout, PrintStream stderr) {
+        Map<String, String> options = new HashMap<>();
+        List<String> operands = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                operands.add(arg);
+            }
+        }
+        if (operands.isEmpty() || operands.size() > 2) {
+            stderr.println(USAGE);
+            return 2;
+        }
+        Path log = Paths.get(operands.get(0));
+        ReplayEngine engine;
+        LogFormat format;
+        int scale;
+        try {
+            engine = new ReplayEngine(
+                    Duration.parse(options.getOrDefault("duration", "PT60S")),
+                    Integer.parseInt(options.getOrDefault("resolution", "1000")),
+                    Duration.parse(options.getOrDefault("future-skew", "PT0S")),
+                    Duration.parse(options.getOrDefault("allowed-lateness", "PT0S")),
+                    Duration.parse(options.getOrDefault("step", "PT1S")),
+                    Integer.parseInt(options.getOrDefault("parallelism",
+                            String.valueOf(Runtime.getRuntime().availableProcessors()))));
+            format = options.containsKey("format")
+                    ? LogFormat.valueOf(options.get("format").toUpperCase(Locale.ROOT))
+                    : LogFormat.of(log);
+            scale = Integer.parseInt(options.getOrDefault("scale", "2"));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            stderr.println(e.getMessage());
+            stderr.println(USAGE);
+            return 2;
+        }
+
+        try (Writer writer = operands.size() > 1
+                ? Files.newBufferedWriter(Paths.get(operands.get(1)), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8))) {
+            writer.write("time,sum,avg,max,min,count\n");
+            ReplayEngine.Result result = engine.replay(log, format, (time, summary) -> {
+                try {
+                    writer.write(time + "," + format(summary, scale) + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            stderr.printf("replayed %d transactions (%d in window, %d lines skipped) into %d points,"
+                            + " parsed in %s, recorded in %s%n",
+                    result.getRecords(), result.getAccepted(), result.getSkipped(), result.getPoints(),
+                    result.getParseTime(), result.getRecordTime());
+            return 0;
+        } catch (IOException | UncheckedIOException e) {
+            stderr.println("replay failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static String format(StatisticsSummary<BigDecimal> summary, int scale) {
+        long count = summary.getCount();
+        if (count == 0) {
+            BigDecimal zero = BigDecimal.ZERO.setScale(scale, RoundingMode.HALF_UP);
+            return zero + "," + zero + "," + zero + "," + zero + ",0";
+        }
+        return summary.getSum().setScale(scale, RoundingMode.HALF_UP) + ","
+                + summary.getSum().divide(BigDecimal.valueOf(count), scale, RoundingMode.HALF_UP) + ","
+                + summary.getMax().setScale(scale, RoundingMode.HALF_UP) + ","
+                + summary.getMin().setScale(scale, RoundingMode.HALF_UP) + ","
+                + count;
+    }
+}
@@ -0,0 +1,351 @@
+package com.n26.replay;
+
+import com.n26.stats.StatisticsSummary;
+import com.n26.stats.TransactionStatisticsRecorderImpl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Replays historical transaction logs through {@link TransactionStatisticsRecorderImpl} driven by
+ * {@link SimulatedClock}, emitting statistics at fixed steps of simulated time.
+ *
+ * <p>The log is memory-mapped and split into chunks at line boundaries, which are parsed and sorted by timestamp in
+ * parallel. Transactions are then recorded in timestamp order (merging sorted chunks) on the calling thread, with
+ * the clock set to the time of each transaction and the recorder ticked whenever a tick is due. Before time passes a
+ * step boundary, the summary as of that boundary is emitted.
+ *
+ * <p>Parsed transactions of the whole log are kept in memory, about 20 bytes each.
+ */
+public class ReplayEngine {
+    private static final long MAX_CHUNK_SIZE = 64L << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int BOUNDARY_SCAN_SIZE = 4096;
+
+    private final Duration maxTransactionAge;
+    private final int resolution;
+    private final Duration futureSkew;
+    private final Duration allowedLateness;
+    private final long stepNanos;
+    private final int parallelism;
+
+    /**
+     * Constructs ReplayEngine.
+     *
+     * @param maxTransactionAge the window of replayed recorder
+     * @param resolution        the number of buckets of replayed recorder
+     * @param futureSkew        the future skew of replayed recorder
+     * @param allowedLateness   the allowed lateness of replayed recorder
+     * @param step              simulated time between emitted statistics
+     * @param parallelism       number of threads parsing the log
+     * @throws IllegalArgumentException if step or parallelism are non-positive
+     */
+    public ReplayEngine(Duration maxTransactionAge, int resolution, Duration futureSkew, Duration allowedLateness,
+                        Duration step, int parallelism) {
+        if (step.isNegative() || step.isZero()) {
+            throw new IllegalArgumentException("Illegal step: " + step);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Illegal parallelism: " + parallelism);
+        }
+        this.maxTransactionAge = maxTransactionAge;
+        this.resolution = resolution;
+        this.futureSkew = futureSkew;
+        this.allowedLateness = allowedLateness;
+        this.stepNanos = step.toNanos();
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Replays a log.
+     *
+     * @param log    path of the log
+     * @param format format of the log
+     * @param output consumer of statistics at the end of each step
+     * @return replay counters
+     * @throws IOException if the log cannot be read
+     */
+    public Result replay(Path log, LogFormat format, BiConsumer<Instant, StatisticsSummary<BigDecimal>> output)
+            throws IOException {
+        long started = System.nanoTime();
+        List<Records> chunks = parse(log, format);
+        long parsed = System.nanoTime();
+        Result result = record(chunks, output);
+        result.parseNanos = parsed - started;
+        result.recordNanos = System.nanoTime() - parsed;
+        for (Records chunk : chunks) {
+            result.skipped += chunk.skipped;
+        }
+        return result;
+    }
+
+    private List<Records> parse(Path log, LogFormat format) throws IOException {
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            List<long[]> ranges = split(channel);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                return pool.submit(() -> ranges.parallelStream()
+                        .map(range -> parseChunk(channel, range[0], range[1], format))
+                        .collect(toList()))
+                        .get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Splits file into ranges of whole lines.
+     */
+    private List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long chunks = Math.max((long) parallelism * CHUNKS_PER_THREAD, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        long target = Math.max(1, size / chunks);
+        List<long[]> ranges = new ArrayList<>();
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long start = 0;
+        while (start < size) {
+            long end = nextLine(channel, Math.min(start + target, size), size, scan);
+            ranges.add(new long[]{start, end});
+            start = end;
+        }
+        return ranges;
+    }
+
+    private static long nextLine(FileChannel channel, long position, long size, ByteBuffer scan) throws IOException {
+        while (position < size) {
+            scan.clear();
+            int n = channel.read(scan, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int k = 0; k < n; k++) {
+                if (scan.get(k) == '\n') {
+                    return position + k + 1;
+                }
+            }
+            position += n;
+        }
+        return size;
+    }
+
+    private static Records parseChunk(FileChannel channel, long start, long end, LogFormat format) {
+        try {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            Records records = new TransactionLogParser(buffer, format).parse();
+            records.sort();
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Result record(List<Records> chunks, BiConsumer<Instant, StatisticsSummary<BigDecimal>> output) {
+        Result result = new Result();
+        ChunkMerger merger = new ChunkMerger(chunks);
+        if (!merger.hasNext()) {
+            return result;
+        }
+        long first = merger.peekNanos();
+        SimulatedClock clock = new SimulatedClock(instant(first));
+        TransactionStatisticsRecorderImpl recorder = TransactionStatisticsRecorderImpl
+                .builder(maxTransactionAge, resolution)
+                .futureSkew(futureSkew)
+                .allowedLateness(allowedLateness)
+                .singleWriter(true)
+                .clock(clock)
+                .build();
+        long nextTick = nanos(recorder.getNextTick());
+        long nextEmit = Math.floorDiv(first, stepNanos) * stepNanos + stepNanos;
+        while (merger.hasNext()) {
+            long epochNanos = merger.peekNanos();
+            while (nextEmit <= epochNanos) {
+                nextTick = advance(clock, recorder, nextEmit, nextTick);
+                output.accept(clock.instant(), recorder.getSummary());
+                result.points++;
+                nextEmit += stepNanos;
+            }
+            nextTick = advance(clock, recorder, epochNanos, nextTick);
+            Records chunk = merger.chunk();
+            int i = merger.index();
+            if (recorder.recordTransaction(BigDecimal.valueOf(chunk.unscaled[i], chunk.scales[i]), clock.instant())) {
+                result.accepted++;
+            }
+            result.records++;
+            merger.next();
+        }
+        advance(clock, recorder, nextEmit, nextTick);
+        output.accept(clock.instant(), recorder.getSummary());
+        result.points++;
+        return result;
+    }
+
+    private static long advance(SimulatedClock clock, TransactionStatisticsRecorderImpl recorder, long epochNanos,
+                                long nextTick) {
+        clock.setInstant(instant(epochNanos));
+        if (epochNanos < nextTick) {
+            return nextTick;
+        }
+        recorder.tick();
+        return nanos(recorder.getNextTick());
+    }
+
+    private static Instant instant(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+
+    private static long nanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * Iterates records of sorted chunks in timestamp order, keeping chunks in a binary min-heap by their current
+     * record.
+     */
+    private static final class ChunkMerger {
+        private final Records[] chunks;
+        private final int[] positions;
+        private final int[] heap;
+        private int heapSize;
+
+        ChunkMerger(List<Records> chunks) {
+            this.chunks = chunks.toArray(new Records[0]);
+            positions = new int[this.chunks.length];
+            heap = new int[this.chunks.length];
+            for (int c = 0; c < this.chunks.length; c++) {
+                if (this.chunks[c].size > 0) {
+                    heap[heapSize++] = c;
+                }
+            }
+            for (int k = heapSize / 2 - 1; k >= 0; k--) {
+                siftDown(k);
+            }
+        }
+
+        boolean hasNext() {
+            return heapSize > 0;
+        }
+
+        long peekNanos() {
+            return key(heap[0]);
+        }
+
+        Records chunk() {
+            return chunks[heap[0]];
+        }
+
+        int index() {
+            return positions[heap[0]];
+        }
+
+        void next() {
+            int c = heap[0];
+            if (++positions[c] == chunks[c].size) {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(0);
+        }
+
+        private long key(int c) {
+            return chunks[c].epochNanos[positions[c]];
+        }
+
+        private void siftDown(int k) {
+            while (true) {
+                int smallest = k;
+                int left = 2 * k + 1;
+                int right = left + 1;
+                if (left < heapSize && key(heap[left]) < key(heap[smallest])) {
+                    smallest = left;
+                }
+                if (right < heapSize && key(heap[right]) < key(heap[smallest])) {
+                    smallest = right;
+                }
+                if (smallest == k) {
+                    return;
+                }
+                int tmp = heap[k];
+                heap[k] = heap[smallest];
+                heap[smallest] = tmp;
+                k = smallest;
+            }
+        }
+    }
+
+    /**
+     * Counters of a replay.
+     */
+    public static class Result {
+        private long records;
+        private long accepted;
+        private long skipped;
+        private long points;
+        private long parseNanos;
+        private long recordNanos;
+
+        /**
+         * @return number of replayed transactions
+         */
+        public long getRecords() {
+            return records;
+        }
+
+        /**
+         * @return number of replayed transactions that were in the time window at their time
+         */
+        public long getAccepted() {
+            return accepted;
+        }
+
+        /**
+         * @return number of lines that could not be parsed
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return number of emitted statistics
+         */
+        public long getPoints() {
+            return points;
+        }
+
+        /**
+         * @return time spent mapping, parsing and sorting the log
+         */
+        public Duration getParseTime() {
+            return Duration.ofNanos(parseNanos);
+        }
+
+        /**
+         * @return time spent recording transactions
+         */
+        public Duration getRecordTime() {
+            return Duration.ofNanos(recordNanos);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.n26.replay;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * {@code Clock} that only moves when told to, used to drive a recorder through historical time.
+ */
+public class SimulatedClock extends Clock {
+    private volatile Instant instant;
+
+    public SimulatedClock(Instant instant) {
+        this.instant = instant;
+    }
+
+    /**
+     * Sets current time.
+     *
+     * @param instant new current time
+     */
+    public void setInstant(Instant instant) {
+        this.instant = instant;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return Clock.fixed(instant, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}
@@ -0,0 +1,280 @@
+package com.n26.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.time.Instant;
+
+/**
+ * Parses a chunk of a transaction log, made of whole lines, straight from its bytes.
+ *
+ * <p>Amounts are parsed into unscaled longs and scales, timestamps into epoch nanos, so well-formed lines do not
+ * allocate. Timestamps are expected in ISO-8601 UTC form (<tt>2018-07-17T09:59:51.312Z</tt>), other offsets take a
+ * slower path. Amounts with more than 18 significant digits or exponents are not supported and their lines are
+ * skipped.
+ */
+final class TransactionLogParser {
+    private static final byte[] AMOUNT_KEY = "\"amount\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TIMESTAMP_KEY = "\"timestamp\"".getBytes(StandardCharsets.US_ASCII);
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final ByteBuffer buffer;
+    private final LogFormat format;
+
+    // results of the last successful parse* call
+    private long unscaled;
+    private int scale;
+    private long epochNanos;
+
+    TransactionLogParser(ByteBuffer buffer, LogFormat format) {
+        this.buffer = buffer;
+        this.format = format;
+    }
+
+    Records parse() {
+        Records records = new Records();
+        int limit = buffer.limit();
+        int pos = 0;
+        while (pos < limit) {
+            int end = indexOf((byte) '\n', pos, limit);
+            int lineEnd = end > pos && buffer.get(end - 1) == '\r' ? end - 1 : end;
+            if (lineEnd > pos) {
+                if (format == LogFormat.NDJSON ? parseJson(pos, lineEnd) : parseCsv(pos, lineEnd)) {
+                    records.add(epochNanos, unscaled, scale);
+                } else {
+                    records.skipped++;
+                }
+            }
+            pos = end + 1;
+        }
+        return records;
+    }
+
+    private boolean parseJson(int from, int to) {
+        int amount = find(AMOUNT_KEY, from, to);
+        int timestamp = find(TIMESTAMP_KEY, from, to);
+        if (amount < 0 || timestamp < 0) {
+            return false;
+        }
+        // timestamp first, as timestamps in milliseconds are parsed as decimals too
+        int pos = skipColon(timestamp + TIMESTAMP_KEY.length, to);
+        if (pos < 0) {
+            return false;
+        }
+        boolean quoted = buffer.get(pos) == '"';
+        pos = parseTimestamp(quoted ? pos + 1 : pos, to);
+        if (pos < 0 || quoted && (pos >= to || buffer.get(pos) != '"')) {
+            return false;
+        }
+        pos = skipColon(amount + AMOUNT_KEY.length, to);
+        if (pos < 0) {
+            return false;
+        }
+        quoted = buffer.get(pos) == '"';
+        pos = parseDecimal(quoted ? pos + 1 : pos, to);
+        return pos >= 0 && (!quoted || pos < to && buffer.get(pos) == '"');
+    }
+
+    private boolean parseCsv(int from, int to) {
+        int comma = indexOf((byte) ',', from, to);
+        if (comma >= to) {
+            return false;
+        }
+        return parseField(from, comma, true) && parseField(comma + 1, to, false);
+    }
+
+    private boolean parseField(int from, int to, boolean timestamp) {
+        while (from < to && buffer.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && buffer.get(to - 1) == ' ') {
+            to--;
+        }
+        if (to - from >= 2 && buffer.get(from) == '"' && buffer.get(to - 1) == '"') {
+            from++;
+            to--;
+        }
+        return (timestamp ? parseTimestamp(from, to) : parseDecimal(from, to)) == to;
+    }
+
+    /**
+     * Parses decimal number without exponent.
+     *
+     * @return index following the number, -1 if there is no number or it does not fit in a long
+     */
+    private int parseDecimal(int from, int to) {
+        int pos = from;
+        boolean negative = false;
+        if (pos < to && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+            negative = buffer.get(pos) == '-';
+            pos++;
+        }
+        long value = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (; pos < to; pos++) {
+            byte b = buffer.get(pos);
+            if (b >= '0' && b <= '9') {
+                if (value > (Long.MAX_VALUE - (b - '0')) / 10) {
+                    return -1;
+                }
+                value = value * 10 + (b - '0');
+                digits++;
+                if (fraction >= 0) {
+                    fraction++;
+                }
+            } else if (b == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0 || pos < to && (buffer.get(pos) == 'e' || buffer.get(pos) == 'E')) {
+            return -1;
+        }
+        unscaled = negative ? -value : value;
+        scale = Math.max(fraction, 0);
+        return pos;
+    }
+
+    /**
+     * Parses ISO-8601 timestamp or milliseconds since the epoch.
+     *
+     * @return index following the timestamp, -1 if there is no valid timestamp
+     */
+    private int parseTimestamp(int from, int to) {
+        if (to - from > 4 && buffer.get(from + 4) == '-') {
+            return parseIsoTimestamp(from, to);
+        }
+        int pos = parseDecimal(from, to);
+        if (pos < 0 || scale != 0 || unscaled > Long.MAX_VALUE / NANOS_PER_MILLI
+                || unscaled < Long.MIN_VALUE / NANOS_PER_MILLI) {
+            return -1;
+        }
+        epochNanos = unscaled * NANOS_PER_MILLI;
+        return pos;
+    }
+
+    private int parseIsoTimestamp(int from, int to) {
+        // yyyy-MM-ddTHH:mm:ss
+        if (to - from < 19 || buffer.get(from + 7) != '-' || buffer.get(from + 10) != 'T'
+                || buffer.get(from + 13) != ':' || buffer.get(from + 16) != ':') {
+            return -1;
+        }
+        int year = digits(from, 4);
+        int month = digits(from + 5, 2);
+        int day = digits(from + 8, 2);
+        int hour = digits(from + 11, 2);
+        int minute = digits(from + 14, 2);
+        int second = digits(from + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return -1;
+        }
+        int pos = from + 19;
+        long nanos = 0;
+        if (pos < to && buffer.get(pos) == '.') {
+            int start = ++pos;
+            while (pos < to && pos - start < 9 && buffer.get(pos) >= '0' && buffer.get(pos) <= '9') {
+                nanos = nanos * 10 + buffer.get(pos++) - '0';
+            }
+            if (pos == start) {
+                return -1;
+            }
+            for (int k = pos - start; k < 9; k++) {
+                nanos *= 10;
+            }
+        }
+        if (pos >= to || buffer.get(pos) != 'Z') {
+            return parseOffsetTimestamp(from, to);
+        }
+        long seconds = epochDay(year, month, day) * 86400 + hour * 3600 + minute * 60 + second;
+        epochNanos = seconds * NANOS_PER_SECOND + nanos;
+        return pos + 1;
+    }
+
+    private int parseOffsetTimestamp(int from, int to) {
+        int end = from;
+        while (end < to && buffer.get(end) != '"' && buffer.get(end) != ',' && buffer.get(end) != ' ') {
+            end++;
+        }
+        byte[] bytes = new byte[end - from];
+        for (int k = 0; k < bytes.length; k++) {
+            bytes[k] = buffer.get(from + k);
+        }
+        try {
+            Instant instant = DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(
+                    new String(bytes, StandardCharsets.US_ASCII), Instant::from);
+            epochNanos = Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS_PER_SECOND),
+                    instant.getNano());
+            return end;
+        } catch (DateTimeException | ArithmeticException e) {
+            return -1;
+        }
+    }
+
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int k = from; k < from + count; k++) {
+            byte b = buffer.get(k);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + b - '0';
+        }
+        return value;
+    }
+
+    /**
+     * Returns the number of days since 1970-01-01 of a given proleptic Gregorian date.
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private int skipColon(int from, int to) {
+        int pos = from;
+        while (pos < to && buffer.get(pos) == ' ') {
+            pos++;
+        }
+        if (pos >= to || buffer.get(pos) != ':') {
+            return -1;
+        }
+        pos++;
+        while (pos < to && buffer.get(pos) == ' ') {
+            pos++;
+        }
+        return pos < to ? pos : -1;
+    }
+
+    private int indexOf(byte b, int from, int to) {
+        for (int pos = from; pos < to; pos++) {
+            if (buffer.get(pos) == b) {
+                return pos;
+            }
+        }
+        return to;
+    }
+
+    private int find(byte[] key, int from, int to) {
+        outer:
+        for (int pos = from; pos <= to - key.length; pos++) {
+            for (int k = 0; k < key.length; k++) {
+                if (buffer.get(pos + k) != key[k]) {
+                    continue outer;
+                }
+            }
+            return pos;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,4 @@
+@NonNullApi
+package com.n26.replay;
+
+import org.springframework.lang.NonNullApi;
\ No newline at end of file
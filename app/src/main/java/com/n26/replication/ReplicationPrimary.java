@@ -0,0 +1,310 @@
+package com.n26.replication;
+
+import com.n26.stats.BucketRing;
+import com.n26.stats.Stats;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.n26.replication.ReplicationProtocol.*;
+
+/**
+ * Ships bucket snapshots of a recorder to connected {@link ReplicationStandby}s.
+ *
+ * <p>Every interval the primary takes a snapshot of all buckets and sends each standby the buckets that changed
+ * since the last round it received (buckets are immutable, so a change is detected by reference, falling back to
+ * comparing values for sharded recorders), followed by a sync message. A newly connected standby receives all
+ * buckets in its first round, and so does every standby once the bucket width changes. Bandwidth is therefore bounded
+ * by the number of buckets per interval, regardless of the transaction rate.
+ *
+ * <p>Every standby is written to by its own thread, which ships the latest round it has not shipped yet, so a slow
+ * standby skips rounds instead of delaying the others. A standby still being written to a write timeout after a
+ * round started is disconnected.
+ */
+public class ReplicationPrimary implements ReplicationPrimaryMXBean, AutoCloseable {
+    private final BucketRing ring;
+    private final InetSocketAddress address;
+    private final Duration interval;
+    private final long writeTimeoutNanos;
+    private final Clock clock;
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService replicator;
+
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+
+    private final LongAdder sentBuckets = new LongAdder();
+
+    // written by replication thread only
+    private volatile long rounds;
+    private volatile long failedRounds;
+    private volatile long droppedStandbys;
+
+    /**
+     * Constructs ReplicationPrimary.
+     *
+     * @param ring     recorder to replicate
+     * @param address  address to listen on for standbys, port 0 for an ephemeral one
+     * @param interval     time between replication rounds
+     * @param writeTimeout time to write a round to a standby before it is disconnected
+     * @param clock        {@code Clock} instance of sync messages
+     * @throws IllegalArgumentException if interval or writeTimeout is non-positive
+     */
+    public ReplicationPrimary(BucketRing ring, InetSocketAddress address, Duration interval, Duration writeTimeout,
+                              Clock clock) {
+        this.ring = Objects.requireNonNull(ring, "ring");
+        this.address = Objects.requireNonNull(address, "address");
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Illegal interval: " + interval);
+        }
+        if (writeTimeout.isNegative() || writeTimeout.isZero()) {
+            throw new IllegalArgumentException("Illegal write timeout: " + writeTimeout);
+        }
+        this.interval = interval;
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        this.clock = Objects.requireNonNull(clock, "clock");
+        replicator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replication-primary");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Binds the listening socket and starts accepting standbys and replicating.
+     *
+     * @throws IOException if the socket cannot be bound
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        acceptor = new Thread(this::accept, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        long intervalNanos = interval.toNanos();
+        replicator.scheduleAtFixedRate(this::replicate, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops replicating and disconnects all standbys.
+     */
+    @Override
+    public void close() throws IOException, InterruptedException {
+        if (serverSocket != null) {
+            serverSocket.close();
+            acceptor.join();
+        }
+        replicator.shutdown();
+        replicator.awaitTermination(1, TimeUnit.MINUTES);
+        for (Session session : sessions) {
+            session.close();
+            session.writer.join();
+        }
+        sessions.clear();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Session session = new Session(socket);
+                sessions.add(session);
+                session.writer.start();
+            } catch (IOException e) {
+                // closed, or failed to accept a single connection
+            }
+        }
+    }
+
+    /**
+     * Runs a replication round, handing a snapshot to the writer of every standby. Called on replication thread only.
+     */
+    void replicate() {
+        try {
+            long widthNanos = ring.getBucketWidth().toNanos();
+            Map<Long, Stats> snapshot = new HashMap<>();
+            ring.forEachBucket((start, stats) -> snapshot.put(epochNanos(start), stats));
+            if (ring.getBucketWidth().toNanos() != widthNanos) {
+                return; // reconfigured while taking the snapshot, replicated next round
+            }
+            Round round = new Round(snapshot, widthNanos, epochNanos(clock.instant()));
+            long nanoTime = System.nanoTime();
+            for (Session session : sessions) {
+                if (session.isStalled(nanoTime)) {
+                    sessions.remove(session);
+                    session.close(); // fails the blocked write
+                    droppedStandbys++;
+                } else {
+                    session.offer(round);
+                }
+            }
+            rounds++;
+        } catch (RuntimeException e) {
+            failedRounds++; // thrown out of a scheduled task it would stop replication, retried next round instead
+        }
+    }
+
+    private static boolean sameValues(Stats a, Stats b) {
+        return a.getCount() == b.getCount()
+                && a.getSum().compareTo(b.getSum()) == 0
+                && a.getMax().compareTo(b.getMax()) == 0
+                && a.getMin().compareTo(b.getMin()) == 0;
+    }
+
+    @Override
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public int getStandbys() {
+        return sessions.size();
+    }
+
+    @Override
+    public long getRounds() {
+        return rounds;
+    }
+
+    @Override
+    public long getSentBuckets() {
+        return sentBuckets.sum();
+    }
+
+    @Override
+    public long getFailedRounds() {
+        return failedRounds;
+    }
+
+    @Override
+    public long getDroppedStandbys() {
+        return droppedStandbys;
+    }
+
+    private static final class Round {
+        final Map<Long, Stats> snapshot; // not modified once handed to writers
+        final long widthNanos;
+        final long now;
+
+        Round(Map<Long, Stats> snapshot, long widthNanos, long now) {
+            this.snapshot = snapshot;
+            this.widthNanos = widthNanos;
+            this.now = now;
+        }
+    }
+
+    private final class Session implements Runnable {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final Thread writer;
+        private final BlockingQueue<Round> pending = new ArrayBlockingQueue<>(1); // latest round not shipped yet
+        private volatile boolean shipping;
+        private volatile long shippingSince; // System.nanoTime() at the start of the round being shipped
+
+        // written by writer thread only
+        private final Map<Long, Stats> sent = new HashMap<>(); // last shipped snapshot of every bucket
+        private long helloWidthNanos; // bucket width of the last hello, 0 before the first one
+
+        Session(Socket socket) throws IOException {
+            this.socket = socket;
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            writer = new Thread(this, "replication-writer-" + socket.getRemoteSocketAddress());
+            writer.setDaemon(true);
+        }
+
+        /**
+         * Hands a round to the writer, replacing one it has not started shipping yet. Buckets are compared to the
+         * ones last shipped, so a skipped round is caught up with by the next one.
+         */
+        void offer(Round round) {
+            pending.clear();
+            pending.offer(round);
+        }
+
+        boolean isStalled(long nanoTime) {
+            return shipping && nanoTime - shippingSince > writeTimeoutNanos;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Round round = pending.take();
+                    shippingSince = System.nanoTime();
+                    shipping = true;
+                    sentBuckets.add(ship(round.snapshot, round.widthNanos, round.now));
+                    shipping = false;
+                }
+            } catch (IOException | InterruptedException e) {
+                // disconnected, dropped or closed
+            } finally {
+                sessions.remove(this);
+                close();
+            }
+        }
+
+        /**
+         * Sends buckets changed since the last round.
+         *
+         * @return number of sent buckets
+         */
+        int ship(Map<Long, Stats> snapshot, long widthNanos, long now) throws IOException {
+            if (helloWidthNanos != widthNanos) {
+                out.writeByte(HELLO);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(widthNanos);
+                helloWidthNanos = widthNanos;
+                sent.clear(); // buckets of the old width are replaced on the standby by resending all
+            }
+            int n = 0;
+            for (Map.Entry<Long, Stats> entry : snapshot.entrySet()) {
+                Stats prev = sent.put(entry.getKey(), entry.getValue());
+                if (prev != entry.getValue() && (prev == null || !sameValues(prev, entry.getValue()))) {
+                    writeBucket(out, entry.getKey(), entry.getValue());
+                    n++;
+                }
+            }
+            for (Iterator<Long> it = sent.keySet().iterator(); it.hasNext(); ) {
+                long start = it.next();
+                if (!snapshot.containsKey(start)) { // expired or cleared
+                    out.writeByte(EMPTY);
+                    out.writeLong(start);
+                    it.remove();
+                    n++;
+                }
+            }
+            out.writeByte(SYNC);
+            out.writeLong(now);
+            out.flush();
+            return n;
+        }
+
+        void close() {
+            writer.interrupt();
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.n26.replication;
+
+/**
+ * Management interface of {@link ReplicationPrimary}.
+ */
+public interface ReplicationPrimaryMXBean {
+    /**
+     * Returns the port the primary listens on.
+     *
+     * @return local port
+     */
+    int getPort();
+
+    /**
+     * Returns the number of connected standbys.
+     *
+     * @return number of standbys
+     */
+    int getStandbys();
+
+    /**
+     * Returns the number of replication rounds.
+     *
+     * @return number of rounds
+     */
+    long getRounds();
+
+    /**
+     * Returns the number of bucket snapshots sent to all standbys.
+     *
+     * @return number of sent buckets
+     */
+    long getSentBuckets();
+
+    /**
+     * Returns the number of replication rounds that failed, e.g. because the recorder threw an exception.
+     *
+     * @return number of failed rounds
+     */
+    long getFailedRounds();
+
+    /**
+     * Returns the number of standbys disconnected because they did not accept a round within the write timeout.
+     *
+     * @return number of dropped standbys
+     */
+    long getDroppedStandbys();
+}
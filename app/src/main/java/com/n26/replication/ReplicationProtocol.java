@@ -0,0 +1,100 @@
+package com.n26.replication;
+
+import com.n26.stats.Stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+
+/**
+ * Messages sent by {@link ReplicationPrimary} to {@link ReplicationStandby}, all values big-endian.
+ *
+ * <pre>
+ * 'H' magic:int version:int bucketWidthNanos:long   first on a connection, again whenever the bucket width changes
+ * 'B' start:long count:long sum max min bins:int binCount:long[bins]
+ *                                                  bucket snapshot, start in epoch nanos, bins 0 without histogram
+ * 'E' start:long                                   bucket emptied (e.g. cleared)
+ * 'S' time:long                                    end of a replication round, primary time in epoch nanos
+ * </pre>
+ * Decimals are written as scale:int length:int unscaled:byte[length] (two's complement).
+ */
+final class ReplicationProtocol {
+    static final int MAGIC = 0x4e323650; // "N26P"
+    static final int VERSION = 2;
+    static final byte HELLO = 'H';
+    static final byte BUCKET = 'B';
+    static final byte EMPTY = 'E';
+    static final byte SYNC = 'S';
+
+    private static final int MAX_DECIMAL_BYTES = 1 << 16;
+    private static final int MAX_BINS = 1 << 16;
+
+    private ReplicationProtocol() {
+    }
+
+    static void writeBucket(DataOutput out, long start, Stats stats) throws IOException {
+        out.writeByte(BUCKET);
+        out.writeLong(start);
+        out.writeLong(stats.getCount());
+        writeDecimal(out, stats.getSum());
+        writeDecimal(out, stats.getMax());
+        writeDecimal(out, stats.getMin());
+        long[] binCounts = stats.getBinCounts();
+        out.writeInt(binCounts != null ? binCounts.length : 0);
+        if (binCounts != null) {
+            for (long binCount : binCounts) {
+                out.writeLong(binCount);
+            }
+        }
+    }
+
+    static Stats readStats(DataInput in) throws IOException {
+        long count = in.readLong();
+        BigDecimal sum = readDecimal(in);
+        BigDecimal max = readDecimal(in);
+        BigDecimal min = readDecimal(in);
+        int bins = in.readInt();
+        if (bins < 0 || bins > MAX_BINS) {
+            throw new IOException("Illegal number of bins: " + bins);
+        }
+        Stats stats = new Stats(sum, max, min, count);
+        if (bins == 0) {
+            return stats;
+        }
+        long[] binCounts = new long[bins];
+        for (int b = 0; b < bins; b++) {
+            binCounts[b] = in.readLong();
+        }
+        return stats.withBinCounts(binCounts);
+    }
+
+    private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(value.scale());
+        out.writeInt(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(DataInput in) throws IOException {
+        int scale = in.readInt();
+        int length = in.readInt();
+        if (length < 1 || length > MAX_DECIMAL_BYTES) {
+            throw new IOException("Illegal decimal length: " + length);
+        }
+        byte[] unscaled = new byte[length];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    static long epochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    static Instant instant(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+}
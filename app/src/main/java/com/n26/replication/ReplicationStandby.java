@@ -0,0 +1,231 @@
+package com.n26.replication;
+
+import com.n26.stats.BucketRing;
+import com.n26.stats.Stats;
+import org.springframework.lang.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.n26.replication.ReplicationProtocol.*;
+
+/**
+ * Keeps buckets of a recorder in sync with a {@link ReplicationPrimary} until promoted.
+ *
+ * <p>Received bucket snapshots replace the buckets of the local recorder containing their middle points, so
+ * the recorders do not need to share a time grid, only the bucket width. The local recorder keeps ticking on its
+ * own and expires buckets as usual, so after promotion it holds the complete window as of the last replication
+ * round. The standby reconnects after a delay whenever the connection fails, and disconnects once the bucket width
+ * of either side no longer matches.
+ */
+public class ReplicationStandby implements ReplicationStandbyMXBean, AutoCloseable {
+    private final BucketRing ring;
+    private final InetSocketAddress primary;
+    private final Duration reconnectDelay;
+    private final Duration readTimeout;
+    private final Clock clock;
+    private final Thread thread;
+    private final List<Runnable> promotionListeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean promoted;
+    private volatile Socket socket;
+
+    // written by standby thread only
+    private volatile boolean connected;
+    private volatile long appliedBuckets;
+    private volatile long lastSync; // primary time in epoch nanos
+    private volatile long lagNanos;
+
+    /**
+     * Constructs ReplicationStandby.
+     *
+     * @param ring           recorder to keep in sync
+     * @param primary        address of the primary
+     * @param reconnectDelay time between connection attempts
+     * @param readTimeout    time without messages after which the connection is considered failed
+     * @param clock          {@code Clock} instance to compute replication lag
+     */
+    public ReplicationStandby(BucketRing ring, InetSocketAddress primary, Duration reconnectDelay,
+                              Duration readTimeout, Clock clock) {
+        this.ring = Objects.requireNonNull(ring, "ring");
+        this.primary = Objects.requireNonNull(primary, "primary");
+        this.reconnectDelay = Objects.requireNonNull(reconnectDelay, "reconnectDelay");
+        this.readTimeout = Objects.requireNonNull(readTimeout, "readTimeout");
+        this.clock = Objects.requireNonNull(clock, "clock");
+        thread = new Thread(this::run, "replication-standby");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts standby thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Registers an action run once promoted, e.g. starting a listener that writes to the recorder. Runs the action
+     * right away if already promoted.
+     *
+     * @param listener action run by the thread promoting the standby
+     */
+    public void addPromotionListener(Runnable listener) {
+        promotionListeners.add(Objects.requireNonNull(listener, "listener"));
+        if (promoted && promotionListeners.remove(listener)) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Stops applying snapshots of the primary, disconnects from it and runs promotion listeners. Idempotent.
+     */
+    public void promote() throws InterruptedException {
+        stop();
+        for (Runnable listener : promotionListeners) {
+            if (promotionListeners.remove(listener)) { // not run again by a concurrent promote
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * Stops following the primary without running promotion listeners.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        stop();
+    }
+
+    private void stop() throws InterruptedException {
+        synchronized (this) {
+            promoted = true;
+        }
+        closeSocket();
+        LockSupport.unpark(thread);
+        if (thread.isAlive() && thread != Thread.currentThread()) {
+            thread.join();
+        }
+    }
+
+    private void run() {
+        while (!promoted) {
+            try (Socket s = new Socket()) {
+                socket = s;
+                if (promoted) {
+                    return;
+                }
+                s.connect(primary, (int) readTimeout.toMillis());
+                s.setSoTimeout((int) readTimeout.toMillis());
+                connected = true;
+                follow(new DataInputStream(new BufferedInputStream(s.getInputStream())));
+            } catch (IOException e) {
+                // primary unavailable, retry
+            } finally {
+                connected = false;
+                socket = null;
+            }
+            if (!promoted) {
+                LockSupport.parkNanos(this, reconnectDelay.toNanos());
+            }
+        }
+    }
+
+    private void follow(DataInputStream in) throws IOException {
+        if (in.readByte() != HELLO) {
+            throw new IOException("Unsupported replication protocol");
+        }
+        long widthNanos = readHello(in);
+        while (true) {
+            byte type = in.readByte();
+            switch (type) {
+                case HELLO: // primary reconfigured, buckets are resent
+                    widthNanos = readHello(in);
+                    break;
+                case BUCKET:
+                    long start = in.readLong();
+                    apply(start, widthNanos, readStats(in));
+                    break;
+                case EMPTY:
+                    apply(in.readLong(), widthNanos, null);
+                    break;
+                case SYNC:
+                    long time = in.readLong();
+                    lastSync = time;
+                    lagNanos = epochNanos(clock.instant()) - time;
+                    break;
+                default:
+                    throw new IOException("Unknown message type: " + type);
+            }
+        }
+    }
+
+    private long readHello(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unsupported replication protocol");
+        }
+        long widthNanos = in.readLong();
+        checkBucketWidth(widthNanos);
+        return widthNanos;
+    }
+
+    private void checkBucketWidth(long widthNanos) throws IOException {
+        if (widthNanos != ring.getBucketWidth().toNanos()) {
+            throw new IOException("Bucket width mismatch: " + Duration.ofNanos(widthNanos));
+        }
+    }
+
+    private void apply(long start, long widthNanos, @Nullable Stats stats) throws IOException {
+        synchronized (this) { // no snapshot is applied once promote() returns
+            if (promoted) {
+                throw new IOException("Promoted");
+            }
+            checkBucketWidth(widthNanos); // the standby may have been reconfigured
+            ring.replaceBucket(instant(start + widthNanos / 2), stats);
+        }
+        appliedBuckets++;
+    }
+
+    private void closeSocket() {
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public boolean isPromoted() {
+        return promoted;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public long getAppliedBuckets() {
+        return appliedBuckets;
+    }
+
+    @Override
+    public long getLagNanos() {
+        return lagNanos;
+    }
+
+    @Override
+    public long getLastSync() {
+        return lastSync;
+    }
+}
@@ -0,0 +1,41 @@
+package com.n26.replication;
+
+/**
+ * Management interface of {@link ReplicationStandby}.
+ */
+public interface ReplicationStandbyMXBean {
+    /**
+     * Returns whether the standby was promoted and stopped following the primary.
+     *
+     * @return true if promoted
+     */
+    boolean isPromoted();
+
+    /**
+     * Returns whether the standby is connected to the primary.
+     *
+     * @return true if connected
+     */
+    boolean isConnected();
+
+    /**
+     * Returns the number of applied bucket snapshots.
+     *
+     * @return number of applied buckets
+     */
+    long getAppliedBuckets();
+
+    /**
+     * Returns the delay between the end of the last replication round on the primary and its receipt.
+     *
+     * @return replication lag in nanoseconds
+     */
+    long getLagNanos();
+
+    /**
+     * Returns primary time of the last completed replication round.
+     *
+     * @return epoch nanos, 0 if none
+     */
+    long getLastSync();
+}
@@ -0,0 +1,4 @@
+@NonNullApi
+package com.n26.replication;
+
+import org.springframework.lang.NonNullApi;
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.n26.rest;
+
+import com.n26.config.RecorderProperties;
+import com.n26.replication.ReplicationStandby;
+import com.n26.stats.ReconfigurableTransactionStatisticsRecorder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private static final Duration MIN_BUCKET_WIDTH = Duration.ofMillis(1);
+
+    private final ReconfigurableTransactionStatisticsRecorder recorder;
+    private final ReplicationStandby replicationStandby; // null unless running as standby
+    private final RecorderProperties recorderProperties;
+
+    AdminController(ReconfigurableTransactionStatisticsRecorder recorder,
+                    ObjectProvider<ReplicationStandby> replicationStandby,
+                    RecorderProperties recorderProperties) {
+        this.recorder = recorder;
+        this.replicationStandby = replicationStandby.getIfAvailable();
+        this.recorderProperties = recorderProperties;
+    }
+
+    @GetMapping(value = "/recorder", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    RecorderConfigResponse getRecorderConfig() {
+        return new RecorderConfigResponse(recorder.getMaxTransactionAge(), recorder.getResolution());
+    }
+
+    @PutMapping(value = "/recorder",
+            consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    RecorderConfigResponse putRecorderConfig(@Valid @RequestBody RecorderConfigRequest request) {
+        // the ring is allocated under the write lock, blocking all ingestion
+        if (request.getResolution() > recorderProperties.getMaxResolution()) {
+            throw new IllegalArgumentException("Illegal resolution: " + request.getResolution());
+        }
+        if (request.getDuration().dividedBy(request.getResolution()).compareTo(MIN_BUCKET_WIDTH) < 0) {
+            throw new IllegalArgumentException("Illegal bucket width: below " + MIN_BUCKET_WIDTH);
+        }
+        recorder.reconfigure(request.getDuration(), request.getResolution());
+        return getRecorderConfig();
+    }
+
+    @PostMapping(value = "/replication/promote")
+    ResponseEntity promote() throws InterruptedException {
+        if (replicationStandby == null) {
+            return new ResponseEntity(HttpStatus.NOT_FOUND);
+        }
+        replicationStandby.promote();
+        return new ResponseEntity(HttpStatus.NO_CONTENT);
+    }
+
+    @ExceptionHandler
+    ResponseEntity handleThrowable(MethodArgumentNotValidException e) {
+        return new ResponseEntity(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler
+    ResponseEntity handleThrowable(IllegalArgumentException e) {
+        return new ResponseEntity(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+}
@@ -0,0 +1,47 @@
+package com.n26.rest;
+
+import com.n26.config.SerializationProperties;
+import com.n26.stats.store.SegmentStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+@RestController
+@ConditionalOnProperty(prefix = "archive", name = "enabled")
+public class ArchiveController {
+
+    private final SegmentStore segmentStore;
+    private final SerializationProperties serializationProperties;
+
+    ArchiveController(SegmentStore segmentStore, SerializationProperties serializationProperties) {
+        this.segmentStore = segmentStore;
+        this.serializationProperties = serializationProperties;
+    }
+
+    @GetMapping(value = "/statistics/archive", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    List<StatisticsHistoryResponse> getStatisticsArchive(@RequestParam Instant from,
+                                                         @RequestParam Instant to,
+                                                         @RequestParam(defaultValue = "PT1H") Duration step) {
+        return segmentStore.query(from, to, step).stream()
+                .map(rollup -> new StatisticsHistoryResponse(rollup,
+                        serializationProperties.getDecimalPoints(),
+                        serializationProperties.getRoundingMode()))
+                .collect(toList());
+    }
+
+    @ExceptionHandler
+    ResponseEntity handleThrowable(IllegalArgumentException e) {
+        return new ResponseEntity(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+}
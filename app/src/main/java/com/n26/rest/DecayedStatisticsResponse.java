@@ -0,0 +1,32 @@
+package com.n26.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.n26.stats.StatisticsSummary;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public class DecayedStatisticsResponse {
+    private final StatisticsResponse statistics;
+    private final BigDecimal rate;
+
+    DecayedStatisticsResponse(StatisticsSummary<BigDecimal> summary, double rate, int scale,
+                              RoundingMode roundingMode) {
+        this.statistics = new StatisticsResponse(summary, scale, roundingMode);
+        this.rate = BigDecimal.valueOf(rate).setScale(scale, roundingMode);
+    }
+
+    @JsonUnwrapped
+    public StatisticsResponse getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Decayed rate of transactions per second.
+     */
+    @JsonProperty("rate")
+    public BigDecimal getRate() {
+        return rate;
+    }
+}
@@ -0,0 +1,36 @@
+package com.n26.rest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+import java.util.List;
+
+public class FinalizedIntervalsResponse {
+    private final Instant watermark;
+    private final List<StatisticsHistoryResponse> intervals;
+
+    FinalizedIntervalsResponse(@Nullable Instant watermark, List<StatisticsHistoryResponse> intervals) {
+        this.watermark = watermark;
+        this.intervals = intervals;
+    }
+
+    /**
+     * End of the latest finalized interval, absent until the first one was finalized.
+     */
+    @JsonProperty("watermark")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Nullable
+    public Instant getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Non-empty finalized intervals ordered by time.
+     */
+    @JsonProperty("intervals")
+    public List<StatisticsHistoryResponse> getIntervals() {
+        return intervals;
+    }
+}
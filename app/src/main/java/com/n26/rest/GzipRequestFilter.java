@@ -0,0 +1,157 @@
+package com.n26.rest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decompresses request bodies sent with <tt>Content-Encoding: gzip</tt>, rejecting other encodings with
+ * <tt>415 Unsupported Media Type</tt>, corrupt bodies with <tt>400 Bad Request</tt> and bodies inflating beyond a
+ * maximum size with <tt>413 Payload Too Large</tt>. Bodies are inflated before the request is passed on, so that
+ * a small compressed body never expands beyond the maximum in memory and reads never block.
+ */
+public class GzipRequestFilter extends OncePerRequestFilter {
+    private final long maxInflatedSize;
+
+    /**
+     * Constructs GzipRequestFilter.
+     *
+     * @param maxInflatedSize maximum number of bytes of a decompressed body
+     * @throws IllegalArgumentException if maxInflatedSize is non-positive or above the maximum array size
+     */
+    public GzipRequestFilter(long maxInflatedSize) {
+        if (maxInflatedSize < 1 || maxInflatedSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Illegal maxInflatedSize: " + maxInflatedSize);
+        }
+        this.maxInflatedSize = maxInflatedSize;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (encoding == null || "identity".equalsIgnoreCase(encoding)) {
+            chain.doFilter(request, response);
+        } else if (!"gzip".equalsIgnoreCase(encoding)) {
+            response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value());
+        } else {
+            byte[] body;
+            try {
+                body = inflate(request.getInputStream());
+            } catch (IOException e) {
+                response.sendError(HttpStatus.BAD_REQUEST.value());
+                return;
+            }
+            if (body == null) {
+                response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                return;
+            }
+            chain.doFilter(new DecompressedRequest(request, body), response);
+        }
+    }
+
+    /**
+     * Decompresses a body up to the maximum size.
+     *
+     * @return decompressed body, null if it exceeds the maximum size
+     * @throws IOException if the body is corrupt or cannot be read
+     */
+    @Nullable
+    private byte[] inflate(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPInputStream gzip = new GZIPInputStream(in)) {
+            byte[] buffer = new byte[8192];
+            for (int n = gzip.read(buffer); n >= 0; n = gzip.read(buffer)) {
+                if (out.size() + n > maxInflatedSize) {
+                    return null;
+                }
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static class DecompressedRequest extends HttpServletRequestWrapper {
+        private final int length;
+        private final ServletInputStream body;
+
+        DecompressedRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            length = body.length;
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            this.body = new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * Notifies the listener right away, as the whole body is already in memory.
+                 */
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return body;
+        }
+
+        @Override
+        public int getContentLength() {
+            return length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return length;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                return Integer.toString(length);
+            }
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) ? null : super.getHeader(name);
+        }
+    }
+}
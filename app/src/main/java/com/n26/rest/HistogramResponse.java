@@ -0,0 +1,77 @@
+package com.n26.rest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.n26.stats.Histogram;
+import com.n26.stats.HistogramBins;
+import org.springframework.lang.Nullable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HistogramResponse {
+    private final StatisticsResponse statistics;
+    private final List<Bin> bins;
+
+    HistogramResponse(Histogram histogram, int scale, RoundingMode roundingMode) {
+        this.statistics = new StatisticsResponse(histogram.getSummary(), scale, roundingMode);
+        HistogramBins layout = histogram.getBins();
+        this.bins = new ArrayList<>(layout.size());
+        for (int i = 0; i < layout.size(); i++) {
+            bins.add(new Bin(layout.getLowerBound(i), layout.getUpperBound(i), histogram.getCount(i)));
+        }
+    }
+
+    @JsonUnwrapped
+    public StatisticsResponse getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * All bins of the layout in ascending order, including empty ones.
+     */
+    @JsonProperty("bins")
+    public List<Bin> getBins() {
+        return bins;
+    }
+
+    public static class Bin {
+        private final BigDecimal from;
+        private final BigDecimal to;
+        private final long count;
+
+        Bin(@Nullable BigDecimal from, @Nullable BigDecimal to, long count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+
+        /**
+         * Inclusive lower bound, absent for the first bin.
+         */
+        @JsonProperty("from")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        @Nullable
+        public BigDecimal getFrom() {
+            return from;
+        }
+
+        /**
+         * Exclusive upper bound, absent for the last bin.
+         */
+        @JsonProperty("to")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        @Nullable
+        public BigDecimal getTo() {
+            return to;
+        }
+
+        @JsonProperty("count")
+        public long getCount() {
+            return count;
+        }
+    }
+}
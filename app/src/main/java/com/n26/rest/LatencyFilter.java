@@ -0,0 +1,32 @@
+package com.n26.rest;
+
+import com.n26.ingest.LoadShedder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Reports latency of served requests, including body parsing and serialization, to {@link LoadShedder}.
+ */
+public class LatencyFilter extends OncePerRequestFilter {
+    private final LoadShedder loadShedder;
+
+    public LatencyFilter(LoadShedder loadShedder) {
+        this.loadShedder = loadShedder;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            loadShedder.recordLatency(System.nanoTime() - start);
+        }
+    }
+}
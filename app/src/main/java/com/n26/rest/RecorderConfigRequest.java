@@ -0,0 +1,34 @@
+package com.n26.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.time.Duration;
+
+public class RecorderConfigRequest {
+    private final Duration duration;
+    private final Integer resolution;
+
+    public RecorderConfigRequest(@JsonProperty("duration") Duration duration,
+                                 @JsonProperty("resolution") Integer resolution) {
+        this.duration = duration;
+        this.resolution = resolution;
+    }
+
+    @NotNull
+    Duration getDuration() {
+        return duration;
+    }
+
+    @Positive
+    @NotNull
+    Integer getResolution() {
+        return resolution;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RecorderConfigRequest{duration=%s; resolution=%d}", duration, resolution);
+    }
+}
@@ -0,0 +1,25 @@
+package com.n26.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+
+public class RecorderConfigResponse {
+    private final Duration duration;
+    private final int resolution;
+
+    RecorderConfigResponse(Duration duration, int resolution) {
+        this.duration = duration;
+        this.resolution = resolution;
+    }
+
+    @JsonProperty("duration")
+    public String getDuration() {
+        return duration.toString();
+    }
+
+    @JsonProperty("resolution")
+    public int getResolution() {
+        return resolution;
+    }
+}
@@ -0,0 +1,35 @@
+package com.n26.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.n26.stats.StatisticsHistory;
+
+import java.math.RoundingMode;
+import java.time.Instant;
+
+@JsonPropertyOrder({"from", "to"})
+public class StatisticsHistoryResponse {
+    private final StatisticsHistory.Rollup rollup;
+    private final StatisticsResponse statistics;
+
+    StatisticsHistoryResponse(StatisticsHistory.Rollup rollup, int scale, RoundingMode roundingMode) {
+        this.rollup = rollup;
+        this.statistics = new StatisticsResponse(rollup.getStats(), scale, roundingMode);
+    }
+
+    @JsonProperty("from")
+    public Instant getFrom() {
+        return rollup.getStart();
+    }
+
+    @JsonProperty("to")
+    public Instant getTo() {
+        return rollup.getEnd();
+    }
+
+    @JsonUnwrapped
+    public StatisticsResponse getStatistics() {
+        return statistics;
+    }
+}
@@ -1,8 +1,10 @@
 package com.n26.rest;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.n26.stats.StatisticsSummary;
+import org.springframework.lang.Nullable;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -13,11 +15,18 @@ public class StatisticsResponse {
     private final StatisticsSummary<BigDecimal> summary;
     private final int scale;
     private final RoundingMode roundingMode;
+    private final Double samplingRate;
 
     StatisticsResponse(StatisticsSummary<BigDecimal> summary, int scale, RoundingMode roundingMode) {
+        this(summary, scale, roundingMode, null);
+    }
+
+    StatisticsResponse(StatisticsSummary<BigDecimal> summary, int scale, RoundingMode roundingMode,
+                       @Nullable Double samplingRate) {
         this.summary = summary;
         this.scale = scale;
         this.roundingMode = roundingMode;
+        this.samplingRate = samplingRate;
     }
 
     @JsonIgnore
@@ -54,4 +63,14 @@ public class StatisticsResponse {
     public long getCount() {
         return summary.getCount();
     }
+
+    /**
+     * Fraction of transactions recorded while shedding load; sum, avg and count are estimates then.
+     */
+    @JsonProperty("samplingRate")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Nullable
+    public Double getSamplingRate() {
+        return samplingRate;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+package com.n26.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.n26.stats.Stats;
+import org.springframework.lang.Nullable;
+
+import javax.validation.Valid;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+public class TransactionBatchRequest {
+    static final int MAX_GROUPS = 10_000;
+
+    private final String id;
+    private final List<Group> groups;
+
+    public TransactionBatchRequest(@JsonProperty("id") @Nullable String id,
+                                   @JsonProperty("groups") List<Group> groups) {
+        this.id = id;
+        this.groups = groups;
+    }
+
+    /**
+     * Optional client-assigned id, the same for all retries of a batch.
+     */
+    @Nullable
+    String getId() {
+        return id;
+    }
+
+    @Valid
+    @NotEmpty
+    @Size(max = MAX_GROUPS)
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransactionBatchRequest{id=%s; groups=%d}", id, groups != null ? groups.size() : 0);
+    }
+
+    /**
+     * Aggregates of transactions that happened within a bucket period, timestamped with the latest of them. Getters
+     * are public, as Spring binds violations of nested constraints to bean properties.
+     */
+    public static class Group {
+        private final Instant timestamp;
+        private final Long count;
+        private final BigDecimal sum;
+        private final BigDecimal max;
+        private final BigDecimal min;
+
+        public Group(@JsonProperty("timestamp") Instant timestamp, @JsonProperty("count") Long count,
+                     @JsonProperty("sum") BigDecimal sum, @JsonProperty("max") BigDecimal max,
+                     @JsonProperty("min") BigDecimal min) {
+            this.timestamp = timestamp;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.min = min;
+        }
+
+        @NotNull
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+
+        @Positive
+        @NotNull
+        public Long getCount() {
+            return count;
+        }
+
+        @NotNull
+        public BigDecimal getSum() {
+            return sum;
+        }
+
+        @NotNull
+        public BigDecimal getMax() {
+            return max;
+        }
+
+        @NotNull
+        public BigDecimal getMin() {
+            return min;
+        }
+
+        /**
+         * Checks that min &lt;= sum / count &lt;= max, so that the group may stand for actual transactions.
+         */
+        @AssertTrue
+        public boolean isConsistent() {
+            if (count == null || count < 1 || sum == null || max == null || min == null) {
+                return true; // reported by the other constraints
+            }
+            BigDecimal n = BigDecimal.valueOf(count);
+            return min.compareTo(max) <= 0
+                    && sum.compareTo(min.multiply(n)) >= 0
+                    && sum.compareTo(max.multiply(n)) <= 0
+                    && (count > 1 || min.compareTo(sum) == 0);
+        }
+
+        Stats toStats() {
+            return new Stats(sum, max, min, count);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.n26.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class TransactionBatchResponse {
+    private final long accepted;
+    private final long expired;
+    private final long rejected;
+
+    TransactionBatchResponse(long accepted, long expired, long rejected) {
+        this.accepted = accepted;
+        this.expired = expired;
+        this.rejected = rejected;
+    }
+
+    /**
+     * Number of transactions recorded within the time window.
+     */
+    @JsonProperty("accepted")
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Number of transactions older than the time window, not recorded.
+     */
+    @JsonProperty("expired")
+    public long getExpired() {
+        return expired;
+    }
+
+    /**
+     * Number of transactions in the future, not recorded.
+     */
+    @JsonProperty("rejected")
+    public long getRejected() {
+        return rejected;
+    }
+}
@@ -1,9 +1,9 @@
 package com.n26.rest;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.lang.Nullable;
 
 import javax.validation.constraints.NotNull;
-import javax.validation.constraints.PastOrPresent;
 import java.math.BigDecimal;
 import java.time.Instant;
 
@@ -13,9 +13,13 @@ public class TransactionRequest {
 
     private final Instant timestamp;
 
-    public TransactionRequest(@JsonProperty("amount") BigDecimal amount, @JsonProperty("timestamp") Instant timestamp) {
+    private final String id;
+
+    public TransactionRequest(@JsonProperty("amount") BigDecimal amount, @JsonProperty("timestamp") Instant timestamp,
+                              @JsonProperty("id") @Nullable String id) {
         this.amount = amount;
         this.timestamp = timestamp;
+        this.id = id;
     }
 
     @NotNull
@@ -23,12 +27,19 @@ public class TransactionRequest {
         return amount;
     }
 
-    @PastOrPresent
     @NotNull
     Instant getTimestamp() {
         return timestamp;
     }
 
+    /**
+     * Optional client-assigned id, the same for all retries of a transaction.
+     */
+    @Nullable
+    String getId() {
+        return id;
+    }
+
     @Override
     public String toString() {
         return String.format("TransactionRequest{format=%s; timestamp=%d}", amount, timestamp.toEpochMilli());
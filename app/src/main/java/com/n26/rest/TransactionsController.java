@@ -0,0 +1,361 @@
+package com.n26.rest;
+
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.InvalidNullException;
+import com.fasterxml.jackson.databind.exc.InvalidTypeIdException;
+import com.fasterxml.jackson.databind.exc.PropertyBindingException;
+import com.n26.config.RecorderProperties;
+import com.n26.config.SerializationProperties;
+import com.n26.ingest.DuplicateFilter;
+import com.n26.ingest.LoadShedder;
+import com.n26.ingest.TransactionRingBuffer;
+import com.n26.replication.ReplicationStandby;
+import com.n26.stats.CapacityExceededException;
+import com.n26.stats.DecayedTransactionStatisticsRecorder;
+import com.n26.stats.ExactTransactionStatisticsRecorder;
+import com.n26.stats.FinalizedIntervals;
+import com.n26.stats.ReconfigurableTransactionStatisticsRecorder;
+import com.n26.stats.StatisticsHistory;
+import com.n26.stats.Stats;
+import com.n26.stats.TransactionStatisticsRecorder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+@RestController("/")
+public class TransactionsController {
+
+    private static final Duration DEFAULT_HISTORY_RANGE = Duration.ofHours(1);
+
+    private final TransactionStatisticsRecorder transactionStatisticsRecorder;
+    private final StatisticsHistory statisticsHistory;
+    private final ReconfigurableTransactionStatisticsRecorder bucketStatisticsRecorder;
+    private final boolean bucketsRecorded; // false if another engine replaced the buckets
+    private final DecayedTransactionStatisticsRecorder decayedStatisticsRecorder; // null unless decayed engine is on
+    private final ExactTransactionStatisticsRecorder exactStatisticsRecorder; // null unless exact engine is on
+    private final ReconfigurableTransactionStatisticsRecorder histogramRecorder; // null unless buckets keep histograms
+    private final TransactionRingBuffer transactionRingBuffer; // null unless asynchronous ingestion is enabled
+    private final LoadShedder loadShedder; // null unless load shedding is enabled
+    private final DuplicateFilter duplicateFilter; // null unless duplicate detection is enabled
+    private final FinalizedIntervals finalizedIntervals; // null unless watermarks are enabled
+    private final ReplicationStandby replicationStandby; // null unless running as standby
+    private final SerializationProperties serializationProperties;
+    private final RecorderProperties recorderProperties;
+    private final Clock clock;
+
+    TransactionsController(TransactionStatisticsRecorder transactionStatisticsRecorder,
+                           StatisticsHistory statisticsHistory,
+                           ObjectProvider<DecayedTransactionStatisticsRecorder> decayedStatisticsRecorder,
+                           ObjectProvider<ExactTransactionStatisticsRecorder> exactStatisticsRecorder,
+                           ReconfigurableTransactionStatisticsRecorder bucketStatisticsRecorder,
+                           ObjectProvider<TransactionRingBuffer> transactionRingBuffer,
+                           ObjectProvider<LoadShedder> loadShedder,
+                           ObjectProvider<DuplicateFilter> duplicateFilter,
+                           ObjectProvider<FinalizedIntervals> finalizedIntervals,
+                           ObjectProvider<ReplicationStandby> replicationStandby,
+                           SerializationProperties serializationProperties,
+                           RecorderProperties recorderProperties,
+                           Clock clock) {
+        this.transactionStatisticsRecorder = transactionStatisticsRecorder;
+        this.statisticsHistory = statisticsHistory;
+        this.bucketStatisticsRecorder = bucketStatisticsRecorder;
+        this.decayedStatisticsRecorder = decayedStatisticsRecorder.getIfAvailable();
+        this.exactStatisticsRecorder = exactStatisticsRecorder.getIfAvailable();
+        this.bucketsRecorded = recorderProperties.getEngine() == RecorderProperties.Engine.BUCKETS
+                || recorderProperties.getEngine() == RecorderProperties.Engine.BOTH;
+        this.histogramRecorder = recorderProperties.getHistogram().isEnabled() && bucketsRecorded ?
+                bucketStatisticsRecorder : null;
+        this.transactionRingBuffer = transactionRingBuffer.getIfAvailable();
+        this.loadShedder = loadShedder.getIfAvailable();
+        this.duplicateFilter = duplicateFilter.getIfAvailable();
+        this.finalizedIntervals = finalizedIntervals.getIfAvailable();
+        this.replicationStandby = replicationStandby.getIfAvailable();
+        this.serializationProperties = serializationProperties;
+        this.recorderProperties = recorderProperties;
+        this.clock = clock;
+    }
+
+    @PostMapping(value = "/transactions", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    ResponseEntity postTransaction(@Valid @RequestBody TransactionRequest transactionRequest) {
+        if (isFollowingPrimary()) {
+            return new ResponseEntity(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (transactionRequest.getTimestamp().isAfter(clock.instant().plus(recorderProperties.getFutureSkew()))) {
+            return new ResponseEntity(HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+        DuplicateFilter.Reservation reservation = null;
+        if (duplicateFilter != null && transactionRequest.getId() != null) {
+            reservation = duplicateFilter.reserve(transactionRequest.getId());
+            if (reservation == null) {
+                // retry of a transaction seen within the window, already recorded or being recorded
+                return new ResponseEntity(HttpStatus.OK);
+            }
+        }
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        try {
+            status = recordTransaction(transactionRequest);
+        } finally {
+            if (reservation != null && status == HttpStatus.SERVICE_UNAVAILABLE) {
+                reservation.release(); // rejected or failed, so that it can be retried
+            }
+        }
+        return new ResponseEntity(status);
+    }
+
+    private HttpStatus recordTransaction(TransactionRequest transactionRequest) {
+        if (loadShedder != null && isExpired(transactionRequest.getTimestamp())) {
+            // never recorded, so neither sampled nor shed
+            return HttpStatus.NO_CONTENT;
+        }
+        long weight = loadShedder != null ? loadShedder.nextWeight() : 1;
+        if (weight == 0) {
+            // shed, accounted for by the weight of sampled transactions
+            return transactionRingBuffer != null ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+        }
+        if (transactionRingBuffer != null) {
+            return transactionRingBuffer.publish(
+                    transactionRequest.getAmount(), transactionRequest.getTimestamp(), weight) ?
+                    HttpStatus.ACCEPTED : HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        return transactionStatisticsRecorder.recordTransaction(
+                transactionRequest.getAmount(), transactionRequest.getTimestamp(), weight) ?
+                HttpStatus.CREATED : HttpStatus.NO_CONTENT;
+    }
+
+    /**
+     * Records a batch of transaction groups, e.g. pre-aggregated per bucket period by a client. Groups in the future
+     * are rejected one by one, the batch as a whole only if any group is invalid or they do not fit in the capacity
+     * of the exact engine or the ring buffer. With asynchronous ingestion groups are published to the ring buffer,
+     * the consumer being the only writer, and expired ones are counted when published. Batches are never shed. The
+     * id of a batch is reserved before recording it and released if the batch is rejected, so that it can be
+     * retried.
+     */
+    @PostMapping(value = "/transactions/batch", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
+            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    ResponseEntity<TransactionBatchResponse> postTransactionBatch(
+            @Valid @RequestBody TransactionBatchRequest batchRequest) {
+        if (isFollowingPrimary()) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        DuplicateFilter.Reservation reservation = null;
+        if (duplicateFilter != null && batchRequest.getId() != null) {
+            reservation = duplicateFilter.reserve(batchRequest.getId());
+            if (reservation == null) {
+                // retry of a batch seen within the window, already recorded or being recorded
+                return new ResponseEntity<>(HttpStatus.OK);
+            }
+        }
+        TransactionBatchResponse response = null;
+        try {
+            if (exactStatisticsRecorder != null) {
+                synchronized (exactStatisticsRecorder) { // no other writer between the capacity check and the batch
+                    if (exactStatisticsRecorder.getRemainingCapacity() >= batchRequest.getGroups().size()) {
+                        response = recordBatch(batchRequest);
+                    }
+                }
+            } else if (transactionRingBuffer != null) {
+                response = publishBatch(batchRequest);
+            } else {
+                response = recordBatch(batchRequest);
+            }
+        } finally {
+            if (reservation != null && response == null) {
+                reservation.release(); // rejected or failed, so that it can be retried
+            }
+        }
+        if (response == null) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return new ResponseEntity<>(response, exactStatisticsRecorder == null && transactionRingBuffer != null ?
+                HttpStatus.ACCEPTED : HttpStatus.CREATED);
+    }
+
+    /**
+     * Publishes groups of a batch to the ring buffer.
+     *
+     * @return counts of transactions, null if the groups do not fit in the ring buffer
+     */
+    @Nullable
+    private TransactionBatchResponse publishBatch(TransactionBatchRequest batchRequest) {
+        Instant latest = clock.instant().plus(recorderProperties.getFutureSkew());
+        List<TransactionBatchRequest.Group> groups = batchRequest.getGroups();
+        Stats[] stats = new Stats[groups.size()];
+        Instant[] timestamps = new Instant[groups.size()];
+        int n = 0;
+        long accepted = 0;
+        long expired = 0;
+        long rejected = 0;
+        for (TransactionBatchRequest.Group group : groups) {
+            if (group.getTimestamp().isAfter(latest)) {
+                rejected += group.getCount();
+            } else if (isExpired(group.getTimestamp())) {
+                expired += group.getCount();
+            } else {
+                stats[n] = group.toStats();
+                timestamps[n++] = group.getTimestamp();
+                accepted += group.getCount();
+            }
+        }
+        if (n > 0 && !transactionRingBuffer.publish(stats, timestamps, n)) {
+            return null;
+        }
+        return new TransactionBatchResponse(accepted, expired, rejected);
+    }
+
+    private TransactionBatchResponse recordBatch(TransactionBatchRequest batchRequest) {
+        Instant latest = clock.instant().plus(recorderProperties.getFutureSkew());
+        long accepted = 0;
+        long expired = 0;
+        long rejected = 0;
+        for (TransactionBatchRequest.Group group : batchRequest.getGroups()) {
+            if (group.getTimestamp().isAfter(latest)) {
+                rejected += group.getCount();
+            } else if (transactionStatisticsRecorder.recordStats(group.toStats(), group.getTimestamp())) {
+                accepted += group.getCount();
+            } else {
+                expired += group.getCount();
+            }
+        }
+        return new TransactionBatchResponse(accepted, expired, rejected);
+    }
+
+    @GetMapping(value = "/statistics", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    StatisticsResponse getStatistics() {
+        return new StatisticsResponse(
+                transactionStatisticsRecorder.getSummary(),
+                serializationProperties.getDecimalPoints(),
+                serializationProperties.getRoundingMode(),
+                loadShedder != null && loadShedder.getWeight() > 1 ? loadShedder.getSamplingRate() : null);
+    }
+
+    @GetMapping(value = "/statistics/decayed", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    ResponseEntity<DecayedStatisticsResponse> getDecayedStatistics() {
+        if (decayedStatisticsRecorder == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok(new DecayedStatisticsResponse(
+                decayedStatisticsRecorder.getSummary(),
+                decayedStatisticsRecorder.getRate(),
+                serializationProperties.getDecimalPoints(),
+                serializationProperties.getRoundingMode()));
+    }
+
+    @GetMapping(value = "/statistics/histogram", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    ResponseEntity<HistogramResponse> getHistogram() {
+        if (histogramRecorder == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok(new HistogramResponse(
+                histogramRecorder.getHistogram(),
+                serializationProperties.getDecimalPoints(),
+                serializationProperties.getRoundingMode()));
+    }
+
+    /**
+     * Returns rollups of expired buckets, hence not found unless the buckets record transactions.
+     */
+    @GetMapping(value = "/statistics/history", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    ResponseEntity<List<StatisticsHistoryResponse>> getStatisticsHistory(
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "MINUTE") StatisticsHistory.Granularity granularity) {
+        if (!bucketsRecorded) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        Instant end = to != null ? to : clock.instant();
+        Instant start = from != null ? from : end.minus(DEFAULT_HISTORY_RANGE);
+        return ResponseEntity.ok(statisticsHistory.getRollups(start, end, granularity).stream()
+                .map(rollup -> new StatisticsHistoryResponse(rollup,
+                        serializationProperties.getDecimalPoints(),
+                        serializationProperties.getRoundingMode()))
+                .collect(toList()));
+    }
+
+    /**
+     * Returns final aggregates of intervals that started at or after <tt>from</tt> and ended at or before the
+     * watermark, which is the <tt>from</tt> of the next call.
+     */
+    @GetMapping(value = "/statistics/intervals", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    ResponseEntity<FinalizedIntervalsResponse> getFinalizedIntervals(@RequestParam(required = false) Instant from) {
+        if (finalizedIntervals == null || !bucketsRecorded) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        Instant watermark = finalizedIntervals.getWatermark();
+        List<StatisticsHistoryResponse> intervals = watermark == null ? Collections.emptyList() :
+                finalizedIntervals.getIntervals(from != null ? from : Instant.MIN, watermark).stream()
+                        .map(interval -> new StatisticsHistoryResponse(interval,
+                                serializationProperties.getDecimalPoints(),
+                                serializationProperties.getRoundingMode()))
+                        .collect(toList());
+        return ResponseEntity.ok(new FinalizedIntervalsResponse(watermark, intervals));
+    }
+
+    @DeleteMapping(value = "/transactions")
+    ResponseEntity deleteTransactions() {
+        if (isFollowingPrimary()) {
+            return new ResponseEntity(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        transactionStatisticsRecorder.clear();
+        if (duplicateFilter != null) {
+            duplicateFilter.clear(); // deleted transactions may be posted again
+        }
+        return new ResponseEntity(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Returns true if a transaction is older than the time window of the engine.
+     */
+    private boolean isExpired(Instant timestamp) {
+        Duration window = bucketsRecorded ?
+                bucketStatisticsRecorder.getMaxTransactionAge() : recorderProperties.getDuration();
+        return !timestamp.isAfter(clock.instant().minus(window));
+    }
+
+    /**
+     * Standby does not accept writes until promoted, as they would be overwritten by the primary.
+     */
+    private boolean isFollowingPrimary() {
+        return replicationStandby != null && !replicationStandby.isPromoted();
+    }
+
+    @ExceptionHandler
+    ResponseEntity handleThrowable(MethodArgumentNotValidException e) {
+        return new ResponseEntity(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler
+    ResponseEntity handleThrowable(ArithmeticException e) {
+        return new ResponseEntity(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler
+    ResponseEntity handleThrowable(CapacityExceededException e) {
+        return new ResponseEntity(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler
+    ResponseEntity handleThrowable(HttpMessageNotReadableException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof InvalidFormatException
+                || cause instanceof InvalidNullException
+                || cause instanceof InvalidTypeIdException
+                || cause instanceof PropertyBindingException) {
+            return new ResponseEntity(HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+        return new ResponseEntity(HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,286 @@
+package com.n26;
+
+import com.n26.stats.StatisticsHistory;
+import com.n26.stats.Stats;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.JsonPathExpectationsHelper;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ApplicationTests {
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private StatisticsHistory statisticsHistory;
+
+    private static String transactionJson(String amount, String timestamp) {
+        return String.format("{\"amount\":\"%s3\",\"timestamp\":\"%s\"}", amount, timestamp);
+    }
+
+    private HttpStatus postTransactionStatus(String jsonBody) {
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.add(CONTENT_TYPE, MediaType.APPLICATION_JSON_UTF8_VALUE);
+        HttpEntity<String> req = new HttpEntity<>(jsonBody, headers);
+        return restTemplate.postForEntity("/transactions", req, Void.class).getStatusCode();
+    }
+
+    @Test
+    public void testPostTransactionInvalidJSON() {
+        assertThat(postTransactionStatus("BAZINGA!")).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void testPostTransactionInvalidAmount() {
+        assertThat(postTransactionStatus(transactionJson(
+                "One hundred",
+                Instant.now().toString()
+        ))).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    public void testPostTransactionInvalidTimestamp() {
+        assertThat(postTransactionStatus(transactionJson(
+                "12.3",
+                "yesterday"
+        ))).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    public void testPostTransactionFutureTimestamp() {
+        assertThat(postTransactionStatus(transactionJson(
+                "12.3",
+                Instant.now().plusSeconds(1).toString()
+        ))).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    public void testPostTransactionTooOld() {
+        assertThat(postTransactionStatus(transactionJson(
+                "12.3",
+                Instant.now().minusMillis(60001).toString()
+        ))).isEqualTo(HttpStatus.NO_CONTENT);
+    }
+
+    @Test
+    public void testPostTransactionOk() {
+        assertThat(postTransactionStatus(transactionJson(
+                "12.3",
+                Instant.now().toString()
+        ))).isEqualTo(HttpStatus.CREATED);
+    }
+
+    private ResponseEntity<String> postTransactionBatch(byte[] body, boolean compressed) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        if (compressed) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return restTemplate.postForEntity("/transactions/batch", new HttpEntity<>(body, headers), String.class);
+    }
+
+    private static String groupJson(Instant timestamp, long count, String sum, String max, String min) {
+        return String.format("{\"timestamp\":\"%s\",\"count\":%d,\"sum\":\"%s\",\"max\":\"%s\",\"min\":\"%s\"}",
+                timestamp, count, sum, max, min);
+    }
+
+    @Test
+    public void testPostTransactionBatch() {
+        Instant now = Instant.now();
+        String batch = "{\"groups\":[" + groupJson(now, 2, "3", "2", "1") + ","
+                + groupJson(now.minusSeconds(61), 3, "3", "1", "1") + ","
+                + groupJson(now.plusSeconds(10), 1, "5", "5", "5") + "]}";
+        ResponseEntity<String> resp = postTransactionBatch(batch.getBytes(StandardCharsets.UTF_8), false);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        new JsonPathExpectationsHelper("$.accepted").assertValue(resp.getBody(), 2);
+        new JsonPathExpectationsHelper("$.expired").assertValue(resp.getBody(), 3);
+        new JsonPathExpectationsHelper("$.rejected").assertValue(resp.getBody(), 1);
+    }
+
+    @Test
+    public void testPostTransactionBatchCompressed() throws IOException {
+        String batch = "{\"groups\":[" + groupJson(Instant.now(), 1, "5", "5", "5") + "]}";
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(body)) {
+            out.write(batch.getBytes(StandardCharsets.UTF_8));
+        }
+        ResponseEntity<String> resp = postTransactionBatch(body.toByteArray(), true);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        new JsonPathExpectationsHelper("$.accepted").assertValue(resp.getBody(), 1);
+    }
+
+    @Test
+    public void testPostTransactionBatchCorruptCompression() {
+        byte[] body = "{\"groups\":[]}".getBytes(StandardCharsets.UTF_8);
+        assertThat(postTransactionBatch(body, true).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void testPostTransactionBatchInflatedTooLarge() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(body)) {
+            out.write("{\"groups\":[".getBytes(StandardCharsets.UTF_8));
+            out.write(new byte[5 * 1024 * 1024]); // above the 4MB default, compressed to a few kB
+        }
+        assertThat(postTransactionBatch(body.toByteArray(), true).getStatusCode())
+                .isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    public void testPostTransactionBatchTooManyGroups() {
+        String group = groupJson(Instant.now(), 1, "5", "5", "5");
+        String batch = "{\"groups\":[" + String.join(",", Collections.nCopies(10_001, group)) + "]}";
+        assertThat(postTransactionBatch(batch.getBytes(StandardCharsets.UTF_8), false).getStatusCode())
+                .isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    public void testPostTransactionBatchInconsistentGroup() {
+        String batch = "{\"groups\":[" + groupJson(Instant.now(), 2, "5", "2", "1") + "]}";
+        assertThat(postTransactionBatch(batch.getBytes(StandardCharsets.UTF_8), false).getStatusCode())
+                .isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    public void testPostTransactionBatchInvalidCount() {
+        String batch = "{\"groups\":[" + groupJson(Instant.now(), 0, "0", "0", "0") + "]}";
+        assertThat(postTransactionBatch(batch.getBytes(StandardCharsets.UTF_8), false).getStatusCode())
+                .isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    public void testPostTransactionBatchEmpty() {
+        assertThat(postTransactionBatch("{\"groups\":[]}".getBytes(StandardCharsets.UTF_8), false).getStatusCode())
+                .isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    public void testGetStatistics() {
+        ResponseEntity<String> resp = restTemplate.getForEntity("/statistics", String.class);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(resp.getHeaders().getContentType())
+                .matches(MediaType.APPLICATION_JSON::includes);
+        assertThat(resp.getBody()).isNotNull();
+
+        new JsonPathExpectationsHelper("$.count").assertValueIsNumber(resp.getBody());
+        Stream.of("sum", "avg", "max", "min").forEach(fieldName ->
+                new JsonPathExpectationsHelper("$.%s", fieldName).assertValueIsString(resp.getBody()));
+    }
+
+    @Test
+    public void testGetStatisticsHistory() {
+        // well before any bucket expired while running the tests
+        Instant minute = Instant.now().truncatedTo(ChronoUnit.MINUTES).minus(30, ChronoUnit.MINUTES);
+        Duration width = Duration.ofSeconds(1);
+        statisticsHistory.bucketExpired(minute.plusSeconds(150), width,
+                new Stats(new BigDecimal("5"), new BigDecimal("5"), new BigDecimal("5"), 1));
+        statisticsHistory.bucketExpired(minute, width,
+                new Stats(new BigDecimal("3"), new BigDecimal("2"), new BigDecimal("1"), 2));
+        statisticsHistory.bucketExpired(minute.plusSeconds(30), width,
+                new Stats(new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), 1));
+
+        ResponseEntity<String> resp = restTemplate.getForEntity(String.format(
+                "/statistics/history?from=%s&to=%s&granularity=MINUTE", minute, minute.plus(3, ChronoUnit.MINUTES)),
+                String.class);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String body = resp.getBody();
+        new JsonPathExpectationsHelper("$.length()").assertValue(body, 2); // empty minute left out
+        new JsonPathExpectationsHelper("$[0].from").assertValue(body, minute.toString());
+        new JsonPathExpectationsHelper("$[0].to").assertValue(body, minute.plus(1, ChronoUnit.MINUTES).toString());
+        new JsonPathExpectationsHelper("$[0].sum").assertValue(body, "13.00");
+        new JsonPathExpectationsHelper("$[0].avg").assertValue(body, "4.33");
+        new JsonPathExpectationsHelper("$[0].count").assertValue(body, 3);
+        new JsonPathExpectationsHelper("$[0].max").assertValue(body, "10.00");
+        new JsonPathExpectationsHelper("$[0].min").assertValue(body, "1.00");
+        new JsonPathExpectationsHelper("$[1].from").assertValue(body, minute.plus(2, ChronoUnit.MINUTES).toString());
+        new JsonPathExpectationsHelper("$[1].sum").assertValue(body, "5.00");
+        new JsonPathExpectationsHelper("$[1].count").assertValue(body, 1);
+        new JsonPathExpectationsHelper("$[1].max").assertValue(body, "5.00");
+        new JsonPathExpectationsHelper("$[1].min").assertValue(body, "5.00");
+    }
+
+    @Test
+    public void testGetDecayedStatisticsDisabled() {
+        ResponseEntity<String> resp = restTemplate.getForEntity("/statistics/decayed", String.class);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void testGetHistogramDisabled() {
+        ResponseEntity<String> resp = restTemplate.getForEntity("/statistics/histogram", String.class);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void testGetFinalizedIntervalsDisabled() {
+        ResponseEntity<String> resp = restTemplate.getForEntity("/statistics/intervals", String.class);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void testPutRecorderConfig() {
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.add(CONTENT_TYPE, MediaType.APPLICATION_JSON_UTF8_VALUE);
+        HttpEntity<String> req = new HttpEntity<>("{\"duration\":\"PT60S\",\"resolution\":500}", headers);
+        ResponseEntity<String> resp = restTemplate.exchange("/admin/recorder", HttpMethod.PUT, req, String.class);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        new JsonPathExpectationsHelper("$.resolution").assertValue(resp.getBody(), 500);
+        new JsonPathExpectationsHelper("$.duration").assertValue(resp.getBody(), "PT1M");
+    }
+
+    @Test
+    public void testPutRecorderConfigInvalid() {
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.add(CONTENT_TYPE, MediaType.APPLICATION_JSON_UTF8_VALUE);
+        HttpEntity<String> req = new HttpEntity<>("{\"duration\":\"PT60S\",\"resolution\":0}", headers);
+        ResponseEntity<String> resp = restTemplate.exchange("/admin/recorder", HttpMethod.PUT, req, String.class);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    public void testPutRecorderConfigTooFine() {
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.add(CONTENT_TYPE, MediaType.APPLICATION_JSON_UTF8_VALUE);
+        Stream.of("{\"duration\":\"PT24H\",\"resolution\":1000000000}", "{\"duration\":\"PT1S\",\"resolution\":2000}")
+                .forEach(body -> {
+                    HttpEntity<String> req = new HttpEntity<>(body, headers);
+                    ResponseEntity<String> resp = restTemplate.exchange("/admin/recorder", HttpMethod.PUT, req,
+                            String.class);
+                    assertThat(resp.getStatusCode()).as(body).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+                });
+    }
+
+    @Test
+    public void testPromoteNotStandby() {
+        ResponseEntity<String> resp = restTemplate.postForEntity("/admin/replication/promote", null, String.class);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void deleteTransactions() {
+        ResponseEntity<String> resp = restTemplate.exchange("/transactions", HttpMethod.DELETE, null, String.class);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+    }
+}
@@ -0,0 +1,107 @@
+package com.n26;
+
+import com.n26.ingest.TransactionRingBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.JsonPathExpectationsHelper;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "ingest.async.enabled=true")
+public class AsyncIngestionTests {
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private TransactionRingBuffer transactionRingBuffer;
+
+    private HttpStatus postTransactionStatus(String jsonBody) {
+        return postStatus("/transactions", jsonBody);
+    }
+
+    private HttpStatus postStatus(String url, String jsonBody) {
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.add(CONTENT_TYPE, MediaType.APPLICATION_JSON_UTF8_VALUE);
+        HttpEntity<String> req = new HttpEntity<>(jsonBody, headers);
+        return restTemplate.postForEntity(url, req, Void.class).getStatusCode();
+    }
+
+    @Test
+    public void testPostTransactionAccepted() {
+        long published = transactionRingBuffer.getPublished();
+        assertThat(postTransactionStatus(
+                String.format("{\"amount\":\"12.3\",\"timestamp\":\"%s\"}", Instant.now())
+        )).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(transactionRingBuffer.getPublished()).isEqualTo(published + 1);
+    }
+
+    @Test
+    public void testPostTransactionStillValidated() {
+        assertThat(postTransactionStatus(
+                String.format("{\"amount\":\"12.3\",\"timestamp\":\"%s\"}", Instant.now().plusSeconds(10))
+        )).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    /**
+     * Batches are published to the ring buffer along with transactions, the consumer recording all of them.
+     */
+    @Test
+    public void testConcurrentBatches() throws Exception {
+        restTemplate.delete("/transactions");
+        int threads = 4;
+        int requests = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(2 * threads);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                long recorded = 0;
+                for (int i = 0; i < requests; i++) {
+                    if (postTransactionStatus(String.format("{\"amount\":\"1\",\"timestamp\":\"%s\"}",
+                            Instant.now())) == HttpStatus.ACCEPTED) {
+                        recorded++;
+                    }
+                }
+                return recorded;
+            }));
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < requests; i++) {
+                    assertThat(postStatus("/transactions/batch", String.format("{\"groups\":[{\"timestamp\":\"%s\","
+                            + "\"count\":3,\"sum\":\"3\",\"max\":\"1\",\"min\":\"1\"}]}", Instant.now())))
+                            .isEqualTo(HttpStatus.ACCEPTED);
+                }
+                return 3L * requests;
+            }));
+        }
+        long recorded = 0;
+        for (Future<Long> future : futures) {
+            recorded += future.get();
+        }
+        executor.shutdown();
+        long published = transactionRingBuffer.getPublished();
+        while (transactionRingBuffer.getConsumed() < published) { // slots are released once recorded
+            Thread.sleep(1);
+        }
+
+        String statistics = restTemplate.getForObject("/statistics", String.class);
+        new JsonPathExpectationsHelper("$.count").assertValue(statistics, (int) recorded);
+    }
+}
@@ -0,0 +1,73 @@
+package com.n26;
+
+import com.n26.client.BatchResult;
+import com.n26.client.StatisticsClient;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.JsonPathExpectationsHelper;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "ingest.dedup.enabled=true")
+public class ClientTests {
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void testRecordBatches() throws Exception {
+        restTemplate.delete("/transactions");
+        Instant now = Instant.now();
+        CompletableFuture<BatchResult> last;
+        try (StatisticsClient client = StatisticsClient.builder(URI.create("http://localhost:" + port))
+                .batchSize(10)
+                .compressionThreshold(256)
+                .build()) {
+            for (int i = 1; i < 1000; i++) {
+                client.record(BigDecimal.valueOf(i, 2), now.minusMillis(i));
+            }
+            last = client.recordAsync(BigDecimal.valueOf(1000, 2), now.minusMillis(1000));
+        }
+        assertThat(last.get(5, TimeUnit.SECONDS).getAccepted()).isPositive();
+
+        String statistics = restTemplate.getForObject("/statistics", String.class);
+        new JsonPathExpectationsHelper("$.count").assertValue(statistics, 1000);
+        new JsonPathExpectationsHelper("$.sum").assertValue(statistics, "5005.00");
+        new JsonPathExpectationsHelper("$.max").assertValue(statistics, "10.00");
+        new JsonPathExpectationsHelper("$.min").assertValue(statistics, "0.01");
+    }
+
+    @Test
+    public void testDuplicateBatch() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        String batch = String.format("{\"id\":\"%s\",\"groups\":[{\"timestamp\":\"%s\",\"count\":1,"
+                + "\"sum\":\"1\",\"max\":\"1\",\"min\":\"1\"}]}", Duration.ofNanos(System.nanoTime()), Instant.now());
+        HttpEntity<String> req = new HttpEntity<>(batch, headers);
+
+        assertThat(restTemplate.postForEntity("/transactions/batch", req, String.class).getStatusCode())
+                .isEqualTo(HttpStatus.CREATED);
+        assertThat(restTemplate.postForEntity("/transactions/batch", req, String.class).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+    }
+}
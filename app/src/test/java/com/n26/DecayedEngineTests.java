@@ -0,0 +1,63 @@
+package com.n26;
+
+import com.n26.replication.ReplicationPrimary;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"recorder.engine=decayed", "recorder.histogram.enabled=true",
+                "recorder.watermark.enabled=true", "replication.role=primary", "replication.port=0"})
+public class DecayedEngineTests {
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    public void testGetDecayedStatistics() {
+        ResponseEntity<String> resp = restTemplate.getForEntity("/statistics/decayed", String.class);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void testBucketEndpointsNotFound() {
+        for (String url : new String[]{"/statistics/history", "/statistics/intervals", "/statistics/histogram"}) {
+            ResponseEntity<String> resp = restTemplate.getForEntity(url, String.class);
+            assertThat(resp.getStatusCode()).as(url).isEqualTo(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @Test
+    public void testPostTransactionOutOfDoubleRange() {
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.add(CONTENT_TYPE, MediaType.APPLICATION_JSON_UTF8_VALUE);
+        HttpEntity<String> req = new HttpEntity<>(
+                String.format("{\"amount\":\"1e400\",\"timestamp\":\"%s\"}", Instant.now()), headers);
+        assertThat(restTemplate.postForEntity("/transactions", req, Void.class).getStatusCode())
+                .isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(restTemplate.getForEntity("/statistics", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void testBucketsNotReplicated() {
+        assertThat(context.getBeansOfType(ReplicationPrimary.class)).isEmpty();
+    }
+}
@@ -0,0 +1,76 @@
+package com.n26;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.JsonPathExpectationsHelper;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"ingest.dedup.enabled=true", "recorder.engine=exact", "recorder.max-transactions=1"})
+public class DuplicateDetectionTests {
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private HttpStatus postTransactionStatus(String jsonBody) {
+        return postStatus("/transactions", jsonBody);
+    }
+
+    private HttpStatus postStatus(String url, String jsonBody) {
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.add(CONTENT_TYPE, MediaType.APPLICATION_JSON_UTF8_VALUE);
+        HttpEntity<String> req = new HttpEntity<>(jsonBody, headers);
+        return restTemplate.postForEntity(url, req, Void.class).getStatusCode();
+    }
+
+    @Test
+    public void testRejectedTransactionRetried() {
+        restTemplate.delete("/transactions");
+        String transaction = String.format("{\"amount\":\"1\",\"timestamp\":\"%s\",\"id\":\"retried\"}", Instant.now());
+        assertThat(postTransactionStatus(String.format("{\"amount\":\"2\",\"timestamp\":\"%s\"}", Instant.now())))
+                .isEqualTo(HttpStatus.CREATED);
+
+        // capacity exceeded: not remembered, so a retry is not mistaken for a duplicate
+        assertThat(postTransactionStatus(transaction)).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(postTransactionStatus(transaction)).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        restTemplate.delete("/transactions");
+        assertThat(postTransactionStatus(transaction)).isEqualTo(HttpStatus.CREATED);
+        assertThat(postTransactionStatus(transaction)).isEqualTo(HttpStatus.OK);
+
+        // deleted transactions may be posted again
+        restTemplate.delete("/transactions");
+        assertThat(postTransactionStatus(transaction)).isEqualTo(HttpStatus.CREATED);
+    }
+
+    @Test
+    public void testBatchRecordedAsWhole() {
+        restTemplate.delete("/transactions");
+        String group = String.format("{\"timestamp\":\"%s\",\"count\":2,\"sum\":\"3\",\"max\":\"2\",\"min\":\"1\"}",
+                Instant.now());
+        String batch = String.format("{\"id\":\"whole\",\"groups\":[%s,%s]}", group, group);
+
+        // two groups exceed the capacity: none is recorded, and a retry is not mistaken for a duplicate
+        assertThat(postStatus("/transactions/batch", batch)).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(postStatus("/transactions/batch", batch)).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        new JsonPathExpectationsHelper("$.count").assertValue(restTemplate.getForObject("/statistics", String.class), 0);
+
+        batch = String.format("{\"id\":\"whole\",\"groups\":[%s]}", group);
+        assertThat(postStatus("/transactions/batch", batch)).isEqualTo(HttpStatus.CREATED);
+        assertThat(postStatus("/transactions/batch", batch)).isEqualTo(HttpStatus.OK);
+        new JsonPathExpectationsHelper("$.count").assertValue(restTemplate.getForObject("/statistics", String.class), 2);
+    }
+}
@@ -0,0 +1,100 @@
+package com.n26.ingest;
+
+import com.n26.replay.SimulatedClock;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DuplicateFilterTest {
+    private static final Instant timeZero = Instant.ofEpochSecond(1543140098L);
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+
+    private final SimulatedClock clock = new SimulatedClock(timeZero);
+    private final DuplicateFilter filter = new DuplicateFilter(WINDOW, 4, 1000, 0.01, clock);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalGenerations() {
+        new DuplicateFilter(WINDOW, 1, 1000, 0.01, clock);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalFalsePositiveRate() {
+        new DuplicateFilter(WINDOW, 4, 1000, 1, clock);
+    }
+
+    @Test
+    public void testDuplicateSuppressed() {
+        assertThat(filter.firstSeen("a")).isTrue();
+        assertThat(filter.firstSeen("b")).isTrue();
+        assertThat(filter.firstSeen("a")).isFalse();
+        assertThat(filter.getChecked()).isEqualTo(3);
+        assertThat(filter.getSuppressed()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReleasedRetried() {
+        DuplicateFilter.Reservation reservation = filter.reserve("a");
+        assertThat(reservation).isNotNull();
+        assertThat(filter.reserve("a")).isNull();
+        reservation.release();
+        assertThat(filter.reserve("a")).isNotNull();
+        assertThat(filter.getChecked()).isEqualTo(3);
+        assertThat(filter.getSuppressed()).isEqualTo(1);
+    }
+
+    @Test
+    public void testClearedForgotten() {
+        DuplicateFilter.Reservation reservation = filter.reserve("a");
+        filter.firstSeen("b");
+        clock.setInstant(timeZero.plusSeconds(20));
+        filter.tick();
+        filter.clear();
+        assertThat(filter.firstSeen("b")).isTrue();
+        assertThat(filter.firstSeen("a")).isTrue();
+        reservation.release(); // cleared since, leaves "a" added after the clear alone
+        assertThat(filter.firstSeen("a")).isFalse();
+    }
+
+    @Test
+    public void testRememberedForWindow() {
+        filter.firstSeen("a");
+        for (int s = 1; s <= 60; s++) {
+            clock.setInstant(timeZero.plusSeconds(s));
+            filter.tick();
+        }
+        assertThat(filter.firstSeen("a")).isFalse();
+
+        clock.setInstant(timeZero.plusSeconds(80)); // window and a period later
+        filter.tick();
+        assertThat(filter.firstSeen("a")).isTrue();
+        assertThat(filter.getRotations()).isEqualTo(4);
+    }
+
+    @Test
+    public void testLateTickCatchesUp() {
+        filter.firstSeen("a");
+        clock.setInstant(timeZero.plusSeconds(3600));
+        assertThat(filter.tick()).isEqualTo(180);
+        assertThat(filter.getNextTick()).isEqualTo(timeZero.plusSeconds(3620));
+        assertThat(filter.firstSeen("a")).isTrue();
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        // expected number of ids in every generation (20s at 1000 per second)
+        for (int i = 0; i < 20_000; i++) {
+            filter.firstSeen("seen-" + i);
+        }
+        int falsePositives = 0;
+        int trials = 2000; // probes are added as well, keep them well below the expected number of ids
+        for (int i = 0; i < trials; i++) {
+            if (!filter.firstSeen("new-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat((double) falsePositives / trials).isLessThan(0.03);
+    }
+}
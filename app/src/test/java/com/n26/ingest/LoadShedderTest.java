@@ -0,0 +1,95 @@
+package com.n26.ingest;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoadShedderTest {
+    private static final Duration LATENCY_THRESHOLD = Duration.ofMillis(10);
+    private static final Duration ADJUST_INTERVAL = Duration.ofMillis(100);
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final AtomicLong depth = new AtomicLong();
+    private final LoadShedder loadShedder = new LoadShedder(
+            LATENCY_THRESHOLD, 1000, depth::get, 8, ADJUST_INTERVAL, nanoTime::get);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalMaxWeight() {
+        new LoadShedder(LATENCY_THRESHOLD, 1000, () -> 0, 6, ADJUST_INTERVAL);
+    }
+
+    @Test
+    public void testNoSheddingUnderThresholds() {
+        for (int i = 0; i < 10; i++) {
+            loadShedder.recordLatency(Duration.ofMillis(1).toNanos());
+            advance();
+            assertThat(loadShedder.nextWeight()).isEqualTo(1);
+        }
+        assertThat(loadShedder.getSamplingRate()).isEqualTo(1.0);
+        assertThat(loadShedder.getShed()).isZero();
+    }
+
+    @Test
+    public void testLatencyHalvesSamplingRateUpToMaxWeight() {
+        for (int i = 0; i < 5; i++) {
+            loadShedder.recordLatency(Duration.ofSeconds(1).toNanos());
+            advance();
+            loadShedder.nextWeight();
+        }
+        assertThat(loadShedder.getWeight()).isEqualTo(8);
+        assertThat(loadShedder.getSamplingRate()).isEqualTo(0.125);
+    }
+
+    @Test
+    public void testDepthHalvesSamplingRateAndRecovers() {
+        depth.set(2000);
+        advance();
+        loadShedder.nextWeight();
+        assertThat(loadShedder.getWeight()).isEqualTo(2);
+
+        depth.set(700); // between half and full threshold, rate stays
+        advance();
+        loadShedder.nextWeight();
+        assertThat(loadShedder.getWeight()).isEqualTo(2);
+
+        depth.set(0);
+        advance();
+        loadShedder.nextWeight();
+        assertThat(loadShedder.getWeight()).isEqualTo(1);
+    }
+
+    @Test
+    public void testNoAdjustmentWithinInterval() {
+        depth.set(2000);
+        for (int i = 0; i < 10; i++) {
+            loadShedder.nextWeight();
+        }
+        assertThat(loadShedder.getWeight()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSampledWeightsAreUnbiased() {
+        depth.set(2000);
+        for (int i = 0; i < 3; i++) {
+            advance();
+            loadShedder.nextWeight();
+        }
+        assertThat(loadShedder.getWeight()).isEqualTo(8);
+
+        int n = 80000;
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            long weight = loadShedder.nextWeight();
+            assertThat(weight).isIn(0L, 8L);
+            total += weight;
+        }
+        assertThat((double) total / n).isBetween(0.95, 1.05);
+    }
+
+    private void advance() {
+        nanoTime.addAndGet(ADJUST_INTERVAL.toNanos());
+    }
+}
@@ -0,0 +1,119 @@
+package com.n26.ingest;
+
+import com.n26.stats.ExactTransactionStatisticsRecorder;
+import com.n26.stats.StatisticsSummary;
+import com.n26.stats.TransactionStatisticsRecorderImpl;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SharedMemoryRingBufferTest {
+    private static final Instant timeZero = Instant.ofEpochSecond(1543140098L);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TransactionStatisticsRecorderImpl recorder;
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException {
+        recorder = TransactionStatisticsRecorderImpl.builder(Duration.ofSeconds(60), 60)
+                .singleWriter(true)
+                .clock(Clock.fixed(timeZero, ZoneOffset.UTC))
+                .build();
+        path = folder.getRoot().toPath().resolve("ingest.ring");
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenNotRingFile() throws IOException {
+        Files.write(path, new byte[256]);
+        SharedMemoryRingBufferProducer.open(path, false);
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        SharedMemoryRingBuffer ringBuffer = new SharedMemoryRingBuffer(recorder, path, 4, 2);
+        SharedMemoryRingBufferProducer producer = SharedMemoryRingBufferProducer.open(path, true);
+        assertThat(producer.getCapacity()).isEqualTo(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(producer.publish(BigDecimal.ONE, timeZero)).isTrue();
+        }
+        assertThat(producer.publish(BigDecimal.ONE, timeZero)).isFalse();
+        assertThat(ringBuffer.getDepth()).isEqualTo(4);
+
+        ringBuffer.start();
+        ringBuffer.close();
+        assertThat(ringBuffer.getConsumed()).isEqualTo(4);
+        assertThat(producer.publish(BigDecimal.ONE, timeZero)).isTrue();
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        int producers = 4;
+        int n = 50000;
+        SharedMemoryRingBuffer ringBuffer = new SharedMemoryRingBuffer(recorder, path, 1024, 64);
+        ringBuffer.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            // each producer maps the file on its own, as a separate process would
+            SharedMemoryRingBufferProducer producer = SharedMemoryRingBufferProducer.open(path, false);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < n; i++) {
+                    while (!producer.publish(new BigDecimal("0.01"), timeZero.minusMillis(i % 60000))) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        ringBuffer.close();
+
+        StatisticsSummary<BigDecimal> summary = recorder.getSummary();
+        assertThat(ringBuffer.getConsumed()).isEqualTo(producers * n);
+        assertThat(summary.getCount()).isEqualTo(producers * n);
+        assertThat(summary.getSum()).isEqualByComparingTo(BigDecimal.valueOf(producers * n, 2));
+    }
+
+    @Test
+    public void testFailedTransactionDroppedAlone() throws Exception {
+        ExactTransactionStatisticsRecorder exact = new ExactTransactionStatisticsRecorder(Duration.ofSeconds(60),
+                Duration.ZERO, 2, Clock.fixed(timeZero, ZoneOffset.UTC));
+        SharedMemoryRingBuffer ringBuffer = new SharedMemoryRingBuffer(exact, path, 8, 8);
+        SharedMemoryRingBufferProducer producer = SharedMemoryRingBufferProducer.open(path, true);
+        producer.publish(BigDecimal.ONE, timeZero.minusSeconds(120)); // outside of the time window
+        for (int i = 0; i < 4; i++) { // the last two exceed the capacity
+            producer.publish(BigDecimal.ONE, timeZero.minusSeconds(i));
+        }
+        producer.publish(BigDecimal.ONE, timeZero.minusSeconds(120));
+        ringBuffer.start();
+        ringBuffer.close();
+
+        assertThat(exact.getSummary().getCount()).isEqualTo(2);
+        assertThat(ringBuffer.getDropped()).isEqualTo(2);
+        assertThat(ringBuffer.getOutsideWindow()).isEqualTo(2);
+        assertThat(ringBuffer.getBatches()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,139 @@
+package com.n26.ingest;
+
+import com.n26.stats.StatisticsSummary;
+import com.n26.stats.TransactionStatisticsRecorderImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TcpIngestionServerTest {
+    private static final Instant timeZero = Instant.ofEpochSecond(1543140098L);
+
+    private TransactionStatisticsRecorderImpl recorder;
+    private TcpIngestionServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        recorder = TransactionStatisticsRecorderImpl.builder(Duration.ofSeconds(60), 60)
+                .clock(Clock.fixed(timeZero, ZoneOffset.UTC))
+                .build();
+        server = new TcpIngestionServer(recorder,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        server.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalBufferSize() {
+        new TcpIngestionServer(recorder, new InetSocketAddress(0), TcpIngestionServer.FRAME_SIZE - 1);
+    }
+
+    @Test
+    public void testPipelinedFrames() throws IOException {
+        int n = 1000; // spans many receive buffers
+        ByteBuffer out = ByteBuffer.allocate(n * TcpIngestionServer.FRAME_SIZE);
+        for (int i = 0; i < n; i++) {
+            TcpIngestionServer.encode(out, new BigDecimal("1.25"), timeZero.minusMillis(i));
+        }
+        out.flip();
+
+        try (SocketChannel channel = SocketChannel.open(serverAddress())) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            assertThat(awaitAck(channel, n)).isEqualTo(n);
+        }
+
+        StatisticsSummary<BigDecimal> summary = recorder.getSummary();
+        assertThat(summary.getCount()).isEqualTo(n);
+        assertThat(summary.getSum()).isEqualByComparingTo("1250");
+        assertThat(summary.getMax()).isEqualByComparingTo("1.25");
+        assertThat(server.getFrames()).isEqualTo(n);
+    }
+
+    @Test
+    public void testFrameSplitAcrossWrites() throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(2 * TcpIngestionServer.FRAME_SIZE);
+        TcpIngestionServer.encode(out, new BigDecimal("-3.5"), timeZero.minusSeconds(1));
+        TcpIngestionServer.encode(out, new BigDecimal("7"), timeZero.minusSeconds(120)); // too old
+        out.flip();
+
+        try (SocketChannel channel = SocketChannel.open(serverAddress())) {
+            out.limit(7);
+            channel.write(out);
+            out.limit(out.capacity());
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            assertThat(awaitAck(channel, 2)).isEqualTo(1);
+        }
+
+        StatisticsSummary<BigDecimal> summary = recorder.getSummary();
+        assertThat(summary.getCount()).isEqualTo(1);
+        assertThat(summary.getMin()).isEqualByComparingTo("-3.5");
+    }
+
+    @Test
+    public void testScaleOutOfBoundsRejected() throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(3 * TcpIngestionServer.FRAME_SIZE);
+        long epochNanos = timeZero.minusSeconds(1).getEpochSecond() * 1_000_000_000L;
+        out.putLong(epochNanos).putLong(1).putInt(Integer.MAX_VALUE);
+        out.putLong(epochNanos).putLong(1).putInt(Integer.MIN_VALUE);
+        TcpIngestionServer.encode(out, new BigDecimal("1E-64"), timeZero.minusSeconds(1));
+        out.flip();
+
+        try (SocketChannel channel = SocketChannel.open(serverAddress())) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            assertThat(awaitAck(channel, 3)).isEqualTo(1);
+        }
+
+        assertThat(recorder.getSummary().getCount()).isEqualTo(1);
+        assertThat(server.getRejected()).isEqualTo(2);
+    }
+
+    private InetSocketAddress serverAddress() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+
+    /**
+     * Reads acks until the given number of frames is acknowledged.
+     *
+     * @return number of transactions in the time window
+     */
+    private static long awaitAck(SocketChannel channel, long frames) throws IOException {
+        ByteBuffer ack = ByteBuffer.allocate(TcpIngestionServer.ACK_SIZE);
+        while (true) {
+            ack.clear();
+            while (ack.hasRemaining()) {
+                if (channel.read(ack) < 0) {
+                    throw new IOException("Connection closed");
+                }
+            }
+            ack.flip();
+            long received = ack.getLong();
+            long accepted = ack.getLong();
+            if (received == frames) {
+                return accepted;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.n26.ingest;
+
+import com.n26.stats.ExactTransactionStatisticsRecorder;
+import com.n26.stats.StatisticsSummary;
+import com.n26.stats.Stats;
+import com.n26.stats.TransactionStatisticsRecorderImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransactionRingBufferTest {
+    private static final Instant timeZero = Instant.ofEpochSecond(1543140098L);
+    private TransactionStatisticsRecorderImpl recorder;
+
+    @Before
+    public void setUp() {
+        recorder = TransactionStatisticsRecorderImpl.builder(Duration.ofSeconds(60), 60)
+                .singleWriter(true)
+                .clock(Clock.fixed(timeZero, ZoneOffset.UTC))
+                .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalCapacity() {
+        new TransactionRingBuffer(recorder, 1000, 10);
+    }
+
+    @Test
+    public void testDropWhenFull() {
+        TransactionRingBuffer ringBuffer = new TransactionRingBuffer(recorder, 4, 2);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ringBuffer.publish(BigDecimal.ONE, timeZero)).isTrue();
+        }
+        assertThat(ringBuffer.publish(BigDecimal.ONE, timeZero)).isFalse();
+        assertThat(ringBuffer.getDepth()).isEqualTo(4);
+        assertThat(ringBuffer.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void testPublishGroups() throws Exception {
+        TransactionRingBuffer ringBuffer = new TransactionRingBuffer(recorder, 4, 4);
+        Stats group = new Stats(BigDecimal.valueOf(6), BigDecimal.valueOf(3), BigDecimal.ONE, 3);
+        assertThat(ringBuffer.publish(BigDecimal.ONE, timeZero)).isTrue();
+        assertThat(ringBuffer.publish(new Stats[]{group, group, group},
+                new Instant[]{timeZero, timeZero.minusSeconds(120), timeZero}, 3)).isTrue(); // one outside
+        assertThat(ringBuffer.publish(new Stats[]{group}, new Instant[]{timeZero}, 1)).isFalse();
+        assertThat(ringBuffer.getDropped()).isEqualTo(1);
+        ringBuffer.start();
+        ringBuffer.close();
+
+        StatisticsSummary<BigDecimal> summary = recorder.getSummary();
+        assertThat(summary.getCount()).isEqualTo(7);
+        assertThat(summary.getSum()).isEqualByComparingTo("13");
+        assertThat(ringBuffer.getOutsideWindow()).isEqualTo(1);
+        assertThat(ringBuffer.getConsumed()).isEqualTo(4);
+    }
+
+    @Test
+    public void testConcurrentPublish() throws Exception {
+        TransactionRingBuffer ringBuffer = new TransactionRingBuffer(recorder, 1024, 64);
+        ringBuffer.start();
+
+        int threads = 4;
+        int transactions = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                int published = 0;
+                for (int i = 0; i < transactions; i++) {
+                    while (!ringBuffer.publish(BigDecimal.ONE, timeZero.minusMillis(i % 1000))) {
+                        Thread.yield();
+                    }
+                    published++;
+                }
+                return published;
+            }));
+        }
+        int published = 0;
+        for (Future<Integer> future : futures) {
+            published += future.get();
+        }
+        executor.shutdown();
+        ringBuffer.publish(BigDecimal.ONE, timeZero.minusSeconds(120)); // outside of the time window
+        ringBuffer.close();
+
+        StatisticsSummary<BigDecimal> summary = recorder.getSummary();
+        assertThat(summary.getCount()).isEqualTo(published);
+        assertThat(summary.getSum()).isEqualTo(BigDecimal.valueOf(published));
+        assertThat(ringBuffer.getDepth()).isZero();
+        assertThat(ringBuffer.getOutsideWindow()).isEqualTo(1);
+        assertThat(ringBuffer.getBatches()).isPositive();
+        assertThat(ringBuffer.getMeanBatchSize()).isBetween(1.0, 64.0);
+    }
+
+    @Test
+    public void testFailedTransactionDroppedAlone() throws Exception {
+        ExactTransactionStatisticsRecorder exact = new ExactTransactionStatisticsRecorder(Duration.ofSeconds(60),
+                Duration.ZERO, 2, Clock.fixed(timeZero, ZoneOffset.UTC));
+        TransactionRingBuffer ringBuffer = new TransactionRingBuffer(exact, 8, 8);
+        ringBuffer.publish(BigDecimal.ONE, timeZero.minusSeconds(120)); // outside of the time window
+        for (int i = 0; i < 4; i++) { // the last two exceed the capacity
+            ringBuffer.publish(BigDecimal.ONE, timeZero.minusSeconds(i));
+        }
+        ringBuffer.publish(BigDecimal.ONE, timeZero.minusSeconds(120));
+        ringBuffer.start();
+        ringBuffer.close();
+
+        assertThat(exact.getSummary().getCount()).isEqualTo(2);
+        assertThat(ringBuffer.getDropped()).isEqualTo(2);
+        assertThat(ringBuffer.getOutsideWindow()).isEqualTo(2);
+        assertThat(ringBuffer.getBatches()).isEqualTo(1);
+    }
+}
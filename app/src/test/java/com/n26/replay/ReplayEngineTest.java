@@ -0,0 +1,91 @@
+package com.n26.replay;
+
+import com.n26.stats.StatisticsSummary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplayEngineTest {
+    private static final Instant timeZero = Instant.parse("2018-07-17T10:00:00Z");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ReplayEngine engine = new ReplayEngine(
+            Duration.ofSeconds(60), 60, Duration.ZERO, Duration.ZERO, Duration.ofSeconds(30), 2);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalStep() {
+        new ReplayEngine(Duration.ofSeconds(60), 60, Duration.ZERO, Duration.ZERO, Duration.ZERO, 1);
+    }
+
+    @Test
+    public void testReplayOutOfOrderChunks() throws Exception {
+        // one transaction of amount 1 every second for 3 minutes, written in reverse
+        StringBuilder log = new StringBuilder();
+        for (int i = 179; i >= 0; i--) {
+            log.append(timeZero.plusSeconds(i)).append(",1\n");
+        }
+        Path path = folder.newFile("log.csv").toPath();
+        Files.write(path, log.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<Instant> times = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+        ReplayEngine.Result result = engine.replay(path, LogFormat.of(path), (time, summary) -> {
+            times.add(time);
+            counts.add(summary.getCount());
+        });
+
+        assertThat(result.getRecords()).isEqualTo(180);
+        assertThat(result.getAccepted()).isEqualTo(180);
+        assertThat(result.getSkipped()).isZero();
+        assertThat(times).containsExactly(
+                timeZero.plusSeconds(30), timeZero.plusSeconds(60), timeZero.plusSeconds(90),
+                timeZero.plusSeconds(120), timeZero.plusSeconds(150), timeZero.plusSeconds(180));
+        // emitted before recording the transaction at the step boundary; the bucket of the transaction that is
+        // exactly 59s old has just been rotated out by the tick at the boundary
+        assertThat(counts).containsExactly(30L, 58L, 58L, 58L, 58L, 58L);
+    }
+
+    @Test
+    public void testEmptyLog() throws Exception {
+        Path path = folder.newFile("empty.ndjson").toPath();
+        List<StatisticsSummary<BigDecimal>> summaries = new ArrayList<>();
+
+        ReplayEngine.Result result = engine.replay(path, LogFormat.NDJSON, (time, summary) -> summaries.add(summary));
+
+        assertThat(result.getRecords()).isZero();
+        assertThat(summaries).isEmpty();
+    }
+
+    @Test
+    public void testCommand() throws Exception {
+        Path path = folder.newFile("log.ndjson").toPath();
+        Files.write(path, ("{\"amount\":\"10\",\"timestamp\":\"" + timeZero + "\"}\n"
+                + "{\"amount\":\"20\",\"timestamp\":\"" + timeZero.plusSeconds(1) + "\"}\n")
+                .getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        int status = ReplayCommand.run(new String[]{"--step=PT10S", path.toString()},
+                new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+
+        assertThat(status).isZero();
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "time,sum,avg,max,min,count\n"
+                        + "2018-07-17T10:00:10Z,30.00,15.00,20.00,10.00,2\n");
+    }
+}
@@ -0,0 +1,78 @@
+package com.n26.replay;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransactionLogParserTest {
+
+    private static Records parse(String log, LogFormat format) {
+        return new TransactionLogParser(ByteBuffer.wrap(log.getBytes(StandardCharsets.UTF_8)), format).parse();
+    }
+
+    private static long nanos(String instant) {
+        Instant i = Instant.parse(instant);
+        return i.getEpochSecond() * 1_000_000_000L + i.getNano();
+    }
+
+    @Test
+    public void testNdjson() {
+        Records records = parse(
+                "{\"amount\":\"12.3343\",\"timestamp\":\"2018-07-17T09:59:51.312Z\"}\n"
+                        + "{ \"timestamp\" : \"2016-02-29T00:00:00Z\", \"amount\" : -7 }\r\n"
+                        + "\n"
+                        + "{\"amount\":1.5,\"timestamp\":1531821591312}", LogFormat.NDJSON);
+
+        assertThat(records.size).isEqualTo(3);
+        assertThat(records.skipped).isZero();
+        assertThat(records.epochNanos[0]).isEqualTo(nanos("2018-07-17T09:59:51.312Z"));
+        assertThat(records.unscaled[0]).isEqualTo(123343);
+        assertThat(records.scales[0]).isEqualTo(4);
+        assertThat(records.epochNanos[1]).isEqualTo(nanos("2016-02-29T00:00:00Z"));
+        assertThat(records.unscaled[1]).isEqualTo(-7);
+        assertThat(records.scales[1]).isZero();
+        assertThat(records.epochNanos[2]).isEqualTo(nanos("2018-07-17T09:59:51.312Z"));
+        assertThat(records.unscaled[2]).isEqualTo(15);
+        assertThat(records.scales[2]).isEqualTo(1);
+    }
+
+    @Test
+    public void testCsv() {
+        Records records = parse(
+                "timestamp,amount\n"
+                        + "2018-07-17T09:59:51.123456789Z,0.01\n"
+                        + "\"2018-07-17T11:59:51+02:00\", 100\n"
+                        + "1531821591312,1e3\n", LogFormat.CSV);
+
+        assertThat(records.size).isEqualTo(2);
+        assertThat(records.skipped).isEqualTo(2); // header and exponent
+        assertThat(records.epochNanos[0]).isEqualTo(nanos("2018-07-17T09:59:51.123456789Z"));
+        assertThat(records.epochNanos[1]).isEqualTo(nanos("2018-07-17T09:59:51Z"));
+        assertThat(records.unscaled[1]).isEqualTo(100);
+    }
+
+    @Test
+    public void testSkipInvalid() {
+        Records records = parse(
+                "{\"amount\":\"12\",\"timestamp\":\"2018-02-30T00:00:00Z\"}\n"
+                        + "{\"amount\":\"99999999999999999999\",\"timestamp\":\"2018-07-17T09:59:51Z\"}\n"
+                        + "{\"amount\":null,\"timestamp\":\"2018-07-17T09:59:51Z\"}\n"
+                        + "{\"timestamp\":\"2018-07-17T09:59:51Z\"}\n", LogFormat.NDJSON);
+
+        assertThat(records.size).isZero();
+        assertThat(records.skipped).isEqualTo(4);
+    }
+
+    @Test
+    public void testSort() {
+        Records records = parse("3,0\n1,1\n2,2\n1,3\n", LogFormat.CSV);
+        records.sort();
+
+        assertThat(records.epochNanos).startsWith(1_000_000L, 1_000_000L, 2_000_000L, 3_000_000L);
+        assertThat(records.unscaled).startsWith(1L, 3L, 2L, 0L); // stable
+    }
+}
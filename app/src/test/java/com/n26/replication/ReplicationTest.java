@@ -0,0 +1,293 @@
+package com.n26.replication;
+
+import com.n26.stats.BucketRing;
+import com.n26.stats.Histogram;
+import com.n26.stats.HistogramBins;
+import com.n26.stats.ReconfigurableTransactionStatisticsRecorder;
+import com.n26.stats.StatisticsSummary;
+import com.n26.stats.Stats;
+import com.n26.stats.TransactionStatisticsRecorderImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicationTest {
+    private static final Instant timeZero = Instant.ofEpochSecond(1543140098L);
+    private static final Duration INTERVAL = Duration.ofMillis(10);
+    private static final Duration WRITE_TIMEOUT = Duration.ofMillis(200);
+
+    private TransactionStatisticsRecorderImpl primaryRecorder;
+    private ReplicationPrimary primary;
+    private ReplicationStandby standby;
+
+    @Before
+    public void setUp() throws IOException {
+        primaryRecorder = TransactionStatisticsRecorderImpl.builder(Duration.ofSeconds(60), 60)
+                .clock(Clock.fixed(timeZero, ZoneOffset.UTC))
+                .build();
+        primary = new ReplicationPrimary(primaryRecorder,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), INTERVAL, WRITE_TIMEOUT,
+                Clock.systemUTC());
+        primary.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (standby != null) {
+            standby.close();
+        }
+        primary.close();
+    }
+
+    private ReplicationStandby standby(BucketRing recorder) {
+        ReplicationStandby standby = new ReplicationStandby(recorder,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), primary.getPort()),
+                INTERVAL, Duration.ofSeconds(1), Clock.systemUTC());
+        standby.start();
+        return standby;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testReplicateAndPromote() throws Exception {
+        // standby grid is not aligned with the primary one
+        TransactionStatisticsRecorderImpl standbyRecorder = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(60), 60)
+                .clock(Clock.fixed(timeZero.plusMillis(300), ZoneOffset.UTC))
+                .build();
+        primaryRecorder.recordTransaction(BigDecimal.valueOf(3), timeZero.minusSeconds(10));
+        primaryRecorder.recordTransaction(BigDecimal.valueOf(5), timeZero.minusSeconds(30));
+        standby = standby(standbyRecorder);
+
+        await(() -> standbyRecorder.getSummary().getCount() == 2);
+        primaryRecorder.recordTransaction(BigDecimal.valueOf(7), timeZero.minusSeconds(10));
+        await(() -> standbyRecorder.getSummary().getCount() == 3);
+
+        StatisticsSummary<BigDecimal> summary = standbyRecorder.getSummary();
+        assertThat(summary.getSum()).isEqualByComparingTo("15");
+        assertThat(summary.getMax()).isEqualByComparingTo("7");
+        assertThat(summary.getMin()).isEqualByComparingTo("3");
+        assertThat(primary.getStandbys()).isEqualTo(1);
+
+        primaryRecorder.clear();
+        await(() -> standbyRecorder.getSummary().getCount() == 0);
+
+        primaryRecorder.recordTransaction(BigDecimal.valueOf(1), timeZero.minusSeconds(1));
+        await(() -> standbyRecorder.getSummary().getCount() == 1);
+        standby.promote();
+        assertThat(standby.isPromoted()).isTrue();
+        assertThat(standby.isConnected()).isFalse();
+
+        primaryRecorder.recordTransaction(BigDecimal.valueOf(1), timeZero.minusSeconds(1));
+        Thread.sleep(10 * INTERVAL.toMillis());
+        assertThat(standbyRecorder.getSummary().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReplicateHistogram() throws Exception {
+        HistogramBins bins = new HistogramBins(BigDecimal.ONE, BigDecimal.TEN, 3);
+        primary.close();
+        primaryRecorder = TransactionStatisticsRecorderImpl.builder(Duration.ofSeconds(60), 60)
+                .clock(Clock.fixed(timeZero, ZoneOffset.UTC))
+                .histogram(bins)
+                .build();
+        primary = new ReplicationPrimary(primaryRecorder,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), INTERVAL, WRITE_TIMEOUT,
+                Clock.systemUTC());
+        primary.start();
+        TransactionStatisticsRecorderImpl standbyRecorder = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(60), 60)
+                .clock(Clock.fixed(timeZero, ZoneOffset.UTC))
+                .histogram(bins)
+                .build();
+        primaryRecorder.recordTransaction(new BigDecimal("0.5"), timeZero.minusSeconds(10));
+        primaryRecorder.recordTransaction(BigDecimal.valueOf(50), timeZero.minusSeconds(10));
+        primaryRecorder.recordTransaction(BigDecimal.valueOf(70), timeZero.minusSeconds(30));
+        standby = standby(standbyRecorder);
+
+        await(() -> standbyRecorder.getSummary().getCount() == 3);
+        Histogram histogram = standbyRecorder.getHistogram();
+        assertThat(histogram.getCount(0)).isEqualTo(1);
+        assertThat(histogram.getCount(1)).isEqualTo(0);
+        assertThat(histogram.getCount(2)).isEqualTo(2);
+    }
+
+    @Test
+    public void testBucketWidthMismatch() throws Exception {
+        TransactionStatisticsRecorderImpl standbyRecorder = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(60), 120)
+                .clock(Clock.fixed(timeZero, ZoneOffset.UTC))
+                .build();
+        primaryRecorder.recordTransaction(BigDecimal.valueOf(3), timeZero.minusSeconds(10));
+        standby = standby(standbyRecorder);
+
+        await(() -> primary.getRounds() > 10);
+        assertThat(standby.getAppliedBuckets()).isZero();
+        assertThat(standbyRecorder.getSummary().getCount()).isZero();
+    }
+
+    @Test
+    public void testPromotionListeners() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        standby = standby(primaryRecorder);
+        standby.addPromotionListener(runs::incrementAndGet);
+        assertThat(runs).hasValue(0);
+
+        standby.promote();
+        standby.promote();
+        assertThat(runs).hasValue(1);
+        standby.addPromotionListener(runs::incrementAndGet); // already promoted
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    public void testCloseDoesNotPromote() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        standby = standby(primaryRecorder);
+        standby.addPromotionListener(runs::incrementAndGet);
+
+        standby.close();
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    public void testReconfigure() throws Exception {
+        ReconfigurableTransactionStatisticsRecorder reconfigurablePrimary = reconfigurable();
+        primary.close();
+        primary = new ReplicationPrimary(reconfigurablePrimary,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), INTERVAL, WRITE_TIMEOUT,
+                Clock.systemUTC());
+        primary.start();
+        ReconfigurableTransactionStatisticsRecorder standbyRecorder = reconfigurable();
+        reconfigurablePrimary.recordTransaction(BigDecimal.valueOf(3), timeZero.minusSeconds(10));
+        standby = standby(standbyRecorder);
+        await(() -> standbyRecorder.getSummary().getCount() == 1);
+
+        // buckets of another width are not applied
+        reconfigurablePrimary.reconfigure(Duration.ofSeconds(60), 120);
+        reconfigurablePrimary.recordTransaction(BigDecimal.valueOf(5), timeZero.minusSeconds(20));
+        long rounds = primary.getRounds();
+        await(() -> primary.getRounds() > rounds + 10);
+        assertThat(standbyRecorder.getSummary().getCount()).isEqualTo(1);
+
+        standbyRecorder.reconfigure(Duration.ofSeconds(60), 120);
+        await(() -> standbyRecorder.getSummary().getCount() == 2);
+        assertThat(bucketStarts(standbyRecorder)).isEqualTo(bucketStarts(reconfigurablePrimary));
+    }
+
+    @Test
+    public void testStalledStandbyDropped() throws Exception {
+        primary.close();
+        primary = new ReplicationPrimary(new ChangingRing(0),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), INTERVAL, WRITE_TIMEOUT,
+                Clock.systemUTC());
+        primary.start();
+        AtomicLong received = new AtomicLong();
+        try (Socket stalled = new Socket(); Socket reading = new Socket()) {
+            stalled.setReceiveBufferSize(1024);
+            stalled.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), primary.getPort()));
+            reading.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), primary.getPort()));
+            Thread reader = new Thread(() -> {
+                byte[] buffer = new byte[8192];
+                try (InputStream in = reading.getInputStream()) {
+                    for (int n; (n = in.read(buffer)) >= 0; ) {
+                        received.addAndGet(n);
+                    }
+                } catch (IOException ignored) {
+                }
+            });
+            reader.setDaemon(true);
+            reader.start();
+
+            await(() -> primary.getDroppedStandbys() == 1);
+            assertThat(primary.getStandbys()).isEqualTo(1);
+            long bytes = received.get();
+            await(() -> received.get() > bytes);
+        }
+    }
+
+    @Test
+    public void testFailedRoundRetried() throws Exception {
+        primary.close();
+        primary = new ReplicationPrimary(new ChangingRing(1),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), INTERVAL, WRITE_TIMEOUT,
+                Clock.systemUTC());
+        primary.start();
+        await(() -> primary.getRounds() > 1);
+        assertThat(primary.getFailedRounds()).isEqualTo(1);
+    }
+
+    /**
+     * Ring of many 1 ms buckets that all change every round.
+     */
+    private static final class ChangingRing implements BucketRing {
+        private final AtomicInteger failures;
+        private long round;
+
+        ChangingRing(int failures) {
+            this.failures = new AtomicInteger(failures);
+        }
+
+        @Override
+        public void forEachBucket(BiConsumer<Instant, Stats> consumer) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("failure");
+            }
+            round++;
+            for (int i = 0; i < 10_000; i++) {
+                BigDecimal amount = BigDecimal.valueOf(round);
+                consumer.accept(timeZero.minusMillis(i), new Stats(amount, amount, amount, 1));
+            }
+        }
+
+        @Override
+        public Duration getBucketWidth() {
+            return Duration.ofMillis(1);
+        }
+
+        @Override
+        public boolean replaceBucket(Instant timestamp, Stats stats) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static ReconfigurableTransactionStatisticsRecorder reconfigurable() {
+        return new ReconfigurableTransactionStatisticsRecorder(Duration.ofSeconds(60), 60,
+                (maxTransactionAge, resolution) -> TransactionStatisticsRecorderImpl
+                        .builder(maxTransactionAge, resolution)
+                        .clock(Clock.fixed(timeZero, ZoneOffset.UTC))
+                        .build());
+    }
+
+    private static List<Instant> bucketStarts(BucketRing ring) {
+        List<Instant> starts = new ArrayList<>();
+        ring.forEachBucket((start, stats) -> starts.add(start));
+        return starts;
+    }
+}
@@ -66,6 +66,17 @@ public class StatisticsResponseTest {
                 .isEqualToJson("expected/statisticsResponse-03.json");
     }
 
+    /**
+     * Test serialization of StatisticsResponse computed from sampled transactions.
+     */
+    @Test
+    public void testSerializationSamplingRate() throws IOException {
+        assertThat(json.write(new StatisticsResponse(SPEC_SUMMARY, 2, RoundingMode.HALF_UP, 0.25)))
+                .isEqualToJson("expected/statisticsResponse-04.json");
+        assertThat(json.write(new StatisticsResponse(SPEC_SUMMARY, 2, RoundingMode.HALF_UP)))
+                .doesNotHaveJsonPathValue("@.samplingRate");
+    }
+
     private static class FakeSummary implements StatisticsSummary<BigDecimal> {
         private final BigDecimal sum, max, min;
         private final long count;
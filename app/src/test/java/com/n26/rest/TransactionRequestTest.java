@@ -28,4 +28,13 @@ public class TransactionRequestTest {
         assertThat(transactionRequest.getTimestamp()).isEqualTo(
                 OffsetDateTime.of(2018, 7, 17, 9, 59, 51, 312000000, ZoneOffset.UTC).toInstant());
     }
+
+    @Test
+    public void testDeserializationId() throws IOException {
+        String payload = "{\"amount\":\"1\",\"timestamp\":\"2018-07-17T09:59:51.312Z\",\"id\":\"tx-1\"}";
+        TransactionRequest transactionRequest = objectMapper.readValue(payload, TransactionRequest.class);
+        assertThat(transactionRequest.getId()).isEqualTo("tx-1");
+        assertThat(objectMapper.readValue("{\"amount\":\"1\",\"timestamp\":\"2018-07-17T09:59:51.312Z\"}",
+                TransactionRequest.class).getId()).isNull();
+    }
 }
\ No newline at end of file
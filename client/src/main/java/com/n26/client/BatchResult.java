@@ -0,0 +1,96 @@
+package com.n26.client;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Outcome of a batch of transactions as reported by the service.
+ */
+public final class BatchResult {
+    static final BatchResult EMPTY = new BatchResult(0, 0, 0, false);
+    static final BatchResult DUPLICATE = new BatchResult(0, 0, 0, true);
+
+    private static final Pattern COUNT = Pattern.compile("\"(accepted|expired|rejected)\"\\s*:\\s*(\\d+)");
+
+    private final long accepted;
+    private final long expired;
+    private final long rejected;
+    private final boolean duplicate;
+
+    BatchResult(long accepted, long expired, long rejected, boolean duplicate) {
+        this.accepted = accepted;
+        this.expired = expired;
+        this.rejected = rejected;
+        this.duplicate = duplicate;
+    }
+
+    /**
+     * Parses counts of a <tt>POST /transactions/batch</tt> response, missing ones are 0.
+     *
+     * @param json the response body
+     * @return result of the batch
+     */
+    static BatchResult parse(String json) {
+        long accepted = 0;
+        long expired = 0;
+        long rejected = 0;
+        Matcher matcher = COUNT.matcher(json);
+        while (matcher.find()) {
+            long count = Long.parseLong(matcher.group(2));
+            switch (matcher.group(1)) {
+                case "accepted":
+                    accepted = count;
+                    break;
+                case "expired":
+                    expired = count;
+                    break;
+                default:
+                    rejected = count;
+            }
+        }
+        return new BatchResult(accepted, expired, rejected, false);
+    }
+
+    /**
+     * Returns number of transactions recorded within the time window.
+     *
+     * @return number of transactions
+     */
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Returns number of transactions older than the time window, not recorded.
+     *
+     * @return number of transactions
+     */
+    public long getExpired() {
+        return expired;
+    }
+
+    /**
+     * Returns number of transactions in the future, not recorded.
+     *
+     * @return number of transactions
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Returns whether the service had already recorded the batch, on a retry whose previous attempt got through but
+     * got no response. Counts are 0 then.
+     *
+     * @return true if the batch was a duplicate
+     */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BatchResult{accepted=%d; expired=%d; rejected=%d; duplicate=%s}",
+                accepted, expired, rejected, duplicate);
+    }
+}
@@ -0,0 +1,525 @@
+package com.n26.client;
+
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Client of the transactions statistics service, buffering transactions and posting them in batches to
+ * <tt>POST /transactions/batch</tt>.
+ *
+ * <p>Transactions of a batch are pre-aggregated per bucket period: those whose timestamps fall within the same period
+ * of {@link Builder#bucketWidth(Duration)}, aligned to the epoch, are sent as a single group of sum, max, min and count
+ * timestamped with the latest of them. Periods should match the bucket width of the service, whose buckets are not
+ * aligned to the epoch, so that a group may be counted up to a bucket width longer than its earliest transaction.
+ *
+ * <p>A batch is sent once it holds {@link Builder#batchSize(int)} groups, or when it is {@link Builder#lingerTime}
+ * old at most. Batches are sent one at a time by a single thread, over a keep-alive connection, gzip compressed above
+ * {@link Builder#compressionThreshold(int)} bytes. Sending is retried on I/O errors and server errors with the same
+ * batch id, so that a service with duplicate detection records a batch once.
+ *
+ * <p>At most {@link Builder#maxPending(int)} transactions may be buffered or being sent: then {@link #record} blocks
+ * until a batch is done and {@link #recordAsync} fails right away.
+ */
+public final class StatisticsClient implements AutoCloseable {
+    private static final String CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    private final URL batchUrl;
+    private final long bucketWidthNanos; // 0 if transactions are not aggregated
+    private final int batchSize;
+    private final int compressionThreshold;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final int timeoutMillis;
+    private final int maxPending;
+    private final Semaphore pending;
+    private final ScheduledExecutorService sender;
+
+    private final Object lock = new Object();
+    private Batch batch = new Batch(); // guarded by lock
+    private boolean closed; // guarded by lock
+
+    private StatisticsClient(Builder builder) {
+        String baseUri = Objects.requireNonNull(builder.baseUri, "baseUri").toString();
+        Duration bucketWidth = Objects.requireNonNull(builder.bucketWidth, "bucketWidth");
+        Duration lingerTime = Objects.requireNonNull(builder.lingerTime, "lingerTime");
+        Duration retryBackoff = Objects.requireNonNull(builder.retryBackoff, "retryBackoff");
+        Duration timeout = Objects.requireNonNull(builder.timeout, "timeout");
+        try {
+            batchUrl = new URL((baseUri.endsWith("/") ? baseUri : baseUri + "/") + "transactions/batch");
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Illegal baseUri: " + baseUri, e);
+        }
+        if (bucketWidth.isNegative()) {
+            throw new IllegalArgumentException("Illegal bucketWidth: negative value");
+        }
+        if (builder.batchSize < 1) {
+            throw new IllegalArgumentException("Illegal batchSize: " + builder.batchSize);
+        }
+        if (lingerTime.isNegative() || lingerTime.isZero()) {
+            throw new IllegalArgumentException("Illegal lingerTime: non-positive value");
+        }
+        if (builder.maxPending < 1) {
+            throw new IllegalArgumentException("Illegal maxPending: " + builder.maxPending);
+        }
+        if (builder.maxRetries < 0) {
+            throw new IllegalArgumentException("Illegal maxRetries: " + builder.maxRetries);
+        }
+        if (retryBackoff.isNegative()) {
+            throw new IllegalArgumentException("Illegal retryBackoff: negative value");
+        }
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Illegal timeout: non-positive value");
+        }
+        bucketWidthNanos = bucketWidth.toNanos();
+        batchSize = builder.batchSize;
+        compressionThreshold = builder.compressionThreshold;
+        maxRetries = builder.maxRetries;
+        retryBackoffMillis = retryBackoff.toMillis();
+        timeoutMillis = Math.toIntExact(timeout.toMillis());
+        maxPending = builder.maxPending;
+        pending = new Semaphore(maxPending);
+        sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long lingerNanos = lingerTime.toNanos();
+        sender.scheduleWithFixedDelay(this::flush, lingerNanos, lingerNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns builder of a client of the service at a given URI.
+     *
+     * @param baseUri URI of the service, e.g. <tt>http://localhost:8080</tt>
+     * @return new builder
+     */
+    public static Builder builder(URI baseUri) {
+        return new Builder(baseUri);
+    }
+
+    /**
+     * Buffers transaction of a given amount that happened at a given timestamp, waiting while too many transactions
+     * are pending.
+     *
+     * @param amount    the value of transaction
+     * @param timestamp the time of transaction
+     * @return result of the batch of transaction, completed exceptionally if it could not be sent
+     * @throws InterruptedException  if interrupted while waiting
+     * @throws IllegalStateException if the client is closed
+     */
+    public CompletableFuture<BatchResult> record(BigDecimal amount, Instant timestamp) throws InterruptedException {
+        long key = periodOf(timestamp);
+        pending.acquire();
+        return add(key, amount, timestamp);
+    }
+
+    /**
+     * Buffers transaction of a given amount that happened at a given timestamp, unless too many transactions are
+     * pending. Never blocks.
+     *
+     * @param amount    the value of transaction
+     * @param timestamp the time of transaction
+     * @return result of the batch of transaction, completed exceptionally if it could not be sent, or with
+     * {@link RejectedExecutionException} right away if too many transactions are pending
+     * @throws IllegalStateException if the client is closed
+     */
+    public CompletableFuture<BatchResult> recordAsync(BigDecimal amount, Instant timestamp) {
+        long key = periodOf(timestamp);
+        if (!pending.tryAcquire()) {
+            CompletableFuture<BatchResult> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new RejectedExecutionException("Too many pending transactions"));
+            return rejected;
+        }
+        return add(key, amount, timestamp);
+    }
+
+    /**
+     * Sends buffered transactions without waiting for the batch to fill.
+     *
+     * @return result of the batch of buffered transactions
+     */
+    public CompletableFuture<BatchResult> flush() {
+        Batch full;
+        synchronized (lock) {
+            if (batch.transactions == 0) {
+                return CompletableFuture.completedFuture(BatchResult.EMPTY);
+            }
+            full = batch;
+            batch = new Batch();
+        }
+        submit(full);
+        return full.future;
+    }
+
+    /**
+     * Returns number of transactions buffered or being sent.
+     *
+     * @return number of pending transactions
+     */
+    public int getPending() {
+        return maxPending - pending.availablePermits();
+    }
+
+    /**
+     * Sends buffered transactions and waits until all batches are done. Transactions cannot be recorded afterwards.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public void close() throws InterruptedException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flush();
+        sender.shutdown();
+        sender.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS); // bounded by timeouts of requests
+    }
+
+    /**
+     * Returns key of the group of a timestamp within a batch: its bucket period, or a unique key if transactions are
+     * not aggregated.
+     */
+    private long periodOf(Instant timestamp) {
+        if (bucketWidthNanos == 0) {
+            return -1;
+        }
+        try {
+            long epochNanos = Math.addExact(Math.multiplyExact(timestamp.getEpochSecond(), 1_000_000_000L),
+                    timestamp.getNano());
+            return Math.floorDiv(epochNanos, bucketWidthNanos);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Illegal timestamp: " + timestamp, e);
+        }
+    }
+
+    private CompletableFuture<BatchResult> add(long key, BigDecimal amount, Instant timestamp) {
+        Batch full = null;
+        CompletableFuture<BatchResult> future;
+        synchronized (lock) {
+            if (closed) {
+                pending.release();
+                throw new IllegalStateException("Client is closed");
+            }
+            batch.add(bucketWidthNanos == 0 ? batch.groups.size() : key, amount, timestamp);
+            future = batch.future;
+            if (batch.groups.size() >= batchSize) {
+                full = batch;
+                batch = new Batch();
+            }
+        }
+        if (full != null) {
+            submit(full);
+        }
+        return future;
+    }
+
+    private void submit(Batch batch) {
+        try {
+            sender.execute(() -> send(batch));
+        } catch (RejectedExecutionException e) {
+            pending.release(batch.transactions);
+            batch.future.completeExceptionally(e);
+        }
+    }
+
+    private void send(Batch batch) {
+        BatchResult result = null;
+        Exception failure = null;
+        try {
+            result = post(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        }
+        // permits first, so that callbacks of the batch can record transactions without blocking
+        pending.release(batch.transactions);
+        if (failure == null) {
+            batch.future.complete(result);
+        } else {
+            batch.future.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Posts a batch, retrying on I/O errors and server errors with exponential backoff.
+     */
+    private BatchResult post(Batch batch) throws IOException, InterruptedException {
+        byte[] body = batch.toJson().getBytes(StandardCharsets.UTF_8);
+        boolean compressed = body.length >= compressionThreshold;
+        if (compressed) {
+            body = gzip(body);
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return post(body, compressed);
+            } catch (IOException e) {
+                boolean retriable = !(e instanceof UnexpectedStatusException)
+                        || ((UnexpectedStatusException) e).getStatusCode() >= 500;
+                if (!retriable || attempt >= maxRetries) {
+                    throw e;
+                }
+            }
+            Thread.sleep(retryBackoffMillis << Math.min(attempt, 16));
+        }
+    }
+
+    private BatchResult post(byte[] body, boolean compressed) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) batchUrl.openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        connection.setRequestProperty("Content-Type", CONTENT_TYPE);
+        if (compressed) {
+            connection.setRequestProperty("Content-Encoding", "gzip");
+        }
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int status = connection.getResponseCode();
+        // read to the end and closed without disconnecting, so that the connection is reused by the next batch
+        String response = readFully(status >= 400 ? connection.getErrorStream() : connection.getInputStream());
+        switch (status) {
+            case HttpURLConnection.HTTP_CREATED:
+            case HttpURLConnection.HTTP_ACCEPTED: // published for asynchronous ingestion
+                return BatchResult.parse(response);
+            case HttpURLConnection.HTTP_OK:
+                return BatchResult.DUPLICATE;
+            default:
+                throw new UnexpectedStatusException(status);
+        }
+    }
+
+    private static String readFully(@Nullable InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[1024];
+            for (int n = stream.read(buffer); n >= 0; n = stream.read(buffer)) {
+                body.write(buffer, 0, n);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Aggregates of transactions of a bucket period.
+     */
+    private static final class Group {
+        Instant timestamp;
+        long count;
+        BigDecimal sum;
+        BigDecimal max;
+        BigDecimal min;
+
+        Group(BigDecimal amount, Instant timestamp) {
+            this.timestamp = timestamp;
+            this.count = 1;
+            this.sum = amount;
+            this.max = amount;
+            this.min = amount;
+        }
+
+        void add(BigDecimal amount, Instant timestamp) {
+            if (timestamp.isAfter(this.timestamp)) {
+                this.timestamp = timestamp;
+            }
+            count++;
+            sum = sum.add(amount);
+            max = max.max(amount);
+            min = min.min(amount);
+        }
+    }
+
+    /**
+     * Groups of transactions sent in a single request, in order of their first transaction.
+     */
+    private static final class Batch {
+        final String id = UUID.randomUUID().toString();
+        final Map<Long, Group> groups = new LinkedHashMap<>();
+        final CompletableFuture<BatchResult> future = new CompletableFuture<>();
+        int transactions;
+
+        void add(long key, BigDecimal amount, Instant timestamp) {
+            Group group = groups.get(key);
+            if (group == null) {
+                groups.put(key, new Group(amount, timestamp));
+            } else {
+                group.add(amount, timestamp);
+            }
+            transactions++;
+        }
+
+        String toJson() {
+            StringBuilder json = new StringBuilder(64 + 128 * groups.size());
+            json.append("{\"id\":\"").append(id).append("\",\"groups\":[");
+            String separator = "";
+            for (Group group : groups.values()) {
+                json.append(separator)
+                        .append("{\"timestamp\":\"").append(group.timestamp)
+                        .append("\",\"count\":").append(group.count)
+                        .append(",\"sum\":\"").append(group.sum)
+                        .append("\",\"max\":\"").append(group.max)
+                        .append("\",\"min\":\"").append(group.min)
+                        .append("\"}");
+                separator = ",";
+            }
+            return json.append("]}").toString();
+        }
+    }
+
+    public static class Builder {
+        private final URI baseUri;
+        private Duration bucketWidth = Duration.ofMillis(60);
+        private int batchSize = 1000;
+        private Duration lingerTime = Duration.ofMillis(100);
+        private int maxPending = 100_000;
+        private int compressionThreshold = 1024;
+        private int maxRetries = 3;
+        private Duration retryBackoff = Duration.ofMillis(100);
+        private Duration timeout = Duration.ofSeconds(5);
+
+        private Builder(URI baseUri) {
+            this.baseUri = baseUri;
+        }
+
+        /**
+         * Sets period transactions are aggregated over, the bucket width of the service (60ms by default, that of a
+         * 60s window of 1000 buckets), 0 to send transactions one by one.
+         *
+         * @param bucketWidth non-negative duration
+         * @return this builder
+         */
+        public Builder bucketWidth(Duration bucketWidth) {
+            this.bucketWidth = bucketWidth;
+            return this;
+        }
+
+        /**
+         * Sets number of groups a batch is sent at (1000 by default, the server accepts up to 10000).
+         *
+         * @param batchSize positive number of groups
+         * @return this builder
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets how often buffered transactions are sent if the batch does not fill (100ms by default).
+         *
+         * @param lingerTime positive duration
+         * @return this builder
+         */
+        public Builder lingerTime(Duration lingerTime) {
+            this.lingerTime = lingerTime;
+            return this;
+        }
+
+        /**
+         * Sets maximum number of transactions buffered or being sent (100000 by default).
+         *
+         * @param maxPending positive number of transactions
+         * @return this builder
+         */
+        public Builder maxPending(int maxPending) {
+            this.maxPending = maxPending;
+            return this;
+        }
+
+        /**
+         * Sets size of request bodies, in bytes, from which they are gzip compressed (1024 by default).
+         *
+         * @param compressionThreshold number of bytes, {@link Integer#MAX_VALUE} to disable compression
+         * @return this builder
+         */
+        public Builder compressionThreshold(int compressionThreshold) {
+            this.compressionThreshold = compressionThreshold;
+            return this;
+        }
+
+        /**
+         * Sets how many times a batch is retried (3 by default).
+         *
+         * @param maxRetries non-negative number of retries
+         * @return this builder
+         */
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Sets delay before the first retry, doubled on every next one (100ms by default).
+         *
+         * @param retryBackoff non-negative duration
+         * @return this builder
+         */
+        public Builder retryBackoff(Duration retryBackoff) {
+            this.retryBackoff = retryBackoff;
+            return this;
+        }
+
+        /**
+         * Sets connect and read timeout of requests (5s by default).
+         *
+         * @param timeout positive duration
+         * @return this builder
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * Builds StatisticsClient, which starts sending buffered transactions.
+         *
+         * @return new client
+         * @throws IllegalArgumentException on illegal baseUri, non-positive batchSize, lingerTime, maxPending or
+         *                                  timeout, negative bucketWidth, maxRetries or retryBackoff
+         */
+        public StatisticsClient build() {
+            return new StatisticsClient(this);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.n26.client;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the service responds to a batch with a status other than success.
+ */
+public class UnexpectedStatusException extends IOException {
+    private final int statusCode;
+
+    public UnexpectedStatusException(int statusCode) {
+        super("Unexpected status: " + statusCode);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Returns HTTP status code of the response.
+     *
+     * @return status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
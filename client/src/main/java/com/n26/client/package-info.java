@@ -0,0 +1,4 @@
+@ParametersAreNonnullByDefault
+package com.n26.client;
+
+import javax.annotation.ParametersAreNonnullByDefault;
@@ -0,0 +1,250 @@
+package com.n26.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class StatisticsClientTest {
+    private static final Instant TIME_ZERO = Instant.parse("2018-11-25T10:00:00Z");
+
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failures = new AtomicInteger(); // responses of 503 before succeeding
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private HttpServer server;
+    private StatisticsClient client;
+
+    private static final class Request {
+        final String body;
+        final boolean compressed;
+        final int remotePort;
+
+        Request(String body, boolean compressed, int remotePort) {
+            this.body = body;
+            this.compressed = compressed;
+            this.remotePort = remotePort;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/transactions/batch", this::handle);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        release.countDown();
+        if (client != null) {
+            client.close();
+        }
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean compressed = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+        InputStream in = compressed ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody();
+        requests.add(new Request(readFully(in), compressed, exchange.getRemoteAddress().getPort()));
+        if (failures.getAndDecrement() > 0) {
+            exchange.sendResponseHeaders(503, -1);
+        } else {
+            byte[] body = "{\"accepted\":3,\"expired\":1,\"rejected\":0}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(201, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+            body.write(buffer, 0, n);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private StatisticsClient.Builder builder() {
+        return StatisticsClient.builder(URI.create("http://localhost:" + server.getAddress().getPort()))
+                .bucketWidth(Duration.ofSeconds(1))
+                .lingerTime(Duration.ofHours(1))
+                .retryBackoff(Duration.ZERO);
+    }
+
+    @Test
+    public void testAggregatesPerBucketPeriod() throws Exception {
+        client = builder().compressionThreshold(Integer.MAX_VALUE).build();
+        client.record(new BigDecimal("1.5"), TIME_ZERO.plusMillis(100));
+        client.record(new BigDecimal("4"), TIME_ZERO.plusMillis(900));
+        client.record(new BigDecimal("0.5"), TIME_ZERO.plusMillis(500));
+        client.record(new BigDecimal("7"), TIME_ZERO.minusMillis(1));
+
+        BatchResult result = client.flush().get(5, TimeUnit.SECONDS);
+        assertThat(result.getAccepted()).isEqualTo(3);
+        assertThat(result.getExpired()).isEqualTo(1);
+        assertThat(result.isDuplicate()).isFalse();
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).compressed).isFalse();
+        assertThat(requests.get(0).body).matches("\\{\"id\":\"[-0-9a-f]{36}\",\"groups\":\\["
+                + "\\{\"timestamp\":\"2018-11-25T10:00:00.900Z\",\"count\":3,\"sum\":\"6.0\",\"max\":\"4\","
+                + "\"min\":\"0.5\"},"
+                + "\\{\"timestamp\":\"2018-11-25T09:59:59.999Z\",\"count\":1,\"sum\":\"7\",\"max\":\"7\","
+                + "\"min\":\"7\"}]}");
+        assertThat(client.getPending()).isEqualTo(0);
+    }
+
+    @Test
+    public void testNoAggregation() throws Exception {
+        client = builder().bucketWidth(Duration.ZERO).build();
+        client.record(BigDecimal.ONE, TIME_ZERO);
+        client.record(BigDecimal.ONE, TIME_ZERO);
+        client.flush().get(5, TimeUnit.SECONDS);
+
+        assertThat(requests.get(0).body).contains("\"count\":1").doesNotContain("\"count\":2");
+    }
+
+    @Test
+    public void testFlushOnBatchSize() throws Exception {
+        client = builder().batchSize(2).build();
+        client.record(BigDecimal.ONE, TIME_ZERO);
+        client.record(BigDecimal.ONE, TIME_ZERO.plusMillis(10)); // same group
+        CompletableFuture<BatchResult> batch = client.record(BigDecimal.ONE, TIME_ZERO.plusSeconds(1));
+
+        batch.get(5, TimeUnit.SECONDS);
+        assertThat(requests).hasSize(1);
+        assertThat(client.flush().get()).isSameAs(BatchResult.EMPTY);
+    }
+
+    @Test
+    public void testFlushOnLingerTime() throws Exception {
+        client = builder().lingerTime(Duration.ofMillis(10)).build();
+        client.recordAsync(BigDecimal.ONE, TIME_ZERO).get(5, TimeUnit.SECONDS);
+
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    public void testCompression() throws Exception {
+        client = builder().compressionThreshold(0).build();
+        client.record(BigDecimal.TEN, TIME_ZERO);
+        client.flush().get(5, TimeUnit.SECONDS);
+
+        assertThat(requests.get(0).compressed).isTrue();
+        assertThat(requests.get(0).body).contains("\"sum\":\"10\"");
+    }
+
+    @Test
+    public void testConnectionReuse() throws Exception {
+        client = builder().build();
+        for (int i = 0; i < 3; i++) {
+            client.record(BigDecimal.ONE, TIME_ZERO);
+            client.flush().get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(requests).extracting(request -> request.remotePort).containsOnly(requests.get(0).remotePort);
+    }
+
+    @Test
+    public void testRetrySameBatch() throws Exception {
+        failures.set(2);
+        client = builder().maxRetries(2).build();
+        client.record(BigDecimal.ONE, TIME_ZERO);
+
+        assertThat(client.flush().get(5, TimeUnit.SECONDS).getAccepted()).isEqualTo(3);
+        assertThat(requests).hasSize(3);
+        assertThat(requests).extracting(request -> request.body).containsOnly(requests.get(0).body);
+    }
+
+    @Test
+    public void testRetriesExhausted() throws Exception {
+        failures.set(2);
+        client = builder().maxRetries(1).build();
+        client.record(BigDecimal.ONE, TIME_ZERO);
+
+        try {
+            client.flush().get(5, TimeUnit.SECONDS);
+            fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(UnexpectedStatusException.class);
+            assertThat(((UnexpectedStatusException) e.getCause()).getStatusCode()).isEqualTo(503);
+        }
+        assertThat(client.getPending()).isEqualTo(0);
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        release = new CountDownLatch(1);
+        client = builder().maxPending(2).build();
+        CompletableFuture<BatchResult> first = client.recordAsync(BigDecimal.ONE, TIME_ZERO);
+        client.recordAsync(BigDecimal.ONE, TIME_ZERO);
+        client.flush(); // in flight until released
+        CompletableFuture<BatchResult> rejected = client.recordAsync(BigDecimal.ONE, TIME_ZERO);
+
+        assertThat(rejected.isCompletedExceptionally()).isTrue();
+        try {
+            rejected.get();
+            fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+        }
+        assertThat(client.getPending()).isEqualTo(2);
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertThat(client.recordAsync(BigDecimal.ONE, TIME_ZERO).isCompletedExceptionally()).isFalse();
+    }
+
+    @Test
+    public void testCloseSendsBufferedTransactions() throws Exception {
+        client = builder().build();
+        CompletableFuture<BatchResult> batch = client.record(BigDecimal.ONE, TIME_ZERO);
+        client.close();
+
+        assertThat(batch.isDone()).isTrue();
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRecordClosed() throws Exception {
+        client = builder().build();
+        client.close();
+        client.recordAsync(BigDecimal.ONE, TIME_ZERO);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalBatchSize() {
+        builder().batchSize(0).build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.n26.stats;
+
+/**
+ * Thrown when recording a transaction of a batch fails, after all transactions preceding it were recorded.
+ */
+public class BatchRecordingException extends RuntimeException {
+    private final int recorded;
+    private final int accepted;
+
+    public BatchRecordingException(int recorded, int accepted, RuntimeException cause) {
+        super("Recording transaction " + recorded + " of batch failed", cause);
+        this.recorded = recorded;
+        this.accepted = accepted;
+    }
+
+    /**
+     * Returns the number of transactions recorded before the failing one, which is the index of it in the batch.
+     *
+     * @return number of recorded transactions
+     */
+    public int getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Returns the number of recorded transactions that happened in the time window.
+     *
+     * @return number of accepted transactions
+     */
+    public int getAccepted() {
+        return accepted;
+    }
+}
@@ -0,0 +1,35 @@
+package com.n26.stats;
+
+import javax.annotation.Nullable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.BiConsumer;
+
+/**
+ * Bucket level access to a recorder, e.g. to copy its state to another one.
+ */
+public interface BucketRing {
+    /**
+     * Passes every non-empty bucket to a given consumer, together with the start of its time frame.
+     *
+     * @param consumer bucket consumer
+     */
+    void forEachBucket(BiConsumer<Instant, Stats> consumer);
+
+    /**
+     * Returns the width of a single bucket.
+     *
+     * @return bucket width
+     */
+    Duration getBucketWidth();
+
+    /**
+     * Replaces bucket containing a given timestamp with given aggregates.
+     *
+     * @param timestamp the point in time within the bucket
+     * @param stats     new aggregates of the bucket, null to empty it
+     * @return true if the timestamp is within the ring, false otherwise
+     */
+    boolean replaceBucket(Instant timestamp, @Nullable Stats stats);
+}
@@ -0,0 +1,17 @@
+package com.n26.stats;
+
+/**
+ * Thrown when a recorder keeping individual transactions reaches its memory cap.
+ */
+public class CapacityExceededException extends RuntimeException {
+    private final int capacity;
+
+    public CapacityExceededException(int capacity) {
+        super("Capacity of " + capacity + " transactions exceeded");
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
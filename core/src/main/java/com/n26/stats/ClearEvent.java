@@ -0,0 +1,21 @@
+package com.n26.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted for every {@link TransactionStatisticsRecorder#clear} call.
+ */
+@Name("com.n26.stats.Clear")
+@Label("Clear")
+@Description("Removal of all recorded transactions")
+@Category({"Transactions Statistics", "Recorder"})
+@StackTrace(false)
+class ClearEvent extends jdk.jfr.Event {
+    @Label("Generation")
+    @Description("Generation of buckets after the clear")
+    long generation;
+}
@@ -0,0 +1,222 @@
+package com.n26.stats;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bucket-free implementation of <tt>TransactionStatisticsRecorder</tt> interface keeping exponentially decayed
+ * statistics in constant space, without ticking.
+ *
+ * <p>It uses forward decay: a transaction of value <tt>v</tt> at time <tt>t</tt> is added with weight
+ * <tt>g(t) = exp((t - L) / τ)</tt> relative to a landmark <tt>L</tt>, and aggregates are divided by
+ * <tt>g(T)</tt> at query time <tt>T</tt>. Decayed count and sum therefore weigh every transaction by
+ * <tt>exp(-(T - t) / τ)</tt>, regardless of the order in which transactions arrive. For a steady rate, the decayed
+ * count equals the number of transactions in the last <tt>τ</tt> (the mean lifetime), which makes it comparable to
+ * a sliding window of the same width. As weights grow exponentially, the landmark is moved forward (and the
+ * aggregates rescaled) once they get large, lazily, as part of recording.
+ *
+ * <p>Max and min are not decayed, they are the extremes of recent transactions: an extreme older than
+ * <tt>τ</tt> is replaced by the next recorded transaction not older than <tt>τ</tt>. Until one is recorded, max and
+ * min are the decayed mean.
+ *
+ * <p>All state is a single immutable snapshot, so recording costs a single compare-and-set (retried on contention)
+ * and summaries are consistent without locking. Aggregates are kept in double precision.
+ */
+public class DecayedTransactionStatisticsRecorder implements TransactionStatisticsRecorder {
+    private static final double RESCALE_THRESHOLD = 64; // landmark age in mean lifetimes, exp(64) ~ 6e27
+
+    private final double meanLifetimeNanos;
+    private final long futureSkewNanos;
+    private final Clock clock;
+    private final AtomicReference<State> state;
+
+    /**
+     * Constructs DecayedTransactionStatisticsRecorder of a given mean lifetime.
+     *
+     * @param meanLifetime time after which the weight of a transaction decays by a factor of e
+     * @param futureSkew   how far ahead of the current time transactions are accepted
+     * @param clock        custom {@code Clock} instance
+     * @throws IllegalArgumentException on non-positive meanLifetime or negative futureSkew
+     */
+    public DecayedTransactionStatisticsRecorder(Duration meanLifetime, Duration futureSkew, Clock clock) {
+        if (meanLifetime.isNegative() || meanLifetime.isZero()) {
+            throw new IllegalArgumentException("Illegal meanLifetime: non-positive value");
+        }
+        if (futureSkew.isNegative()) {
+            throw new IllegalArgumentException("Illegal futureSkew: negative value");
+        }
+        this.meanLifetimeNanos = meanLifetime.toNanos();
+        this.futureSkewNanos = futureSkew.toNanos();
+        this.clock = Objects.requireNonNull(clock, "clock");
+        state = new AtomicReference<>(State.empty(nanos(clock.instant())));
+    }
+
+    private static long nanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    /**
+     * Records transaction of a given amount that happened at a given timestamp.
+     * Runs in constant time O(1).
+     *
+     * @param amount    the value of transaction
+     * @param timestamp the time of transaction
+     * @return true if transaction happened between now+futureSkew and now-meanLifetime, false otherwise
+     * @throws ArithmeticException if the amount is out of the range of a double
+     */
+    @Override
+    public boolean recordTransaction(BigDecimal amount, Instant timestamp) {
+        return recordTransaction(amount, timestamp, 1);
+    }
+
+    /**
+     * Records transaction that stands for <tt>weight</tt> transactions of a given amount.
+     * Runs in constant time O(1).
+     *
+     * @param amount    the value of transaction
+     * @param timestamp the time of transaction
+     * @param weight    the number of transactions represented, positive
+     * @return true if transaction happened between now+futureSkew and now-meanLifetime, false otherwise
+     * @throws IllegalArgumentException if weight is non-positive
+     * @throws ArithmeticException      if the amount is out of the range of a double
+     */
+    @Override
+    public boolean recordTransaction(BigDecimal amount, Instant timestamp, long weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Illegal weight: " + weight);
+        }
+        long now = nanos(clock.instant());
+        long t;
+        try {
+            t = nanos(timestamp);
+        } catch (ArithmeticException e) {
+            return false;
+        }
+        if (t - now > futureSkewNanos) {
+            return false;
+        }
+        double value = amount.doubleValue();
+        if (!Double.isFinite(value)) {
+            throw new ArithmeticException("Amount out of double range: " + amount);
+        }
+        State prev, next;
+        do {
+            prev = state.get();
+            next = prev.add(value, weight, t, now, meanLifetimeNanos);
+        } while (!state.compareAndSet(prev, next));
+        return now - t <= meanLifetimeNanos;
+    }
+
+    /**
+     * Clears values of all recorded transactions.
+     * Runs in constant time O(1).
+     */
+    @Override
+    public void clear() {
+        state.set(State.empty(nanos(clock.instant())));
+    }
+
+    /**
+     * Returns a summary of decayed statistics: decayed sum, decayed count (rounded) and extremes of recent
+     * transactions.
+     * Runs in constant time O(1).
+     *
+     * @return SummaryStatistics of recorded transactions
+     */
+    @Override
+    public StatisticsSummary<BigDecimal> getSummary() {
+        State s = state.get();
+        long now = nanos(clock.instant());
+        double decay = Math.exp(-(now - s.landmark) / meanLifetimeNanos);
+        long count = Math.round(s.count * decay);
+        if (count == 0 || !Double.isFinite(s.sum)) { // sum may overflow
+            return Stats.ZERO_VALUE;
+        }
+        double mean = s.sum / s.count; // extremes of old transactions only are not kept
+        return new Stats(BigDecimal.valueOf(s.sum * decay),
+                BigDecimal.valueOf(Double.isFinite(s.max) ? s.max : mean),
+                BigDecimal.valueOf(Double.isFinite(s.min) ? s.min : mean),
+                count);
+    }
+
+    /**
+     * Returns decayed rate of transactions.
+     *
+     * @return transactions per second
+     */
+    public double getRate() {
+        State s = state.get();
+        double decay = Math.exp(-(nanos(clock.instant()) - s.landmark) / meanLifetimeNanos);
+        return s.count * decay / (meanLifetimeNanos / 1e9);
+    }
+
+    /**
+     * Returns decayed mean of transaction amounts.
+     *
+     * @return mean amount, 0 if there were no transactions
+     */
+    public double getMean() {
+        State s = state.get();
+        return s.count > 0 ? s.sum / s.count : 0;
+    }
+
+    /**
+     * Immutable forward decayed aggregates relative to a landmark.
+     */
+    private static final class State {
+        final long landmark; // epoch nanos
+        final double sum;
+        final double count;
+        final double max;
+        final long maxTime;
+        final double min;
+        final long minTime;
+
+        private State(long landmark, double sum, double count, double max, long maxTime, double min, long minTime) {
+            this.landmark = landmark;
+            this.sum = sum;
+            this.count = count;
+            this.max = max;
+            this.maxTime = maxTime;
+            this.min = min;
+            this.minTime = minTime;
+        }
+
+        static State empty(long landmark) {
+            return new State(landmark, 0, 0, Double.NEGATIVE_INFINITY, 0, Double.POSITIVE_INFINITY, 0);
+        }
+
+        /**
+         * Returns new state with a given transaction added, moving the landmark forward if weights got too large.
+         *
+         * @param value    the value of transaction
+         * @param weight   the number of transactions represented
+         * @param t        the time of transaction in epoch nanos
+         * @param now      current time in epoch nanos
+         * @param lifetime mean lifetime in nanos
+         */
+        State add(double value, long weight, long t, long now, double lifetime) {
+            long l = landmark;
+            double s = sum;
+            double c = count;
+            long latest = Math.max(now, t); // future transactions are weighted up to futureSkew ahead
+            if ((latest - l) / lifetime > RESCALE_THRESHOLD) {
+                double scale = Math.exp(-(latest - l) / lifetime);
+                l = latest;
+                s *= scale;
+                c *= scale;
+            }
+            double g = Math.exp((t - l) / lifetime) * weight;
+            boolean recent = now - t <= lifetime;
+            boolean newMax = recent && (now - maxTime > lifetime || value >= max);
+            boolean newMin = recent && (now - minTime > lifetime || value <= min);
+            return new State(l, s + value * g, c + g,
+                    newMax ? value : max, newMax ? t : maxTime,
+                    newMin ? value : min, newMin ? t : minTime);
+        }
+    }
+}
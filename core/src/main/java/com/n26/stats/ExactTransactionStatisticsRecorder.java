@@ -0,0 +1,221 @@
+package com.n26.stats;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Implementation of <tt>TransactionStatisticsRecorder</tt> interface keeping every transaction of the sliding window,
+ * for exact statistics at the cost of O(n) space (where n is a number of non-expired transactions).
+ *
+ * <p>Transactions are kept ordered by timestamp, together with monotonic deques of max and min candidates:
+ * transactions that are not followed by a later transaction of a greater (respectively smaller) or equal value, so
+ * the head of each deque is the extreme of the window. Expired transactions are removed from the front lazily, on
+ * both recording and summary, and subtracted from the running sum. For transactions arriving in timestamp order
+ * recording runs in amortized O(log(n)) time (binary search of the position), late transactions additionally shift
+ * the transactions that follow them. Summary runs in amortized constant time.
+ *
+ * <p>Groups of transactions (aggregates of a batch or a weighted transaction) are kept as a single entry of their
+ * aggregates, so they remain exact. Number of kept entries is capped, recording throws
+ * {@link CapacityExceededException} once the cap is reached.
+ *
+ * <p>All methods synchronize on the recorder, so a caller holding its monitor can check the remaining capacity and
+ * record several groups without other writers in between.
+ */
+public class ExactTransactionStatisticsRecorder implements TransactionStatisticsRecorder {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final long maxAgeNanos;
+    private final long futureSkewNanos;
+    private final int capacity;
+    private final Clock clock;
+    private final TimeOrderedArray<Stats> transactions; // single transactions and groups
+    private final TimeOrderedArray<BigDecimal> maxCandidates;
+    private final TimeOrderedArray<BigDecimal> minCandidates;
+    private BigDecimal sum = BigDecimal.ZERO;
+    private long count;
+
+    /**
+     * Constructs ExactTransactionStatisticsRecorder.
+     *
+     * @param maxAge     how long transactions are kept in the window
+     * @param futureSkew how far ahead of the current time transactions are accepted
+     * @param capacity   maximum number of transactions (or groups) kept
+     * @param clock      custom {@code Clock} instance
+     * @throws IllegalArgumentException on non-positive maxAge or capacity, or negative futureSkew
+     */
+    public ExactTransactionStatisticsRecorder(Duration maxAge, Duration futureSkew, int capacity, Clock clock) {
+        if (maxAge.isNegative() || maxAge.isZero()) {
+            throw new IllegalArgumentException("Illegal maxAge: non-positive value");
+        }
+        if (futureSkew.isNegative()) {
+            throw new IllegalArgumentException("Illegal futureSkew: negative value");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        this.maxAgeNanos = maxAge.toNanos();
+        this.futureSkewNanos = futureSkew.toNanos();
+        this.capacity = capacity;
+        this.clock = Objects.requireNonNull(clock, "clock");
+        int initialCapacity = Math.min(capacity, INITIAL_CAPACITY);
+        transactions = new TimeOrderedArray<>(initialCapacity);
+        maxCandidates = new TimeOrderedArray<>(initialCapacity);
+        minCandidates = new TimeOrderedArray<>(initialCapacity);
+    }
+
+    private static long nanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    /**
+     * Records transaction of a given amount that happened at a given timestamp.
+     * Runs in amortized O(log(n)) time for transactions arriving in timestamp order.
+     *
+     * @param amount    the value of transaction
+     * @param timestamp the time of transaction
+     * @return true if transaction happened between now+futureSkew and now-maxAge, false otherwise
+     * @throws CapacityExceededException if the window already holds the maximum number of transactions
+     */
+    @Override
+    public boolean recordTransaction(BigDecimal amount, Instant timestamp) {
+        return record(Stats.of(amount), timestamp);
+    }
+
+    /**
+     * Records aggregates of a group of transactions that happened at a given timestamp as a single entry.
+     * Runs in amortized O(log(n)) time for groups arriving in timestamp order.
+     *
+     * @param stats     aggregates of transactions, count positive
+     * @param timestamp the time of transactions
+     * @return true if transactions happened between now+futureSkew and now-maxAge, false otherwise
+     * @throws IllegalArgumentException  if count is non-positive
+     * @throws CapacityExceededException if the window already holds the maximum number of transactions
+     */
+    @Override
+    public boolean recordStats(Stats stats, Instant timestamp) {
+        if (stats.getCount() < 1) {
+            throw new IllegalArgumentException("Illegal count: " + stats.getCount());
+        }
+        return record(stats, timestamp);
+    }
+
+    private synchronized boolean record(Stats stats, Instant timestamp) {
+        long now = nanos(clock.instant());
+        long t;
+        try {
+            t = nanos(timestamp);
+        } catch (ArithmeticException e) {
+            return false;
+        }
+        if (t - now > futureSkewNanos || now - t >= maxAgeNanos) {
+            return false;
+        }
+        expire(now);
+        if (transactions.size() >= capacity) {
+            throw new CapacityExceededException(capacity);
+        }
+        transactions.insert(transactions.upperBound(t), t, stats);
+        sum = sum.add(stats.getSum());
+        count += stats.getCount();
+        offerCandidate(maxCandidates, t, stats.getMax(), 1);
+        offerCandidate(minCandidates, t, stats.getMin(), -1);
+        return true;
+    }
+
+    /**
+     * Adds a transaction to monotonic deque of candidates, unless a transaction at the same time or later dominates
+     * it, and removes earlier candidates it dominates.
+     *
+     * @param sign 1 for max candidates, -1 for min candidates
+     */
+    private static void offerCandidate(TimeOrderedArray<BigDecimal> candidates, long t, BigDecimal amount, int sign) {
+        int position = candidates.upperBound(t);
+        if (position < candidates.size() && sign * candidates.valueAt(position).compareTo(amount) >= 0) {
+            return;
+        }
+        if (position > 0 && candidates.timeAt(position - 1) == t
+                && sign * candidates.valueAt(position - 1).compareTo(amount) >= 0) {
+            return;
+        }
+        int from = position;
+        while (from > 0 && sign * candidates.valueAt(from - 1).compareTo(amount) <= 0) {
+            from--;
+        }
+        candidates.remove(from, position);
+        candidates.insert(from, t, amount);
+    }
+
+    private void expire(long now) {
+        long threshold = now - maxAgeNanos;
+        int expired = transactions.upperBound(threshold);
+        for (int i = 0; i < expired; i++) {
+            sum = sum.subtract(transactions.valueAt(i).getSum());
+            count -= transactions.valueAt(i).getCount();
+        }
+        transactions.remove(0, expired);
+        maxCandidates.remove(0, maxCandidates.upperBound(threshold));
+        minCandidates.remove(0, minCandidates.upperBound(threshold));
+        if (transactions.isEmpty()) {
+            sum = BigDecimal.ZERO;
+            count = 0;
+        }
+    }
+
+    /**
+     * Clears values of all recorded transactions.
+     */
+    @Override
+    public synchronized void clear() {
+        transactions.clear();
+        maxCandidates.clear();
+        minCandidates.clear();
+        sum = BigDecimal.ZERO;
+        count = 0;
+    }
+
+    /**
+     * Returns exact summary of all transactions that happened in the last maxAge.
+     * Runs in amortized constant time O(1).
+     *
+     * @return SummaryStatistics of recorded transactions
+     */
+    @Override
+    public synchronized StatisticsSummary<BigDecimal> getSummary() {
+        expire(nanos(clock.instant()));
+        if (transactions.isEmpty()) {
+            return Stats.ZERO_VALUE;
+        }
+        return new Stats(sum, maxCandidates.valueAt(0), minCandidates.valueAt(0), count);
+    }
+
+    /**
+     * Returns the number of transactions (or groups) currently kept.
+     *
+     * @return number of non-expired entries, as of the last recording or summary
+     */
+    public synchronized int size() {
+        return transactions.size();
+    }
+
+    /**
+     * Returns the number of transactions (or groups) that can be recorded before the cap is reached.
+     *
+     * @return capacity minus the number of non-expired entries
+     */
+    public synchronized int getRemainingCapacity() {
+        expire(nanos(clock.instant()));
+        return capacity - transactions.size();
+    }
+
+    /**
+     * Returns the maximum number of transactions (or groups) kept.
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,36 @@
+package com.n26.stats;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Receives aggregates of buckets dropped by {@link TransactionStatisticsRecorderImpl#tick()}.
+ *
+ * <p>Listener is called by the ticking thread while recording is blocked, so it has to be fast.
+ */
+@FunctionalInterface
+public interface ExpiredBucketListener {
+    /**
+     * Called for every non-empty bucket that expired.
+     *
+     * @param start start of the bucket time frame
+     * @param width width of the bucket time frame
+     * @param stats aggregates of transactions of the bucket
+     */
+    void bucketExpired(Instant start, Duration width, Stats stats);
+
+    /**
+     * Returns a listener that passes expired buckets to this listener and then to the other one.
+     *
+     * @param other the listener to call after this one
+     * @return composed listener
+     */
+    default ExpiredBucketListener andThen(ExpiredBucketListener other) {
+        Objects.requireNonNull(other, "other");
+        return (start, width, stats) -> {
+            bucketExpired(start, width, stats);
+            other.bucketExpired(start, width, stats);
+        };
+    }
+}
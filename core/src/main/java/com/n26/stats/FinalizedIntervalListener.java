@@ -0,0 +1,30 @@
+package com.n26.stats;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Receives aggregates of bucket intervals finalized by the event-time watermark of
+ * {@link TransactionStatisticsRecorderImpl}, each exactly once and in order of time.
+ *
+ * <p>Listener is called by the ticking thread while recording is blocked, so it has to be fast.
+ */
+@FunctionalInterface
+public interface FinalizedIntervalListener {
+    /**
+     * Called for every non-empty bucket interval that was finalized.
+     *
+     * @param start start of the interval
+     * @param width width of the interval
+     * @param stats final aggregates of transactions of the interval
+     */
+    void intervalFinalized(Instant start, Duration width, Stats stats);
+
+    /**
+     * Called after all intervals ending at or before a given point in time were passed to the listener.
+     *
+     * @param finalizedUpTo end of the latest finalized interval
+     */
+    default void watermarkAdvanced(Instant finalizedUpTo) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.n26.stats;
+
+import javax.annotation.Nullable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Finalized intervals of the recent past, for consumers reading each closed interval once.
+ *
+ * <p>Intervals are kept for a given retention, measured from the start of the latest finalized interval, together
+ * with the watermark: all intervals ending at or before it are final, so a consumer can resume reading from the
+ * watermark it last saw.
+ */
+public class FinalizedIntervals implements FinalizedIntervalListener {
+    private final Duration retention;
+    private final Deque<StatisticsHistory.Rollup> intervals = new ArrayDeque<>(); // ordered by time
+    private Instant watermark; // null until the first interval was finalized
+
+    /**
+     * Constructs FinalizedIntervals keeping intervals for a given period of time.
+     *
+     * @param retention how long intervals should be kept
+     * @throws IllegalArgumentException on non-positive retention
+     */
+    public FinalizedIntervals(Duration retention) {
+        Objects.requireNonNull(retention, "retention");
+        if (retention.isNegative() || retention.isZero()) {
+            throw new IllegalArgumentException("Illegal retention: non-positive value");
+        }
+        this.retention = retention;
+    }
+
+    @Override
+    public synchronized void intervalFinalized(Instant start, Duration width, Stats stats) {
+        intervals.addLast(new StatisticsHistory.Rollup(start, width, stats));
+        Instant horizon = start.minus(retention);
+        while (intervals.getFirst().getStart().isBefore(horizon)) {
+            intervals.removeFirst();
+        }
+    }
+
+    @Override
+    public synchronized void watermarkAdvanced(Instant finalizedUpTo) {
+        watermark = finalizedUpTo;
+    }
+
+    /**
+     * Returns the end of the latest finalized interval.
+     *
+     * @return watermark, null if no interval was finalized yet
+     */
+    @Nullable
+    public synchronized Instant getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Returns retained non-empty intervals starting at or after <tt>from</tt> and ending at or before <tt>to</tt>,
+     * ordered by time. Runs in time linear to the number of retained intervals.
+     *
+     * @param from the start of time range (inclusive)
+     * @param to   the end of time range (inclusive), e.g. the watermark
+     * @return list of intervals
+     */
+    public synchronized List<StatisticsHistory.Rollup> getIntervals(Instant from, Instant to) {
+        List<StatisticsHistory.Rollup> result = new ArrayList<>();
+        for (StatisticsHistory.Rollup interval : intervals) {
+            if (interval.getEnd().isAfter(to)) {
+                break;
+            }
+            if (!interval.getStart().isBefore(from)) {
+                result.add(interval);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,47 @@
+package com.n26.stats;
+
+import java.math.BigDecimal;
+
+/**
+ * Summary of the time window together with the number of transactions in each bin of a {@link HistogramBins}
+ * layout, merged in a single pass over buckets.
+ */
+public final class Histogram {
+    private final HistogramBins bins;
+    private final long[] counts;
+    private final Stats summary;
+
+    Histogram(HistogramBins bins, long[] counts, Stats summary) {
+        this.bins = bins;
+        this.counts = counts;
+        this.summary = summary;
+    }
+
+    /**
+     * Returns the layout of bins.
+     *
+     * @return bins
+     */
+    public HistogramBins getBins() {
+        return bins;
+    }
+
+    /**
+     * Returns the number of transactions of a given bin.
+     *
+     * @param bin index of the bin
+     * @return number of transactions
+     */
+    public long getCount(int bin) {
+        return counts[bin];
+    }
+
+    /**
+     * Returns the summary of transactions of the same pass.
+     *
+     * @return summary of transactions
+     */
+    public StatisticsSummary<BigDecimal> getSummary() {
+        return summary;
+    }
+}
@@ -0,0 +1,104 @@
+package com.n26.stats;
+
+import javax.annotation.Nullable;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Objects;
+
+/**
+ * Fixed log-scale layout of amount histogram bins. The first bin holds amounts below <tt>lowest</tt>, each following
+ * bin is <tt>growth</tt> times as wide as the previous one and the last bin holds all remaining amounts:
+ *
+ * <pre>
+ * (-∞, lowest), [lowest, lowest * growth), [lowest * growth, lowest * growth²), ..., [lowest * growth^(bins-2), ∞)
+ * </pre>
+ * <p>
+ * Bounds are rounded to {@link #PRECISION} significant digits, so that they compare without allocating.
+ */
+public final class HistogramBins {
+    public static final int PRECISION = 12;
+
+    // upperBounds[i] is the exclusive upper bound of bin i and the lower bound of bin i + 1
+    private final BigDecimal[] upperBounds;
+
+    /**
+     * Constructs layout of a given number of bins.
+     *
+     * @param lowest upper bound of the first bin, positive
+     * @param growth ratio of widths of consecutive bins, greater than 1
+     * @param bins   number of bins, at least 2
+     * @throws IllegalArgumentException on non-positive lowest, growth not greater than 1 or less than 2 bins
+     */
+    public HistogramBins(BigDecimal lowest, BigDecimal growth, int bins) {
+        Objects.requireNonNull(lowest, "lowest");
+        Objects.requireNonNull(growth, "growth");
+        if (lowest.signum() <= 0) {
+            throw new IllegalArgumentException("Illegal lowest: non-positive value");
+        }
+        if (growth.compareTo(BigDecimal.ONE) <= 0) {
+            throw new IllegalArgumentException("Illegal growth: " + growth);
+        }
+        if (bins < 2) {
+            throw new IllegalArgumentException("Illegal bins: " + bins);
+        }
+        MathContext mc = new MathContext(PRECISION);
+        upperBounds = new BigDecimal[bins - 1];
+        BigDecimal bound = lowest.round(mc);
+        for (int i = 0; i < upperBounds.length; i++) {
+            upperBounds[i] = bound.stripTrailingZeros();
+            bound = bound.multiply(growth, mc);
+        }
+    }
+
+    /**
+     * Returns the number of bins.
+     *
+     * @return number of bins
+     */
+    public int size() {
+        return upperBounds.length + 1;
+    }
+
+    /**
+     * Returns the bin of a given amount. Runs in time logarithmic to the number of bins, without allocating.
+     *
+     * @param amount the value of transaction
+     * @return index of the bin
+     */
+    public int binOf(BigDecimal amount) {
+        int low = 0;
+        int high = upperBounds.length;
+        while (low < high) { // first bin whose upper bound is above the amount
+            int middle = (low + high) >>> 1;
+            if (upperBounds[middle].compareTo(amount) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the inclusive lower bound of a given bin.
+     *
+     * @param bin index of the bin
+     * @return lower bound, null for the first bin
+     */
+    @Nullable
+    public BigDecimal getLowerBound(int bin) {
+        return bin > 0 ? upperBounds[bin - 1] : null;
+    }
+
+    /**
+     * Returns the exclusive upper bound of a given bin.
+     *
+     * @param bin index of the bin
+     * @return upper bound, null for the last bin
+     */
+    @Nullable
+    public BigDecimal getUpperBound(int bin) {
+        return bin < upperBounds.length ? upperBounds[bin] : null;
+    }
+}
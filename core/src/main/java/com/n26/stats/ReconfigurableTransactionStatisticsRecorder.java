@@ -0,0 +1,233 @@
+package com.n26.stats;
+
+import javax.annotation.Nullable;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * <tt>TransactionStatisticsRecorder</tt> whose time window and resolution can be changed at runtime without losing
+ * recorded transactions.
+ *
+ * <p>All calls are delegated to a {@link TransactionStatisticsRecorderImpl} instance. On reconfiguration a new
+ * instance is created and every bucket of the old one is resampled into the new grid (merged into the bucket
+ * containing its middle point), except for intervals already finalized by the watermark. Handover happens under an exclusive lock, so transactions recorded concurrently
+ * are neither lost nor counted twice.
+ */
+public class ReconfigurableTransactionStatisticsRecorder
+        implements TransactionStatisticsRecorder, BucketRing, Tickable {
+    private final BiFunction<Duration, Integer, TransactionStatisticsRecorderImpl> factory;
+
+    // locking between reconfigure (single) and all the other methods (many)
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    private volatile Delegate delegate; // atomic reference
+    private volatile Runnable gridChangeListener; // null unless driven by a TickDriver
+
+    {
+        ReadWriteLock rwLock = new ReentrantReadWriteLock();
+        readLock = rwLock.readLock();
+        writeLock = rwLock.writeLock();
+    }
+
+    /**
+     * Constructs ReconfigurableTransactionStatisticsRecorder of given initial time window and resolution.
+     *
+     * @param maxTransactionAge maximum age of a transaction
+     * @param resolution        number of buckets
+     * @param factory           creates recorder of a given time window and resolution
+     * @throws IllegalArgumentException on non-positive maxTransactionAge or resolution
+     */
+    public ReconfigurableTransactionStatisticsRecorder(
+            Duration maxTransactionAge, int resolution,
+            BiFunction<Duration, Integer, TransactionStatisticsRecorderImpl> factory) {
+        this.factory = Objects.requireNonNull(factory, "factory");
+        delegate = new Delegate(maxTransactionAge, resolution, factory.apply(maxTransactionAge, resolution));
+    }
+
+    /**
+     * Replaces underlying recorder with a new one of a given time window and resolution,
+     * moving all recorded transactions to it. The grid change listener, if any, is notified afterwards.
+     * Runs in constant time O(1) (linear to the number of buckets but constant to the number of recorded transactions).
+     *
+     * @param maxTransactionAge maximum age of a transaction
+     * @param resolution        number of buckets
+     * @throws IllegalArgumentException on non-positive maxTransactionAge or resolution
+     */
+    public void reconfigure(Duration maxTransactionAge, int resolution) {
+        try {
+            writeLock.lock();
+            TransactionStatisticsRecorderImpl next = factory.apply(maxTransactionAge, resolution);
+            TransactionStatisticsRecorderImpl prev = delegate.recorder;
+            next.continueWatermark(prev); // before resampling, so that finalized intervals are not changed
+            long halfWidthNanos = prev.getBucketWidth().toNanos() / 2;
+            prev.forEachBucket((start, stats) -> next.resampleBucket(stats, start.plusNanos(halfWidthNanos)));
+            delegate = new Delegate(maxTransactionAge, resolution, next);
+        } finally {
+            writeLock.unlock();
+        }
+        Runnable listener = gridChangeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Returns current time window.
+     *
+     * @return maximum age of a transaction
+     */
+    public Duration getMaxTransactionAge() {
+        return delegate.maxTransactionAge;
+    }
+
+    /**
+     * Returns current resolution.
+     *
+     * @return number of buckets
+     */
+    public int getResolution() {
+        return delegate.resolution;
+    }
+
+    @Override
+    public boolean recordTransaction(BigDecimal amount, Instant timestamp) {
+        try {
+            readLock.lock();
+            return delegate.recorder.recordTransaction(amount, timestamp);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean recordTransaction(BigDecimal amount, Instant timestamp, long weight) {
+        try {
+            readLock.lock();
+            return delegate.recorder.recordTransaction(amount, timestamp, weight);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int recordTransactions(BigDecimal[] amounts, Instant[] timestamps, long[] weights, int offset, int length) {
+        try {
+            readLock.lock();
+            return delegate.recorder.recordTransactions(amounts, timestamps, weights, offset, length);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean recordStats(Stats stats, Instant timestamp) {
+        try {
+            readLock.lock();
+            return delegate.recorder.recordStats(stats, timestamp);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void forEachBucket(BiConsumer<Instant, Stats> consumer) {
+        try {
+            readLock.lock();
+            delegate.recorder.forEachBucket(consumer);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Duration getBucketWidth() {
+        return delegate.recorder.getBucketWidth();
+    }
+
+    @Override
+    public boolean replaceBucket(Instant timestamp, @Nullable Stats stats) {
+        try {
+            readLock.lock();
+            return delegate.recorder.replaceBucket(timestamp, stats);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            readLock.lock();
+            delegate.recorder.clear();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public StatisticsSummary<BigDecimal> getSummary() {
+        try {
+            readLock.lock();
+            return delegate.recorder.getSummary();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the summary of the time window together with its histogram.
+     *
+     * @return histogram of recorded transactions
+     * @throws IllegalStateException if histograms are not enabled
+     * @see TransactionStatisticsRecorderImpl#getHistogram()
+     */
+    public Histogram getHistogram() {
+        try {
+            readLock.lock();
+            return delegate.recorder.getHistogram();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Instant getNextTick() {
+        return delegate.recorder.getNextTick();
+    }
+
+    @Override
+    public void setGridChangeListener(@Nullable Runnable listener) {
+        gridChangeListener = listener;
+    }
+
+    @Override
+    public int tick() {
+        try {
+            readLock.lock();
+            return delegate.recorder.tick();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private static class Delegate {
+        final Duration maxTransactionAge;
+        final int resolution;
+        final TransactionStatisticsRecorderImpl recorder;
+
+        Delegate(Duration maxTransactionAge, int resolution, TransactionStatisticsRecorderImpl recorder) {
+            this.maxTransactionAge = maxTransactionAge;
+            this.resolution = resolution;
+            this.recorder = recorder;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.n26.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event emitted for slow {@link TransactionStatisticsRecorder#recordTransaction} calls.
+ *
+ * <p>Only calls exceeding the configured threshold are committed, which makes this event cheap enough to stay
+ * enabled in production. The threshold can be tuned with JFR settings, e.g.
+ * {@code jfr configure com.n26.stats.RecordTransaction#threshold=100us}.
+ */
+@Name("com.n26.stats.RecordTransaction")
+@Label("Record Transaction")
+@Description("Slow transaction recording")
+@Category({"Transactions Statistics", "Recorder"})
+@Threshold("1 ms")
+@StackTrace(false)
+class RecordTransactionEvent extends jdk.jfr.Event {
+    @Label("Accepted")
+    @Description("Whether transaction happened within the time window")
+    boolean accepted;
+
+    @Label("Retries")
+    @Description("Number of failed optimistic update attempts")
+    int retries;
+}
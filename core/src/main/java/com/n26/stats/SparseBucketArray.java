@@ -0,0 +1,149 @@
+package com.n26.stats;
+
+import javax.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Array of buckets that only materializes blocks of 64 buckets once they get written, with an occupancy bitmap
+ * (one word per block) to find non-empty buckets without visiting empty ones.
+ *
+ * <p>Memory is proportional to the number of blocks holding non-empty buckets, and scanning a range costs one
+ * bitmap word per 64 buckets plus one read per occupied bucket. Bits are set by writers after the bucket got
+ * updated and only cleared by {@link #remove}, which must not run concurrently with writers, so a set bit means
+ * the bucket is possibly non-empty and a cleared bit means it is empty.
+ */
+final class SparseBucketArray {
+    private static final int BLOCK_SHIFT = 6;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    private final int length;
+    private final AtomicReferenceArray<AtomicReferenceArray<Stats>> blocks;
+    private final AtomicLongArray occupancy;
+
+    SparseBucketArray(int length) {
+        this.length = length;
+        int blockCount = (length + BLOCK_MASK) >>> BLOCK_SHIFT;
+        blocks = new AtomicReferenceArray<>(blockCount);
+        occupancy = new AtomicLongArray(blockCount);
+    }
+
+    int length() {
+        return length;
+    }
+
+    @Nullable
+    Stats get(int i) {
+        AtomicReferenceArray<Stats> block = blocks.get(i >>> BLOCK_SHIFT);
+        return block != null ? block.get(i & BLOCK_MASK) : null;
+    }
+
+    boolean compareAndSet(int i, @Nullable Stats expect, Stats update) {
+        if (block(i).compareAndSet(i & BLOCK_MASK, expect, update)) {
+            markOccupied(i);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets bucket with an ordered write, for single writer use.
+     */
+    void lazySet(int i, Stats value) {
+        block(i).lazySet(i & BLOCK_MASK, value);
+        markOccupied(i);
+    }
+
+    /**
+     * Sets bucket, leaving its occupancy bit set if the bucket gets emptied.
+     */
+    void set(int i, @Nullable Stats value) {
+        if (value == null) {
+            AtomicReferenceArray<Stats> block = blocks.get(i >>> BLOCK_SHIFT);
+            if (block != null) {
+                block.set(i & BLOCK_MASK, null);
+            }
+            return;
+        }
+        block(i).set(i & BLOCK_MASK, value);
+        markOccupied(i);
+    }
+
+    /**
+     * Empties bucket, releasing its block if it was the last occupied bucket of it.
+     * Must not be called concurrently with any writes.
+     *
+     * @return removed bucket, null if empty
+     */
+    @Nullable
+    Stats remove(int i) {
+        int b = i >>> BLOCK_SHIFT;
+        long word = occupancy.get(b);
+        long bit = 1L << (i & BLOCK_MASK);
+        if ((word & bit) == 0) {
+            return null;
+        }
+        Stats stats = blocks.get(b).getAndSet(i & BLOCK_MASK, null);
+        word &= ~bit;
+        occupancy.set(b, word);
+        if (word == 0) {
+            blocks.set(b, null);
+        }
+        return stats;
+    }
+
+    /**
+     * Returns index of the first possibly non-empty bucket in a given range.
+     *
+     * @param from index to start from (inclusive)
+     * @param to   end of the range (exclusive)
+     * @return index of the bucket, or <tt>to</tt> if there is none
+     */
+    int nextOccupied(int from, int to) {
+        if (from >= to) {
+            return to;
+        }
+        int b = from >>> BLOCK_SHIFT;
+        long word = occupancy.get(b) & (-1L << (from & BLOCK_MASK));
+        while (word == 0) {
+            if (++b << BLOCK_SHIFT >= to) {
+                return to;
+            }
+            word = occupancy.get(b);
+        }
+        return Math.min((b << BLOCK_SHIFT) + Long.numberOfTrailingZeros(word), to);
+    }
+
+    /**
+     * Returns the number of materialized blocks.
+     */
+    int blockCount() {
+        int count = 0;
+        for (int b = 0; b < blocks.length(); b++) {
+            if (blocks.get(b) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void markOccupied(int i) {
+        int b = i >>> BLOCK_SHIFT;
+        long bit = 1L << (i & BLOCK_MASK);
+        if ((occupancy.get(b) & bit) == 0) {
+            occupancy.accumulateAndGet(b, bit, (word, mask) -> word | mask);
+        }
+    }
+
+    private AtomicReferenceArray<Stats> block(int i) {
+        int b = i >>> BLOCK_SHIFT;
+        AtomicReferenceArray<Stats> block = blocks.get(b);
+        if (block == null) {
+            AtomicReferenceArray<Stats> created = new AtomicReferenceArray<>(BLOCK_SIZE);
+            block = blocks.compareAndSet(b, null, created) ? created : blocks.get(b);
+        }
+        return block;
+    }
+}
@@ -0,0 +1,178 @@
+package com.n26.stats;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Historical statistics rolled up from expired buckets into fixed size rings of per-minute and per-hour slots.
+ *
+ * <p>All the memory is allocated upfront: a ring of <tt>n</tt> slots of width <tt>w</tt> keeps the aggregates of the
+ * last <tt>n * w</tt>. Every slot remembers which time frame it holds, so slots left behind by a longer break
+ * in traffic are never mistaken for recent ones.
+ *
+ * <p>Rollups are written by a single thread (the one calling {@link #bucketExpired}) and can be read concurrently.
+ */
+public class StatisticsHistory implements ExpiredBucketListener {
+    /**
+     * Rollup granularity.
+     */
+    public enum Granularity {
+        MINUTE(Duration.ofMinutes(1)),
+        HOUR(Duration.ofHours(1));
+
+        private final Duration width;
+
+        Granularity(Duration width) {
+            this.width = width;
+        }
+
+        public Duration getWidth() {
+            return width;
+        }
+    }
+
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    private final Ring minutes;
+    private final Ring hours;
+
+    /**
+     * Constructs StatisticsHistory keeping rollups for a given period of time.
+     *
+     * @param retention how long the history should be kept (rounded up to full hours)
+     * @throws IllegalArgumentException on non-positive retention
+     */
+    public StatisticsHistory(Duration retention) {
+        Objects.requireNonNull(retention, "retention");
+        if (retention.isNegative() || retention.isZero()) {
+            throw new IllegalArgumentException("Illegal retention: non-positive value");
+        }
+        int hourSlots = Math.toIntExact((retention.toMinutes() + 59) / 60);
+        hours = new Ring(Granularity.HOUR, hourSlots);
+        minutes = new Ring(Granularity.MINUTE, Math.multiplyExact(hourSlots, 60));
+    }
+
+    /**
+     * Rolls up aggregates of an expired bucket into the slots containing its start.
+     *
+     * @param start start of the bucket time frame
+     * @param width width of the bucket time frame
+     * @param stats aggregates of transactions of the bucket
+     */
+    @Override
+    public void bucketExpired(Instant start, Duration width, Stats stats) {
+        minutes.add(start, stats);
+        hours.add(start, stats);
+    }
+
+    /**
+     * Returns non-empty rollups of a given granularity, that started in a given time range, ordered by time.
+     * Runs in time linear to the number of slots in the range (bounded by the ring size).
+     *
+     * @param from        the start of time range (inclusive)
+     * @param to          the end of time range (exclusive)
+     * @param granularity width of rollups
+     * @return list of rollups
+     */
+    public List<Rollup> getRollups(Instant from, Instant to, Granularity granularity) {
+        return (granularity == Granularity.HOUR ? hours : minutes).get(from, to);
+    }
+
+    /**
+     * Aggregates of transactions of a single time frame.
+     */
+    public static class Rollup {
+        private final Instant start;
+        private final Duration width;
+        private final Stats stats;
+
+        public Rollup(Instant start, Duration width, Stats stats) {
+            this.start = start;
+            this.width = width;
+            this.stats = stats;
+        }
+
+        public Instant getStart() {
+            return start;
+        }
+
+        public Instant getEnd() {
+            return start.plus(width);
+        }
+
+        public Stats getStats() {
+            return stats;
+        }
+    }
+
+    private static class Ring {
+        final Duration width;
+        final long widthSeconds;
+        // slot key (time frame number since epoch) and its aggregates,
+        // key is invalidated while the slot is reused for a new time frame
+        final AtomicLongArray keys;
+        final AtomicReferenceArray<Stats> slots;
+        volatile long latestKey = EMPTY_KEY;
+
+        Ring(Granularity granularity, int size) {
+            width = granularity.getWidth();
+            widthSeconds = width.getSeconds();
+            keys = new AtomicLongArray(size);
+            slots = new AtomicReferenceArray<>(size);
+            for (int i = 0; i < size; i++) {
+                keys.set(i, EMPTY_KEY);
+            }
+        }
+
+        static long ceilDiv(long x, long y) {
+            return -Math.floorDiv(-x, y);
+        }
+
+        int index(long key) {
+            return (int) Math.floorMod(key, (long) keys.length());
+        }
+
+        void add(Instant start, Stats stats) {
+            long key = Math.floorDiv(start.getEpochSecond(), widthSeconds);
+            int i = index(key);
+            long current = keys.get(i);
+            if (current == key) {
+                slots.set(i, slots.get(i).merge(stats));
+            } else if (current < key) {
+                keys.set(i, EMPTY_KEY);
+                slots.set(i, stats);
+                keys.set(i, key);
+                latestKey = Math.max(latestKey, key);
+            }
+            // older than the ring, dropped
+        }
+
+        List<Rollup> get(Instant from, Instant to) {
+            List<Rollup> rollups = new ArrayList<>();
+            if (latestKey == EMPTY_KEY) {
+                return rollups;
+            }
+            // keys of slots starting in [from, to), limited to the ring contents
+            long fromKey = ceilDiv(from.getEpochSecond() + (from.getNano() > 0 ? 1 : 0), widthSeconds);
+            long toKey = Math.min(ceilDiv(to.getEpochSecond() + (to.getNano() > 0 ? 1 : 0), widthSeconds) - 1,
+                    latestKey);
+            fromKey = Math.max(fromKey, toKey - keys.length() + 1);
+            for (long key = fromKey; key <= toKey; key++) {
+                int i = index(key);
+                if (keys.get(i) != key) {
+                    continue;
+                }
+                Stats stats = slots.get(i);
+                if (keys.get(i) == key) { // not reused in the meantime
+                    rollups.add(new Rollup(Instant.ofEpochSecond(key * widthSeconds), width, stats));
+                }
+            }
+            return rollups;
+        }
+    }
+}
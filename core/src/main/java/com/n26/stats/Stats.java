@@ -0,0 +1,148 @@
+package com.n26.stats;
+
+import javax.annotation.Nullable;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Immutable aggregates (sum, max, min and count) of a group of transactions.
+ */
+public final class Stats implements StatisticsSummary<BigDecimal> {
+    public static final Stats ZERO_VALUE = new Stats(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0);
+
+    final BigDecimal sum;
+    final BigDecimal max;
+    final BigDecimal min;
+    final long count;
+    final long generation; // of the recorder that held these stats in a bucket, see TransactionStatisticsRecorderImpl
+    // counts of histogram bins, shared by successive versions of a bucket and updated in place, null unless enabled
+    @Nullable
+    final AtomicLongArray histogram;
+
+    public Stats(BigDecimal sum, BigDecimal max, BigDecimal min, long count) {
+        this(sum, max, min, count, 0);
+    }
+
+    Stats(BigDecimal sum, BigDecimal max, BigDecimal min, long count, long generation) {
+        this(sum, max, min, count, generation, null);
+    }
+
+    Stats(BigDecimal sum, BigDecimal max, BigDecimal min, long count, long generation,
+          @Nullable AtomicLongArray histogram) {
+        this.sum = sum;
+        this.max = max;
+        this.min = min;
+        this.count = count;
+        this.generation = generation;
+        this.histogram = histogram;
+    }
+
+    /**
+     * Returns aggregates of a single transaction.
+     *
+     * @param amount the value of transaction
+     * @return stats of a single transaction
+     */
+    public static Stats of(BigDecimal amount) {
+        return new Stats(amount, amount, amount, 1);
+    }
+
+    /**
+     * Updates stats with given values, returns new Stats instance of the same generation and histogram.
+     *
+     * @param stats old stats values (non-null)
+     * @param sum   total sum of values (of the other stats)
+     * @param max   the single highest value (of the other stats)
+     * @param min   the single lowest value (of the other stats)
+     * @param count the total number of transactions (of the other stats)
+     * @return new stats instance with updated values.
+     * @throws ArithmeticException if numeric overflow occurs
+     */
+    static Stats merge(Stats stats, BigDecimal sum, BigDecimal max, BigDecimal min, long count) {
+        return merge(stats, sum, max, min, count, stats.histogram);
+    }
+
+    private static Stats merge(Stats stats, BigDecimal sum, BigDecimal max, BigDecimal min, long count,
+                               @Nullable AtomicLongArray histogram) {
+        return new Stats(
+                stats.sum.add(sum),
+                stats.max.compareTo(max) > 0 ? stats.max : max,
+                stats.min.compareTo(min) < 0 ? stats.min : min,
+                Math.addExact(stats.count, count),
+                stats.generation,
+                histogram
+        );
+    }
+
+    /**
+     * Merges stats with the other stats, returns new Stats instance. Histograms of buckets are not merged.
+     *
+     * @param other the other stats, may be null
+     * @return new stats instance with merged values (or this instance if other is null).
+     * @throws ArithmeticException if numeric overflow occurs
+     */
+    public Stats merge(Stats other) {
+        return other == null ? this : merge(this, other.sum, other.max, other.min, other.count, null);
+    }
+
+    /**
+     * Returns stats of the same values and generation without histogram, e.g. to pass a bucket outside of its
+     * recorder.
+     */
+    Stats withoutHistogram() {
+        return histogram == null ? this : new Stats(sum, max, min, count, generation);
+    }
+
+    /**
+     * Returns a copy of counts of histogram bins of a bucket, e.g. to pass it to another recorder.
+     *
+     * @return counts of bins, null unless the recorder of the bucket counts them
+     */
+    @Nullable
+    public long[] getBinCounts() {
+        if (histogram == null) {
+            return null;
+        }
+        long[] binCounts = new long[histogram.length()];
+        for (int b = 0; b < binCounts.length; b++) {
+            binCounts[b] = histogram.get(b);
+        }
+        return binCounts;
+    }
+
+    /**
+     * Returns stats of the same values with given counts of histogram bins, e.g. of a bucket of another recorder.
+     *
+     * @param binCounts counts of bins, null if none
+     * @return new stats instance
+     */
+    public Stats withBinCounts(@Nullable long[] binCounts) {
+        return new Stats(sum, max, min, count, generation, binCounts != null ? new AtomicLongArray(binCounts) : null);
+    }
+
+    @Override
+    public BigDecimal getSum() {
+        return sum;
+    }
+
+    @Override
+    public BigDecimal getMax() {
+        return max;
+    }
+
+    @Override
+    public BigDecimal getMin() {
+        return min;
+    }
+
+    @Override
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Stats{sum=%s; max=%s; min=%s; count=%d}", sum, max, min, count);
+    }
+}
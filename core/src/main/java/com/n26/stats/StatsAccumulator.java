@@ -0,0 +1,100 @@
+package com.n26.stats;
+
+import javax.annotation.Nullable;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Mutable counterpart of {@link Stats}, merging many buckets without allocating intermediate Stats instances.
+ * Optionally also sums histograms of buckets. Not thread safe.
+ */
+final class StatsAccumulator {
+    private BigDecimal sum = BigDecimal.ZERO;
+    private BigDecimal max;
+    private BigDecimal min;
+    private long count;
+    private int buckets;
+    private final long[] histogram; // null unless histograms are merged
+
+    StatsAccumulator() {
+        histogram = null;
+    }
+
+    /**
+     * Constructs accumulator summing histograms of a given number of bins as well.
+     */
+    StatsAccumulator(int bins) {
+        histogram = new long[bins];
+    }
+
+    /**
+     * Merges stats of a bucket.
+     *
+     * @throws ArithmeticException if numeric overflow occurs
+     */
+    void add(Stats stats) {
+        sum = sum.add(stats.sum);
+        max = max == null || stats.max.compareTo(max) > 0 ? stats.max : max;
+        min = min == null || stats.min.compareTo(min) < 0 ? stats.min : min;
+        count = Math.addExact(count, stats.count);
+        buckets++;
+        AtomicLongArray bucketHistogram = stats.histogram;
+        if (histogram != null && bucketHistogram != null && bucketHistogram.length() == histogram.length) {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += bucketHistogram.get(i);
+            }
+        }
+    }
+
+    /**
+     * Merges another accumulator into this one.
+     *
+     * @return this accumulator
+     * @throws ArithmeticException if numeric overflow occurs
+     */
+    StatsAccumulator combine(StatsAccumulator other) {
+        if (other.buckets > 0) {
+            sum = sum.add(other.sum);
+            max = max == null || other.max.compareTo(max) > 0 ? other.max : max;
+            min = min == null || other.min.compareTo(min) < 0 ? other.min : min;
+            count = Math.addExact(count, other.count);
+            buckets += other.buckets;
+            if (histogram != null && other.histogram != null) {
+                for (int i = 0; i < histogram.length; i++) {
+                    histogram[i] += other.histogram[i];
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of merged buckets.
+     */
+    int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Returns the number of merged transactions.
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns merged counts of histogram bins, null unless histograms are merged.
+     */
+    @Nullable
+    long[] getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Returns merged stats, {@link Stats#ZERO_VALUE} if no bucket was merged.
+     */
+    Stats toStats() {
+        return buckets > 0 ? new Stats(sum, max, min, count) : Stats.ZERO_VALUE;
+    }
+}
@@ -0,0 +1,30 @@
+package com.n26.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted for every {@link TransactionStatisticsRecorder#getSummary} call, and for every
+ * {@link TransactionStatisticsRecorderImpl#getHistogram} call.
+ */
+@Name("com.n26.stats.Summary")
+@Label("Summary")
+@Description("Computation of summary statistics")
+@Category({"Transactions Statistics", "Recorder"})
+@StackTrace(false)
+class SummaryEvent extends jdk.jfr.Event {
+    @Label("Buckets")
+    @Description("Number of scanned non-empty buckets")
+    int buckets;
+
+    @Label("Transactions")
+    @Description("Number of summarized transactions")
+    long count;
+
+    @Label("Retries")
+    @Description("Number of snapshot reads invalidated by concurrent updates")
+    int retries;
+}
@@ -0,0 +1,61 @@
+package com.n26.stats;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * <tt>TransactionStatisticsRecorder</tt> recording every transaction into two recorders, e.g. of different engines,
+ * and summarizing the first one.
+ */
+public class TeeTransactionStatisticsRecorder implements TransactionStatisticsRecorder {
+    private final TransactionStatisticsRecorder primary;
+    private final TransactionStatisticsRecorder secondary;
+
+    /**
+     * Constructs TeeTransactionStatisticsRecorder.
+     *
+     * @param primary   recorder whose results and summary are returned
+     * @param secondary recorder additionally receiving all transactions
+     */
+    public TeeTransactionStatisticsRecorder(TransactionStatisticsRecorder primary,
+                                            TransactionStatisticsRecorder secondary) {
+        this.primary = Objects.requireNonNull(primary, "primary");
+        this.secondary = Objects.requireNonNull(secondary, "secondary");
+    }
+
+    @Override
+    public boolean recordTransaction(BigDecimal amount, Instant timestamp) {
+        secondary.recordTransaction(amount, timestamp);
+        return primary.recordTransaction(amount, timestamp);
+    }
+
+    @Override
+    public boolean recordTransaction(BigDecimal amount, Instant timestamp, long weight) {
+        secondary.recordTransaction(amount, timestamp, weight);
+        return primary.recordTransaction(amount, timestamp, weight);
+    }
+
+    @Override
+    public int recordTransactions(BigDecimal[] amounts, Instant[] timestamps, long[] weights, int offset, int length) {
+        secondary.recordTransactions(amounts, timestamps, weights, offset, length);
+        return primary.recordTransactions(amounts, timestamps, weights, offset, length);
+    }
+
+    @Override
+    public boolean recordStats(Stats stats, Instant timestamp) {
+        secondary.recordStats(stats, timestamp);
+        return primary.recordStats(stats, timestamp);
+    }
+
+    @Override
+    public void clear() {
+        secondary.clear();
+        primary.clear();
+    }
+
+    @Override
+    public StatisticsSummary<BigDecimal> getSummary() {
+        return primary.getSummary();
+    }
+}
@@ -0,0 +1,118 @@
+package com.n26.stats;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives {@link Tickable} on its own high priority thread.
+ *
+ * <p>Unlike fixed rate scheduling, the driver does not count periods itself. It sleeps until the tick time
+ * announced by the {@code Tickable} and lets it rotate as many periods as have elapsed. Late wake-ups (GC pauses,
+ * overloaded CPU) are therefore caught up in a single step and never shift the time grid. The delay of each tick
+ * relative to its ideal time (jitter) is exported through {@link TickDriverMXBean}. When the grid of the
+ * {@code Tickable} changes, the driver is woken up to wait for the new next tick instead.
+ */
+public class TickDriver implements TickDriverMXBean, AutoCloseable {
+    private final Tickable tickable;
+    private final Clock clock;
+    private final Thread thread;
+
+    private volatile boolean running;
+
+    // written by driver thread only
+    private volatile long ticks;
+    private volatile long rotatedPeriods;
+    private volatile long lastJitterNanos;
+    private volatile long maxJitterNanos;
+    private volatile long totalJitterNanos;
+
+    /**
+     * Constructs TickDriver of a given {@code Tickable}.
+     *
+     * @param tickable component to drive
+     * @param clock    {@code Clock} instance the tick times are based on
+     */
+    public TickDriver(Tickable tickable, Clock clock) {
+        this.tickable = Objects.requireNonNull(tickable, "tickable");
+        this.clock = Objects.requireNonNull(clock, "clock");
+        thread = new Thread(this::run, "tick-driver");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+    }
+
+    /**
+     * Starts driver thread.
+     */
+    public void start() {
+        running = true;
+        tickable.setGridChangeListener(this::wakeUp);
+        thread.start();
+    }
+
+    /**
+     * Makes driver thread read the time of the next tick again, e.g. after the grid of the {@code Tickable} changed.
+     */
+    public void wakeUp() {
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Stops driver thread and waits for it to terminate.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        tickable.setGridChangeListener(null);
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    private void run() {
+        while (running) {
+            Instant deadline = tickable.getNextTick();
+            long waitNanos = Duration.between(clock.instant(), deadline).toNanos();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(this, waitNanos);
+                continue;
+            }
+            int periods = tickable.tick();
+            if (periods > 0) {
+                long jitter = -waitNanos;
+                lastJitterNanos = jitter;
+                maxJitterNanos = Math.max(maxJitterNanos, jitter);
+                totalJitterNanos += jitter;
+                rotatedPeriods += periods;
+                ticks++;
+            }
+        }
+    }
+
+    @Override
+    public long getTicks() {
+        return ticks;
+    }
+
+    @Override
+    public long getRotatedPeriods() {
+        return rotatedPeriods;
+    }
+
+    @Override
+    public long getLastJitterNanos() {
+        return lastJitterNanos;
+    }
+
+    @Override
+    public long getMaxJitterNanos() {
+        return maxJitterNanos;
+    }
+
+    @Override
+    public double getMeanJitterNanos() {
+        long n = ticks;
+        return n > 0 ? (double) totalJitterNanos / n : 0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.n26.stats;
+
+/**
+ * Management interface of {@link TickDriver}.
+ */
+public interface TickDriverMXBean {
+    /**
+     * Returns the number of performed ticks.
+     *
+     * @return number of ticks
+     */
+    long getTicks();
+
+    /**
+     * Returns the number of rotated periods, greater than the number of ticks if the driver had to catch up.
+     *
+     * @return number of rotated periods
+     */
+    long getRotatedPeriods();
+
+    /**
+     * Returns the delay of the last tick relative to its ideal time.
+     *
+     * @return last jitter in nanoseconds
+     */
+    long getLastJitterNanos();
+
+    /**
+     * Returns the highest delay of a tick relative to its ideal time.
+     *
+     * @return max jitter in nanoseconds
+     */
+    long getMaxJitterNanos();
+
+    /**
+     * Returns the average delay of ticks relative to their ideal time.
+     *
+     * @return mean jitter in nanoseconds
+     */
+    double getMeanJitterNanos();
+}
@@ -0,0 +1,30 @@
+package com.n26.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event emitted for every bucket rotation ({@code tick}).
+ *
+ * <p>Event duration covers the whole rotation, including time spent waiting for the write lock.
+ */
+@Name("com.n26.stats.Tick")
+@Label("Tick")
+@Description("Rotation of recorder buckets")
+@Category({"Transactions Statistics", "Recorder"})
+@StackTrace(false)
+class TickEvent extends jdk.jfr.Event {
+    @Label("Lag")
+    @Description("Delay between scheduled and actual tick time")
+    @Timespan(Timespan.NANOSECONDS)
+    long lag;
+
+    @Label("Reset Time")
+    @Description("Time spent resetting expired buckets")
+    @Timespan(Timespan.NANOSECONDS)
+    long resetTime;
+}
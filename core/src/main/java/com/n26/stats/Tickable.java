@@ -0,0 +1,33 @@
+package com.n26.stats;
+
+import javax.annotation.Nullable;
+
+import java.time.Instant;
+
+/**
+ * Component that has to be advanced on a fixed time grid, e.g. by {@link TickDriver}.
+ */
+public interface Tickable {
+    /**
+     * Returns the point in time at which the next tick is due.
+     *
+     * @return time of the next tick
+     */
+    Instant getNextTick();
+
+    /**
+     * Advances by all periods that elapsed since the previous tick.
+     *
+     * @return number of elapsed periods (0 if the tick came too early)
+     */
+    int tick();
+
+    /**
+     * Registers a callback run whenever the time grid changes, so that a driver waiting for the previous next tick
+     * reschedules. Components of a fixed grid ignore it.
+     *
+     * @param listener callback, null to remove it
+     */
+    default void setGridChangeListener(@Nullable Runnable listener) {
+    }
+}
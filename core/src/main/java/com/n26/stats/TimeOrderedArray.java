@@ -0,0 +1,118 @@
+package com.n26.stats;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of values ordered by their epoch nanos timestamps, with cheap removal from the front.
+ * Insertion shifts later elements, so it is cheap for values arriving (nearly) in timestamp order.
+ * Not thread safe.
+ *
+ * @param <T> type of values
+ */
+final class TimeOrderedArray<T> {
+    private long[] times;
+    private Object[] values;
+    private int head;
+    private int tail;
+
+    TimeOrderedArray(int initialCapacity) {
+        times = new long[initialCapacity];
+        values = new Object[initialCapacity];
+    }
+
+    int size() {
+        return tail - head;
+    }
+
+    boolean isEmpty() {
+        return tail == head;
+    }
+
+    long timeAt(int index) {
+        return times[head + index];
+    }
+
+    @SuppressWarnings("unchecked")
+    T valueAt(int index) {
+        return (T) values[head + index];
+    }
+
+    /**
+     * Returns index of the first element with timestamp greater than a given one, size if none.
+     * Runs in O(log(n)) time.
+     */
+    int upperBound(long time) {
+        int lo = head;
+        int hi = tail;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] <= time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - head;
+    }
+
+    /**
+     * Inserts a value at a given index, which must keep timestamps ordered.
+     */
+    void insert(int index, long time, T value) {
+        if (tail == times.length) {
+            makeRoom();
+        }
+        int i = head + index;
+        System.arraycopy(times, i, times, i + 1, tail - i);
+        System.arraycopy(values, i, values, i + 1, tail - i);
+        times[i] = time;
+        values[i] = value;
+        tail++;
+    }
+
+    /**
+     * Removes elements in a given range of indices.
+     */
+    void remove(int from, int to) {
+        int n = to - from;
+        if (n <= 0) {
+            return;
+        }
+        if (from == 0) {
+            Arrays.fill(values, head, head + n, null);
+            head += n;
+        } else {
+            System.arraycopy(times, head + to, times, head + from, tail - head - to);
+            System.arraycopy(values, head + to, values, head + from, tail - head - to);
+            Arrays.fill(values, tail - n, tail, null);
+            tail -= n;
+        }
+        if (head == tail) {
+            head = tail = 0;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(values, head, tail, null);
+        head = tail = 0;
+    }
+
+    private void makeRoom() {
+        int size = size();
+        if (head > 0 && size <= times.length / 2) {
+            // compact in place, amortized by at least as many removals from the front
+            System.arraycopy(times, head, times, 0, size);
+            System.arraycopy(values, head, values, 0, size);
+            Arrays.fill(values, size, tail, null);
+        } else {
+            long[] newTimes = new long[Math.max(2 * times.length, 16)];
+            Object[] newValues = new Object[newTimes.length];
+            System.arraycopy(times, head, newTimes, 0, size);
+            System.arraycopy(values, head, newValues, 0, size);
+            times = newTimes;
+            values = newValues;
+        }
+        head = 0;
+        tail = size;
+    }
+}
@@ -0,0 +1,104 @@
+package com.n26.stats;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Instant;
+
+public interface TransactionStatisticsRecorder {
+    /**
+     * Records transaction of a given amount that happened at a given timestamp.
+     *
+     * @param amount    the value of transaction
+     * @param timestamp the time of transaction
+     * @return true if transaction happened in the last X seconds, false otherwise
+     */
+    boolean recordTransaction(BigDecimal amount, Instant timestamp);
+
+    /**
+     * Records transaction that stands for <tt>weight</tt> transactions of a given amount, e.g. one sampled out of
+     * <tt>weight</tt> transactions, so that sum and count remain unbiased estimates. By default recorded as a group of
+     * <tt>weight</tt> transactions of the amount, in one {@link #recordStats(Stats, Instant)} call.
+     *
+     * @param amount    the value of transaction
+     * @param timestamp the time of transaction
+     * @param weight    the number of transactions represented, positive
+     * @return true if transaction happened in the last X seconds, false otherwise
+     * @throws IllegalArgumentException if weight is non-positive
+     */
+    default boolean recordTransaction(BigDecimal amount, Instant timestamp, long weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Illegal weight: " + weight);
+        }
+        if (weight == 1) {
+            return recordTransaction(amount, timestamp);
+        }
+        return recordStats(new Stats(amount.multiply(BigDecimal.valueOf(weight)), amount, amount, weight), timestamp);
+    }
+
+    /**
+     * Records a batch of transactions, given as parallel arrays of amounts, timestamps and weights.
+     *
+     * @param amounts    the values of transactions
+     * @param timestamps the times of transactions
+     * @param weights    the numbers of transactions represented, positive
+     * @param offset     index of the first transaction of the batch
+     * @param length     number of transactions in the batch
+     * @return number of transactions that happened in the last X seconds
+     * @throws BatchRecordingException if recording a transaction fails, transactions preceding it are recorded
+     */
+    default int recordTransactions(BigDecimal[] amounts, Instant[] timestamps, long[] weights,
+                                   int offset, int length) {
+        int accepted = 0;
+        for (int i = offset; i < offset + length; i++) {
+            try {
+                if (recordTransaction(amounts[i], timestamps[i], weights[i])) {
+                    accepted++;
+                }
+            } catch (RuntimeException e) {
+                throw new BatchRecordingException(i - offset, accepted, e);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Records aggregates of a group of transactions that happened at about a given timestamp, e.g. pre-aggregated by a
+     * client. Recorders that keep aggregates record them as they are. By default min and max are recorded as single
+     * transactions and the rest of the group as their average with the weight of the rest, so that only the sum may
+     * differ, by rounding of the average to 16 significant digits. Recorders must override either this method or
+     * {@link #recordTransaction(BigDecimal, Instant, long)}, whose defaults are defined in terms of each other.
+     *
+     * @param stats     aggregates of transactions, count positive
+     * @param timestamp the time of transactions
+     * @return true if transactions happened in the last X seconds, false otherwise
+     * @throws IllegalArgumentException if count is non-positive
+     */
+    default boolean recordStats(Stats stats, Instant timestamp) {
+        long count = stats.getCount();
+        if (count < 1) {
+            throw new IllegalArgumentException("Illegal count: " + count);
+        }
+        if (count == 1) {
+            return recordTransaction(stats.getSum(), timestamp);
+        }
+        boolean accepted = recordTransaction(stats.getMax(), timestamp);
+        recordTransaction(stats.getMin(), timestamp);
+        if (count > 2) {
+            BigDecimal rest = stats.getSum().subtract(stats.getMax()).subtract(stats.getMin());
+            recordTransaction(rest.divide(BigDecimal.valueOf(count - 2), MathContext.DECIMAL64), timestamp, count - 2);
+        }
+        return accepted;
+    }
+
+    /**
+     * Clears values of all recorded transactions.
+     */
+    void clear();
+
+    /**
+     * Returns a summary of all transactions that happened in the X seconds
+     *
+     * @return SummaryStatistics of recorded transactions
+     */
+    StatisticsSummary<BigDecimal> getSummary();
+}
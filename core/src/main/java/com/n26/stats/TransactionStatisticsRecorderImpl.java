@@ -0,0 +1,1078 @@
+package com.n26.stats;
+
+import javax.annotation.Nullable;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread safe implementation of <tt>TransactionStatisticsRecorder</tt> interface with constant time and space
+ * implementation of specified methods.
+ *
+ * <p>It works by splitting time window into smaller "buckets", each of width <tt>Δt/C</tt>,
+ * holding aggregates of transactions that happened in this small time frame.
+ * These "buckets" remain fixed in time, they don't "slide". The effect of
+ * "sliding" is simulated by periodically appending new buckets and removing <i>expired</i>
+ * ones.
+ *
+ * <p>Whenever a new transaction is being registered we update aggregates of
+ * specific bucket, that fulfills the following criteria:
+ *
+ * <pre>
+ * index * Δt/C &lt;= T - t' &lt; (index + 1) * Δt/C
+ * </pre>
+ * <p>
+ * Where:
+ * <ul>
+ * <li><tt>index</tt> - bucket index (starting from 0)</li>
+ * <li><tt>C</tt> - number of buckets ("resolution")</li>
+ * <li><tt>T</tt> - current timestamp <i>quantized</i></li>
+ * <li><tt>t'</tt> - transaction timestamp</li>
+ * <li><tt>Δt</tt> - time window width</li>
+ * </ul>
+ *
+ * <p>To tolerate clock skew of transaction sources the ring may hold additional buckets on both of its ends:
+ * "future" buckets, accepting transactions up to <tt>futureSkew</tt> ahead of the current time, that become part of
+ * the window as time advances, and "late" buckets, retaining transactions up to <tt>allowedLateness</tt> after they
+ * left the window. Neither of them is included in the summary.
+ *
+ * <p>Optionally the ring can be split into shards, each with its own copy of every bucket. Recording threads
+ * update the shard they are mapped to (by thread id), which spreads concurrent writes over separate cache lines
+ * at the cost of merging all shards on read. All shards share a single time grid, so they always rotate together.
+ *
+ * <p>If all transactions are recorded by a single thread (e.g. a consumer of an ingestion queue), the recorder can
+ * be switched to single writer mode, in which buckets are updated with plain ordered writes instead of
+ * compare-and-set loops.
+ *
+ * <p>Buckets are tagged with the generation of the recorder they were written in. Clearing bumps the generation, so
+ * that buckets of older generations are treated as empty and replaced on the next update, instead of emptying every
+ * bucket of the ring.
+ *
+ * <p>Buckets are stored sparsely, in blocks of 64 that are only allocated once written to and released once all
+ * their buckets expired, with an occupancy bitmap used to skip empty buckets on summary. Memory and summary cost
+ * are thus proportional to the number of occupied buckets rather than to the resolution, which makes high
+ * resolutions (e.g. 1ms buckets) practical for sparse traffic.
+ *
+ * <p>Summary reads buckets one by one while they are being updated, so it may combine buckets as of different points
+ * in time. Optionally, the recorder can provide snapshot reads instead: writers count their updates (in a striped
+ * counter, without locking) and a summary is retried when the count changed while buckets were being read, which
+ * makes it consistent with a single point in time. After a few invalidated attempts summary falls back to blocking
+ * writers for the time of a single read.
+ *
+ * <p>Optionally every bucket also counts its transactions in fixed log-scale bins of amounts. Bin counts live in an
+ * array allocated with the bucket and shared by its successive versions, incremented in place after the bucket was
+ * updated, so recording allocates nothing more, while a histogram of the window is merged in the same pass as the
+ * summary. Bin counts of a bucket being updated concurrently may trail its aggregates.
+ *
+ * <p>Optionally the recorder tracks an event-time watermark: the latest recorded timestamp minus
+ * <tt>allowedLateness</tt>. On tick, buckets that ended at or before the watermark, as well as the ones about to
+ * expire, are finalized: their aggregates are passed once to a listener and transactions that would fall into them
+ * are rejected from then on, so downstream consumers never see a finalized interval change.
+ */
+public class TransactionStatisticsRecorderImpl implements TransactionStatisticsRecorder, BucketRing, Tickable {
+    private static final int MAX_SNAPSHOT_ATTEMPTS = 4;
+
+    // shard-major: buckets of shard s at [s * ringSize, (s + 1) * ringSize)
+    private final SparseBucketArray buckets;
+    private final int ringSize;
+    private final int shards;
+    private final boolean singleWriter;
+    private final Clock clock;
+    private final Duration tickDelta;
+    private final long tickDeltaNanos;
+    private final int futureBuckets;
+    private final int windowBuckets;
+    private final long allowedLatenessNanos;
+
+    // locking between tick/clear (single) and recordTransaction/getSummary (many)
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    private volatile State state; // atomic reference
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder modifications; // null unless snapshot reads are enabled
+    // updates between publishing a bucket and counting its bins, null unless snapshot reads of histograms are enabled
+    private final LongAdder histogramUpdates;
+    private final ForkJoinPool summaryPool; // null unless parallel summary is enabled
+    private final int parallelThreshold;
+    private final HistogramBins bins; // null unless histograms are enabled
+    // epoch nanos of the latest recorded transaction, null unless watermarks are enabled
+    private final AtomicLong maxEventTime;
+    private volatile ExpiredBucketListener expiredBucketListener;
+    private volatile FinalizedIntervalListener finalizedIntervalListener;
+
+    {
+        ReadWriteLock rwLock = new ReentrantReadWriteLock();
+        readLock = rwLock.readLock();
+        writeLock = rwLock.writeLock();
+    }
+
+    /**
+     * Constructs TransactionStatisticsRecorderImpl of given time window (equals to maxTransactionAge)
+     * and resolution (number of buckets).
+     *
+     * @param maxTransactionAge maximum age of a transaction
+     * @param resolution        number of buckets (affects precision of summary statistics)
+     * @param clock             custom {@code Clock} instance
+     * @throws IllegalArgumentException on non-positive maxTransactionAge or resolution
+     */
+    public TransactionStatisticsRecorderImpl(Duration maxTransactionAge, int resolution, Clock clock) {
+        this(builder(maxTransactionAge, resolution).clock(clock));
+    }
+
+    private TransactionStatisticsRecorderImpl(Builder builder) {
+        Duration maxTransactionAge = Objects.requireNonNull(builder.maxTransactionAge, "maxTransactionAge");
+        Duration futureSkew = Objects.requireNonNull(builder.futureSkew, "futureSkew");
+        Duration allowedLateness = Objects.requireNonNull(builder.allowedLateness, "allowedLateness");
+        int resolution = builder.resolution;
+        if (maxTransactionAge.isNegative() || maxTransactionAge.isZero()) {
+            throw new IllegalArgumentException("Illegal maxTransactionAge: non-positive value");
+        }
+        if (resolution < 1) {
+            throw new IllegalArgumentException("Illegal resolution: " + resolution);
+        }
+        if (futureSkew.isNegative()) {
+            throw new IllegalArgumentException("Illegal futureSkew: negative value");
+        }
+        if (allowedLateness.isNegative()) {
+            throw new IllegalArgumentException("Illegal allowedLateness: negative value");
+        }
+        if (builder.shards < 1) {
+            throw new IllegalArgumentException("Illegal shards: " + builder.shards);
+        }
+        if (builder.parallelThreshold < 1) {
+            throw new IllegalArgumentException("Illegal parallelThreshold: " + builder.parallelThreshold);
+        }
+        clock = Objects.requireNonNull(builder.clock, "clock");
+        tickDelta = maxTransactionAge.dividedBy(resolution);
+        tickDeltaNanos = tickDelta.toNanos();
+        if (tickDeltaNanos == 0) {
+            throw new IllegalArgumentException("Illegal resolution: bucket width below 1ns");
+        }
+        futureBuckets = Math.toIntExact(ceilDiv(futureSkew.toNanos(), tickDeltaNanos));
+        windowBuckets = resolution;
+        allowedLatenessNanos = allowedLateness.toNanos();
+        int lateBuckets = Math.toIntExact(ceilDiv(allowedLateness.toNanos(), tickDeltaNanos));
+        ringSize = Math.addExact(futureBuckets, Math.addExact(resolution, lateBuckets));
+        shards = builder.shards;
+        singleWriter = builder.singleWriter;
+        modifications = builder.snapshotReads ? new LongAdder() : null;
+        summaryPool = builder.summaryPool;
+        parallelThreshold = builder.parallelThreshold;
+        bins = builder.bins;
+        histogramUpdates = modifications != null && bins != null ? new LongAdder() : null;
+        maxEventTime = builder.watermark ? new AtomicLong(Long.MIN_VALUE) : null;
+        buckets = new SparseBucketArray(Math.multiplyExact(ringSize, shards));
+        Instant timeZero = clock.instant().plus(tickDelta);
+        state = new State(timeZero, 0, maxEventTime != null ?
+                timeZero.minusNanos((ringSize - futureBuckets) * tickDeltaNanos) : Instant.MIN);
+    }
+
+    /**
+     * Returns builder of TransactionStatisticsRecorderImpl of given time window (equals to maxTransactionAge)
+     * and resolution (number of buckets).
+     *
+     * @param maxTransactionAge maximum age of a transaction
+     * @param resolution        number of buckets (affects precision of summary statistics)
+     * @return new builder
+     */
+    public static Builder builder(Duration maxTransactionAge, int resolution) {
+        return new Builder(maxTransactionAge, resolution);
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    /**
+     * Returns the point in time at which the current bucket ends (and next tick is due).
+     * Consecutive values lie on a fixed grid anchored at construction time.
+     *
+     * @return the time of the next tick
+     */
+    @Override
+    public Instant getNextTick() {
+        return state.timeZero;
+    }
+
+    /**
+     * Rotates buckets by the number of bucket periods elapsed since the last tick, expiring the oldest ones.
+     * Tick does not re-anchor to the time of the call, so a late tick catches up (rotates several buckets at once)
+     * without shifting bucket boundaries, while an early tick does nothing.
+     *
+     * @return number of bucket periods rotated
+     */
+    @Override
+    public int tick() {
+        TickEvent event = new TickEvent();
+        event.begin();
+        long periods;
+        try {
+            writeLock.lock();
+            State s = state;
+            Instant now = clock.instant();
+            long lag = Duration.between(s.timeZero, now).toNanos();
+            if (lag < 0) {
+                return 0;
+            }
+            periods = lag / tickDeltaNanos + 1;
+            long resetStart = System.nanoTime();
+            Instant finalizedUpTo = maxEventTime != null ? finalizeIntervals(s, periods) : s.finalizedUpTo;
+            int length = ringSize;
+            ExpiredBucketListener listener = expiredBucketListener;
+            int i = s.readIndex;
+            long g = generation.get();
+            Instant start = s.timeZero.minusNanos((length - futureBuckets) * tickDeltaNanos);
+            for (long p = Math.min(periods, length); p > 0; p--) {
+                i = (i > 0 ? i : length) - 1;
+                Stats expired = removeBucket(i, g);
+                if (expired != null && listener != null) {
+                    listener.bucketExpired(start, tickDelta, expired.withoutHistogram());
+                }
+                start = start.plus(tickDelta);
+            }
+            int readIndex = (int) Math.floorMod(s.readIndex - periods, (long) length);
+            event.resetTime = System.nanoTime() - resetStart;
+            event.lag = lag;
+            state = new State(s.timeZero.plusNanos(periods * tickDeltaNanos), readIndex, finalizedUpTo);
+        } finally {
+            writeLock.unlock();
+        }
+        event.commit();
+        return (int) Math.min(periods, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Passes buckets that ended at or before the watermark, or expire on rotation by a given number of periods, to
+     * the finalized interval listener, oldest first. Must be called with the write lock held, before rotating.
+     *
+     * @return the end of the latest finalized interval
+     */
+    private Instant finalizeIntervals(State s, long periods) {
+        int length = ringSize;
+        // buckets at positions >= bound are final, starting with the ones to expire
+        long bound = length - Math.min(periods, length);
+        long max = maxEventTime.get();
+        if (max != Long.MIN_VALUE) {
+            long watermark = max - allowedLatenessNanos;
+            bound = Math.min(bound, Math.max(futureBuckets + ceilDiv(epochNanos(s.timeZero) - watermark,
+                    tickDeltaNanos), 0));
+        }
+        long finalizedBound = Math.min(futureBuckets + Duration.between(s.finalizedUpTo, s.timeZero).toNanos()
+                / tickDeltaNanos, length);
+        if (bound >= finalizedBound) {
+            return s.finalizedUpTo;
+        }
+        FinalizedIntervalListener listener = finalizedIntervalListener;
+        long g = generation.get();
+        for (long offset = finalizedBound - 1; offset >= bound; offset--) {
+            Stats stats = getBucket((int) ((s.readIndex + offset) % length), g);
+            if (stats != null && listener != null) {
+                Instant start = s.timeZero.minusNanos((offset - futureBuckets + 1) * tickDeltaNanos);
+                listener.intervalFinalized(start, tickDelta, stats.withoutHistogram());
+            }
+        }
+        Instant finalizedUpTo = s.timeZero.minusNanos((bound - futureBuckets) * tickDeltaNanos);
+        if (listener != null) {
+            listener.watermarkAdvanced(finalizedUpTo);
+        }
+        return finalizedUpTo;
+    }
+
+    /**
+     * Continues the watermark of a recorder this one replaces: intervals of this recorder that start before the end of
+     * the latest interval finalized by the other one are considered finalized as well. Must be called before
+     * the recorder is used.
+     *
+     * @param other the replaced recorder
+     */
+    void continueWatermark(TransactionStatisticsRecorderImpl other) {
+        if (maxEventTime == null || other.maxEventTime == null) {
+            return;
+        }
+        maxEventTime.set(other.maxEventTime.get());
+        State s = state;
+        long behind = Duration.between(other.state.finalizedUpTo, s.timeZero).toNanos();
+        Instant finalizedUpTo = s.timeZero.minusNanos(Math.floorDiv(behind, tickDeltaNanos) * tickDeltaNanos);
+        if (finalizedUpTo.isAfter(s.finalizedUpTo)) {
+            state = new State(s.timeZero, s.readIndex, finalizedUpTo);
+        }
+    }
+
+    /**
+     * Advances the watermark to a given timestamp of a recorded transaction, if later.
+     */
+    private void observe(Instant timestamp) {
+        if (maxEventTime == null) {
+            return;
+        }
+        long t = epochNanos(timestamp);
+        long current;
+        while (t > (current = maxEventTime.get()) && !maxEventTime.compareAndSet(current, t)) {
+            // retry until this or a later timestamp is the maximum
+        }
+    }
+
+    private static long epochNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    /**
+     * Returns position of the bucket for a given timestamp, relative to the future-most bucket.
+     * Must be called with the read lock held (while state cannot change).
+     *
+     * @param timestamp the point in time
+     * @return bucket position for a given timestamp, -1 if out of bounds or finalized
+     */
+    private int getOffset(Instant timestamp) {
+        if (timestamp.isBefore(state.finalizedUpTo)) {
+            return -1;
+        }
+        long l;
+        try {
+            l = Math.floorDiv(Duration.between(timestamp, state.timeZero).toNanos(), tickDeltaNanos);
+        } catch (ArithmeticException e) {
+            return -1;
+        }
+        l += futureBuckets;
+        if (l < 0 || l >= ringSize) {
+            return -1;
+        }
+        return (int) l;
+    }
+
+    /**
+     * Records transaction of a given amount that happened at a given timestamp.
+     * Runs in constant time O(1).
+     *
+     * @param amount    the value of transaction
+     * @param timestamp the time of transaction
+     * @return true if transaction happened between now+futureSkew and now-maxTransactionAge (and after the latest
+     * finalized interval, with watermarks enabled), false otherwise
+     * @throws ArithmeticException if numeric overflow occurs
+     */
+    @Override
+    public boolean recordTransaction(BigDecimal amount, Instant timestamp) {
+        return recordTransaction(amount, timestamp, 1);
+    }
+
+    /**
+     * Records transaction that stands for <tt>weight</tt> transactions of a given amount: its bucket sum grows by
+     * amount * weight and its count by weight, while min and max only see the amount itself.
+     * Runs in constant time O(1).
+     *
+     * @param amount    the value of transaction
+     * @param timestamp the time of transaction
+     * @param weight    the number of transactions represented, positive
+     * @return true if transaction happened between now+futureSkew and now-maxTransactionAge, false otherwise
+     * @throws IllegalArgumentException if weight is non-positive
+     * @throws ArithmeticException      if numeric overflow occurs
+     */
+    @Override
+    public boolean recordTransaction(BigDecimal amount, Instant timestamp, long weight) {
+        // time bounds are checked (roughly) by buckets bounds check (less precise though)
+        //
+        //        Instant now = clock.instant();
+        //        if (timestamp.isAfter(now) || timestamp.isBefore(now.minus(maxTransactionAge))) {
+        //            return false;
+        //        }
+
+        if (weight < 1) {
+            throw new IllegalArgumentException("Illegal weight: " + weight);
+        }
+        int bin = bins != null ? bins.binOf(amount) : -1;
+        RecordTransactionEvent event = new RecordTransactionEvent();
+        event.begin();
+        try {
+            readLock.lock();
+            int offset = getOffset(timestamp);
+            if (offset < 0) {
+                return false;
+            }
+            event.retries = merge(offset, weighted(amount, weight), amount, amount, weight, bin, null);
+            observe(timestamp);
+            event.accepted = offset < futureBuckets + windowBuckets;
+            return event.accepted;
+        } finally {
+            readLock.unlock();
+            event.commit();
+        }
+    }
+
+    /**
+     * Records a batch of transactions, acquiring the lock only once.
+     * Runs in time linear to the batch length.
+     *
+     * @param amounts    the values of transactions
+     * @param timestamps the times of transactions
+     * @param weights    the numbers of transactions represented, positive
+     * @param offset     index of the first transaction of the batch
+     * @param length     number of transactions in the batch
+     * @return number of transactions that happened between now+futureSkew and now-maxTransactionAge
+     * @throws BatchRecordingException if a weight is non-positive or numeric overflow occurs, transactions preceding
+     *                                 the failing one are recorded
+     */
+    @Override
+    public int recordTransactions(BigDecimal[] amounts, Instant[] timestamps, long[] weights, int offset, int length) {
+        int accepted = 0;
+        try {
+            readLock.lock();
+            for (int i = offset; i < offset + length; i++) {
+                try {
+                    if (weights[i] < 1) {
+                        throw new IllegalArgumentException("Illegal weight: " + weights[i]);
+                    }
+                    int bucketOffset = getOffset(timestamps[i]);
+                    if (bucketOffset >= 0) {
+                        merge(bucketOffset, weighted(amounts[i], weights[i]), amounts[i], amounts[i], weights[i],
+                                bins != null ? bins.binOf(amounts[i]) : -1, null);
+                        observe(timestamps[i]);
+                        if (bucketOffset < futureBuckets + windowBuckets) {
+                            accepted++;
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    throw new BatchRecordingException(i - offset, accepted, e);
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return accepted;
+    }
+
+    /**
+     * Records aggregates of a group of transactions that happened at a given timestamp, e.g. a bucket
+     * of another recorder. Bin counts of the group are added as well if both use the same number of bins, a group of
+     * a single transaction without them is counted in its bin.
+     * Runs in constant time O(1).
+     *
+     * @param stats     aggregates of transactions
+     * @param timestamp the time of transactions
+     * @return true if transactions happened between now+futureSkew and now-maxTransactionAge, false otherwise
+     * @throws ArithmeticException if numeric overflow occurs
+     */
+    @Override
+    public boolean recordStats(Stats stats, Instant timestamp) {
+        return recordStats(stats, timestamp, true);
+    }
+
+    /**
+     * Records a bucket of a recorder this one replaces, at its middle point, which does not advance the watermark.
+     *
+     * @param stats     aggregates of the bucket
+     * @param timestamp middle point of the bucket
+     */
+    void resampleBucket(Stats stats, Instant timestamp) {
+        recordStats(stats, timestamp, false);
+    }
+
+    private boolean recordStats(Stats stats, Instant timestamp, boolean observe) {
+        int bin = bins != null && stats.histogram == null && stats.count == 1 ? bins.binOf(stats.sum) : -1;
+        try {
+            readLock.lock();
+            int offset = getOffset(timestamp);
+            if (offset < 0) {
+                return false;
+            }
+            merge(offset, stats.sum, stats.max, stats.min, stats.count, bin, stats.histogram);
+            if (observe) {
+                observe(timestamp);
+            }
+            return offset < futureBuckets + windowBuckets;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private static BigDecimal weighted(BigDecimal amount, long weight) {
+        return weight == 1 ? amount : amount.multiply(BigDecimal.valueOf(weight));
+    }
+
+    /**
+     * Merges values into the bucket at a given position, then counts them in its histogram (if enabled): <tt>count</tt>
+     * in a given bin and/or given counts of all bins. Snapshot reads of histograms overlapping the update are retried,
+     * as bins are counted after the bucket is published. Must be called with the read lock held.
+     *
+     * @param bin       bin of the values, -1 if none
+     * @param binCounts counts of bins to add, null if none
+     * @return number of failed optimistic update attempts
+     */
+    private int merge(int offset, BigDecimal sum, BigDecimal max, BigDecimal min, long count,
+                      int bin, @Nullable AtomicLongArray binCounts) {
+        if (histogramUpdates != null) {
+            histogramUpdates.increment(); // bins lag behind the published bucket until counted
+        }
+        try {
+            return mergeBucket(offset, sum, max, min, count, bin, binCounts);
+        } finally {
+            merged();
+        }
+    }
+
+    private int mergeBucket(int offset, BigDecimal sum, BigDecimal max, BigDecimal min, long count,
+                            int bin, @Nullable AtomicLongArray binCounts) {
+        int i = shard() * ringSize + (state.readIndex + offset) % ringSize;
+        long g = generation.get();
+        if (singleWriter) {
+            Stats prev = buckets.get(i);
+            Stats next = prev == null || prev.generation != g ?
+                    new Stats(sum, max, min, count, g, newHistogram()) :
+                    Stats.merge(prev, sum, max, min, count);
+            buckets.lazySet(i, next);
+            countBins(next.histogram, bin, count, binCounts);
+            return 0;
+        }
+        Stats prev, next;
+        int retries = -1;
+        do { // optimistic update loop
+            retries++;
+            prev = buckets.get(i);
+            if (prev != null && prev.generation > g) {
+                // cleared since the generation was read, and a later writer already reset the bucket:
+                // record into the current generation rather than resurrecting the cleared one
+                g = generation.get();
+            }
+            next = prev == null || prev.generation != g ? // lazily reset bucket of a cleared generation
+                    new Stats(sum, max, min, count, g, newHistogram()) :
+                    Stats.merge(prev, sum, max, min, count);
+        } while (!buckets.compareAndSet(i, prev, next));
+        countBins(next.histogram, bin, count, binCounts);
+        return retries;
+    }
+
+    /**
+     * Returns empty bin counts for a new bucket, null unless histograms are enabled.
+     */
+    @Nullable
+    private AtomicLongArray newHistogram() {
+        return bins != null ? new AtomicLongArray(bins.size()) : null;
+    }
+
+    /**
+     * Adds <tt>count</tt> to a given bin and given counts of all bins (if of the same length) to a histogram.
+     */
+    private static void countBins(@Nullable AtomicLongArray histogram, int bin, long count,
+                                  @Nullable AtomicLongArray binCounts) {
+        if (histogram == null) {
+            return;
+        }
+        if (bin >= 0) {
+            histogram.getAndAdd(bin, count);
+        }
+        if (binCounts != null && binCounts.length() == histogram.length()) {
+            for (int b = 0; b < histogram.length(); b++) {
+                histogram.getAndAdd(b, binCounts.get(b));
+            }
+        }
+    }
+
+    /**
+     * Invalidates concurrent snapshot reads, called after every update of buckets.
+     */
+    private void modified() {
+        if (modifications != null) {
+            modifications.increment();
+        }
+    }
+
+    /**
+     * Invalidates concurrent snapshot reads after a merge, once bins of the bucket are counted (or it failed).
+     */
+    private void merged() {
+        modified();
+        if (histogramUpdates != null) {
+            histogramUpdates.decrement();
+        }
+    }
+
+    /**
+     * Returns true if a snapshot read may see a bucket whose bins are not counted yet.
+     */
+    private boolean histogramUpdating(boolean histogram) {
+        return histogram && histogramUpdates != null && histogramUpdates.sum() != 0;
+    }
+
+    /**
+     * Returns shard of the current thread.
+     */
+    private int shard() {
+        if (shards == 1) {
+            return 0;
+        }
+        long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L; // Fibonacci hashing
+        return (int) ((h >>> 32) % shards);
+    }
+
+    /**
+     * Returns bucket at a given index merged across all shards.
+     *
+     * @param g current generation
+     * @return merged bucket, null if empty
+     */
+    private Stats getBucket(int i, long g) {
+        Stats stats = current(buckets.get(i), g);
+        for (int shard = 1; shard < shards; shard++) {
+            Stats other = current(buckets.get(shard * ringSize + i), g);
+            stats = stats == null ? other : mergeShard(stats, other);
+        }
+        return stats;
+    }
+
+    /**
+     * Merges buckets of the same position in two shards, summing their histograms into new bin counts.
+     */
+    private Stats mergeShard(Stats stats, @Nullable Stats other) {
+        if (other == null) {
+            return stats;
+        }
+        AtomicLongArray histogram = newHistogram();
+        countBins(histogram, -1, 0, stats.histogram);
+        countBins(histogram, -1, 0, other.histogram);
+        Stats merged = stats.merge(other);
+        return new Stats(merged.sum, merged.max, merged.min, merged.count, merged.generation, histogram);
+    }
+
+    /**
+     * Returns given bucket unless it belongs to another (cleared) generation.
+     */
+    @Nullable
+    private static Stats current(@Nullable Stats stats, long g) {
+        return stats != null && stats.generation == g ? stats : null;
+    }
+
+    /**
+     * Empties bucket at a given index in all shards. Must be called with the write lock held.
+     *
+     * @param g current generation
+     * @return removed bucket merged across all shards, null if empty
+     */
+    private Stats removeBucket(int i, long g) {
+        Stats stats = current(buckets.remove(i), g);
+        for (int shard = 1; shard < shards; shard++) {
+            Stats other = current(buckets.remove(shard * ringSize + i), g);
+            stats = stats == null ? other : mergeShard(stats, other);
+        }
+        return stats;
+    }
+
+    /**
+     * Passes every non-empty bucket (including future and late ones) to a given consumer,
+     * together with the start of its time frame. Buckets carry their histograms, if enabled.
+     * Runs in constant time O(1) (linear to the number of buckets but constant to the number of recorded transactions).
+     *
+     * @param consumer bucket consumer
+     */
+    @Override
+    public void forEachBucket(BiConsumer<Instant, Stats> consumer) {
+        try {
+            readLock.lock();
+            State s = state;
+            long g = generation.get();
+            for (int offset = 0; offset < ringSize; offset++) {
+                Stats stats = getBucket((s.readIndex + offset) % ringSize, g);
+                if (stats != null) {
+                    long l = offset - futureBuckets;
+                    consumer.accept(s.timeZero.minusNanos((l + 1) * tickDeltaNanos), stats);
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces bucket containing a given timestamp with given aggregates (in all shards), e.g. with a snapshot of a
+     * bucket of another recorder. Not atomic with respect to concurrent recording into sharded buckets.
+     * The histogram of the bucket, if enabled, is replaced with bin counts of given aggregates, or emptied.
+     * Runs in constant time O(1).
+     *
+     * @param timestamp the point in time within the bucket
+     * @param stats     new aggregates of the bucket, null to empty it
+     * @return true if the timestamp is within the ring, false otherwise
+     */
+    @Override
+    public boolean replaceBucket(Instant timestamp, @Nullable Stats stats) {
+        try {
+            readLock.lock();
+            int offset = getOffset(timestamp);
+            if (offset < 0) {
+                return false;
+            }
+            int i = (state.readIndex + offset) % ringSize;
+            if (stats != null) {
+                AtomicLongArray histogram = newHistogram();
+                countBins(histogram, -1, 0, stats.histogram);
+                buckets.set(i, new Stats(stats.sum, stats.max, stats.min, stats.count, generation.get(), histogram));
+            } else {
+                buckets.set(i, null);
+            }
+            for (int shard = 1; shard < shards; shard++) {
+                buckets.set(shard * ringSize + i, null);
+            }
+            modified();
+            return true;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Sets listener receiving buckets that expired (left the ring, including late buckets) on tick.
+     * Buckets removed by {@link #clear()} are not passed to the listener.
+     *
+     * @param listener listener of expired buckets, null to remove
+     */
+    public void setExpiredBucketListener(ExpiredBucketListener listener) {
+        expiredBucketListener = listener;
+    }
+
+    /**
+     * Sets listener receiving buckets finalized by the watermark, if enabled.
+     *
+     * @param listener listener of finalized intervals, null to remove
+     */
+    public void setFinalizedIntervalListener(FinalizedIntervalListener listener) {
+        finalizedIntervalListener = listener;
+    }
+
+    /**
+     * Returns the width of a single bucket (time window divided by resolution).
+     *
+     * @return bucket width
+     */
+    @Override
+    public Duration getBucketWidth() {
+        return tickDelta;
+    }
+
+    /**
+     * Clears values of all recorded transactions by moving to the next generation, without locking.
+     * Transactions recorded concurrently may or may not be cleared.
+     * Runs in constant time O(1).
+     */
+    @Override
+    public void clear() {
+        ClearEvent event = new ClearEvent();
+        event.begin();
+        event.generation = generation.incrementAndGet();
+        modified();
+        event.commit();
+    }
+
+    /**
+     * Returns a summary of all transactions that happened between now and now-maxTransactionAge.
+     * With snapshot reads enabled, the summary is consistent with a single point in time.
+     * Runs in constant time O(1) (linear to the number of occupied buckets but constant to the number of recorded
+     * transactions).
+     *
+     * @return SummaryStatistics of recorded transactions
+     * @throws ArithmeticException if numeric overflow occurs
+     */
+    @Override
+    public StatisticsSummary<BigDecimal> getSummary() {
+        return snapshot(false).toStats();
+    }
+
+    /**
+     * Returns a summary of all transactions that happened between now and now-maxTransactionAge together with their
+     * histogram, merged in the same pass. With snapshot reads enabled, both are consistent with a single point in time.
+     * Runs in constant time O(1) (linear to the number of occupied buckets and bins but constant to the number of
+     * recorded transactions).
+     *
+     * @return histogram of recorded transactions
+     * @throws IllegalStateException if histograms are not enabled
+     * @throws ArithmeticException   if numeric overflow occurs
+     */
+    public Histogram getHistogram() {
+        if (bins == null) {
+            throw new IllegalStateException("Histograms are not enabled");
+        }
+        StatsAccumulator stats = snapshot(true);
+        return new Histogram(bins, stats.getHistogram(), stats.toStats());
+    }
+
+    /**
+     * Returns histogram bins, if enabled.
+     *
+     * @return layout of bins, null unless histograms are enabled
+     */
+    @Nullable
+    public HistogramBins getHistogramBins() {
+        return bins;
+    }
+
+    /**
+     * Merges buckets of the time window, retrying reads invalidated by writers if snapshot reads are enabled.
+     */
+    private StatsAccumulator snapshot(boolean histogram) {
+        SummaryEvent event = new SummaryEvent();
+        event.begin();
+        StatsAccumulator finalStats = null;
+        try {
+            readLock.lock();
+            if (modifications == null) {
+                finalStats = summarize(event, histogram);
+            } else {
+                for (int attempt = 0; attempt < MAX_SNAPSHOT_ATTEMPTS && finalStats == null; attempt++) {
+                    long version = modifications.sum();
+                    StatsAccumulator stats = summarize(event, histogram);
+                    if (modifications.sum() == version && !histogramUpdating(histogram)) {
+                        finalStats = stats;
+                    } else {
+                        event.retries++;
+                    }
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        if (finalStats == null) { // writers kept invalidating snapshots
+            try {
+                writeLock.lock();
+                finalStats = summarize(event, histogram);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        event.count = finalStats.getCount();
+        event.commit();
+
+        return finalStats;
+    }
+
+    /**
+     * Merges buckets of the time window, in all shards, skipping empty blocks. Must be called with a lock held.
+     * Windows larger than the parallel threshold are split into ranges merged in the summary pool, if there is one.
+     */
+    private StatsAccumulator summarize(SummaryEvent event, boolean histogram) {
+        int from = (state.readIndex + futureBuckets) % ringSize;
+        int to = from + windowBuckets; // beyond ringSize if the window wraps around the end of the ring
+        long g = generation.get();
+        boolean parallel = summaryPool != null && (long) windowBuckets * shards > parallelThreshold;
+        StatsAccumulator stats = parallel ?
+                summaryPool.invoke(new SummaryTask(from, to, g, histogram)) :
+                new SummaryTask(from, to, g, histogram).compute();
+        event.buckets += stats.getBuckets();
+        return stats;
+    }
+
+    /**
+     * Merges buckets of a range of ring positions in all shards, splitting ranges larger than the parallel threshold
+     * into forked subtasks. Runs while the summarizing thread holds a lock, so that buckets do not rotate.
+     */
+    private final class SummaryTask extends RecursiveTask<StatsAccumulator> {
+        private final int from;
+        private final int to; // exclusive, up to 2 * ringSize
+        private final long g;
+        private final boolean histogram;
+
+        SummaryTask(int from, int to, long g, boolean histogram) {
+            this.from = from;
+            this.to = to;
+            this.g = g;
+            this.histogram = histogram;
+        }
+
+        @Override
+        protected StatsAccumulator compute() {
+            // a single bucket position is never split, however many shards it spans
+            if (summaryPool != null && to - from > 1 && (long) (to - from) * shards > parallelThreshold) {
+                int middle = (from + to) >>> 1;
+                SummaryTask right = new SummaryTask(middle, to, g, histogram);
+                right.fork();
+                return new SummaryTask(from, middle, g, histogram).compute().combine(right.join());
+            }
+            StatsAccumulator stats = histogram ? new StatsAccumulator(bins.size()) : new StatsAccumulator();
+            for (int shard = 0; shard < shards; shard++) {
+                int base = shard * ringSize;
+                accumulate(base + Math.min(from, ringSize), base + Math.min(to, ringSize), stats);
+                if (to > ringSize) {
+                    accumulate(base + Math.max(from - ringSize, 0), base + to - ringSize, stats);
+                }
+            }
+            return stats;
+        }
+
+        private void accumulate(int from, int to, StatsAccumulator stats) {
+            for (int i = buckets.nextOccupied(from, to); i < to; i = buckets.nextOccupied(i + 1, to)) {
+                Stats bucket = current(buckets.get(i), g);
+                if (bucket != null) {
+                    stats.add(bucket);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of blocks of buckets kept in memory, for monitoring.
+     *
+     * @return number of materialized blocks of 64 buckets
+     */
+    public int getMaterializedBlocks() {
+        return buckets.blockCount();
+    }
+
+    private static class State {
+        final Instant timeZero;
+        final int readIndex;
+        final Instant finalizedUpTo; // transactions before it are rejected, Instant.MIN unless watermarks are enabled
+
+        State(Instant timeZero, int readIndex, Instant finalizedUpTo) {
+            this.timeZero = timeZero;
+            this.readIndex = readIndex;
+            this.finalizedUpTo = finalizedUpTo;
+        }
+    }
+
+    /**
+     * Builder of TransactionStatisticsRecorderImpl.
+     */
+    public static class Builder {
+        private final Duration maxTransactionAge;
+        private final int resolution;
+        private Duration futureSkew = Duration.ZERO;
+        private Duration allowedLateness = Duration.ZERO;
+        private int shards = 1;
+        private boolean singleWriter = false;
+        private boolean snapshotReads = false;
+        private ForkJoinPool summaryPool = null;
+        private int parallelThreshold = Integer.MAX_VALUE;
+        private HistogramBins bins = null;
+        private boolean watermark = false;
+        private Clock clock = Clock.systemUTC();
+
+        private Builder(Duration maxTransactionAge, int resolution) {
+            this.maxTransactionAge = maxTransactionAge;
+            this.resolution = resolution;
+        }
+
+        /**
+         * Sets how far in the future a transaction can happen (0 by default).
+         *
+         * @param futureSkew non-negative duration
+         * @return this builder
+         */
+        public Builder futureSkew(Duration futureSkew) {
+            this.futureSkew = futureSkew;
+            return this;
+        }
+
+        /**
+         * Sets how long a transaction is retained after it left the time window (0 by default).
+         *
+         * @param allowedLateness non-negative duration
+         * @return this builder
+         */
+        public Builder allowedLateness(Duration allowedLateness) {
+            this.allowedLateness = allowedLateness;
+            return this;
+        }
+
+        /**
+         * Sets number of shards (1 by default).
+         *
+         * @param shards positive number of shards
+         * @return this builder
+         */
+        public Builder shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * Enables single writer mode (disabled by default), in which at most one thread may record transactions
+         * at a time. Recording from multiple threads concurrently loses updates in this mode.
+         *
+         * @param singleWriter whether to enable single writer mode
+         * @return this builder
+         */
+        public Builder singleWriter(boolean singleWriter) {
+            this.singleWriter = singleWriter;
+            return this;
+        }
+
+        /**
+         * Enables snapshot reads (disabled by default), making summaries consistent with a single point in time
+         * at the cost of counting every update and retrying summaries invalidated by concurrent updates.
+         *
+         * @param snapshotReads whether to enable snapshot reads
+         * @return this builder
+         */
+        public Builder snapshotReads(boolean snapshotReads) {
+            this.snapshotReads = snapshotReads;
+            return this;
+        }
+
+        /**
+         * Enables parallel summary (disabled by default): windows of more than a given number of buckets (in all
+         * shards) are split into ranges of at most that many buckets, merged in parallel in a given pool.
+         *
+         * @param summaryPool       pool merging bucket ranges
+         * @param parallelThreshold positive number of buckets
+         * @return this builder
+         */
+        public Builder parallelSummary(ForkJoinPool summaryPool, int parallelThreshold) {
+            this.summaryPool = summaryPool;
+            this.parallelThreshold = parallelThreshold;
+            return this;
+        }
+
+        /**
+         * Enables histograms of amounts (disabled by default): every bucket counts its transactions in given bins.
+         *
+         * @param bins layout of bins, null to disable
+         * @return this builder
+         */
+        public Builder histogram(@Nullable HistogramBins bins) {
+            this.bins = bins;
+            return this;
+        }
+
+        /**
+         * Enables the event-time watermark (disabled by default), finalizing buckets once the latest recorded
+         * timestamp minus allowedLateness passed their end.
+         *
+         * @param watermark whether to enable the watermark
+         * @return this builder
+         */
+        public Builder watermark(boolean watermark) {
+            this.watermark = watermark;
+            return this;
+        }
+
+        /**
+         * Sets custom {@code Clock} instance (system UTC clock by default).
+         *
+         * @param clock clock instance
+         * @return this builder
+         */
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Builds TransactionStatisticsRecorderImpl.
+         *
+         * @return new recorder
+         * @throws IllegalArgumentException on non-positive maxTransactionAge, resolution, shards or parallelThreshold,
+         *                                  negative futureSkew or allowedLateness
+         */
+        public TransactionStatisticsRecorderImpl build() {
+            return new TransactionStatisticsRecorderImpl(this);
+        }
+    }
+}
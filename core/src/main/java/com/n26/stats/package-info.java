@@ -0,0 +1,4 @@
+@ParametersAreNonnullByDefault
+package com.n26.stats;
+
+import javax.annotation.ParametersAreNonnullByDefault;
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.n26.stats.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped, fixed size file holding aggregates of consecutive time slots in columns.
+ *
+ * <p>Layout (all values big-endian):
+ * <pre>
+ * header  magic:int version:int start:long slotNanos:long slots:int scale:int (padded to 64 bytes)
+ * columns sum:long[slots] max:long[slots] min:long[slots] count:long[slots]
+ * </pre>
+ * Amounts are stored as unscaled values of the given scale. Slot with count 0 is empty.
+ *
+ * <p>Not thread safe, {@link SegmentStore} confines segments to its worker thread.
+ */
+final class Segment {
+    static final int MAGIC = 0x4e323653; // "N26S"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    private static final int SUM = 0;
+    private static final int MAX = 1;
+    private static final int MIN = 2;
+    private static final int COUNT = 3;
+
+    final Path path;
+    final long start; // epoch nanos
+    final long slotNanos;
+    final int slots;
+    final int scale;
+    private final MappedByteBuffer buffer;
+
+    private Segment(Path path, long start, long slotNanos, int slots, int scale, MappedByteBuffer buffer) {
+        this.path = path;
+        this.start = start;
+        this.slotNanos = slotNanos;
+        this.slots = slots;
+        this.scale = scale;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates new segment file (all slots empty).
+     */
+    static Segment create(Path path, long start, long slotNanos, int slots, int scale) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size(slots));
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, start);
+            buffer.putLong(16, slotNanos);
+            buffer.putInt(24, slots);
+            buffer.putInt(28, scale);
+            return new Segment(path, start, slotNanos, slots, scale, buffer);
+        }
+    }
+
+    /**
+     * Opens existing segment file.
+     */
+    static Segment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Corrupted segment " + path + ": truncated header");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Corrupted segment " + path + ": unknown format");
+            }
+            int slots = buffer.getInt(24);
+            if (slots < 1 || channel.size() != size(slots)) {
+                throw new IOException("Corrupted segment " + path + ": unexpected size");
+            }
+            return new Segment(path, buffer.getLong(8), buffer.getLong(16), slots, buffer.getInt(28), buffer);
+        }
+    }
+
+    private static long size(int slots) {
+        return HEADER_SIZE + 4L * Long.BYTES * slots;
+    }
+
+    private int offset(int column, int slot) {
+        return HEADER_SIZE + (column * slots + slot) * Long.BYTES;
+    }
+
+    long end() {
+        return start + slotNanos * slots;
+    }
+
+    /**
+     * Returns slot number of a given point in time (must be within the segment).
+     */
+    int slot(long time) {
+        return (int) ((time - start) / slotNanos);
+    }
+
+    long slotStart(int slot) {
+        return start + slotNanos * slot;
+    }
+
+    /**
+     * Merges aggregates into a given slot.
+     *
+     * @throws ArithmeticException if sum or count overflows
+     */
+    void merge(int slot, long sum, long max, long min, long count) {
+        long prevCount = getCount(slot);
+        if (prevCount == 0) {
+            put(SUM, slot, sum);
+            put(MAX, slot, max);
+            put(MIN, slot, min);
+        } else {
+            put(SUM, slot, Math.addExact(getSum(slot), sum));
+            put(MAX, slot, Math.max(getMax(slot), max));
+            put(MIN, slot, Math.min(getMin(slot), min));
+        }
+        put(COUNT, slot, Math.addExact(prevCount, count));
+    }
+
+    long getSum(int slot) {
+        return buffer.getLong(offset(SUM, slot));
+    }
+
+    long getMax(int slot) {
+        return buffer.getLong(offset(MAX, slot));
+    }
+
+    long getMin(int slot) {
+        return buffer.getLong(offset(MIN, slot));
+    }
+
+    long getCount(int slot) {
+        return buffer.getLong(offset(COUNT, slot));
+    }
+
+    private void put(int column, int slot, long value) {
+        buffer.putLong(offset(column, slot), value);
+    }
+
+    void force() {
+        buffer.force();
+    }
+}
@@ -0,0 +1,384 @@
+package com.n26.stats.store;
+
+import com.n26.stats.ExpiredBucketListener;
+import com.n26.stats.StatisticsHistory;
+import com.n26.stats.Stats;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-term statistics archive kept on disk in memory-mapped columnar segment files.
+ *
+ * <p>Expired buckets are appended to "fine" segments, each covering an hour in slots of a configured width.
+ * Fine segments older than <tt>compactAfter</tt> are periodically merged into "coarse" segments, each covering
+ * a day in wider slots, and deleted. A fine segment is merged into a copy of its coarse segment that atomically
+ * replaces it, so a failed merge leaves no partial result behind. A fine segment that fails to merge
+ * {@value #MAX_COMPACTION_ATTEMPTS} times in a row is quarantined: it is no longer compacted, but still queried.
+ * Range queries only touch segments overlapping the range and read the aggregates straight from mapped memory.
+ *
+ * <p>Amounts are stored as fixed-point numbers of a given scale, so they are rounded (half even) on append.
+ *
+ * <p>All segment access is confined to a single worker thread, which makes appends non-blocking for the ticking
+ * thread and queries consistent. A crash between merging a fine segment and deleting it may lead to its
+ * aggregates being counted twice.
+ */
+public class SegmentStore implements ExpiredBucketListener, SegmentStoreMXBean, AutoCloseable {
+    static final Duration FINE_SEGMENT_SPAN = Duration.ofHours(1);
+    static final Duration COARSE_SEGMENT_SPAN = Duration.ofDays(1);
+    private static final String FINE_PREFIX = "fine-";
+    private static final String COARSE_PREFIX = "coarse-";
+    private static final String QUARANTINE_PREFIX = "quarantine-";
+    private static final String SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    static final int MAX_COMPACTION_ATTEMPTS = 3;
+
+    private final Path directory;
+    private final long fineSlotNanos;
+    private final long coarseSlotNanos;
+    private final Duration compactAfter;
+    private final int scale;
+    private final Clock clock;
+    private final ScheduledExecutorService worker;
+
+    // confined to the worker thread
+    private final NavigableMap<Long, Segment> fineSegments = new TreeMap<>();
+    private final NavigableMap<Long, Segment> coarseSegments = new TreeMap<>();
+    private final NavigableMap<Long, Segment> quarantinedSegments = new TreeMap<>(); // fine ones failing to compact
+    private int compactionFailures; // of the oldest fine segment
+
+    private volatile long appendedBuckets;
+    private volatile long droppedBuckets;
+    private volatile long compactedSegments;
+    private volatile long quarantinedSegmentCount;
+    private volatile int segments;
+
+    /**
+     * Constructs SegmentStore in a given directory, opening segments already present there.
+     *
+     * @param directory       directory of segment files (created if missing)
+     * @param fineSlotWidth   slot width of fine segments, must divide an hour
+     * @param coarseSlotWidth slot width of coarse segments, must divide a day and be a multiple of fineSlotWidth
+     * @param compactAfter    age of fine segments that get compacted
+     * @param scale           scale of stored amounts
+     * @param clock           custom {@code Clock} instance
+     * @throws IllegalArgumentException on invalid slot widths or negative compactAfter
+     * @throws UncheckedIOException     if segments cannot be opened
+     */
+    public SegmentStore(Path directory, Duration fineSlotWidth, Duration coarseSlotWidth, Duration compactAfter,
+                        int scale, Clock clock) {
+        this.directory = Objects.requireNonNull(directory, "directory");
+        this.compactAfter = Objects.requireNonNull(compactAfter, "compactAfter");
+        this.clock = Objects.requireNonNull(clock, "clock");
+        fineSlotNanos = fineSlotWidth.toNanos();
+        coarseSlotNanos = coarseSlotWidth.toNanos();
+        if (fineSlotNanos <= 0 || FINE_SEGMENT_SPAN.toNanos() % fineSlotNanos != 0) {
+            throw new IllegalArgumentException("Illegal fineSlotWidth: " + fineSlotWidth);
+        }
+        if (coarseSlotNanos <= 0 || COARSE_SEGMENT_SPAN.toNanos() % coarseSlotNanos != 0
+                || coarseSlotNanos % fineSlotNanos != 0) {
+            throw new IllegalArgumentException("Illegal coarseSlotWidth: " + coarseSlotWidth);
+        }
+        if (compactAfter.isNegative()) {
+            throw new IllegalArgumentException("Illegal compactAfter: negative value");
+        }
+        this.scale = scale;
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + TEMP_SUFFIX)) {
+                for (Path file : files) { // left by a compaction interrupted by a crash
+                    Files.delete(file);
+                }
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path file : files) {
+                    Segment segment = Segment.open(file);
+                    String name = file.getFileName().toString();
+                    (name.startsWith(COARSE_PREFIX) ? coarseSegments :
+                            name.startsWith(QUARANTINE_PREFIX) ? quarantinedSegments : fineSegments)
+                            .put(segment.start, segment);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        quarantinedSegmentCount = quarantinedSegments.size();
+        segments = fineSegments.size() + coarseSegments.size() + quarantinedSegments.size();
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "segment-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static long toNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    private static Instant fromNanos(long nanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L));
+    }
+
+    /**
+     * Starts periodic compaction.
+     *
+     * @param interval time between compactions
+     */
+    public void start(Duration interval) {
+        worker.scheduleWithFixedDelay(this::compact, 0, interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops worker thread, flushing pending appends.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        worker.shutdown();
+        worker.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Schedules append of an expired bucket, returns immediately.
+     *
+     * @param start start of the bucket time frame
+     * @param width width of the bucket time frame
+     * @param stats aggregates of transactions of the bucket
+     */
+    @Override
+    public void bucketExpired(Instant start, Duration width, Stats stats) {
+        worker.execute(() -> append(start, stats));
+    }
+
+    private long unscaled(BigDecimal value) {
+        return value.setScale(scale, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    private void append(Instant start, Stats stats) {
+        try {
+            long time = toNanos(start);
+            Segment segment = getOrCreate(fineSegments, FINE_PREFIX, time, FINE_SEGMENT_SPAN, fineSlotNanos);
+            segment.merge(segment.slot(time),
+                    unscaled(stats.getSum()), unscaled(stats.getMax()), unscaled(stats.getMin()), stats.getCount());
+            appendedBuckets++;
+        } catch (ArithmeticException | IOException e) {
+            droppedBuckets++;
+        }
+    }
+
+    private Segment getOrCreate(NavigableMap<Long, Segment> segments, String prefix,
+                                long time, Duration span, long slotNanos) throws IOException {
+        long spanNanos = span.toNanos();
+        long start = Math.floorDiv(time, spanNanos) * spanNanos;
+        Segment segment = segments.get(start);
+        if (segment == null) {
+            Path path = segmentPath(prefix, start);
+            segment = Segment.create(path, start, slotNanos, (int) (spanNanos / slotNanos), scale);
+            segments.put(start, segment);
+            this.segments++;
+        }
+        return segment;
+    }
+
+    private Path segmentPath(String prefix, long start) {
+        return directory.resolve(prefix + Math.floorDiv(start, 1_000_000_000L) + SUFFIX);
+    }
+
+    /**
+     * Merges fine segments older than <tt>compactAfter</tt> into coarse ones. Called periodically once started.
+     */
+    void compact() {
+        long threshold = toNanos(clock.instant().minus(compactAfter));
+        while (!fineSegments.isEmpty() && fineSegments.firstEntry().getValue().end() <= threshold) {
+            Segment fine = fineSegments.firstEntry().getValue();
+            try {
+                mergeIntoCoarse(fine);
+            } catch (ArithmeticException | IOException e) {
+                if (++compactionFailures < MAX_COMPACTION_ATTEMPTS || !quarantine(fine)) {
+                    return; // retried on next compaction
+                }
+                continue;
+            }
+            compactionFailures = 0;
+            fineSegments.pollFirstEntry();
+            compactedSegments++;
+            try {
+                Files.delete(fine.path);
+                segments--;
+            } catch (IOException e) {
+                // already merged: counted twice if the store is reopened before the file is removed
+            }
+        }
+    }
+
+    /**
+     * Merges a fine segment into a copy of its coarse segment, which then replaces the original one.
+     */
+    private void mergeIntoCoarse(Segment fine) throws IOException {
+        long spanNanos = COARSE_SEGMENT_SPAN.toNanos();
+        long start = Math.floorDiv(fine.start, spanNanos) * spanNanos;
+        Segment coarse = coarseSegments.get(start);
+        Path path = segmentPath(COARSE_PREFIX, start);
+        Path temp = directory.resolve(path.getFileName() + TEMP_SUFFIX);
+        try {
+            Segment merged;
+            if (coarse != null) {
+                coarse.force();
+                Files.copy(coarse.path, temp, StandardCopyOption.REPLACE_EXISTING);
+                merged = Segment.open(temp);
+            } else {
+                Files.deleteIfExists(temp);
+                merged = Segment.create(temp, start, coarseSlotNanos, (int) (spanNanos / coarseSlotNanos), scale);
+            }
+            for (int slot = 0; slot < fine.slots; slot++) {
+                long count = fine.getCount(slot);
+                if (count > 0) {
+                    merged.merge(merged.slot(fine.slotStart(slot)),
+                            fine.getSum(slot), fine.getMax(slot), fine.getMin(slot), count);
+                }
+            }
+            merged.force();
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (ArithmeticException | IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        coarseSegments.put(start, Segment.open(path));
+        if (coarse == null) {
+            segments++;
+        }
+    }
+
+    /**
+     * Moves a fine segment that keeps failing to compact out of the way of younger ones, keeping it queryable.
+     *
+     * @return true if quarantined, false otherwise
+     */
+    private boolean quarantine(Segment fine) {
+        try {
+            Path path = segmentPath(QUARANTINE_PREFIX, fine.start);
+            Files.move(fine.path, path, StandardCopyOption.ATOMIC_MOVE);
+            quarantinedSegments.put(fine.start, Segment.open(path));
+        } catch (IOException e) {
+            return false;
+        }
+        compactionFailures = 0;
+        fineSegments.pollFirstEntry();
+        quarantinedSegmentCount++;
+        return true;
+    }
+
+    /**
+     * Returns aggregates of slots that started in a given time range, merged into steps of a given width
+     * (rounded up to a multiple of a slot width), ordered by time.
+     * Runs in time linear to the number of slots of segments overlapping the range.
+     *
+     * @param from the start of time range (inclusive)
+     * @param to   the end of time range (exclusive)
+     * @param step width of returned rollups
+     * @return list of non-empty rollups
+     * @throws IllegalArgumentException on non-positive step
+     */
+    public List<StatisticsHistory.Rollup> query(Instant from, Instant to, Duration step) {
+        if (step.isNegative() || step.isZero()) {
+            throw new IllegalArgumentException("Illegal step: non-positive value");
+        }
+        try {
+            return worker.submit(() -> doQuery(from, to, step)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private List<StatisticsHistory.Rollup> doQuery(Instant from, Instant to, Duration step) {
+        long fromNanos = toNanos(from.isBefore(Instant.EPOCH) ? Instant.EPOCH : from);
+        long toNanos = toNanos(to.isAfter(fromNanos(Long.MAX_VALUE)) ? fromNanos(Long.MAX_VALUE) : to);
+        long stepNanos = Math.max(step.toNanos(), fineSlotNanos);
+        TreeMap<Long, Stats> steps = new TreeMap<>();
+        scan(coarseSegments, COARSE_SEGMENT_SPAN, fromNanos, toNanos, stepNanos, steps);
+        scan(fineSegments, FINE_SEGMENT_SPAN, fromNanos, toNanos, stepNanos, steps);
+        scan(quarantinedSegments, FINE_SEGMENT_SPAN, fromNanos, toNanos, stepNanos, steps);
+        List<StatisticsHistory.Rollup> rollups = new ArrayList<>(steps.size());
+        for (Map.Entry<Long, Stats> entry : steps.entrySet()) {
+            rollups.add(new StatisticsHistory.Rollup(
+                    fromNanos(fromNanos + entry.getKey() * stepNanos), Duration.ofNanos(stepNanos), entry.getValue()));
+        }
+        return rollups;
+    }
+
+    private void scan(NavigableMap<Long, Segment> segments, Duration span, long from, long to, long step,
+                      TreeMap<Long, Stats> steps) {
+        long spanNanos = span.toNanos();
+        for (Segment segment : segments.subMap(Math.floorDiv(from, spanNanos) * spanNanos, true, to, false).values()) {
+            int first = from > segment.start
+                    ? (int) Math.min(segment.slots, ceilDiv(from - segment.start, segment.slotNanos))
+                    : 0;
+            for (int slot = first; slot < segment.slots; slot++) {
+                long slotStart = segment.slotStart(slot);
+                if (slotStart >= to) {
+                    break;
+                }
+                long count = segment.getCount(slot);
+                if (count == 0) {
+                    continue;
+                }
+                Stats stats = new Stats(
+                        BigDecimal.valueOf(segment.getSum(slot), segment.scale),
+                        BigDecimal.valueOf(segment.getMax(slot), segment.scale),
+                        BigDecimal.valueOf(segment.getMin(slot), segment.scale),
+                        count);
+                steps.merge((slotStart - from) / step, stats, Stats::merge);
+            }
+        }
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    @Override
+    public long getAppendedBuckets() {
+        return appendedBuckets;
+    }
+
+    @Override
+    public long getDroppedBuckets() {
+        return droppedBuckets;
+    }
+
+    @Override
+    public long getCompactedSegments() {
+        return compactedSegments;
+    }
+
+    @Override
+    public long getQuarantinedSegments() {
+        return quarantinedSegmentCount;
+    }
+
+    @Override
+    public int getSegments() {
+        return segments;
+    }
+}
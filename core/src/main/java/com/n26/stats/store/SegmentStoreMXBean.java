@@ -0,0 +1,41 @@
+package com.n26.stats.store;
+
+/**
+ * Management interface of {@link SegmentStore}.
+ */
+public interface SegmentStoreMXBean {
+    /**
+     * Returns the number of buckets appended to segments.
+     *
+     * @return number of appended buckets
+     */
+    long getAppendedBuckets();
+
+    /**
+     * Returns the number of buckets that could not be appended (I/O errors, numeric overflow, out of range).
+     *
+     * @return number of dropped buckets
+     */
+    long getDroppedBuckets();
+
+    /**
+     * Returns the number of fine segments merged into coarse ones.
+     *
+     * @return number of compacted segments
+     */
+    long getCompactedSegments();
+
+    /**
+     * Returns the number of fine segments that repeatedly failed to be merged and are no longer compacted.
+     *
+     * @return number of quarantined segments
+     */
+    long getQuarantinedSegments();
+
+    /**
+     * Returns the number of segment files.
+     *
+     * @return number of segments
+     */
+    int getSegments();
+}
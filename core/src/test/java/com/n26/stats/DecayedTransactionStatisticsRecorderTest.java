@@ -0,0 +1,170 @@
+package com.n26.stats;
+
+import com.n26.stats.TransactionStatisticsRecorderImplTest.FakeClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class DecayedTransactionStatisticsRecorderTest {
+    private static final Duration MEAN_LIFETIME = Duration.ofSeconds(60);
+    private static final Instant timeZero = Instant.ofEpochSecond(1543140098L);
+    private DecayedTransactionStatisticsRecorder transactionStatistics;
+    private FakeClock clock;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        clock.setInstant(timeZero);
+        transactionStatistics = new DecayedTransactionStatisticsRecorder(MEAN_LIFETIME, Duration.ZERO, clock);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalMeanLifetime() {
+        new DecayedTransactionStatisticsRecorder(Duration.ZERO, Duration.ZERO, clock);
+    }
+
+    @Test
+    public void testRecordFailFuture() {
+        boolean ok = transactionStatistics.recordTransaction(BigDecimal.valueOf(5), timeZero.plusSeconds(2));
+        assertThat(ok).isFalse();
+        assertThat(transactionStatistics.getSummary().getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testRecordOld() {
+        assertThat(transactionStatistics.recordTransaction(BigDecimal.valueOf(5), timeZero.minusSeconds(2)))
+                .isTrue();
+        assertThat(transactionStatistics.recordTransaction(BigDecimal.valueOf(5), timeZero.minusSeconds(62)))
+                .isFalse();
+    }
+
+    @Test
+    public void testDecay() {
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(10), timeZero, 100);
+        StatisticsSummary<BigDecimal> summary = transactionStatistics.getSummary();
+        assertThat(summary.getCount()).isEqualTo(100);
+        assertThat(summary.getSum().doubleValue()).isCloseTo(1000, within(1e-6));
+        assertThat(summary.getMax()).isEqualByComparingTo("10");
+        assertThat(summary.getMin()).isEqualByComparingTo("10");
+
+        clock.setInstant(timeZero.plus(MEAN_LIFETIME));
+        summary = transactionStatistics.getSummary();
+        assertThat(summary.getCount()).isEqualTo(Math.round(100 / Math.E));
+        assertThat(summary.getSum().doubleValue()).isCloseTo(1000 / Math.E, within(1e-6));
+        assertThat(transactionStatistics.getMean()).isCloseTo(10, within(1e-9));
+    }
+
+    /**
+     * Out of order transactions weigh the same as if they were recorded in order.
+     */
+    @Test
+    public void testOutOfOrder() {
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(1), timeZero.minusSeconds(30), 50);
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(1), timeZero, 50);
+        double expected = 50 + 50 * Math.exp(-0.5);
+        assertThat(transactionStatistics.getSummary().getSum().doubleValue()).isCloseTo(expected, within(1e-6));
+    }
+
+    @Test
+    public void testSteadyRate() {
+        // 10 transactions per second for 10 mean lifetimes
+        for (int i = 0; i < 6000; i++) {
+            clock.setInstant(timeZero.plusMillis(i * 100L));
+            transactionStatistics.recordTransaction(BigDecimal.ONE, clock.instant());
+        }
+        assertThat(transactionStatistics.getSummary().getCount()).isCloseTo(600, within(5L));
+        assertThat(transactionStatistics.getRate()).isCloseTo(10, within(0.1));
+    }
+
+    @Test
+    public void testStaleExtremesReplaced() {
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(100), timeZero);
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(-100), timeZero);
+        clock.setInstant(timeZero.plusSeconds(61));
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(5), clock.instant());
+        StatisticsSummary<BigDecimal> summary = transactionStatistics.getSummary();
+        assertThat(summary.getMax()).isEqualByComparingTo("5");
+        assertThat(summary.getMin()).isEqualByComparingTo("5");
+    }
+
+    @Test
+    public void testOldTransactionsNotExtremes() {
+        assertThat(transactionStatistics.recordTransaction(BigDecimal.valueOf(1000), timeZero.minusSeconds(120), 100))
+                .isFalse();
+        StatisticsSummary<BigDecimal> summary = transactionStatistics.getSummary();
+        assertThat(summary.getMax().doubleValue()).isCloseTo(1000, within(1e-6)); // mean, no recent transaction
+        assertThat(summary.getMin().doubleValue()).isCloseTo(1000, within(1e-6));
+
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(5), timeZero);
+        assertThat(transactionStatistics.recordTransaction(BigDecimal.valueOf(2000), timeZero.minusSeconds(120)))
+                .isFalse();
+        assertThat(transactionStatistics.recordTransaction(BigDecimal.valueOf(-2000), timeZero.minusSeconds(120)))
+                .isFalse();
+        summary = transactionStatistics.getSummary();
+        assertThat(summary.getMax()).isEqualByComparingTo("5");
+        assertThat(summary.getMin()).isEqualByComparingTo("5");
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testRecordOutOfDoubleRange() {
+        transactionStatistics.recordTransaction(new BigDecimal("1e400"), timeZero);
+    }
+
+    @Test
+    public void testSumOverflow() {
+        transactionStatistics.recordTransaction(new BigDecimal("1e308"), timeZero);
+        transactionStatistics.recordTransaction(new BigDecimal("1e308"), timeZero);
+        assertThat(transactionStatistics.getSummary().getCount()).isEqualTo(0);
+    }
+
+    /**
+     * Weights stay finite when recording over much longer than the mean lifetime.
+     */
+    @Test
+    public void testRescale() {
+        for (int i = 0; i < 1000; i++) {
+            clock.setInstant(timeZero.plus(MEAN_LIFETIME.multipliedBy(i)));
+            transactionStatistics.recordTransaction(BigDecimal.ONE, clock.instant(), 1000);
+        }
+        StatisticsSummary<BigDecimal> summary = transactionStatistics.getSummary();
+        double expected = 1000 / (1 - Math.exp(-1));
+        assertThat(summary.getSum().doubleValue()).isCloseTo(expected, within(1e-6));
+        assertThat(summary.getCount()).isEqualTo(Math.round(expected));
+    }
+
+    @Test
+    public void testClear() {
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(5), timeZero);
+        transactionStatistics.clear();
+        assertThat(transactionStatistics.getSummary()).isEqualTo(Stats.ZERO_VALUE);
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    transactionStatistics.recordTransaction(BigDecimal.ONE, timeZero);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(transactionStatistics.getSummary().getCount()).isEqualTo(40_000);
+    }
+}
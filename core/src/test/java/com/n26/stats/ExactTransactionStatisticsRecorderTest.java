@@ -0,0 +1,156 @@
+package com.n26.stats;
+
+import com.n26.stats.TransactionStatisticsRecorderImplTest.FakeClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExactTransactionStatisticsRecorderTest {
+    private static final Duration MAX_AGE = Duration.ofSeconds(60);
+    private static final Instant timeZero = Instant.ofEpochSecond(1543140098L);
+    private ExactTransactionStatisticsRecorder transactionStatistics;
+    private FakeClock clock;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        clock.setInstant(timeZero);
+        transactionStatistics = new ExactTransactionStatisticsRecorder(MAX_AGE, Duration.ZERO, 1000, clock);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalCapacity() {
+        new ExactTransactionStatisticsRecorder(MAX_AGE, Duration.ZERO, 0, clock);
+    }
+
+    @Test
+    public void testRecordFailFuture() {
+        assertThat(transactionStatistics.recordTransaction(BigDecimal.ONE, timeZero.plusNanos(1))).isFalse();
+    }
+
+    @Test
+    public void testRecordFailTooOld() {
+        assertThat(transactionStatistics.recordTransaction(BigDecimal.ONE, timeZero.minus(MAX_AGE))).isFalse();
+        assertThat(transactionStatistics.recordTransaction(BigDecimal.ONE, timeZero.minus(MAX_AGE).plusNanos(1)))
+                .isTrue();
+    }
+
+    @Test
+    public void testExpiry() {
+        transactionStatistics.recordTransaction(new BigDecimal("10.5"), timeZero.minusSeconds(30));
+        transactionStatistics.recordTransaction(new BigDecimal("2"), timeZero.minusSeconds(10));
+        transactionStatistics.recordTransaction(new BigDecimal("7"), timeZero.minusSeconds(20));
+        assertSummary("19.5", "10.5", "2", 3);
+
+        clock.setInstant(timeZero.plusSeconds(30));
+        assertSummary("9", "7", "2", 2);
+
+        clock.setInstant(timeZero.plusSeconds(50));
+        assertThat(transactionStatistics.getSummary()).isEqualTo(Stats.ZERO_VALUE);
+        assertThat(transactionStatistics.size()).isEqualTo(0);
+    }
+
+    private void assertSummary(String sum, String max, String min, long count) {
+        StatisticsSummary<BigDecimal> summary = transactionStatistics.getSummary();
+        assertThat(summary.getSum()).isEqualByComparingTo(sum);
+        assertThat(summary.getMax()).isEqualByComparingTo(max);
+        assertThat(summary.getMin()).isEqualByComparingTo(min);
+        assertThat(summary.getCount()).isEqualTo(count);
+    }
+
+    @Test
+    public void testRecordStats() {
+        Stats group = new Stats(new BigDecimal("10"), new BigDecimal("4"), new BigDecimal("1"), 4);
+        assertThat(transactionStatistics.recordStats(group, timeZero.minusSeconds(10))).isTrue();
+        assertThat(transactionStatistics.recordStats(Stats.of(new BigDecimal("0.5")), timeZero.minusSeconds(5)))
+                .isTrue();
+        assertSummary("10.5", "4", "0.5", 5);
+    }
+
+    @Test
+    public void testRecordWeighted() {
+        assertThat(transactionStatistics.recordTransaction(new BigDecimal("2.5"), timeZero.minusSeconds(10), 1000))
+                .isTrue();
+        assertThat(transactionStatistics.recordTransaction(BigDecimal.ONE, timeZero.minusSeconds(5))).isTrue();
+        assertSummary("2501", "2.5", "1", 1001);
+        assertThat(transactionStatistics.size()).isEqualTo(2); // below the capacity of 1000
+
+        clock.setInstant(timeZero.plusSeconds(50));
+        assertSummary("1", "1", "1", 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecordStatsEmpty() {
+        transactionStatistics.recordStats(Stats.ZERO_VALUE, timeZero);
+    }
+
+    @Test
+    public void testCapacityExceeded() {
+        for (int i = 0; i < 1000; i++) {
+            transactionStatistics.recordTransaction(BigDecimal.ONE, timeZero.minusSeconds(30));
+        }
+        try {
+            transactionStatistics.recordTransaction(BigDecimal.ONE, timeZero);
+            throw new AssertionError("expected CapacityExceededException");
+        } catch (CapacityExceededException e) {
+            assertThat(e.getCapacity()).isEqualTo(1000);
+        }
+        clock.setInstant(timeZero.plusSeconds(30));
+        assertThat(transactionStatistics.recordTransaction(BigDecimal.ONE, clock.instant())).isTrue();
+        assertThat(transactionStatistics.getSummary().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testClear() {
+        transactionStatistics.recordTransaction(BigDecimal.ONE, timeZero);
+        transactionStatistics.clear();
+        assertThat(transactionStatistics.getSummary()).isEqualTo(Stats.ZERO_VALUE);
+    }
+
+    /**
+     * Compares against brute force over shuffled, partly late, transactions while the window slides.
+     */
+    @Test
+    public void testRandomAgainstBruteForce() {
+        transactionStatistics = new ExactTransactionStatisticsRecorder(MAX_AGE, Duration.ZERO, 100_000, clock);
+        Random random = new Random(42);
+        List<Instant> times = new ArrayList<>();
+        List<BigDecimal> amounts = new ArrayList<>();
+        for (int step = 0; step < 2000; step++) {
+            clock.setInstant(timeZero.plusMillis(step * 100L));
+            Instant now = clock.instant();
+            Instant timestamp = now.minusMillis(random.nextInt(10) < 8 ? random.nextInt(500) : random.nextInt(59_000));
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(10_000), 2);
+            transactionStatistics.recordTransaction(amount, timestamp);
+            times.add(timestamp);
+            amounts.add(amount);
+
+            BigDecimal sum = BigDecimal.ZERO;
+            BigDecimal max = null;
+            BigDecimal min = null;
+            long count = 0;
+            for (int i = 0; i < times.size(); i++) {
+                if (times.get(i).isAfter(now.minus(MAX_AGE))) {
+                    BigDecimal a = amounts.get(i);
+                    sum = sum.add(a);
+                    max = max == null || a.compareTo(max) > 0 ? a : max;
+                    min = min == null || a.compareTo(min) < 0 ? a : min;
+                    count++;
+                }
+            }
+            StatisticsSummary<BigDecimal> summary = transactionStatistics.getSummary();
+            assertThat(summary.getCount()).isEqualTo(count);
+            assertThat(summary.getSum()).isEqualByComparingTo(sum);
+            assertThat(summary.getMax()).isEqualByComparingTo(max);
+            assertThat(summary.getMin()).isEqualByComparingTo(min);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.n26.stats;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FinalizedIntervalsTest {
+    private static final Instant timeZero = Instant.ofEpochSecond(1543140000L);
+    private static final Duration WIDTH = Duration.ofSeconds(1);
+
+    @Test
+    public void testGetIntervals() {
+        FinalizedIntervals intervals = new FinalizedIntervals(Duration.ofMinutes(1));
+        assertThat(intervals.getWatermark()).isNull();
+        intervals.intervalFinalized(timeZero, WIDTH, Stats.of(BigDecimal.ONE));
+        intervals.intervalFinalized(timeZero.plusSeconds(2), WIDTH, Stats.of(BigDecimal.TEN));
+        intervals.watermarkAdvanced(timeZero.plusSeconds(3));
+        intervals.intervalFinalized(timeZero.plusSeconds(3), WIDTH, Stats.of(BigDecimal.TEN)); // beyond the watermark
+
+        Instant watermark = intervals.getWatermark();
+        assertThat(watermark).isEqualTo(timeZero.plusSeconds(3));
+        List<StatisticsHistory.Rollup> all = intervals.getIntervals(Instant.MIN, watermark);
+        assertThat(all).extracting(StatisticsHistory.Rollup::getStart)
+                .containsExactly(timeZero, timeZero.plusSeconds(2));
+        assertThat(intervals.getIntervals(timeZero.plusSeconds(1), watermark)).hasSize(1);
+    }
+
+    @Test
+    public void testRetention() {
+        FinalizedIntervals intervals = new FinalizedIntervals(Duration.ofSeconds(10));
+        intervals.intervalFinalized(timeZero, WIDTH, Stats.of(BigDecimal.ONE));
+        intervals.intervalFinalized(timeZero.plusSeconds(11), WIDTH, Stats.of(BigDecimal.ONE));
+
+        assertThat(intervals.getIntervals(Instant.MIN, Instant.MAX)).extracting(StatisticsHistory.Rollup::getStart)
+                .containsExactly(timeZero.plusSeconds(11));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalRetention() {
+        new FinalizedIntervals(Duration.ZERO);
+    }
+}
@@ -0,0 +1,50 @@
+package com.n26.stats;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HistogramBinsTest {
+    private final HistogramBins bins = new HistogramBins(new BigDecimal("0.5"), new BigDecimal("2"), 5);
+
+    @Test
+    public void testBounds() {
+        assertThat(bins.size()).isEqualTo(5);
+        assertThat(bins.getLowerBound(0)).isNull();
+        assertThat(bins.getUpperBound(0)).isEqualByComparingTo("0.5");
+        assertThat(bins.getLowerBound(1)).isEqualByComparingTo("0.5");
+        assertThat(bins.getUpperBound(1)).isEqualByComparingTo("1");
+        assertThat(bins.getUpperBound(3)).isEqualByComparingTo("4");
+        assertThat(bins.getLowerBound(4)).isEqualByComparingTo("4");
+        assertThat(bins.getUpperBound(4)).isNull();
+    }
+
+    @Test
+    public void testBinOf() {
+        assertThat(bins.binOf(new BigDecimal("-3"))).isEqualTo(0);
+        assertThat(bins.binOf(new BigDecimal("0.4999"))).isEqualTo(0);
+        assertThat(bins.binOf(new BigDecimal("0.50"))).isEqualTo(1);
+        assertThat(bins.binOf(new BigDecimal("1.99"))).isEqualTo(2);
+        assertThat(bins.binOf(new BigDecimal("2"))).isEqualTo(3);
+        assertThat(bins.binOf(new BigDecimal("4"))).isEqualTo(4);
+        assertThat(bins.binOf(new BigDecimal("1E+20"))).isEqualTo(4);
+    }
+
+    @Test
+    public void testFractionalGrowthPrecision() {
+        HistogramBins fine = new HistogramBins(BigDecimal.ONE, new BigDecimal("1.1"), 200);
+        assertThat(fine.getUpperBound(198).precision()).isLessThanOrEqualTo(HistogramBins.PRECISION);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalGrowth() {
+        new HistogramBins(BigDecimal.ONE, BigDecimal.ONE, 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalBins() {
+        new HistogramBins(BigDecimal.ONE, BigDecimal.TEN, 1);
+    }
+}
@@ -0,0 +1,104 @@
+package com.n26.stats;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReconfigurableTransactionStatisticsRecorderTest {
+    private static final Instant timeZero = Instant.ofEpochSecond(1543140098L);
+    private ReconfigurableTransactionStatisticsRecorder recorder;
+    private TransactionStatisticsRecorderImplTest.FakeClock clock;
+
+    @Before
+    public void setUp() {
+        clock = new TransactionStatisticsRecorderImplTest.FakeClock();
+        clock.setInstant(timeZero);
+        recorder = new ReconfigurableTransactionStatisticsRecorder(Duration.ofSeconds(60), 60,
+                (duration, resolution) -> new TransactionStatisticsRecorderImpl(duration, resolution, clock));
+    }
+
+    @Test
+    public void testReconfigureKeepsWindow() {
+        recorder.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(100));
+        recorder.recordTransaction(BigDecimal.valueOf(3), timeZero.minusMillis(30100));
+        recorder.recordTransaction(BigDecimal.valueOf(5), timeZero.minusMillis(45100));
+
+        recorder.reconfigure(Duration.ofSeconds(60), 600);
+        assertThat(recorder.getResolution()).isEqualTo(600);
+        assertThat(recorder.getSummary().getCount()).isEqualTo(3);
+
+        recorder.reconfigure(Duration.ofSeconds(60), 6); // window of the new grid spans (-50s, 10s]
+        StatisticsSummary<BigDecimal> summary = recorder.getSummary();
+        assertThat(summary.getCount()).isEqualTo(3);
+        assertThat(summary.getSum()).isEqualTo(BigDecimal.valueOf(9));
+        assertThat(summary.getMax()).isEqualTo(BigDecimal.valueOf(5));
+        assertThat(summary.getMin()).isEqualTo(BigDecimal.valueOf(1));
+    }
+
+    @Test
+    public void testReconfigureShorterWindowDropsOld() {
+        recorder.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(100));
+        recorder.recordTransaction(BigDecimal.valueOf(5), timeZero.minusMillis(58100));
+
+        recorder.reconfigure(Duration.ofSeconds(30), 30);
+        assertThat(recorder.getMaxTransactionAge()).isEqualTo(Duration.ofSeconds(30));
+        assertThat(recorder.getSummary().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReconfigureKeepsHistogram() {
+        HistogramBins bins = new HistogramBins(BigDecimal.ONE, BigDecimal.TEN, 3);
+        ReconfigurableTransactionStatisticsRecorder recorder = new ReconfigurableTransactionStatisticsRecorder(
+                Duration.ofSeconds(60), 60, (duration, resolution) -> TransactionStatisticsRecorderImpl
+                .builder(duration, resolution).histogram(bins).clock(clock).build());
+        recorder.recordTransaction(BigDecimal.valueOf(5), timeZero.minusMillis(100));
+        recorder.recordTransaction(BigDecimal.valueOf(50), timeZero.minusMillis(30100), 2);
+
+        recorder.reconfigure(Duration.ofSeconds(60), 600);
+        Histogram histogram = recorder.getHistogram();
+        assertThat(histogram.getCount(0)).isEqualTo(0);
+        assertThat(histogram.getCount(1)).isEqualTo(1);
+        assertThat(histogram.getCount(2)).isEqualTo(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReconfigureIllegalResolution() {
+        recorder.reconfigure(Duration.ofSeconds(60), 0);
+    }
+
+    @Test
+    public void testReconfigureUnderLoad() throws Exception {
+        int threads = 4;
+        int transactions = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < transactions; i++) {
+                    recorder.recordTransaction(BigDecimal.ONE, timeZero.minusMillis(i % 50_000));
+                }
+            }));
+        }
+        for (int i = 0; i < 20; i++) {
+            recorder.reconfigure(Duration.ofSeconds(60), i % 2 == 0 ? 1000 : 60);
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(recorder.getSummary().getCount()).isEqualTo(threads * transactions);
+    }
+}
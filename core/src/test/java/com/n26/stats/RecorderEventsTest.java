@@ -0,0 +1,64 @@
+package com.n26.stats;
+
+import jdk.jfr.EventType;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecorderEventsTest {
+    private static final Instant timeZero = Instant.ofEpochSecond(1543140098L);
+
+    private static List<String> recordEventNames(Runnable runnable) throws IOException {
+        Path file = Files.createTempFile("recorder", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(RecordTransactionEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(TickEvent.class);
+            recording.enable(ClearEvent.class);
+            recording.enable(SummaryEvent.class);
+            recording.start();
+            runnable.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .map(RecordedEvent::getEventType)
+                    .map(EventType::getName)
+                    .collect(toList());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testEventsEmitted() throws IOException {
+        TransactionStatisticsRecorderImplTest.FakeClock clock = new TransactionStatisticsRecorderImplTest.FakeClock();
+        clock.setInstant(timeZero);
+        TransactionStatisticsRecorderImpl recorder = new TransactionStatisticsRecorderImpl(
+                Duration.ofSeconds(60), 60, clock);
+
+        List<String> names = recordEventNames(() -> {
+            recorder.recordTransaction(BigDecimal.ONE, timeZero.minusSeconds(1));
+            clock.setInstant(timeZero.plusSeconds(1));
+            recorder.tick();
+            recorder.getSummary();
+            recorder.clear();
+        });
+
+        assertThat(names).containsExactlyInAnyOrder(
+                "com.n26.stats.RecordTransaction",
+                "com.n26.stats.Tick",
+                "com.n26.stats.Summary",
+                "com.n26.stats.Clear");
+    }
+}
@@ -0,0 +1,57 @@
+package com.n26.stats;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SparseBucketArrayTest {
+    private static final Stats ONE = Stats.of(BigDecimal.ONE);
+
+    @Test
+    public void testEmpty() {
+        SparseBucketArray buckets = new SparseBucketArray(1000);
+        assertThat(buckets.get(999)).isNull();
+        assertThat(buckets.nextOccupied(0, 1000)).isEqualTo(1000);
+        assertThat(buckets.blockCount()).isZero();
+    }
+
+    @Test
+    public void testNextOccupied() {
+        SparseBucketArray buckets = new SparseBucketArray(1000);
+        buckets.compareAndSet(3, null, ONE);
+        buckets.lazySet(64, ONE);
+        buckets.set(700, ONE);
+
+        assertThat(buckets.nextOccupied(0, 1000)).isEqualTo(3);
+        assertThat(buckets.nextOccupied(4, 1000)).isEqualTo(64);
+        assertThat(buckets.nextOccupied(65, 1000)).isEqualTo(700);
+        assertThat(buckets.nextOccupied(65, 700)).isEqualTo(700);
+        assertThat(buckets.nextOccupied(701, 1000)).isEqualTo(1000);
+        assertThat(buckets.nextOccupied(500, 500)).isEqualTo(500);
+        assertThat(buckets.blockCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testRemoveReleasesBlock() {
+        SparseBucketArray buckets = new SparseBucketArray(128);
+        buckets.compareAndSet(1, null, ONE);
+        buckets.compareAndSet(2, null, ONE);
+        assertThat(buckets.remove(1)).isSameAs(ONE);
+        assertThat(buckets.remove(1)).isNull();
+        assertThat(buckets.blockCount()).isEqualTo(1);
+        assertThat(buckets.remove(2)).isSameAs(ONE);
+        assertThat(buckets.blockCount()).isZero();
+        assertThat(buckets.nextOccupied(0, 128)).isEqualTo(128);
+    }
+
+    @Test
+    public void testCompareAndSet() {
+        SparseBucketArray buckets = new SparseBucketArray(64);
+        assertThat(buckets.compareAndSet(5, ONE, ONE)).isFalse();
+        assertThat(buckets.nextOccupied(0, 64)).isEqualTo(64);
+        assertThat(buckets.compareAndSet(5, null, ONE)).isTrue();
+        assertThat(buckets.get(5)).isSameAs(ONE);
+    }
+}
@@ -0,0 +1,92 @@
+package com.n26.stats;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StatisticsHistoryTest {
+    private static final Instant hourZero = Instant.ofEpochSecond(1543140000L);
+    private static final Duration bucketWidth = Duration.ofSeconds(1);
+    private StatisticsHistory history;
+
+    @Before
+    public void setUp() {
+        history = new StatisticsHistory(Duration.ofHours(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalRetention() {
+        new StatisticsHistory(Duration.ZERO);
+    }
+
+    @Test
+    public void testEmpty() {
+        assertThat(history.getRollups(Instant.MIN, Instant.MAX, StatisticsHistory.Granularity.MINUTE)).isEmpty();
+    }
+
+    @Test
+    public void testMinuteRollups() {
+        history.bucketExpired(hourZero.plusSeconds(1), bucketWidth, Stats.of(BigDecimal.valueOf(1)));
+        history.bucketExpired(hourZero.plusSeconds(59), bucketWidth, Stats.of(BigDecimal.valueOf(3)));
+        history.bucketExpired(hourZero.plusSeconds(60), bucketWidth, Stats.of(BigDecimal.valueOf(5)));
+
+        List<StatisticsHistory.Rollup> rollups = history.getRollups(
+                hourZero, hourZero.plusSeconds(3600), StatisticsHistory.Granularity.MINUTE);
+
+        assertThat(rollups).hasSize(2);
+        assertThat(rollups.get(0).getStart()).isEqualTo(hourZero);
+        assertThat(rollups.get(0).getEnd()).isEqualTo(hourZero.plusSeconds(60));
+        assertThat(rollups.get(0).getStats().getCount()).isEqualTo(2);
+        assertThat(rollups.get(0).getStats().getSum()).isEqualTo(BigDecimal.valueOf(4));
+        assertThat(rollups.get(0).getStats().getMax()).isEqualTo(BigDecimal.valueOf(3));
+        assertThat(rollups.get(1).getStart()).isEqualTo(hourZero.plusSeconds(60));
+        assertThat(rollups.get(1).getStats().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRangeBounds() {
+        history.bucketExpired(hourZero, bucketWidth, Stats.of(BigDecimal.valueOf(1)));
+        history.bucketExpired(hourZero.plusSeconds(60), bucketWidth, Stats.of(BigDecimal.valueOf(3)));
+        history.bucketExpired(hourZero.plusSeconds(120), bucketWidth, Stats.of(BigDecimal.valueOf(5)));
+
+        List<StatisticsHistory.Rollup> rollups = history.getRollups(
+                hourZero.plusMillis(1), hourZero.plusSeconds(120), StatisticsHistory.Granularity.MINUTE);
+
+        assertThat(rollups).hasSize(1);
+        assertThat(rollups.get(0).getStart()).isEqualTo(hourZero.plusSeconds(60));
+    }
+
+    @Test
+    public void testHourRollups() {
+        history.bucketExpired(hourZero.plusSeconds(1), bucketWidth, Stats.of(BigDecimal.valueOf(1)));
+        history.bucketExpired(hourZero.plusSeconds(1800), bucketWidth, Stats.of(BigDecimal.valueOf(3)));
+
+        List<StatisticsHistory.Rollup> rollups = history.getRollups(
+                Instant.MIN, Instant.MAX, StatisticsHistory.Granularity.HOUR);
+
+        assertThat(rollups).hasSize(1);
+        assertThat(rollups.get(0).getStart()).isEqualTo(hourZero);
+        assertThat(rollups.get(0).getEnd()).isEqualTo(hourZero.plusSeconds(3600));
+        assertThat(rollups.get(0).getStats().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRetention() {
+        history.bucketExpired(hourZero, bucketWidth, Stats.of(BigDecimal.valueOf(1)));
+        history.bucketExpired(hourZero.plus(Duration.ofHours(2)), bucketWidth, Stats.of(BigDecimal.valueOf(3)));
+        // too old for the ring, dropped
+        history.bucketExpired(hourZero, bucketWidth, Stats.of(BigDecimal.valueOf(5)));
+
+        List<StatisticsHistory.Rollup> rollups = history.getRollups(
+                Instant.MIN, Instant.MAX, StatisticsHistory.Granularity.MINUTE);
+
+        assertThat(rollups).hasSize(1);
+        assertThat(rollups.get(0).getStats().getSum()).isEqualTo(BigDecimal.valueOf(3));
+    }
+}
@@ -0,0 +1,91 @@
+package com.n26.stats;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TickDriverTest {
+
+    @Test
+    public void testDrivesOnGrid() throws InterruptedException {
+        Clock clock = Clock.systemUTC();
+        Instant start = clock.instant();
+        CountDownLatch latch = new CountDownLatch(5);
+        FakeTickable tickable = new FakeTickable(start.plusMillis(10), Duration.ofMillis(10), latch, clock);
+
+        TickDriver driver = new TickDriver(tickable, clock);
+        driver.start();
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            driver.close();
+        }
+
+        assertThat(driver.getTicks()).isGreaterThanOrEqualTo(5);
+        assertThat(driver.getRotatedPeriods()).isGreaterThanOrEqualTo(driver.getTicks());
+        assertThat(driver.getMaxJitterNanos()).isGreaterThanOrEqualTo(driver.getLastJitterNanos());
+        assertThat(driver.getMeanJitterNanos()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void testWakesOnGridChange() throws InterruptedException {
+        Clock clock = Clock.systemUTC();
+        ReconfigurableTransactionStatisticsRecorder recorder = new ReconfigurableTransactionStatisticsRecorder(
+                Duration.ofHours(1), 1, (maxTransactionAge, resolution) -> TransactionStatisticsRecorderImpl
+                .builder(maxTransactionAge, resolution).clock(clock).build());
+
+        TickDriver driver = new TickDriver(recorder, clock);
+        driver.start();
+        try {
+            Thread.sleep(50); // parked until the hourly tick
+            recorder.reconfigure(Duration.ofSeconds(1), 100);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (driver.getTicks() < 5 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            driver.close();
+        }
+
+        assertThat(driver.getTicks()).isGreaterThanOrEqualTo(5);
+    }
+
+    private static class FakeTickable implements Tickable {
+        private final Duration period;
+        private final CountDownLatch latch;
+        private final Clock clock;
+        private volatile Instant nextTick;
+
+        FakeTickable(Instant nextTick, Duration period, CountDownLatch latch, Clock clock) {
+            this.nextTick = nextTick;
+            this.period = period;
+            this.latch = latch;
+            this.clock = clock;
+        }
+
+        @Override
+        public Instant getNextTick() {
+            return nextTick;
+        }
+
+        @Override
+        public int tick() {
+            Instant now = clock.instant();
+            int periods = 0;
+            while (!nextTick.isAfter(now)) {
+                nextTick = nextTick.plus(period);
+                periods++;
+            }
+            if (periods > 0) {
+                latch.countDown();
+            }
+            return periods;
+        }
+    }
+}
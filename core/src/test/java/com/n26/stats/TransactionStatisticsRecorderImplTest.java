@@ -0,0 +1,630 @@
+package com.n26.stats;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransactionStatisticsRecorderImplTest {
+    private static final int RECORDING_SECONDS = 60;
+    private static final Instant timeZero = Instant.ofEpochSecond(1543140098L);
+    private TransactionStatisticsRecorderImpl transactionStatistics;
+    private FakeClock clock;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        clock.setInstant(timeZero);
+        transactionStatistics = new TransactionStatisticsRecorderImpl(
+                Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS, clock);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalMaxTransactionAge() {
+        new TransactionStatisticsRecorderImpl(
+                Duration.ofSeconds(-1), RECORDING_SECONDS, clock);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalResolution() {
+        new TransactionStatisticsRecorderImpl(
+                Duration.ofSeconds(RECORDING_SECONDS), -1, clock);
+    }
+
+    @Test
+    public void testRecordOk() {
+        boolean ok = transactionStatistics.recordTransaction(BigDecimal.valueOf(5), timeZero.minusSeconds(2));
+        assertThat(ok).isTrue();
+    }
+
+    @Test
+    public void testRecordFailFuture() {
+        boolean ok = transactionStatistics.recordTransaction(BigDecimal.valueOf(5), timeZero.plusSeconds(2));
+        assertThat(ok).isFalse();
+    }
+
+    @Test
+    public void testRecordFailTooOld() {
+        boolean ok = transactionStatistics.recordTransaction(BigDecimal.valueOf(5), timeZero.minusSeconds(RECORDING_SECONDS + 2));
+        assertThat(ok).isFalse();
+    }
+
+    @Test
+    public void testBasic() {
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(100));
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(3), timeZero.minusMillis(58900));
+
+        StatisticsSummary<BigDecimal> summary = transactionStatistics.getSummary();
+
+        assertThat(summary.getCount()).isEqualTo(2);
+        assertThat(summary.getSum()).isEqualTo(BigDecimal.valueOf(4));
+        assertThat(summary.getMax()).isEqualTo(BigDecimal.valueOf(3));
+        assertThat(summary.getMin()).isEqualTo(BigDecimal.valueOf(1));
+    }
+
+    @Test
+    public void testWeighted() {
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(100), 4);
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(3), timeZero.minusMillis(58900), 2);
+
+        StatisticsSummary<BigDecimal> summary = transactionStatistics.getSummary();
+
+        assertThat(summary.getCount()).isEqualTo(6);
+        assertThat(summary.getSum()).isEqualTo(BigDecimal.valueOf(10));
+        assertThat(summary.getMax()).isEqualTo(BigDecimal.valueOf(3));
+        assertThat(summary.getMin()).isEqualTo(BigDecimal.valueOf(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWeightedIllegalWeight() {
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(100), 0);
+    }
+
+    @Test
+    public void testTicking() {
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(100));
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(3), timeZero.minusMillis(58900));
+
+        clock.setInstant(timeZero.plusSeconds(1));
+        transactionStatistics.tick(); // value 3 should fall out
+
+        StatisticsSummary summary = transactionStatistics.getSummary();
+
+        assertThat(summary.getCount()).isEqualTo(1);
+        assertThat(summary.getSum()).isEqualTo(BigDecimal.valueOf(1));
+        assertThat(summary.getMax()).isEqualTo(BigDecimal.valueOf(1));
+        assertThat(summary.getMin()).isEqualTo(BigDecimal.valueOf(1));
+    }
+
+    @Test
+    public void testRecordAfterTick() {
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(100));
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(3), timeZero.minusMillis(58900));
+
+        clock.setInstant(timeZero.plusSeconds(1));
+        transactionStatistics.tick(); // value 3 should fall out
+
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(5), timeZero.minusSeconds(10));
+
+        StatisticsSummary summary = transactionStatistics.getSummary();
+        assertThat(summary.getCount()).isEqualTo(2);
+        assertThat(summary.getSum()).isEqualTo(BigDecimal.valueOf(6));
+        assertThat(summary.getMax()).isEqualTo(BigDecimal.valueOf(5));
+        assertThat(summary.getMin()).isEqualTo(BigDecimal.valueOf(1));
+    }
+
+    @Test
+    public void testEarlyTick() {
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(3), timeZero.minusMillis(58900));
+
+        clock.setInstant(timeZero.plusMillis(999));
+        assertThat(transactionStatistics.tick()).isZero();
+        assertThat(transactionStatistics.getNextTick()).isEqualTo(timeZero.plusSeconds(1));
+        assertThat(transactionStatistics.getSummary().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLateTickCatchesUp() {
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(100));
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(3), timeZero.minusMillis(57900));
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(5), timeZero.minusMillis(56900));
+
+        clock.setInstant(timeZero.plusMillis(3500));
+        assertThat(transactionStatistics.tick()).isEqualTo(3); // values 3 and 5 should fall out
+        // grid is not re-anchored to the time of a late tick
+        assertThat(transactionStatistics.getNextTick()).isEqualTo(timeZero.plusSeconds(4));
+
+        StatisticsSummary summary = transactionStatistics.getSummary();
+        assertThat(summary.getCount()).isEqualTo(1);
+        assertThat(summary.getSum()).isEqualTo(BigDecimal.valueOf(1));
+
+        assertThat(transactionStatistics.recordTransaction(BigDecimal.valueOf(7), timeZero.plusMillis(3100))).isTrue();
+        assertThat(transactionStatistics.recordTransaction(BigDecimal.valueOf(7), timeZero.minusMillis(56100))).isFalse();
+    }
+
+    @Test
+    public void testTickAfterLongPause() {
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(100));
+
+        clock.setInstant(timeZero.plus(Duration.ofDays(1)));
+        assertThat(transactionStatistics.tick()).isEqualTo(24 * 60 * 60);
+        assertThat(transactionStatistics.getSummary().getCount()).isZero();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalFutureSkew() {
+        TransactionStatisticsRecorderImpl.builder(Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS)
+                .futureSkew(Duration.ofSeconds(-1))
+                .build();
+    }
+
+    @Test
+    public void testRecordFutureWithinSkew() {
+        TransactionStatisticsRecorderImpl skewed = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS)
+                .futureSkew(Duration.ofSeconds(2))
+                .clock(clock)
+                .build();
+
+        assertThat(skewed.recordTransaction(BigDecimal.valueOf(5), timeZero.plusMillis(1500))).isTrue();
+        assertThat(skewed.recordTransaction(BigDecimal.valueOf(5), timeZero.plusMillis(3100))).isFalse();
+        // future buckets are not part of the window yet
+        assertThat(skewed.getSummary().getCount()).isZero();
+
+        clock.setInstant(timeZero.plusSeconds(2));
+        skewed.tick();
+        assertThat(skewed.getSummary().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRecordLateNotInWindow() {
+        TransactionStatisticsRecorderImpl late = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS)
+                .allowedLateness(Duration.ofSeconds(2))
+                .clock(clock)
+                .build();
+
+        assertThat(late.recordTransaction(BigDecimal.valueOf(5), timeZero.minusMillis(59500))).isFalse();
+        assertThat(late.recordTransaction(BigDecimal.valueOf(5), timeZero.minusMillis(58500))).isTrue();
+        assertThat(late.getSummary().getCount()).isEqualTo(1);
+
+        clock.setInstant(timeZero.plusSeconds(1));
+        late.tick();
+        assertThat(late.getSummary().getCount()).isZero();
+    }
+
+    @Test
+    public void testExpiredBucketListener() {
+        List<Instant> starts = new ArrayList<>();
+        List<Stats> expired = new ArrayList<>();
+        transactionStatistics.setExpiredBucketListener((start, width, stats) -> {
+            starts.add(start);
+            expired.add(stats);
+        });
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(100));
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(3), timeZero.minusMillis(58900));
+
+        clock.setInstant(timeZero.plusSeconds(1));
+        transactionStatistics.tick(); // value 3 should fall out
+        transactionStatistics.clear(); // value 1 should not be reported
+
+        assertThat(starts).containsExactly(timeZero.minusSeconds(59));
+        assertThat(expired).hasSize(1);
+        assertThat(expired.get(0).getSum()).isEqualTo(BigDecimal.valueOf(3));
+    }
+
+    /**
+     * Buckets of a cleared generation are neither summarized, merged into, nor reported as expired.
+     */
+    @Test
+    public void testClearedBucketsReset() {
+        List<Stats> expired = new ArrayList<>();
+        transactionStatistics.setExpiredBucketListener((start, width, stats) -> expired.add(stats));
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(100), timeZero.minusMillis(100));
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(7), timeZero.minusMillis(30100));
+        transactionStatistics.clear();
+        assertThat(transactionStatistics.getSummary().getCount()).isZero();
+
+        transactionStatistics.recordTransaction(BigDecimal.valueOf(2), timeZero.minusMillis(200));
+        StatisticsSummary<BigDecimal> summary = transactionStatistics.getSummary();
+        assertThat(summary.getCount()).isEqualTo(1);
+        assertThat(summary.getMax()).isEqualTo(BigDecimal.valueOf(2));
+
+        clock.setInstant(timeZero.plusSeconds(RECORDING_SECONDS));
+        transactionStatistics.tick();
+        assertThat(expired).hasSize(1);
+        assertThat(expired.get(0).getSum()).isEqualTo(BigDecimal.valueOf(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalShards() {
+        TransactionStatisticsRecorderImpl.builder(Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS)
+                .shards(0)
+                .build();
+    }
+
+    @Test
+    public void testShardedConcurrentRecording() throws Exception {
+        TransactionStatisticsRecorderImpl sharded = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS)
+                .shards(4)
+                .clock(clock)
+                .build();
+        List<Stats> expired = new ArrayList<>();
+        sharded.setExpiredBucketListener((start, width, stats) -> expired.add(stats));
+
+        int threads = 8;
+        int transactions = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int value = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < transactions; i++) {
+                    sharded.recordTransaction(BigDecimal.valueOf(value), timeZero.minusMillis(58900));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        StatisticsSummary<BigDecimal> summary = sharded.getSummary();
+        assertThat(summary.getCount()).isEqualTo(threads * transactions);
+        assertThat(summary.getSum()).isEqualTo(BigDecimal.valueOf(28 * transactions));
+        assertThat(summary.getMax()).isEqualTo(BigDecimal.valueOf(7));
+        assertThat(summary.getMin()).isEqualTo(BigDecimal.valueOf(0));
+
+        clock.setInstant(timeZero.plusSeconds(1));
+        sharded.tick(); // all shards rotate together
+        assertThat(sharded.getSummary().getCount()).isZero();
+        assertThat(expired).hasSize(1);
+        assertThat(expired.get(0).getCount()).isEqualTo(threads * transactions);
+    }
+
+    /**
+     * Writers that read the generation before a clear must not overwrite a bucket already reset by a transaction
+     * recorded after the clear returned.
+     */
+    @Test
+    public void testClearRacingRecord() throws Exception {
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        AtomicBoolean done = new AtomicBoolean();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                while (!done.get()) {
+                    transactionStatistics.recordTransaction(BigDecimal.ONE, timeZero.minusMillis(100));
+                }
+            }));
+        }
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                transactionStatistics.clear();
+                transactionStatistics.recordTransaction(BigDecimal.TEN, timeZero.minusMillis(100));
+                assertThat(transactionStatistics.getSummary().getMax()).isEqualTo(BigDecimal.TEN);
+            }
+        } finally {
+            done.set(true);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMillisecondResolution() {
+        TransactionStatisticsRecorderImpl fine = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(RECORDING_SECONDS), 1000 * RECORDING_SECONDS)
+                .shards(2)
+                .clock(clock)
+                .build();
+        fine.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(1));
+        fine.recordTransaction(BigDecimal.valueOf(2), timeZero.minusMillis(30_000));
+        fine.recordTransaction(BigDecimal.valueOf(3), timeZero.minusMillis(59_990));
+        assertThat(fine.getMaterializedBlocks()).isEqualTo(3);
+        StatisticsSummary<BigDecimal> summary = fine.getSummary();
+        assertThat(summary.getCount()).isEqualTo(3);
+        assertThat(summary.getSum()).isEqualTo(BigDecimal.valueOf(6));
+
+        clock.setInstant(timeZero.plusMillis(20));
+        fine.tick();
+        assertThat(fine.getSummary().getSum()).isEqualTo(BigDecimal.valueOf(3));
+        assertThat(fine.getMaterializedBlocks()).isEqualTo(2); // oldest block released
+
+        clock.setInstant(timeZero.plusSeconds(RECORDING_SECONDS));
+        fine.tick();
+        assertThat(fine.getSummary().getCount()).isZero();
+        assertThat(fine.getMaterializedBlocks()).isZero();
+    }
+
+    @Test
+    public void testParallelSummary() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TransactionStatisticsRecorderImpl.Builder builder = TransactionStatisticsRecorderImpl
+                    .builder(Duration.ofSeconds(RECORDING_SECONDS), 1000 * RECORDING_SECONDS)
+                    .shards(2)
+                    .clock(clock);
+            TransactionStatisticsRecorderImpl sequential = builder.build();
+            TransactionStatisticsRecorderImpl parallel = builder.parallelSummary(pool, 1000).build();
+            Random random = new Random(7);
+            for (int step = 0; step < 3; step++) { // rotate so that the window wraps around the end of the ring
+                clock.setInstant(timeZero.plusMillis(step * 12_345L));
+                sequential.tick();
+                parallel.tick();
+                for (int i = 0; i < 10_000; i++) {
+                    BigDecimal amount = BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+                    Instant timestamp = clock.instant().minusMillis(random.nextInt(59_000));
+                    sequential.recordTransaction(amount, timestamp);
+                    parallel.recordTransaction(amount, timestamp);
+                }
+                StatisticsSummary<BigDecimal> expected = sequential.getSummary();
+                StatisticsSummary<BigDecimal> actual = parallel.getSummary();
+                assertThat(actual.getCount()).isEqualTo(expected.getCount());
+                assertThat(actual.getSum()).isEqualTo(expected.getSum());
+                assertThat(actual.getMax()).isEqualTo(expected.getMax());
+                assertThat(actual.getMin()).isEqualTo(expected.getMin());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelSummaryThresholdBelowShards() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            TransactionStatisticsRecorderImpl parallel = TransactionStatisticsRecorderImpl
+                    .builder(Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS)
+                    .shards(4)
+                    .parallelSummary(pool, 1)
+                    .clock(clock)
+                    .build();
+            parallel.recordTransaction(BigDecimal.ONE, timeZero.minusMillis(100));
+            parallel.recordTransaction(BigDecimal.TEN, timeZero.minusMillis(30_000));
+
+            StatisticsSummary<BigDecimal> summary = parallel.getSummary();
+            assertThat(summary.getCount()).isEqualTo(2);
+            assertThat(summary.getSum()).isEqualTo(BigDecimal.valueOf(11));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalParallelThreshold() {
+        TransactionStatisticsRecorderImpl.builder(Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS)
+                .parallelSummary(ForkJoinPool.commonPool(), 0)
+                .build();
+    }
+
+    @Test
+    public void testHistogram() {
+        TransactionStatisticsRecorderImpl recorder = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS)
+                .histogram(new HistogramBins(BigDecimal.ONE, BigDecimal.valueOf(10), 4)) // <1, <10, <100, rest
+                .clock(clock)
+                .build();
+        recorder.recordTransaction(new BigDecimal("0.5"), timeZero.minusMillis(100));
+        recorder.recordTransaction(new BigDecimal("1.0"), timeZero.minusMillis(100), 3);
+        recorder.recordTransaction(new BigDecimal("99.99"), timeZero.minusMillis(1100));
+        recorder.recordTransaction(new BigDecimal("1000"), timeZero.minusMillis(58900));
+
+        Histogram histogram = recorder.getHistogram();
+        assertThat(histogram.getSummary().getCount()).isEqualTo(6);
+        assertThat(histogram.getCount(0)).isEqualTo(1);
+        assertThat(histogram.getCount(1)).isEqualTo(3);
+        assertThat(histogram.getCount(2)).isEqualTo(1);
+        assertThat(histogram.getCount(3)).isEqualTo(1);
+
+        clock.setInstant(timeZero.plusSeconds(2));
+        recorder.tick(); // expires the oldest bucket
+        assertThat(recorder.getHistogram().getCount(3)).isEqualTo(0);
+
+        recorder.clear();
+        recorder.recordTransaction(new BigDecimal("2"), clock.instant().minusMillis(100));
+        histogram = recorder.getHistogram();
+        assertThat(histogram.getCount(0)).isEqualTo(0);
+        assertThat(histogram.getCount(1)).isEqualTo(1);
+        assertThat(histogram.getCount(2)).isEqualTo(0);
+    }
+
+    @Test
+    public void testHistogramOfRecordedStats() {
+        TransactionStatisticsRecorderImpl recorder = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS)
+                .histogram(new HistogramBins(BigDecimal.ONE, BigDecimal.valueOf(10), 4))
+                .clock(clock)
+                .build();
+        assertThat(recorder.recordStats(Stats.of(new BigDecimal("50")), timeZero.minusMillis(100))).isTrue();
+        assertThat(recorder.recordStats(new Stats(new BigDecimal("6"), new BigDecimal("5"), BigDecimal.ONE, 2),
+                timeZero.minusMillis(100))).isTrue();
+
+        Histogram histogram = recorder.getHistogram();
+        assertThat(histogram.getSummary().getCount()).isEqualTo(3);
+        assertThat(histogram.getCount(2)).isEqualTo(1); // groups of more than one transaction have no bin
+        assertThat(histogram.getCount(1)).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testHistogramDisabled() {
+        transactionStatistics.getHistogram();
+    }
+
+    @Test
+    public void testWatermarkFinalizesIntervals() {
+        TransactionStatisticsRecorderImpl recorder = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS)
+                .allowedLateness(Duration.ofSeconds(2))
+                .watermark(true)
+                .clock(clock)
+                .build();
+        List<Instant> starts = new ArrayList<>();
+        List<Stats> finalized = new ArrayList<>();
+        List<Instant> watermarks = new ArrayList<>();
+        recorder.setFinalizedIntervalListener(new FinalizedIntervalListener() {
+            @Override
+            public void intervalFinalized(Instant start, Duration width, Stats stats) {
+                starts.add(start);
+                finalized.add(stats);
+            }
+
+            @Override
+            public void watermarkAdvanced(Instant finalizedUpTo) {
+                watermarks.add(finalizedUpTo);
+            }
+        });
+        recorder.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(10500));
+        recorder.recordTransaction(BigDecimal.valueOf(2), timeZero.minusMillis(5500));
+        recorder.recordTransaction(BigDecimal.valueOf(3), timeZero.minusMillis(500)); // watermark at -2.5s
+
+        clock.setInstant(timeZero.plusSeconds(1));
+        recorder.tick();
+        assertThat(starts).containsExactly(timeZero.minusSeconds(11), timeZero.minusSeconds(6));
+        assertThat(finalized.get(0).getSum()).isEqualTo(BigDecimal.valueOf(1));
+        assertThat(finalized.get(1).getSum()).isEqualTo(BigDecimal.valueOf(2));
+        assertThat(watermarks).containsExactly(timeZero.minusSeconds(3));
+
+        // finalized intervals do not change, while the window still holds them
+        assertThat(recorder.recordTransaction(BigDecimal.valueOf(4), timeZero.minusMillis(3500))).isFalse();
+        assertThat(recorder.recordTransaction(BigDecimal.valueOf(4), timeZero.minusMillis(2500))).isTrue();
+        assertThat(recorder.getSummary().getCount()).isEqualTo(4);
+
+        clock.setInstant(timeZero.plusSeconds(2));
+        recorder.tick(); // watermark did not move
+        assertThat(starts).hasSize(2);
+        assertThat(watermarks).hasSize(1);
+    }
+
+    @Test
+    public void testWatermarkFinalizesExpiringIntervals() {
+        TransactionStatisticsRecorderImpl recorder = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS)
+                .watermark(true)
+                .clock(clock)
+                .build();
+        List<Stats> finalized = new ArrayList<>();
+        recorder.setFinalizedIntervalListener((start, width, stats) -> finalized.add(stats));
+        recorder.recordTransaction(BigDecimal.valueOf(1), timeZero.minusMillis(58500));
+        clock.setInstant(timeZero.plusSeconds(61));
+        recorder.tick(); // the watermark is later, but the bucket expires anyway
+
+        assertThat(finalized).hasSize(1);
+        assertThat(finalized.get(0).getCount()).isEqualTo(1);
+    }
+
+    /**
+     * Every writer records +1 into a recent bucket followed by -1 into an older one, which summary reads later.
+     * A summary consistent with a single point in time never sees more of the latter than of the former.
+     */
+    @Test
+    public void testSnapshotReads() throws Exception {
+        TransactionStatisticsRecorderImpl snapshot = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(RECORDING_SECONDS), 1000 * RECORDING_SECONDS) // long reads
+                .shards(2)
+                .snapshotReads(true)
+                .clock(clock)
+                .build();
+        int threads = 4;
+        int transactions = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < transactions; i++) {
+                    snapshot.recordTransaction(BigDecimal.ONE, timeZero.minusMillis(100));
+                    snapshot.recordTransaction(BigDecimal.ONE.negate(), timeZero.minusMillis(50100));
+                }
+            }));
+        }
+        while (futures.stream().anyMatch(f -> !f.isDone())) {
+            StatisticsSummary<BigDecimal> summary = snapshot.getSummary();
+            assertThat(summary.getSum().signum()).isGreaterThanOrEqualTo(0);
+            assertThat(summary.getSum().intValue()).isLessThanOrEqualTo(threads);
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(snapshot.getSummary().getCount()).isEqualTo(2L * threads * transactions);
+        assertThat(snapshot.getSummary().getSum().signum()).isZero();
+    }
+
+    /**
+     * Bins are counted after a bucket is published: a snapshot of the histogram never sees them lag behind the count.
+     */
+    @Test
+    public void testSnapshotReadsOfHistogram() throws Exception {
+        TransactionStatisticsRecorderImpl snapshot = TransactionStatisticsRecorderImpl
+                .builder(Duration.ofSeconds(RECORDING_SECONDS), RECORDING_SECONDS)
+                .snapshotReads(true)
+                .histogram(new HistogramBins(BigDecimal.ONE, BigDecimal.valueOf(10), 4))
+                .clock(clock)
+                .build();
+        int threads = 4;
+        int transactions = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < transactions; i++) {
+                    snapshot.recordTransaction(BigDecimal.ONE, timeZero.minusMillis(100));
+                }
+            }));
+        }
+        while (futures.stream().anyMatch(f -> !f.isDone())) {
+            Histogram histogram = snapshot.getHistogram();
+            long binned = 0;
+            for (int b = 0; b < histogram.getBins().size(); b++) {
+                binned += histogram.getCount(b);
+            }
+            assertThat(binned).isEqualTo(histogram.getSummary().getCount());
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(snapshot.getHistogram().getCount(1)).isEqualTo((long) threads * transactions);
+    }
+
+    static class FakeClock extends Clock {
+        Instant instant;
+
+        @Override
+        public ZoneId getZone() {
+            return null;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return null;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+        void setInstant(Instant instant) {
+            this.instant = instant;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+package com.n26.stats.store;
+
+import com.n26.stats.StatisticsHistory;
+import com.n26.stats.Stats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SegmentStoreTest {
+    private static final Instant dayZero = Instant.ofEpochSecond(1543104000L);
+    private static final Duration bucketWidth = Duration.ofMillis(60);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private SegmentStore store;
+
+    @Before
+    public void setUp() {
+        directory = folder.getRoot().toPath();
+        store = createStore(dayZero.plus(Duration.ofDays(3)));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        store.close();
+    }
+
+    private SegmentStore createStore(Instant now) {
+        return new SegmentStore(directory, Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofDays(1), 2,
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static Stats stats(String sum, String max, String min, long count) {
+        return new Stats(new BigDecimal(sum), new BigDecimal(max), new BigDecimal(min), count);
+    }
+
+    private long segmentFiles(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateIllegalSlotWidth() {
+        new SegmentStore(directory, Duration.ofSeconds(7), Duration.ofMinutes(1), Duration.ofDays(1), 2,
+                Clock.systemUTC());
+    }
+
+    @Test
+    public void testAppendAndQuery() {
+        store.bucketExpired(dayZero.plusMillis(100), bucketWidth, stats("1.5", "1", "0.5", 2));
+        store.bucketExpired(dayZero.plusMillis(900), bucketWidth, stats("3", "3", "3", 1));
+        store.bucketExpired(dayZero.plusSeconds(90), bucketWidth, stats("5", "5", "5", 1));
+
+        List<StatisticsHistory.Rollup> rollups = store.query(dayZero, dayZero.plusSeconds(3600), Duration.ofMinutes(1));
+
+        assertThat(rollups).hasSize(2);
+        assertThat(rollups.get(0).getStart()).isEqualTo(dayZero);
+        assertThat(rollups.get(0).getEnd()).isEqualTo(dayZero.plusSeconds(60));
+        assertThat(rollups.get(0).getStats().getSum()).isEqualByComparingTo("4.5");
+        assertThat(rollups.get(0).getStats().getMax()).isEqualByComparingTo("3");
+        assertThat(rollups.get(0).getStats().getMin()).isEqualByComparingTo("0.5");
+        assertThat(rollups.get(0).getStats().getCount()).isEqualTo(3);
+        assertThat(rollups.get(1).getStart()).isEqualTo(dayZero.plusSeconds(60));
+        assertThat(rollups.get(1).getStats().getCount()).isEqualTo(1);
+
+        assertThat(store.query(dayZero.plusSeconds(1), dayZero.plusSeconds(90), Duration.ofMinutes(1))).isEmpty();
+        assertThat(store.getAppendedBuckets()).isEqualTo(3);
+    }
+
+    @Test
+    public void testAmountsRounded() {
+        store.bucketExpired(dayZero, bucketWidth, stats("1.005", "1.005", "1.005", 1));
+
+        List<StatisticsHistory.Rollup> rollups = store.query(dayZero, dayZero.plusSeconds(1), Duration.ofSeconds(1));
+
+        assertThat(rollups.get(0).getStats().getSum()).isEqualTo(new BigDecimal("1.00"));
+    }
+
+    @Test
+    public void testOverflowDropped() {
+        store.bucketExpired(dayZero, bucketWidth, stats("1e30", "1e30", "1e30", 1));
+
+        assertThat(store.query(dayZero, dayZero.plusSeconds(1), Duration.ofSeconds(1))).isEmpty();
+        assertThat(store.getDroppedBuckets()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        store.bucketExpired(dayZero.plusSeconds(1), bucketWidth, stats("1", "1", "1", 1));
+        store.bucketExpired(dayZero.plusSeconds(59), bucketWidth, stats("3", "3", "3", 1));
+        store.bucketExpired(dayZero.plus(Duration.ofHours(1)), bucketWidth, stats("5", "5", "5", 1));
+        store.bucketExpired(dayZero.plus(Duration.ofDays(2).plusHours(12)), bucketWidth, stats("7", "7", "7", 1));
+        assertThat(store.query(Instant.MIN, Instant.MAX, Duration.ofDays(1))).hasSize(2);
+
+        store.compact();
+        assertThat(store.getCompactedSegments()).isEqualTo(2);
+        assertThat(segmentFiles("fine-")).isEqualTo(1);
+        assertThat(segmentFiles("coarse-")).isEqualTo(1);
+
+        List<StatisticsHistory.Rollup> rollups = store.query(dayZero, dayZero.plus(Duration.ofDays(3)),
+                Duration.ofSeconds(1));
+        assertThat(rollups).hasSize(3);
+        assertThat(rollups.get(0).getStart()).isEqualTo(dayZero);
+        assertThat(rollups.get(0).getStats().getSum()).isEqualByComparingTo("4");
+        assertThat(rollups.get(1).getStart()).isEqualTo(dayZero.plus(Duration.ofHours(1)));
+        assertThat(rollups.get(2).getStats().getSum()).isEqualByComparingTo("7");
+    }
+
+    /**
+     * The second fine segment overflows the daily slot after its first slot has been merged: the coarse segment must
+     * not keep that slot, or it would be counted again by every retry.
+     */
+    @Test
+    public void testFailedCompactionQuarantined() throws Exception {
+        store.close();
+        store = new SegmentStore(directory, Duration.ofSeconds(1), Duration.ofDays(1), Duration.ofDays(1), 2,
+                Clock.fixed(dayZero.plus(Duration.ofDays(3)), ZoneOffset.UTC));
+        String half = "50000000000000000"; // half of the largest sum of scale 2, roughly
+        store.bucketExpired(dayZero, bucketWidth, stats(half, half, half, 1));
+        store.bucketExpired(dayZero.plus(Duration.ofHours(1)), bucketWidth, stats("1", "1", "1", 1));
+        store.bucketExpired(dayZero.plus(Duration.ofHours(1)).plusSeconds(1), bucketWidth, stats(half, half, half, 1));
+        store.bucketExpired(dayZero.plus(Duration.ofHours(2)), bucketWidth, stats("2", "2", "2", 1));
+        assertThat(store.query(Instant.MIN, Instant.MAX, Duration.ofDays(1))).hasSize(1);
+
+        for (int attempt = 1; attempt < SegmentStore.MAX_COMPACTION_ATTEMPTS; attempt++) {
+            store.compact();
+            assertThat(store.getCompactedSegments()).isEqualTo(1);
+            assertThat(store.query(dayZero, dayZero.plus(Duration.ofDays(1)), Duration.ofDays(1)).get(0).getStats()
+                    .getCount()).isEqualTo(4);
+            assertThat(segmentFiles("coarse-")).isEqualTo(1);
+        }
+        store.compact();
+
+        assertThat(store.getQuarantinedSegments()).isEqualTo(1);
+        assertThat(store.getCompactedSegments()).isEqualTo(2);
+        assertThat(segmentFiles("fine-")).isZero();
+        assertThat(segmentFiles("quarantine-")).isEqualTo(1);
+        assertThat(store.getSegments()).isEqualTo(2);
+        List<StatisticsHistory.Rollup> rollups = store.query(dayZero, dayZero.plus(Duration.ofDays(1)),
+                Duration.ofDays(1));
+        assertThat(rollups.get(0).getStats().getCount()).isEqualTo(4);
+        assertThat(rollups.get(0).getStats().getSum()).isEqualByComparingTo("100000000000000003");
+
+        store.close();
+        store = createStore(dayZero.plus(Duration.ofDays(3)));
+        assertThat(store.getQuarantinedSegments()).isEqualTo(1);
+        assertThat(store.query(dayZero, dayZero.plus(Duration.ofDays(1)), Duration.ofDays(1)).get(0).getStats()
+                .getCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void testReopen() throws InterruptedException {
+        store.bucketExpired(dayZero, bucketWidth, stats("1", "1", "1", 1));
+        store.close();
+
+        store = createStore(dayZero.plus(Duration.ofDays(3)));
+        store.bucketExpired(dayZero.plusMillis(500), bucketWidth, stats("3", "3", "3", 1));
+
+        List<StatisticsHistory.Rollup> rollups = store.query(dayZero, dayZero.plusSeconds(1), Duration.ofSeconds(1));
+        assertThat(rollups).hasSize(1);
+        assertThat(rollups.get(0).getStats().getCount()).isEqualTo(2);
+        assertThat(store.getSegments()).isEqualTo(1);
+    }
+}
@@ -1,27 +0,0 @@
-package com.n26.config;
-
-import org.springframework.boot.context.properties.ConfigurationProperties;
-
-import java.time.Duration;
-
-@ConfigurationProperties(prefix = "recorder", ignoreUnknownFields = false)
-public class RecorderProperties {
-    private int resolution = 1000;
-    private Duration duration = Duration.ofSeconds(60);
-
-    public int getResolution() {
-        return resolution;
-    }
-
-    public void setResolution(int resolution) {
-        this.resolution = resolution;
-    }
-
-    public Duration getDuration() {
-        return duration;
-    }
-
-    public void setDuration(Duration duration) {
-        this.duration = duration;
-    }
-}
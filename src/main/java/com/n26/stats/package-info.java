@@ -1,4 +0,0 @@
-@NonNullApi
-package com.n26.stats;
-
-import org.springframework.lang.NonNullApi;
\ No newline at end of file
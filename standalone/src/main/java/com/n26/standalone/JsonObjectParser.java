@@ -0,0 +1,252 @@
+package com.n26.standalone;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal parser of a JSON object, for request bodies of the standalone server.
+ *
+ * <p>The whole input is validated as JSON, but only members of the top-level object are returned: strings as
+ * {@code String}, numbers as {@code BigDecimal}, booleans as {@code Boolean}, nulls as null and nested objects and
+ * arrays as {@link #NESTED}.
+ */
+final class JsonObjectParser {
+    static final Object NESTED = new Object();
+
+    private final String json;
+    private int pos;
+
+    private JsonObjectParser(String json) {
+        this.json = json;
+    }
+
+    /**
+     * Parses a JSON object.
+     *
+     * @param json the text to parse
+     * @return members of the object by name
+     * @throws IllegalArgumentException if the text is not a JSON object
+     */
+    static Map<String, Object> parse(String json) {
+        JsonObjectParser parser = new JsonObjectParser(json);
+        parser.skipWhitespace();
+        if (parser.peek() != '{') {
+            throw parser.error("object expected");
+        }
+        Map<String, Object> members = parser.readObject(true);
+        parser.skipWhitespace();
+        if (parser.pos < json.length()) {
+            throw parser.error("end of input expected");
+        }
+        return members;
+    }
+
+    private Map<String, Object> readObject(boolean keep) {
+        Map<String, Object> members = keep ? new HashMap<>() : null;
+        pos++; // {
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return members;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("member name expected");
+            }
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            Object value = readValue();
+            if (keep) {
+                members.put(name, value);
+            }
+            skipWhitespace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect('}');
+                return members;
+            }
+        }
+    }
+
+    private void readArray() {
+        pos++; // [
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return;
+        }
+        while (true) {
+            readValue();
+            skipWhitespace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect(']');
+                return;
+            }
+        }
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        char c = peek();
+        switch (c) {
+            case '"':
+                return readString();
+            case '{':
+                readObject(false);
+                return NESTED;
+            case '[':
+                readArray();
+                return NESTED;
+            case 't':
+                readLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                readLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                readLiteral("null");
+                return null;
+            default:
+                if (c == '-' || c >= '0' && c <= '9') {
+                    return readNumber();
+                }
+                throw error("value expected");
+        }
+    }
+
+    private String readString() {
+        StringBuilder sb = new StringBuilder();
+        pos++; // "
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c < 0x20) {
+                throw error("control character in string");
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    sb.append(escaped);
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > json.length()) {
+                        throw error("unterminated escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("invalid escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    throw error("invalid escape");
+            }
+        }
+    }
+
+    private BigDecimal readNumber() {
+        int start = pos;
+        if (peek() == '-') {
+            pos++;
+        }
+        if (peek() == '0') {
+            pos++;
+        } else {
+            digits();
+        }
+        if (peek() == '.') {
+            pos++;
+            digits();
+        }
+        if (peek() == 'e' || peek() == 'E') {
+            pos++;
+            if (peek() == '+' || peek() == '-') {
+                pos++;
+            }
+            digits();
+        }
+        return new BigDecimal(json.substring(start, pos));
+    }
+
+    private void digits() {
+        int start = pos;
+        while (peek() >= '0' && peek() <= '9') {
+            pos++;
+        }
+        if (pos == start) {
+            throw error("digit expected");
+        }
+    }
+
+    private void readLiteral(String literal) {
+        if (!json.startsWith(literal, pos)) {
+            throw error(literal + " expected");
+        }
+        pos += literal.length();
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("'" + c + "' expected");
+        }
+        pos++;
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Returns the current character, 0 at the end of input.
+     */
+    private char peek() {
+        return pos < json.length() ? json.charAt(pos) : 0;
+    }
+
+    private char next() {
+        if (pos >= json.length()) {
+            throw error("unexpected end of input");
+        }
+        return json.charAt(pos++);
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at " + pos + ": " + message);
+    }
+}
@@ -0,0 +1,273 @@
+package com.n26.standalone;
+
+import com.n26.stats.StatisticsSummary;
+import com.n26.stats.TickDriver;
+import com.n26.stats.TransactionStatisticsRecorderImpl;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics server on top of the JDK built-in HTTP server, without the Spring application: <tt>POST /transactions</tt>,
+ * <tt>GET /statistics</tt> and <tt>DELETE /transactions</tt>, with the same requests, responses and status codes.
+ *
+ * <p>Meant for fast starting instances that need none of the optional features of the application.
+ */
+public final class StandaloneServer implements AutoCloseable {
+    static final String USAGE = "usage: standalone [--host=0.0.0.0] [--port=8080] [--duration=PT60S] "
+            + "[--resolution=1000] [--future-skew=PT0S] [--scale=2] [--threads=<cpus>]";
+
+    private static final int NO_BODY = -1;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final TransactionStatisticsRecorderImpl recorder;
+    private final TickDriver tickDriver;
+    private final Duration futureSkew;
+    private final int scale;
+    private final Clock clock;
+
+    /**
+     * Constructs server bound to a given address, not yet started.
+     *
+     * @param address    the address to bind to, port 0 for any free port
+     * @param threads    number of threads handling requests
+     * @param recorder   recorder of transactions, ticked by the server
+     * @param futureSkew how far in the future a transaction can happen
+     * @param scale      number of decimal places of statistics
+     * @param clock      clock of the recorder
+     * @throws IOException if the address cannot be bound
+     */
+    public StandaloneServer(InetSocketAddress address, int threads, TransactionStatisticsRecorderImpl recorder,
+                            Duration futureSkew, int scale, Clock clock) throws IOException {
+        this.recorder = recorder;
+        this.futureSkew = futureSkew;
+        this.scale = scale;
+        this.clock = clock;
+        tickDriver = new TickDriver(recorder, clock);
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/transactions", this::handleTransactions);
+        server.createContext("/statistics", this::handleStatistics);
+    }
+
+    public static void main(String... args) throws IOException {
+        int status = run(args, System.err);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Starts server of given command line arguments, that runs until the JVM shuts down.
+     *
+     * @param args   command line arguments, see {@link #USAGE}
+     * @param stderr output of usage
+     * @return exit status
+     * @throws IOException if the address cannot be bound
+     */
+    static int run(String[] args, PrintStream stderr) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 3) {
+                stderr.println(USAGE);
+                return 2;
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        StandaloneServer server;
+        try {
+            Duration futureSkew = Duration.parse(options.getOrDefault("future-skew", "PT0S"));
+            Clock clock = Clock.systemUTC();
+            server = new StandaloneServer(
+                    new InetSocketAddress(options.getOrDefault("host", "0.0.0.0"),
+                            Integer.parseInt(options.getOrDefault("port", "8080"))),
+                    Integer.parseInt(options.getOrDefault("threads",
+                            String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                    TransactionStatisticsRecorderImpl
+                            .builder(Duration.parse(options.getOrDefault("duration", "PT60S")),
+                                    Integer.parseInt(options.getOrDefault("resolution", "1000")))
+                            .futureSkew(futureSkew)
+                            .clock(clock)
+                            .build(),
+                    futureSkew,
+                    Integer.parseInt(options.getOrDefault("scale", "2")),
+                    clock);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            stderr.println(e.getMessage());
+            stderr.println(USAGE);
+            return 2;
+        }
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        return 0;
+    }
+
+    /**
+     * Starts ticking the recorder and accepting requests.
+     */
+    public void start() {
+        tickDriver.start();
+        server.start();
+    }
+
+    /**
+     * Returns the port the server is bound to.
+     *
+     * @return local port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, waiting for up to a second for requests in progress, and stops ticking.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public void close() throws InterruptedException {
+        server.stop(1);
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        tickDriver.close();
+    }
+
+    private void handleTransactions(HttpExchange exchange) throws IOException {
+        try {
+            if (!"/transactions".equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, NO_BODY);
+            } else if ("POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(postTransaction(exchange), NO_BODY);
+            } else if ("DELETE".equals(exchange.getRequestMethod())) {
+                recorder.clear();
+                exchange.sendResponseHeaders(204, NO_BODY);
+            } else {
+                exchange.getResponseHeaders().set("Allow", "POST, DELETE");
+                exchange.sendResponseHeaders(405, NO_BODY);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Records transaction of the request body.
+     *
+     * @return response status
+     */
+    private int postTransaction(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("application/json")) {
+            return 415;
+        }
+        Map<String, Object> request;
+        try {
+            request = JsonObjectParser.parse(new String(readBody(exchange.getRequestBody()), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            return 400;
+        }
+        BigDecimal amount;
+        Instant timestamp;
+        try {
+            amount = toAmount(request.get("amount"));
+            timestamp = toTimestamp(request.get("timestamp"));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return 422;
+        }
+        if (timestamp.isAfter(clock.instant().plus(futureSkew))) {
+            return 422;
+        }
+        return recorder.recordTransaction(amount, timestamp) ? 201 : 204;
+    }
+
+    private static BigDecimal toAmount(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof String) {
+            return new BigDecimal(((String) value).trim()); // NumberFormatException is an IllegalArgumentException
+        }
+        throw new IllegalArgumentException("Illegal amount: " + value);
+    }
+
+    private static Instant toTimestamp(Object value) {
+        if (value instanceof String) {
+            return Instant.parse((String) value);
+        }
+        throw new IllegalArgumentException("Illegal timestamp: " + value);
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+            body.write(buffer, 0, n);
+        }
+        return body.toByteArray();
+    }
+
+    private void handleStatistics(HttpExchange exchange) throws IOException {
+        try {
+            if (!"/statistics".equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, NO_BODY);
+            } else if ("GET".equals(exchange.getRequestMethod())) {
+                byte[] body = statisticsJson(recorder.getSummary()).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } else {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                exchange.sendResponseHeaders(405, NO_BODY);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Formats summary as the application does: amounts rounded half up as strings, zeros if there is none.
+     */
+    String statisticsJson(StatisticsSummary<BigDecimal> summary) {
+        long count = summary.getCount();
+        BigDecimal zero = BigDecimal.ZERO.setScale(scale, RoundingMode.HALF_UP);
+        BigDecimal sum = count > 0 ? summary.getSum().setScale(scale, RoundingMode.HALF_UP) : zero;
+        BigDecimal avg = count > 0 ? sum.divide(BigDecimal.valueOf(count), scale, RoundingMode.HALF_UP) : zero;
+        BigDecimal max = count > 0 ? summary.getMax().setScale(scale, RoundingMode.HALF_UP) : zero;
+        BigDecimal min = count > 0 ? summary.getMin().setScale(scale, RoundingMode.HALF_UP) : zero;
+        return "{\"sum\":\"" + sum + "\",\"avg\":\"" + avg + "\",\"max\":\"" + max + "\",\"min\":\"" + min
+                + "\",\"count\":" + count + "}";
+    }
+}
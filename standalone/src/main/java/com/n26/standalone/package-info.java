@@ -0,0 +1,4 @@
+@ParametersAreNonnullByDefault
+package com.n26.standalone;
+
+import javax.annotation.ParametersAreNonnullByDefault;
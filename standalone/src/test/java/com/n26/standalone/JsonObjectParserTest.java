@@ -0,0 +1,48 @@
+package com.n26.standalone;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonObjectParserTest {
+
+    @Test
+    public void testParse() {
+        Map<String, Object> members = JsonObjectParser.parse(
+                " {\"amount\": 12.5e1, \"id\": \"a\\\"b\\u0063\", \"nested\": {\"x\": [1, true, null]}, \"n\": null} ");
+
+        assertThat(members.get("amount")).isEqualTo(new BigDecimal("12.5e1"));
+        assertThat(members.get("id")).isEqualTo("a\"bc");
+        assertThat(members.get("nested")).isSameAs(JsonObjectParser.NESTED);
+        assertThat(members).containsKey("n");
+        assertThat(members.get("n")).isNull();
+    }
+
+    @Test
+    public void testParseEmpty() {
+        assertThat(JsonObjectParser.parse("{}")).isEmpty();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseNotObject() {
+        JsonObjectParser.parse("[1]");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseTrailingInput() {
+        JsonObjectParser.parse("{} {}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseLeadingZero() {
+        JsonObjectParser.parse("{\"amount\": 01}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseUnterminatedString() {
+        JsonObjectParser.parse("{\"amount\": \"1}");
+    }
+}
@@ -0,0 +1,117 @@
+package com.n26.standalone;
+
+import com.n26.stats.TransactionStatisticsRecorderImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StandaloneServerTest {
+    private static final String JSON = "application/json;charset=UTF-8";
+
+    private StandaloneServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        Clock clock = Clock.systemUTC();
+        server = new StandaloneServer(new InetSocketAddress("localhost", 0), 2,
+                new TransactionStatisticsRecorderImpl(Duration.ofSeconds(60), 1000, clock),
+                Duration.ZERO, 2, clock);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        server.close();
+    }
+
+    @Test
+    public void testPostTransaction() throws IOException {
+        assertThat(post(transaction("12.3343", Instant.now().minusSeconds(1)))).isEqualTo(201);
+        assertThat(post(transaction("7", Instant.now().minusSeconds(2)))).isEqualTo(201);
+
+        assertThat(get("/statistics"))
+                .isEqualTo("{\"sum\":\"19.33\",\"avg\":\"9.67\",\"max\":\"12.33\",\"min\":\"7.00\",\"count\":2}");
+    }
+
+    @Test
+    public void testPostTransactionStatuses() throws IOException {
+        assertThat(post(transaction("1", Instant.now().minusSeconds(61)))).isEqualTo(204);
+        assertThat(post(transaction("1", Instant.now().plusSeconds(10)))).isEqualTo(422);
+        assertThat(post(transaction("one", Instant.now()))).isEqualTo(422);
+        assertThat(post("{\"amount\":\"1\",\"timestamp\":\"yesterday\"}")).isEqualTo(422);
+        assertThat(post("{\"amount\":\"1\"}")).isEqualTo(422);
+        assertThat(post("{\"amount\":\"1\",")).isEqualTo(400);
+        assertThat(request("POST", "/transactions", "text/plain", transaction("1", Instant.now())))
+                .isEqualTo(415);
+    }
+
+    @Test
+    public void testDeleteTransactions() throws IOException {
+        post(transaction("5", Instant.now().minusSeconds(1)));
+
+        assertThat(request("DELETE", "/transactions", null, null)).isEqualTo(204);
+        assertThat(get("/statistics"))
+                .isEqualTo("{\"sum\":\"0.00\",\"avg\":\"0.00\",\"max\":\"0.00\",\"min\":\"0.00\",\"count\":0}");
+    }
+
+    @Test
+    public void testUnknownRequests() throws IOException {
+        assertThat(request("GET", "/transactions", null, null)).isEqualTo(405);
+        assertThat(request("GET", "/statistics/decayed", null, null)).isEqualTo(404);
+    }
+
+    private static String transaction(String amount, Instant timestamp) {
+        return "{\"amount\":\"" + amount + "\",\"timestamp\":\"" + timestamp + "\"}";
+    }
+
+    private int post(String body) throws IOException {
+        return request("POST", "/transactions", JSON, body);
+    }
+
+    private int request(String method, String path, String contentType, String body) throws IOException {
+        HttpURLConnection connection = open(path);
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setRequestProperty("Content-Type", contentType);
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+
+    private String get(String path) throws IOException {
+        HttpURLConnection connection = open(path);
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getContentType()).isEqualTo(JSON);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                body.write(buffer, 0, n);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+    }
+}